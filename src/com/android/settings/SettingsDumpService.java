@@ -31,15 +31,22 @@ import android.os.storage.VolumeInfo;
 import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
+import android.util.ArraySet;
 import android.util.IndentingPrintWriter;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.dashboard.CategoryManager;
+import com.android.settings.dashboard.DashboardPageTracer;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
+import com.android.settings.fuelgauge.batteryusage.BatteryUsageContentProvider;
+import com.android.settings.network.CarrierConfigCache;
 import com.android.settings.network.MobileNetworkRepository;
+import com.android.settings.search.SearchIndexProviderFanOut;
+import com.android.settings.slices.SettingsSliceProvider;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -49,7 +56,20 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Dumps the state of the Settings as a JSON object with one entry per section, e.g.
+ * {@code adb shell dumpsys activity service com.android.settings/.SettingsDumpService}.
+ *
+ * <p>The sections to collect can be passed as the dump args, e.g. {@code storage search_index},
+ * and {@code --list} prints the names of the sections. Subsystems contribute their sections
+ * through {@link #registerSection}, or through {@link #registerOnDemandSection} for the expensive
+ * ones which are only collected when they are passed explicitly.</p>
+ */
 public class SettingsDumpService extends Service {
 
     public static final String EXTRA_KEY_SHOW_NETWORK_DUMP = "show_network_dump";
@@ -68,11 +88,81 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_SEARCH_INDEX = "search_index";
+    @VisibleForTesting
+    static final String KEY_CARRIER_CONFIG = "carrier_config";
+    @VisibleForTesting
+    static final String KEY_DASHBOARD_TILES = "dashboard_tiles";
+    @VisibleForTesting
+    static final String KEY_DASHBOARD_PAGES = "dashboard_pages";
+    @VisibleForTesting
+    static final String KEY_SLICES = "slices";
+    @VisibleForTesting
+    static final String KEY_BATTERY_USAGE_DATABASE = "battery_usage_database";
+    @VisibleForTesting
+    static final String KEY_BATTERY_USAGE_DATABASE_ROWS = "battery_usage_database_rows";
+    @VisibleForTesting
+    static final String KEY_UNKNOWN_SECTIONS = "unknown_sections";
+    @VisibleForTesting
+    static final String ARG_LIST_SECTIONS = "--list";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
+    private static final Map<String, DumpSection> sSections = new LinkedHashMap<>();
+    // The sections which are only dumped when they are selected by the dump args, guarded by
+    // sSections.
+    private static final Set<String> sOnDemandSections = new ArraySet<>();
+
+    static {
+        registerSection(KEY_SEARCH_INDEX, context -> SearchIndexProviderFanOut.dump());
+        registerSection(KEY_CARRIER_CONFIG, context -> CarrierConfigCache.dump());
+        registerSection(KEY_DASHBOARD_TILES, context -> CategoryManager.get(context).dump());
+        registerSection(KEY_DASHBOARD_PAGES, context -> DashboardPageTracer.dump());
+        registerSection(KEY_SLICES, context -> SettingsSliceProvider.dumpCacheStats());
+        registerSection(KEY_BATTERY_USAGE_DATABASE, BatteryUsageContentProvider::dump);
+        registerOnDemandSection(KEY_BATTERY_USAGE_DATABASE_ROWS,
+                BatteryUsageContentProvider::dumpRowCounts);
+    }
+
     private boolean mShouldShowNetworkDump = false;
 
+    /** A section of the dump, which is only collected when it's selected. */
+    public interface DumpSection {
+        /** Returns the content of the section, e.g. a {@link JSONObject}. */
+        Object dump(Context context) throws JSONException;
+    }
+
+    /**
+     * Adds a section to the dump, the sections are dumped in the order they are registered.
+     *
+     * @param name the key of the section in the dump, which is also used to select it.
+     */
+    public static void registerSection(String name, DumpSection section) {
+        synchronized (sSections) {
+            sSections.put(name, section);
+        }
+    }
+
+    /**
+     * Adds a section to the dump which is only collected when its name is passed in the dump args,
+     * e.g. because it reads from a database.
+     */
+    public static void registerOnDemandSection(String name, DumpSection section) {
+        synchronized (sSections) {
+            sSections.put(name, section);
+            sOnDemandSections.add(name);
+        }
+    }
+
+    @VisibleForTesting
+    static void unregisterSection(String name) {
+        synchronized (sSections) {
+            sSections.remove(name);
+            sOnDemandSections.remove(name);
+        }
+    }
+
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (intent != null) {
@@ -90,16 +180,34 @@ public class SettingsDumpService extends Service {
     protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
         IndentingPrintWriter pw = new IndentingPrintWriter(writer, "  ");
         if (!mShouldShowNetworkDump) {
+            final Map<String, DumpSection> sections = getSections();
+            if (args != null && Arrays.asList(args).contains(ARG_LIST_SECTIONS)) {
+                pw.println(sections.keySet());
+                pw.flush();
+                return;
+            }
+            final Set<String> selectedSections =
+                    args == null || args.length == 0 ? null : new ArraySet<>(args);
+            final Set<String> onDemandSections;
+            synchronized (sSections) {
+                onDemandSections = new ArraySet<>(sOnDemandSections);
+            }
             JSONObject dump = new JSONObject();
             pw.println(TAG + ": ");
             pw.increaseIndent();
             try {
                 dump.put(KEY_SERVICE, "Settings State");
-                dump.put(KEY_STORAGE, dumpStorage());
-                dump.put(KEY_DATAUSAGE, dumpDataUsage());
-                dump.put(KEY_MEMORY, dumpMemory());
-                dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
-                dump.put(KEY_ANOMALY_DETECTION, dumpAnomalyDetection());
+                for (Map.Entry<String, DumpSection> entry : sections.entrySet()) {
+                    final boolean selected = selectedSections == null
+                            ? !onDemandSections.contains(entry.getKey())
+                            : selectedSections.remove(entry.getKey());
+                    if (selected) {
+                        dump.put(entry.getKey(), dumpSection(entry.getKey(), entry.getValue()));
+                    }
+                }
+                if (selectedSections != null && !selectedSections.isEmpty()) {
+                    dump.put(KEY_UNKNOWN_SECTIONS, new JSONArray(selectedSections));
+                }
             } catch (Exception e) {
                 Log.w(TAG, "exception in dump: ", e);
             }
@@ -111,6 +219,30 @@ public class SettingsDumpService extends Service {
         }
     }
 
+    /** Returns the built-in sections followed by the registered ones. */
+    private Map<String, DumpSection> getSections() {
+        final Map<String, DumpSection> sections = new LinkedHashMap<>();
+        sections.put(KEY_STORAGE, context -> dumpStorage());
+        sections.put(KEY_DATAUSAGE, context -> dumpDataUsage());
+        sections.put(KEY_MEMORY, context -> dumpMemory());
+        sections.put(KEY_DEFAULT_BROWSER_APP, context -> dumpDefaultBrowser());
+        sections.put(KEY_ANOMALY_DETECTION, context -> dumpAnomalyDetection());
+        synchronized (sSections) {
+            sections.putAll(sSections);
+        }
+        return sections;
+    }
+
+    /** Dumps one section, a failing section doesn't prevent the others from being dumped. */
+    private Object dumpSection(String name, DumpSection section) {
+        try {
+            return section.dump(this);
+        } catch (Exception e) {
+            Log.w(TAG, "exception in dump of " + name + ": ", e);
+            return "error: " + e;
+        }
+    }
+
     private JSONObject dumpMemory() throws JSONException {
         JSONObject obj = new JSONObject();
         ProcStatsData statsManager = new ProcStatsData(this, false);
@@ -22,10 +22,11 @@ import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.format.DateUtils;
-import android.util.ArrayMap;
 import android.util.Log;
 import android.widget.CompoundButton;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.notification.NotificationBackend;
@@ -37,7 +38,6 @@ import com.android.settingslib.utils.StringUtil;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Connects the info provided by ApplicationsState and UsageStatsManager.
@@ -51,12 +51,23 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     private IUsageStatsManager mUsageStatsManager;
     protected List<Integer> mUserIds;
     private NotificationBackend mBackend;
-    private static final int DAYS_TO_CHECK = 7;
+    private final NotificationSentStatsStore mSentStatsStore;
+    static final int DAYS_TO_CHECK = 7;
 
     public AppStateNotificationBridge(Context context, ApplicationsState appState,
             Callback callback, IUsageStatsManager usageStatsManager,
             UserManager userManager, NotificationBackend backend) {
+        this(context, appState, callback, usageStatsManager, userManager, backend,
+                NotificationSentStatsStore.getInstance(context));
+    }
+
+    @VisibleForTesting
+    AppStateNotificationBridge(Context context, ApplicationsState appState,
+            Callback callback, IUsageStatsManager usageStatsManager,
+            UserManager userManager, NotificationBackend backend,
+            NotificationSentStatsStore sentStatsStore) {
         super(appState, callback);
+        mSentStatsStore = sentStatsStore;
         mContext = context;
         mUsageStatsManager = usageStatsManager;
         mBackend = backend;
@@ -78,10 +89,10 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
             return;
         }
 
-        final Map<String, NotificationsSentState> map = getAggregatedUsageEvents();
+        updateSentStats();
         for (AppEntry entry : apps) {
-            NotificationsSentState stats =
-                    map.get(getKey(UserHandle.getUserId(entry.info.uid), entry.info.packageName));
+            NotificationsSentState stats = mSentStatsStore.getSentState(
+                    UserHandle.getUserId(entry.info.uid), entry.info.packageName);
             if (stats == null) {
                 stats = new NotificationsSentState();
             }
@@ -93,8 +104,16 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
 
     @Override
     protected void updateExtraInfo(AppEntry entry, String pkg, int uid) {
-        NotificationsSentState stats = getAggregatedUsageEvents(
-                UserHandle.getUserId(entry.info.uid), entry.info.packageName);
+        final int userId = UserHandle.getUserId(entry.info.uid);
+        NotificationsSentState stats;
+        // Once the stats of the user are loaded, advancing them is cheaper than replaying the
+        // events of the package.
+        if (mSentStatsStore.isLoaded(userId) && mSentStatsStore.update(mUsageStatsManager,
+                userId, mContext.getPackageName(), System.currentTimeMillis())) {
+            stats = mSentStatsStore.getSentState(userId, entry.info.packageName);
+        } else {
+            stats = getAggregatedUsageEvents(userId, entry.info.packageName);
+        }
         calculateAvgSentCounts(stats);
         addBlockStatus(entry, stats);
         entry.extraInfo = stats;
@@ -136,41 +155,13 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         }
     }
 
-    protected Map<String, NotificationsSentState> getAggregatedUsageEvents() {
-        ArrayMap<String, NotificationsSentState> aggregatedStats = new ArrayMap<>();
-
-        long now = System.currentTimeMillis();
-        long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
+    /** Advances the sent stats of the users to now. */
+    @VisibleForTesting
+    void updateSentStats() {
+        final long now = System.currentTimeMillis();
         for (int userId : mUserIds) {
-            UsageEvents events = null;
-            try {
-                events = mUsageStatsManager.queryEventsForUser(
-                        startTime, now, userId, mContext.getPackageName());
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-            if (events != null) {
-                UsageEvents.Event event = new UsageEvents.Event();
-                while (events.hasNextEvent()) {
-                    events.getNextEvent(event);
-                    NotificationsSentState stats =
-                            aggregatedStats.get(getKey(userId, event.getPackageName()));
-                    if (stats == null) {
-                        stats = new NotificationsSentState();
-                        aggregatedStats.put(getKey(userId, event.getPackageName()), stats);
-                    }
-
-                    if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                        if (event.getTimeStamp() > stats.lastSent) {
-                            stats.lastSent = event.getTimeStamp();
-                        }
-                        stats.sentCount++;
-                    }
-
-                }
-            }
+            mSentStatsStore.update(mUsageStatsManager, userId, mContext.getPackageName(), now);
         }
-        return aggregatedStats;
     }
 
     protected NotificationsSentState getAggregatedUsageEvents(int userId, String pkg) {
@@ -215,10 +206,6 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         return null;
     }
 
-    protected static String getKey(int userId, String pkg) {
-        return userId + "|" + pkg;
-    }
-
     public CompoundButton.OnCheckedChangeListener getSwitchOnCheckedListener(final AppEntry entry) {
         if (entry == null) {
             return null;
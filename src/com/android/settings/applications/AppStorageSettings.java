@@ -53,6 +53,7 @@ import androidx.preference.PreferenceCategory;
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.deviceinfo.StorageWizardMoveConfirm;
+import com.android.settings.deviceinfo.storage.StorageCacheHelper;
 import com.android.settingslib.RestrictedLockUtils;
 import com.android.settingslib.applications.AppUtils;
 import com.android.settingslib.applications.ApplicationsState.Callbacks;
@@ -592,10 +593,14 @@ public class AppStorageSettings extends AppInfoWithHeader
                 case MSG_CLEAR_USER_DATA:
                     mDataCleared = true;
                     mCacheCleared = true;
+                    new StorageCacheHelper(getContext(), mUserId)
+                            .invalidatePackageStats(mPackageName);
                     processClearMsg(msg);
                     break;
                 case MSG_CLEAR_CACHE:
                     mCacheCleared = true;
+                    new StorageCacheHelper(getContext(), mUserId)
+                            .invalidatePackageStats(mPackageName);
                     // Refresh size info
                     updateSize();
                     break;
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.usage.IUsageStatsManager;
+import android.app.usage.UsageEvents;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * Keeps the number of notifications sent by each package of a user in the last
+ * {@link AppStateNotificationBridge#DAYS_TO_CHECK} days, and when each package last sent one.
+ *
+ * <p>The first update of a user scans the events of the whole window. The next updates only scan
+ * the events which entered the window since the previous update, and the events which left it to
+ * subtract them, so reopening the notification app list doesn't replay a week of events. The
+ * stats are kept in {@link SharedPreferences}, so the next updates stay incremental after the
+ * process restarts.</p>
+ */
+public class NotificationSentStatsStore {
+    private static final String TAG = "NotificationSentStats";
+    private static final String PREFS_NAME = "notification_sent_stats";
+    private static final String KEY_USER_PREFIX = "user_";
+    private static final String KEY_WINDOW_END = "window_end";
+    private static final String KEY_PACKAGES = "packages";
+
+    @VisibleForTesting
+    static final long WINDOW_MS =
+            DateUtils.DAY_IN_MILLIS * AppStateNotificationBridge.DAYS_TO_CHECK;
+
+    private static NotificationSentStatsStore sInstance;
+
+    private final SparseArray<UserStats> mUserStats = new SparseArray<>();
+    private final SharedPreferences mPreferences;
+
+    /** Returns the store of the process. */
+    public static synchronized NotificationSentStatsStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NotificationSentStatsStore(context.getApplicationContext()
+                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    NotificationSentStatsStore(SharedPreferences preferences) {
+        mPreferences = preferences;
+    }
+
+    /**
+     * Advances the stats of the user to the given time.
+     *
+     * @return false if the events can't be queried, the stats of the user are then dropped.
+     */
+    public synchronized boolean update(IUsageStatsManager usageStatsManager, int userId,
+            String callingPackage, long now) {
+        final long startTime = SystemClock.elapsedRealtime();
+        UserStats stats = getUserStats(userId);
+        final long windowStart = now - WINDOW_MS;
+        final boolean isIncremental = stats != null && stats.mWindowEnd <= now
+                && stats.mWindowEnd > windowStart;
+        int eventCount;
+        if (isIncremental) {
+            // Subtract the events which left the window, then add the new ones.
+            final int expiredCount = scan(usageStatsManager, userId, callingPackage,
+                    stats.mWindowEnd - WINDOW_MS, windowStart, stats, false /* add */);
+            final int newCount = expiredCount < 0 ? -1 : scan(usageStatsManager, userId,
+                    callingPackage, stats.mWindowEnd, now, stats, true /* add */);
+            eventCount = newCount < 0 ? -1 : expiredCount + newCount;
+        } else {
+            stats = new UserStats();
+            eventCount = scan(usageStatsManager, userId, callingPackage, windowStart, now, stats,
+                    true /* add */);
+        }
+        if (eventCount < 0) {
+            mUserStats.remove(userId);
+            mPreferences.edit().remove(KEY_USER_PREFIX + userId).apply();
+            return false;
+        }
+        stats.mWindowEnd = now;
+        mUserStats.put(userId, stats);
+        saveUserStats(userId, stats);
+        Log.d(TAG, String.format("Scanned %d events of user %d in %d ms, incremental: %b",
+                eventCount, userId, SystemClock.elapsedRealtime() - startTime, isIncremental));
+        return true;
+    }
+
+    /** Returns true if the stats of the user are loaded, i.e. they can be updated cheaply. */
+    public synchronized boolean isLoaded(int userId) {
+        return getUserStats(userId) != null;
+    }
+
+    /**
+     * Returns a new state with the sent stats of the package, or null if the package didn't send
+     * notifications in the window or the user is not loaded.
+     */
+    @Nullable
+    public synchronized NotificationsSentState getSentState(int userId, String pkg) {
+        final UserStats userStats = getUserStats(userId);
+        final PackageStats stats = userStats == null ? null : userStats.mPackages.get(pkg);
+        if (stats == null) {
+            return null;
+        }
+        final NotificationsSentState state = new NotificationsSentState();
+        state.sentCount = stats.mSentCount;
+        state.lastSent = stats.mLastSent;
+        return state;
+    }
+
+    /** Returns the number of packages of the user which sent notifications in the window. */
+    @VisibleForTesting
+    synchronized int getPackageCount(int userId) {
+        final UserStats userStats = getUserStats(userId);
+        return userStats == null ? 0 : userStats.mPackages.size();
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mUserStats.clear();
+        mPreferences.edit().clear().apply();
+    }
+
+    /** Returns the stats of the user, restoring them from the preferences if needed. */
+    @Nullable
+    private UserStats getUserStats(int userId) {
+        UserStats stats = mUserStats.get(userId);
+        if (stats == null) {
+            stats = loadUserStats(userId);
+            if (stats != null) {
+                mUserStats.put(userId, stats);
+            }
+        }
+        return stats;
+    }
+
+    @Nullable
+    private UserStats loadUserStats(int userId) {
+        final String json = mPreferences.getString(KEY_USER_PREFIX + userId, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            final JSONObject object = new JSONObject(json);
+            final JSONObject packages = object.getJSONObject(KEY_PACKAGES);
+            final UserStats stats = new UserStats();
+            stats.mWindowEnd = object.getLong(KEY_WINDOW_END);
+            final Iterator<String> iterator = packages.keys();
+            while (iterator.hasNext()) {
+                final String pkg = iterator.next();
+                final JSONArray values = packages.getJSONArray(pkg);
+                final PackageStats packageStats = new PackageStats();
+                packageStats.mSentCount = values.getInt(0);
+                packageStats.mLastSent = values.getLong(1);
+                stats.mPackages.put(pkg, packageStats);
+            }
+            return stats;
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to restore the stats of user " + userId, e);
+            mPreferences.edit().remove(KEY_USER_PREFIX + userId).apply();
+            return null;
+        }
+    }
+
+    private void saveUserStats(int userId, UserStats stats) {
+        try {
+            final JSONObject packages = new JSONObject();
+            for (int i = 0; i < stats.mPackages.size(); i++) {
+                final PackageStats packageStats = stats.mPackages.valueAt(i);
+                packages.put(stats.mPackages.keyAt(i), new JSONArray()
+                        .put(packageStats.mSentCount)
+                        .put(packageStats.mLastSent));
+            }
+            final JSONObject object = new JSONObject()
+                    .put(KEY_WINDOW_END, stats.mWindowEnd)
+                    .put(KEY_PACKAGES, packages);
+            mPreferences.edit().putString(KEY_USER_PREFIX + userId, object.toString()).apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to save the stats of user " + userId, e);
+        }
+    }
+
+    /** Returns the number of scanned notification events, or -1 if the query fails. */
+    private static int scan(IUsageStatsManager usageStatsManager, int userId,
+            String callingPackage, long begin, long end, UserStats stats, boolean add) {
+        if (begin >= end) {
+            return 0;
+        }
+        final UsageEvents events;
+        try {
+            events = usageStatsManager.queryEventsForUser(begin, end, userId, callingPackage);
+        } catch (RemoteException e) {
+            Log.e(TAG, "Failed to query the events of user " + userId, e);
+            return -1;
+        }
+        if (events == null) {
+            return -1;
+        }
+        int count = 0;
+        final UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            if (event.getEventType() != UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                continue;
+            }
+            count++;
+            final String pkg = event.getPackageName();
+            PackageStats packageStats = stats.mPackages.get(pkg);
+            if (add) {
+                if (packageStats == null) {
+                    packageStats = new PackageStats();
+                    stats.mPackages.put(pkg, packageStats);
+                }
+                packageStats.mSentCount++;
+                packageStats.mLastSent = Math.max(packageStats.mLastSent, event.getTimeStamp());
+            } else if (packageStats != null && --packageStats.mSentCount <= 0) {
+                // The last sent time is in the window as long as some events are left.
+                stats.mPackages.remove(pkg);
+            }
+        }
+        return count;
+    }
+
+    private static class UserStats {
+        private final ArrayMap<String, PackageStats> mPackages = new ArrayMap<>();
+        // The end of the window, the events before it are already counted.
+        private long mWindowEnd;
+    }
+
+    private static class PackageStats {
+        private int mSentCount;
+        private long mLastSent;
+    }
+}
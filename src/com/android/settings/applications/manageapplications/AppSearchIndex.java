@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * A search index of the app list, which keeps the case- and diacritic-folded labels and package
+ * names of the apps, so that they are not normalized again on every keystroke.
+ *
+ * <p>An app matches if its label contains the query, which includes the label prefix and word
+ * starts, or if its package name starts with the query.</p>
+ */
+class AppSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{Mn}+");
+
+    private final List<AppEntry> mEntries;
+    private final String[] mLabels;
+    private final String[] mPackageNames;
+
+    // Only accessed by the filter thread.
+    private String mLastQuery;
+    private int[] mLastMatches;
+
+    AppSearchIndex(List<AppEntry> entries) {
+        mEntries = entries;
+        final int size = entries.size();
+        mLabels = new String[size];
+        mPackageNames = new String[size];
+        for (int i = 0; i < size; i++) {
+            final AppEntry entry = entries.get(i);
+            mLabels[i] = normalize(entry.label);
+            mPackageNames[i] = entry.info != null && entry.info.packageName != null
+                    ? entry.info.packageName.toLowerCase(Locale.ROOT) : "";
+        }
+    }
+
+    /** Returns true if the index is built from the given app list. */
+    boolean isIndexOf(List<AppEntry> entries) {
+        return mEntries == entries;
+    }
+
+    /**
+     * Returns the apps which match the query in the app list order, or null if the search is
+     * cancelled. A query which extends the previous one only searches in the previous results.
+     */
+    @WorkerThread
+    @Nullable
+    ArrayList<AppEntry> search(CharSequence query, BooleanSupplier isCancelled) {
+        final String normalizedQuery = normalize(query);
+        final boolean searchLastMatches =
+                mLastQuery != null && normalizedQuery.startsWith(mLastQuery);
+        final int candidateCount = searchLastMatches ? mLastMatches.length : mEntries.size();
+        final int[] matches = new int[candidateCount];
+        int matchCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            if (isCancelled.getAsBoolean()) {
+                return null;
+            }
+            final int index = searchLastMatches ? mLastMatches[i] : i;
+            if (mLabels[index].contains(normalizedQuery)
+                    || mPackageNames[index].startsWith(normalizedQuery)) {
+                matches[matchCount++] = index;
+            }
+        }
+
+        mLastQuery = normalizedQuery;
+        mLastMatches = new int[matchCount];
+        System.arraycopy(matches, 0, mLastMatches, 0, matchCount);
+        final ArrayList<AppEntry> matchedEntries = new ArrayList<>(matchCount);
+        for (int index : mLastMatches) {
+            matchedEntries.add(mEntries.get(index));
+        }
+        return matchedEntries;
+    }
+
+    /** Folds the case and removes the diacritics, e.g. "Écran" to "ecran". */
+    @VisibleForTesting
+    static String normalize(@Nullable CharSequence text) {
+        if (TextUtils.isEmpty(text)) {
+            return "";
+        }
+        final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.getDefault());
+    }
+}
@@ -1221,6 +1221,9 @@ public class ManageApplications extends InstrumentedFragment
         private boolean mHasReceivedLoadEntries;
         private boolean mHasReceivedBridgeCallback;
         private SearchFilter mSearchFilter;
+        private volatile AppSearchIndex mSearchIndex;
+        // The latest query, the filtering of an older query is cancelled.
+        private volatile String mLatestQuery;
         private PowerAllowlistBackend mBackend;
 
         // This is to remember and restore the last scroll position when this
@@ -1516,6 +1519,7 @@ public class ManageApplications extends InstrumentedFragment
                 Log.w(TAG, "Apps haven't loaded completely yet, so nothing can be filtered");
                 return;
             }
+            mLatestQuery = query;
             mSearchFilter.filter(query);
         }
 
@@ -1566,6 +1570,7 @@ public class ManageApplications extends InstrumentedFragment
             }
             mEntries = entries;
             mOriginalEntries = entries;
+            mSearchIndex = new AppSearchIndex(entries);
             notifyDataSetChanged();
             if (getItemCount() == 0) {
                 mLoadingViewController.showEmpty(false /* animate */);
@@ -1944,25 +1949,33 @@ public class ManageApplications extends InstrumentedFragment
             @WorkerThread
             @Override
             protected FilterResults performFiltering(CharSequence query) {
+                final ArrayList<ApplicationsState.AppEntry> originalEntries = mOriginalEntries;
                 final ArrayList<ApplicationsState.AppEntry> matchedEntries;
                 if (TextUtils.isEmpty(query)) {
-                    matchedEntries = mOriginalEntries;
+                    matchedEntries = originalEntries;
                 } else {
-                    matchedEntries = new ArrayList<>();
-                    for (ApplicationsState.AppEntry entry : mOriginalEntries) {
-                        if (entry.label.toLowerCase().contains(query.toString().toLowerCase())) {
-                            matchedEntries.add(entry);
-                        }
+                    AppSearchIndex searchIndex = mSearchIndex;
+                    if (searchIndex == null || !searchIndex.isIndexOf(originalEntries)) {
+                        searchIndex = new AppSearchIndex(originalEntries);
+                        mSearchIndex = searchIndex;
                     }
+                    matchedEntries = searchIndex.search(query,
+                            () -> !TextUtils.equals(query, mLatestQuery));
                 }
                 final FilterResults results = new FilterResults();
-                results.values = matchedEntries;
-                results.count = matchedEntries.size();
+                if (matchedEntries != null) {
+                    results.values = matchedEntries;
+                    results.count = matchedEntries.size();
+                }
                 return results;
             }
 
             @Override
             protected void publishResults(CharSequence constraint, FilterResults results) {
+                if (results.values == null || !TextUtils.equals(constraint, mLatestQuery)) {
+                    // A newer query is being filtered.
+                    return;
+                }
                 mEntries = (ArrayList<ApplicationsState.AppEntry>) results.values;
                 notifyDataSetChanged();
             }
@@ -21,6 +21,7 @@ import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_FOR_WO
 import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEY;
 
 import android.annotation.NonNull;
+import android.annotation.Nullable;
 import android.annotation.XmlRes;
 import android.content.Context;
 import android.os.Bundle;
@@ -28,6 +29,7 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+import com.android.settings.dashboard.DashboardPageTracer;
 import com.android.settingslib.core.AbstractPreferenceController;
 
 import org.xmlpull.v1.XmlPullParserException;
@@ -51,8 +53,21 @@ public class PreferenceControllerListHelper {
     @NonNull
     public static List<BasePreferenceController> getPreferenceControllersFromXml(Context context,
             @XmlRes int xmlResId) {
+        return getPreferenceControllersFromXml(context, xmlResId, null /* tracer */);
+    }
+
+    /**
+     * Instantiates a list of controller based on xml definition, the parsing of the xml and the
+     * instantiation of each controller are traced by the tracer of the page if it's not null.
+     */
+    @NonNull
+    public static List<BasePreferenceController> getPreferenceControllersFromXml(Context context,
+            @XmlRes int xmlResId, @Nullable DashboardPageTracer tracer) {
         final List<BasePreferenceController> controllers = new ArrayList<>();
         List<Bundle> preferenceMetadata;
+        if (tracer != null) {
+            tracer.beginPhase(DashboardPageTracer.PHASE_PARSE_XML);
+        }
         try {
             preferenceMetadata = PreferenceXmlParserUtils.extractMetadata(context, xmlResId,
                     MetadataFlag.FLAG_NEED_KEY | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
@@ -60,38 +75,65 @@ public class PreferenceControllerListHelper {
         } catch (IOException | XmlPullParserException e) {
             Log.e(TAG, "Failed to parse preference xml for getting controllers", e);
             return controllers;
+        } finally {
+            if (tracer != null) {
+                tracer.endPhase();
+            }
         }
 
+        if (tracer != null) {
+            tracer.beginPhase(DashboardPageTracer.PHASE_XML_CONTROLLERS);
+        }
         for (Bundle metadata : preferenceMetadata) {
             final String controllerName = metadata.getString(METADATA_CONTROLLER);
             if (TextUtils.isEmpty(controllerName)) {
                 continue;
             }
-            BasePreferenceController controller;
-            try {
-                controller = BasePreferenceController.createInstance(context, controllerName);
-            } catch (IllegalStateException e) {
-                Log.d(TAG, "Could not find Context-only controller for pref: " + controllerName);
-                final String key = metadata.getString(METADATA_KEY);
-                final boolean isWorkProfile = metadata.getBoolean(METADATA_FOR_WORK, false);
-                if (TextUtils.isEmpty(key)) {
-                    Log.w(TAG, "Controller requires key but it's not defined in xml: "
-                            + controllerName);
-                    continue;
-                }
-                try {
-                    controller = BasePreferenceController.createInstance(context, controllerName,
-                            key, isWorkProfile);
-                } catch (IllegalStateException e2) {
-                    Log.w(TAG, "Cannot instantiate controller from reflection: " + controllerName);
-                    continue;
-                }
+            if (tracer != null) {
+                tracer.beginController(
+                        controllerName.substring(controllerName.lastIndexOf('.') + 1));
             }
-            controllers.add(controller);
+            final BasePreferenceController controller =
+                    createController(context, controllerName, metadata);
+            if (tracer != null) {
+                tracer.endController();
+            }
+            if (controller != null) {
+                controllers.add(controller);
+            }
+        }
+        if (tracer != null) {
+            tracer.endPhase();
         }
         return controllers;
     }
 
+    @Nullable
+    private static BasePreferenceController createController(Context context,
+            String controllerName, Bundle metadata) {
+        BasePreferenceController controller;
+        try {
+            controller = BasePreferenceController.createInstance(context, controllerName);
+        } catch (IllegalStateException e) {
+            Log.d(TAG, "Could not find Context-only controller for pref: " + controllerName);
+            final String key = metadata.getString(METADATA_KEY);
+            final boolean isWorkProfile = metadata.getBoolean(METADATA_FOR_WORK, false);
+            if (TextUtils.isEmpty(key)) {
+                Log.w(TAG, "Controller requires key but it's not defined in xml: "
+                        + controllerName);
+                return null;
+            }
+            try {
+                controller = BasePreferenceController.createInstance(context, controllerName,
+                        key, isWorkProfile);
+            } catch (IllegalStateException e2) {
+                Log.w(TAG, "Cannot instantiate controller from reflection: " + controllerName);
+                return null;
+            }
+        }
+        return controller;
+    }
+
     /**
      * Return a sub list of {@link AbstractPreferenceController} to only contain controller that
      * doesn't exist in filter.
@@ -17,6 +17,7 @@ package com.android.settings.dashboard;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.ArraySet;
@@ -27,6 +28,7 @@ import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.homepage.HighlightableMenu;
 import com.android.settings.safetycenter.SafetyCenterManagerWrapper;
+import com.android.settings.utils.LatencyHistogram;
 import com.android.settingslib.applications.InterestingConfigChanges;
 import com.android.settingslib.drawer.CategoryKey;
 import com.android.settingslib.drawer.DashboardCategory;
@@ -36,6 +38,9 @@ import com.android.settingslib.drawer.TileUtils;
 
 import com.google.android.setupcompat.util.WizardManagerHelper;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -60,6 +65,10 @@ public class CategoryManager {
 
     private List<DashboardCategory> mCategories;
 
+    // The loads of the categories, and the requests which are served without loading them.
+    private final LatencyHistogram mLoadLatencies = new LatencyHistogram();
+    private int mCachedRequestCount;
+
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
             sInstance = new CategoryManager(context);
@@ -131,6 +140,23 @@ public class CategoryManager {
         return result;
     }
 
+    /** Returns the statistics of the tile cache, which are shown in the dump of the Settings. */
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        int tileCount = 0;
+        if (mCategories != null) {
+            for (DashboardCategory category : mCategories) {
+                tileCount += category.getTilesCount();
+            }
+        }
+        obj.put("categories", mCategoryByKeyMap.size());
+        obj.put("tiles", tileCount);
+        obj.put("cached_tiles", mTileByComponentCache.size());
+        obj.put("cached_requests", mCachedRequestCount);
+        obj.put("loads", mLoadLatencies.toJson());
+        return obj;
+    }
+
     private void logTiles(Context context) {
         if (DEBUG) {
             getTileByComponentMap().forEach((component, tile) -> {
@@ -152,6 +178,7 @@ public class CategoryManager {
             return;
         }
         if (mCategories == null) {
+            final long startTime = SystemClock.elapsedRealtime();
             final boolean firstLoading = mCategoryByKeyMap.isEmpty();
             if (forceClearCache) {
                 mTileByComponentCache.clear();
@@ -165,6 +192,7 @@ public class CategoryManager {
             mergeSecurityPrivacyKeys(context, mTileByComponentCache, mCategoryByKeyMap);
             sortCategories(context, mCategoryByKeyMap);
             filterDuplicateTiles(mCategoryByKeyMap);
+            mLoadLatencies.record(SystemClock.elapsedRealtime() - startTime);
             if (firstLoading) {
                 logTiles(context);
 
@@ -182,6 +210,8 @@ public class CategoryManager {
                     HighlightableMenu.addMenuKey(key);
                 }
             }
+        } else {
+            mCachedRequestCount++;
         }
     }
 
@@ -88,20 +88,26 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private List<String> mSuppressInjectedTileKeys;
+    private DashboardPageTracer mPageTracer = new DashboardPageTracer(getClass().getSimpleName());
 
     @Override
     public void onAttach(Context context) {
+        // The start of the page is traced from the attach, the fragment may be created earlier.
+        mPageTracer = new DashboardPageTracer(getClass().getSimpleName());
         super.onAttach(context);
         mSuppressInjectedTileKeys = Arrays.asList(context.getResources().getStringArray(
                 R.array.config_suppress_injected_tile_keys));
         mDashboardFeatureProvider = FeatureFactory.getFactory(context).
                 getDashboardFeatureProvider(context);
         // Load preference controllers from code
+        mPageTracer.beginPhase(DashboardPageTracer.PHASE_CODE_CONTROLLERS);
         final List<AbstractPreferenceController> controllersFromCode =
                 createPreferenceControllers(context);
+        mPageTracer.endPhase();
         // Load preference controllers from xml definition
         final List<BasePreferenceController> controllersFromXml = PreferenceControllerListHelper
-                .getPreferenceControllersFromXml(context, getPreferenceScreenResId());
+                .getPreferenceControllersFromXml(context, getPreferenceScreenResId(),
+                        mPageTracer);
         // Filter xml-based controllers in case a similar controller is created from code already.
         final List<BasePreferenceController> uniqueControllerFromXml =
                 PreferenceControllerListHelper.filterControllers(
@@ -239,7 +245,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onResume() {
         super.onResume();
+        mPageTracer.beginPhase(DashboardPageTracer.PHASE_FIRST_UPDATE_STATE);
         updatePreferenceStates();
+        mPageTracer.finish();
     }
 
     @Override
@@ -375,7 +383,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      */
     protected void displayResourceTilesToScreen(PreferenceScreen screen) {
         mPreferenceControllers.values().stream().flatMap(Collection::stream).forEach(
-                controller -> controller.displayPreference(screen));
+                controller -> {
+                    mPageTracer.beginController(controller.getClass().getSimpleName());
+                    controller.displayPreference(screen);
+                    mPageTracer.endController();
+                });
     }
 
     /**
@@ -411,7 +423,9 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                             key, controller.getClass().getSimpleName()));
                     continue;
                 }
+                mPageTracer.beginController(controller.getClass().getSimpleName());
                 controller.updateState(preference);
+                mPageTracer.endController();
             }
         }
     }
@@ -429,9 +443,13 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         }
 
         // Add resource based tiles.
+        mPageTracer.beginPhase(DashboardPageTracer.PHASE_DISPLAY_PREFERENCES);
         displayResourceTiles();
+        mPageTracer.endPhase();
 
+        mPageTracer.beginPhase(DashboardPageTracer.PHASE_INJECT_TILES);
         refreshDashboardTiles(tag);
+        mPageTracer.endPhase();
 
         final Activity activity = getActivity();
         if (activity != null) {
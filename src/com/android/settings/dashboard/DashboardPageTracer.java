@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.utils.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces the start of a {@link DashboardFragment}, from the creation of the preference
+ * controllers to the first {@code updateState} pass, to find which phase and which controller
+ * make a page slow.
+ *
+ * <p>The phases and the controllers are shown as {@link Trace} sections, and the durations are
+ * logged when the page is started and kept per page for
+ * {@link com.android.settings.SettingsDumpService}. A start is cold if the page wasn't started
+ * before in the process. The tracer does nothing once {@link #finish()} is called, so later
+ * updates of the page are not traced.</p>
+ */
+public class DashboardPageTracer {
+    private static final String TAG = "DashboardPageTracer";
+
+    public static final String PHASE_CODE_CONTROLLERS = "createControllers";
+    public static final String PHASE_PARSE_XML = "parseXml";
+    public static final String PHASE_XML_CONTROLLERS = "createXmlControllers";
+    public static final String PHASE_DISPLAY_PREFERENCES = "displayPreferences";
+    public static final String PHASE_INJECT_TILES = "injectTiles";
+    public static final String PHASE_FIRST_UPDATE_STATE = "firstUpdateState";
+
+    @VisibleForTesting
+    static final int SLOWEST_CONTROLLER_COUNT = 5;
+
+    private static final Map<String, PageStats> sPageStats = new ArrayMap<>();
+
+    private final String mPageName;
+    private final boolean mIsColdStart;
+    private final long mStartTime;
+    // The durations by phase, and by controller over all the phases.
+    private final Map<String, Long> mPhaseDurationsNs = new ArrayMap<>();
+    private final Map<String, Long> mControllerDurationsNs = new ArrayMap<>();
+    private String mPhase;
+    private long mPhaseStartTime;
+    private String mController;
+    private long mControllerStartTime;
+    private boolean mIsFinished;
+
+    public DashboardPageTracer(String pageName) {
+        mPageName = pageName;
+        mStartTime = SystemClock.elapsedRealtimeNanos();
+        synchronized (sPageStats) {
+            mIsColdStart = !sPageStats.containsKey(pageName);
+        }
+    }
+
+    /** Starts a phase of the page start, the phases can't be nested. */
+    public void beginPhase(String phase) {
+        if (mIsFinished || mPhase != null) {
+            return;
+        }
+        Trace.beginSection(mPageName + "#" + phase);
+        mPhase = phase;
+        mPhaseStartTime = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /** Ends the phase which is started by {@link #beginPhase}. */
+    public void endPhase() {
+        if (mIsFinished || mPhase == null) {
+            return;
+        }
+        add(mPhaseDurationsNs, mPhase, SystemClock.elapsedRealtimeNanos() - mPhaseStartTime);
+        mPhase = null;
+        Trace.endSection();
+    }
+
+    /** Starts the work of a controller in the current phase, e.g. its {@code updateState}. */
+    public void beginController(String controllerName) {
+        if (mIsFinished || mController != null) {
+            return;
+        }
+        Trace.beginSection(controllerName);
+        mController = controllerName;
+        mControllerStartTime = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /** Ends the work of the controller which is started by {@link #beginController}. */
+    public void endController() {
+        if (mIsFinished || mController == null) {
+            return;
+        }
+        add(mControllerDurationsNs, mController,
+                SystemClock.elapsedRealtimeNanos() - mControllerStartTime);
+        mController = null;
+        Trace.endSection();
+    }
+
+    /** Ends the tracing, the page is started and its preferences are up to date. */
+    public void finish() {
+        if (mIsFinished) {
+            return;
+        }
+        endController();
+        endPhase();
+        mIsFinished = true;
+
+        final long startTimeMs = toMillis(SystemClock.elapsedRealtimeNanos() - mStartTime);
+        final List<Map.Entry<String, Long>> slowestControllers = getSlowestControllers();
+        PageStats stats;
+        synchronized (sPageStats) {
+            stats = sPageStats.get(mPageName);
+            if (stats == null) {
+                stats = new PageStats();
+                sPageStats.put(mPageName, stats);
+            }
+        }
+        stats.record(mIsColdStart, startTimeMs, mPhaseDurationsNs, slowestControllers);
+        Log.d(TAG, String.format("%s %s start in %d ms, phases: %s, slowest controllers: %s",
+                mPageName, mIsColdStart ? "cold" : "warm", startTimeMs,
+                toMillis(mPhaseDurationsNs.entrySet()), toMillis(slowestControllers)));
+    }
+
+    /** Returns the start latencies and the last phase durations of the pages. */
+    public static JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        synchronized (sPageStats) {
+            for (Map.Entry<String, PageStats> entry : sPageStats.entrySet()) {
+                obj.put(entry.getKey(), entry.getValue().toJson());
+            }
+        }
+        return obj;
+    }
+
+    @VisibleForTesting
+    static void clearStats() {
+        synchronized (sPageStats) {
+            sPageStats.clear();
+        }
+    }
+
+    @VisibleForTesting
+    List<Map.Entry<String, Long>> getSlowestControllers() {
+        final List<Map.Entry<String, Long>> controllers =
+                new ArrayList<>(mControllerDurationsNs.entrySet());
+        controllers.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return controllers.subList(0, Math.min(controllers.size(), SLOWEST_CONTROLLER_COUNT));
+    }
+
+    private static void add(Map<String, Long> durations, String key, long durationNs) {
+        final Long duration = durations.get(key);
+        durations.put(key, duration == null ? durationNs : duration + durationNs);
+    }
+
+    private static long toMillis(long durationNs) {
+        return TimeUnit.NANOSECONDS.toMillis(durationNs);
+    }
+
+    private static Map<String, Long> toMillis(Iterable<Map.Entry<String, Long>> durationsNs) {
+        // Keeps the order of the durations, the slowest controllers are listed first.
+        final Map<String, Long> durationsMs = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : durationsNs) {
+            durationsMs.put(entry.getKey(), toMillis(entry.getValue()));
+        }
+        return durationsMs;
+    }
+
+    private static class PageStats {
+        private final LatencyHistogram mColdStarts = new LatencyHistogram();
+        private final LatencyHistogram mWarmStarts = new LatencyHistogram();
+        private Map<String, Long> mLastPhasesMs = Collections.emptyMap();
+        private Map<String, Long> mLastSlowestControllersMs = Collections.emptyMap();
+
+        synchronized void record(boolean isColdStart, long startTimeMs,
+                Map<String, Long> phaseDurationsNs,
+                List<Map.Entry<String, Long>> slowestControllers) {
+            (isColdStart ? mColdStarts : mWarmStarts).record(startTimeMs);
+            mLastPhasesMs = toMillis(phaseDurationsNs.entrySet());
+            mLastSlowestControllersMs = toMillis(slowestControllers);
+        }
+
+        synchronized JSONObject toJson() throws JSONException {
+            final JSONObject obj = new JSONObject();
+            obj.put("cold_starts", mColdStarts.toJson());
+            obj.put("warm_starts", mWarmStarts.toJson());
+            obj.put("last_phases_ms", new JSONObject(mLastPhasesMs));
+            obj.put("last_slowest_controllers_ms", new JSONObject(mLastSlowestControllersMs));
+            return obj;
+        }
+    }
+}
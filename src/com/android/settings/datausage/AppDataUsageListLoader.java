@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
+import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
+
+import android.app.ActivityManager;
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStats.Bucket;
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.net.NetworkPolicyManager;
+import android.net.NetworkTemplate;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseLongArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+import com.android.settingslib.utils.AsyncLoaderCompat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the data usage of a cycle and aggregates it into the sorted list of {@link AppItem} which
+ * {@link DataUsageList} shows, so that the buckets are not walked on the main thread.
+ */
+public class AppDataUsageListLoader extends AsyncLoaderCompat<AppDataUsageListLoader.Result> {
+    private static final String TAG = "AppDataUsageListLoader";
+
+    private final NetworkTemplate mTemplate;
+    private final long mStart;
+    private final long mEnd;
+    private final Collection<String> mHiddenPackageNames;
+
+    /**
+     * @param hiddenPackageNames the apps which are not shown in the list, e.g. the carrier
+     *                           service packages.
+     */
+    public AppDataUsageListLoader(Context context, NetworkTemplate template, long start,
+            long end, Collection<String> hiddenPackageNames) {
+        super(context);
+        mTemplate = template;
+        mStart = start;
+        mEnd = end;
+        mHiddenPackageNames = hiddenPackageNames;
+    }
+
+    @Override
+    public Result loadInBackground() {
+        final long startTime = SystemClock.elapsedRealtime();
+        final Context context = getContext();
+        SparseLongArray uidUsage = NetworkCycleDataCache.getUidUsage(mTemplate, mStart, mEnd);
+        final boolean isCached = uidUsage != null;
+        if (!isCached) {
+            uidUsage = queryUidUsage(context);
+            if (uidUsage == null) {
+                return null;
+            }
+            NetworkCycleDataCache.putUidUsage(mTemplate, mStart, mEnd, uidUsage,
+                    System.currentTimeMillis());
+        }
+
+        final Aggregator aggregator = new Aggregator(ActivityManager.getCurrentUser(),
+                context.getSystemService(UserManager.class), context.getPackageManager(),
+                mHiddenPackageNames);
+        for (int i = 0, size = uidUsage.size(); i < size; i++) {
+            aggregator.add(uidUsage.keyAt(i), uidUsage.valueAt(i));
+        }
+        // The restricted state is not part of the cycle, it's always loaded.
+        final int[] restrictedUids = NetworkPolicyManager.from(context)
+                .getUidsWithPolicy(POLICY_REJECT_METERED_BACKGROUND);
+        for (int uid : restrictedUids) {
+            aggregator.addRestricted(uid);
+        }
+        final Result result = aggregator.build();
+        Log.d(TAG, String.format("Aggregated %d uids into %d items in %d ms, cached: %b",
+                uidUsage.size(), result.items.size(), SystemClock.elapsedRealtime() - startTime,
+                isCached));
+        return result;
+    }
+
+    /** Returns the bytes used by each uid in the cycle, or null if the query fails. */
+    @Nullable
+    private SparseLongArray queryUidUsage(Context context) {
+        final NetworkStats stats;
+        try {
+            stats = context.getSystemService(NetworkStatsManager.class)
+                    .querySummary(mTemplate, mStart, mEnd);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Exception querying network detail.", e);
+            return null;
+        }
+        if (stats == null) {
+            return null;
+        }
+
+        final SparseLongArray uidUsage = new SparseLongArray();
+        final Bucket bucket = new Bucket();
+        while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
+            final int uid = bucket.getUid();
+            uidUsage.put(uid, uidUsage.get(uid) + bucket.getRxBytes() + bucket.getTxBytes());
+        }
+        stats.close();
+        return uidUsage;
+    }
+
+    @Override
+    protected void onDiscardResult(Result result) {
+    }
+
+    /** The app items sorted by usage, and the largest usage among them. */
+    public static class Result {
+        public final List<AppItem> items;
+        public final long largest;
+
+        Result(List<AppItem> items, long largest) {
+            this.items = Collections.unmodifiableList(items);
+            this.largest = largest;
+        }
+    }
+
+    /** Collapses the usage of the uids into the app items which are shown in the list. */
+    @VisibleForTesting
+    static class Aggregator {
+        private final int mCurrentUserId;
+        private final UserManager mUserManager;
+        private final PackageManager mPackageManager;
+        private final Collection<String> mHiddenPackageNames;
+        private final SparseBooleanArray mProfileUserIds = new SparseBooleanArray();
+        // Whether the users which are not profiles still exist, looked up once per user.
+        private final SparseBooleanArray mExistingUserIds = new SparseBooleanArray();
+        private final SparseArray<AppItem> mKnownItems = new SparseArray<>();
+        private final ArrayList<AppItem> mItems = new ArrayList<>();
+        private long mLargest;
+
+        Aggregator(int currentUserId, UserManager userManager, PackageManager packageManager,
+                Collection<String> hiddenPackageNames) {
+            mCurrentUserId = currentUserId;
+            mUserManager = userManager;
+            mPackageManager = packageManager;
+            mHiddenPackageNames = hiddenPackageNames;
+            for (UserHandle profile : userManager.getUserProfiles()) {
+                mProfileUserIds.put(profile.getIdentifier(), true);
+            }
+        }
+
+        /** Adds the usage of the uid to the item which it collapses into. */
+        void add(int uid, long bytes) {
+            // Decide how to collapse items together
+            final int collapseKey;
+            final int category;
+            final int userId = UserHandle.getUserId(uid);
+            if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
+                if (mProfileUserIds.get(userId)) {
+                    if (userId != mCurrentUserId) {
+                        // Add to a managed user item.
+                        final int managedKey = UidDetailProvider.buildKeyForUser(userId);
+                        accumulate(managedKey, uid, bytes, AppItem.CATEGORY_USER);
+                    }
+                    // Map SDK sandbox back to its corresponding app
+                    if (Process.isSdkSandboxUid(uid)) {
+                        collapseKey = Process.getAppUidForSdkSandboxUid(uid);
+                    } else {
+                        collapseKey = uid;
+                    }
+                    category = AppItem.CATEGORY_APP;
+                } else {
+                    // If it is a removed user add it to the removed users' key
+                    if (!isExistingUser(userId)) {
+                        collapseKey = UID_REMOVED;
+                        category = AppItem.CATEGORY_APP;
+                    } else {
+                        // Add to other user item.
+                        collapseKey = UidDetailProvider.buildKeyForUser(userId);
+                        category = AppItem.CATEGORY_USER;
+                    }
+                }
+            } else if (uid == UID_REMOVED || uid == UID_TETHERING
+                    || uid == Process.OTA_UPDATE_UID) {
+                collapseKey = uid;
+                category = AppItem.CATEGORY_APP;
+            } else {
+                collapseKey = android.os.Process.SYSTEM_UID;
+                category = AppItem.CATEGORY_APP;
+            }
+            accumulate(collapseKey, uid, bytes, category);
+        }
+
+        /** Marks the uid as restricted in background, it's only shown for the profiles. */
+        void addRestricted(int uid) {
+            // Only splice in restricted state for current user or managed users
+            if (!mProfileUserIds.get(UserHandle.getUserId(uid))) {
+                return;
+            }
+
+            AppItem item = mKnownItems.get(uid);
+            if (item == null) {
+                item = new AppItem(uid);
+                item.total = -1;
+                item.addUid(uid);
+                mItems.add(item);
+                mKnownItems.put(item.key, item);
+            }
+            item.restricted = true;
+        }
+
+        /** Returns the sorted items without the hidden apps. */
+        Result build() {
+            Collections.sort(mItems);
+            final List<AppItem> items = new ArrayList<>(mItems.size());
+            for (AppItem item : mItems) {
+                // Do not show carrier service package in data usage list if it should be hidden
+                // for the carrier.
+                if (!isHidden(item.key)) {
+                    items.add(item);
+                }
+            }
+            return new Result(items, mLargest);
+        }
+
+        private boolean isExistingUser(int userId) {
+            final int index = mExistingUserIds.indexOfKey(userId);
+            if (index >= 0) {
+                return mExistingUserIds.valueAt(index);
+            }
+            final boolean exists = mUserManager.getUserInfo(userId) != null;
+            mExistingUserIds.put(userId, exists);
+            return exists;
+        }
+
+        private boolean isHidden(int key) {
+            if (mHiddenPackageNames.isEmpty() || !UserHandle.isApp(key)) {
+                return false;
+            }
+            final String[] packageNames = mPackageManager.getPackagesForUid(key);
+            if (packageNames == null) {
+                return false;
+            }
+            for (String packageName : packageNames) {
+                if (mHiddenPackageNames.contains(packageName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Accumulate data usage of a network stats entry for the item mapped by the collapse key.
+         * Creates the item if needed.
+         */
+        private void accumulate(int collapseKey, int uid, long bytes, int itemCategory) {
+            AppItem item = mKnownItems.get(collapseKey);
+            if (item == null) {
+                item = new AppItem(collapseKey);
+                item.category = itemCategory;
+                mItems.add(item);
+                mKnownItems.put(item.key, item);
+            }
+            item.addUid(uid);
+            item.total += bytes;
+            mLargest = Math.max(mLargest, item.total);
+        }
+    }
+}
@@ -33,13 +33,16 @@ public class AppDataUsagePreference extends AppPreference {
 
     private final AppItem mItem;
     private final int mPercent;
+    private final UidDetailProvider mProvider;
     private UidDetail mDetail;
+    private boolean mIsLoadingDetail;
 
     public AppDataUsagePreference(Context context, AppItem item, int percent,
             UidDetailProvider provider) {
         super(context);
         mItem = item;
         mPercent = percent;
+        mProvider = provider;
 
         if (item.restricted && item.total <= 0) {
             setSummary(com.android.settings.R.string.data_usage_app_restricted);
@@ -50,19 +53,26 @@ public class AppDataUsagePreference extends AppPreference {
         if (mDetail != null) {
             setAppInfo();
         } else {
-            // Set a placeholder title before starting to fetch real title, this is necessary
-            // to avoid preference height change.
+            // Set a placeholder title until the row is shown and the real title is fetched, this
+            // is necessary to avoid preference height change.
             setTitle(R.string.summary_placeholder);
-            ThreadUtils.postOnBackgroundThread(() -> {
-                mDetail = provider.getUidDetail(mItem.key, true /* blocking */);
-                ThreadUtils.postOnMainThread(() -> setAppInfo());
-            });
         }
     }
 
     @Override
     public void onBindViewHolder(PreferenceViewHolder holder) {
         super.onBindViewHolder(holder);
+        // Only fetch the label and icon once the row is shown, a cycle may have many apps.
+        if (mDetail == null && !mIsLoadingDetail) {
+            mIsLoadingDetail = true;
+            ThreadUtils.postOnBackgroundThread(() -> {
+                final UidDetail detail = mProvider.getUidDetail(mItem.key, true /* blocking */);
+                ThreadUtils.postOnMainThread(() -> {
+                    mDetail = detail;
+                    setAppInfo();
+                });
+            });
+        }
         final ProgressBar progress = (ProgressBar) holder.findViewById(
                 android.R.id.progress);
 
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import android.net.NetworkTemplate;
+import android.util.LruCache;
+import android.util.SparseLongArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.net.NetworkCycleChartData;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Caches the data usage of the network cycles across the visits of {@link DataUsageList}.
+ *
+ * <p>The usage of the uids in a cycle is only cached once the cycle is closed, since it can't
+ * change anymore. The chart data is cached as a whole and only used to show the cycles right
+ * away, it's always loaded again to refresh the open cycle.</p>
+ */
+public class NetworkCycleDataCache {
+
+    /**
+     * The usage is recorded in buckets of a couple of hours, so a cycle is only considered closed
+     * once the last bucket is surely persisted.
+     */
+    @VisibleForTesting
+    static final long CLOSED_CYCLE_DELAY_MS = Duration.ofHours(2).toMillis();
+
+    private static final int MAX_TEMPLATES = 4;
+    private static final int MAX_CYCLES = 24;
+
+    private static final LruCache<NetworkTemplate, List<NetworkCycleChartData>> sChartData =
+            new LruCache<>(MAX_TEMPLATES);
+    private static final LruCache<CycleKey, SparseLongArray> sUidUsage =
+            new LruCache<>(MAX_CYCLES);
+
+    private NetworkCycleDataCache() {
+    }
+
+    /** Returns true if the usage of the cycle which ends at the given time can't change. */
+    public static boolean isClosed(long cycleEnd, long now) {
+        return cycleEnd + CLOSED_CYCLE_DELAY_MS <= now;
+    }
+
+    /** Returns the chart data which was last loaded for the template. */
+    @Nullable
+    public static List<NetworkCycleChartData> getChartData(NetworkTemplate template) {
+        return template == null ? null : sChartData.get(template);
+    }
+
+    /** Caches the chart data loaded for the template. */
+    public static void putChartData(NetworkTemplate template, List<NetworkCycleChartData> data) {
+        if (template == null || data == null) {
+            return;
+        }
+        sChartData.put(template, Collections.unmodifiableList(new ArrayList<>(data)));
+    }
+
+    /**
+     * Returns the bytes used by each uid in the closed cycle, or null if it's not cached. The
+     * returned array must not be modified.
+     */
+    @Nullable
+    public static SparseLongArray getUidUsage(NetworkTemplate template, long start, long end) {
+        return template == null ? null : sUidUsage.get(new CycleKey(template, start, end));
+    }
+
+    /** Caches the bytes used by each uid in the cycle if the cycle is closed. */
+    public static void putUidUsage(NetworkTemplate template, long start, long end,
+            SparseLongArray usage, long now) {
+        if (template == null || usage == null || !isClosed(end, now)) {
+            return;
+        }
+        sUidUsage.put(new CycleKey(template, start, end), usage);
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        sChartData.evictAll();
+        sUidUsage.evictAll();
+    }
+
+    private static final class CycleKey {
+        private final NetworkTemplate mTemplate;
+        private final long mStart;
+        private final long mEnd;
+
+        CycleKey(NetworkTemplate template, long start, long end) {
+            mTemplate = template;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CycleKey)) {
+                return false;
+            }
+            final CycleKey other = (CycleKey) o;
+            return mStart == other.mStart && mEnd == other.mEnd
+                    && mTemplate.equals(other.mTemplate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mTemplate, mStart, mEnd);
+        }
+    }
+}
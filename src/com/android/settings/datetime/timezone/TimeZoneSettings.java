@@ -41,6 +41,7 @@ import com.android.settings.datetime.timezone.model.FilteredCountryTimeZones;
 import com.android.settings.datetime.timezone.model.TimeZoneData;
 import com.android.settings.datetime.timezone.model.TimeZoneDataLoader;
 import com.android.settings.search.BaseSearchIndexProvider;
+import com.android.settings.search.SearchIndexableCache;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.search.SearchIndexable;
 
@@ -404,5 +405,11 @@ public class TimeZoneSettings extends DashboardFragment {
                             Settings.Global.AUTO_TIME_ZONE, 1);
                     return autoTimeZone == 1 ? false : true;
                 }
+
+                @Override
+                public SearchIndexableCache.Inputs getCacheInputs(Context context) {
+                    return new SearchIndexableCache.Inputs()
+                            .addSetting(Settings.Global.getUriFor(Settings.Global.AUTO_TIME_ZONE));
+                }
             };
 }
@@ -480,10 +480,17 @@ public class StorageDashboardFragment extends DashboardFragment
     public Loader<SparseArray<StorageAsyncLoader.StorageResult>> onCreateLoader(int id,
             Bundle args) {
         final Context context = getContext();
-        return new StorageAsyncLoader(context, mUserManager,
+        final StorageAsyncLoader loader = new StorageAsyncLoader(context, mUserManager,
                 mSelectedStorageEntry.getFsUuid(),
                 new StorageStatsSource(context),
                 context.getPackageManager());
+        loader.setMediaSizeListener((userId, result) -> {
+            // Show the file based sizes while the app sizes are still loading.
+            if (userId == mUserId && mAppsResult == null && getView() != null) {
+                mPreferenceController.onMediaSizeLoaded(result);
+            }
+        });
+        return loader;
     }
 
     @Override
@@ -30,6 +30,9 @@ import android.content.pm.UserInfo;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.MediaStore;
@@ -39,12 +42,24 @@ import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.Nullable;
+
+import com.android.internal.util.ArrayUtils;
+import com.android.settings.deviceinfo.storage.StorageCacheHelper.PackageStats;
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
@@ -55,6 +70,23 @@ public class StorageAsyncLoader
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
 
+    // A user and its profiles rarely exceed this, the others wait for a free thread.
+    private static final int MAX_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    /** Loads the users in parallel, shared by all the loaders. */
+    private static final ThreadPoolExecutor sExecutor = createExecutor();
+
+    private static final String[] FILES_SIZE_PROJECTION = {
+            FileColumns.MEDIA_TYPE, MediaColumns.IS_TRASHED, "sum(" + MediaColumns.SIZE + ")"};
+
+    /** The content resolvers of the users, which are kept across the loads. */
+    private static final SparseArray<ContentResolver> sUserContentResolvers =
+            new SparseArray<>();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private volatile MediaSizeListener mMediaSizeListener;
+
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
@@ -69,66 +101,199 @@ public class StorageAsyncLoader
         mPackageManager = pm;
     }
 
+    /**
+     * Sets the listener which receives the file based sizes of each user before its app sizes are
+     * loaded.
+     */
+    public void setMediaSizeListener(@Nullable MediaSizeListener listener) {
+        mMediaSizeListener = listener;
+    }
+
     @Override
     public SparseArray<StorageResult> loadInBackground() {
         return getStorageResultsForUsers();
     }
 
     private SparseArray<StorageResult> getStorageResultsForUsers() {
-        mSeenPackages = new ArraySet<>();
-        final SparseArray<StorageResult> results = new SparseArray<>();
+        final long startTime = SystemClock.elapsedRealtime();
         final List<UserInfo> infos = mUserManager.getUsers();
 
         // Sort the users by user id ascending.
         Collections.sort(infos,
                 (userInfo, otherUser) -> Integer.compare(userInfo.id, otherUser.id));
 
+        // Load the users in parallel, but attribute the app sizes in the user id order, so that
+        // the code shared between profiles is always counted as duplicate on the same users.
+        final List<Future<UserLoad>> futures = new ArrayList<>(infos.size());
         for (UserInfo info : infos) {
-            final StorageResult result = getAppsAndGamesSize(info.id);
-            final Bundle media = new Bundle();
-            media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
-                    + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-
-            final Bundle documentsAndOtherQueryArgs = new Bundle();
-            documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                    + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.documentsAndOtherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    documentsAndOtherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    trashQueryArgs);
-
-            results.put(info.id, result);
+            futures.add(sExecutor.submit(() -> loadUser(info.id)));
         }
+
+        mSeenPackages = new ArraySet<>();
+        final SparseArray<StorageResult> results = new SparseArray<>();
+        int appCount = 0;
+        int cacheHits = 0;
+        for (int i = 0, size = infos.size(); i < size; i++) {
+            final UserLoad load = getUserLoad(futures.get(i));
+            if (load == null) {
+                break;
+            }
+            addAppsAndGamesSize(load);
+            results.put(infos.get(i).id, load.result);
+            appCount += load.apps.size();
+            cacheHits += load.cacheHits;
+        }
+        Log.d(TAG, String.format("Loaded %d users, %d apps (%d from cache) in %d ms",
+                results.size(), appCount, cacheHits, SystemClock.elapsedRealtime() - startTime));
         return results;
     }
 
-    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
-        final Context perUserContext;
+    private static ThreadPoolExecutor createExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_THREADS, MAX_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(
+                        runnable, "StorageAsyncLoader-" + threadCount.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Nullable
+    private UserLoad getUserLoad(Future<UserLoad> future) {
         try {
-            perUserContext = getContext().createPackageContextAsUser(
-                getContext().getApplicationContext().getPackageName(),
-                0 /* flags= */,
-                UserHandle.of(userId));
-        } catch (NameNotFoundException e) {
-            Log.e(TAG, "Not able to get Context for user ID " + userId);
+            return future.get();
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while loading the users");
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private UserLoad loadUser(int userId) {
+        final StorageResult filesResult = new StorageResult();
+        if (!loadFilesSizes(userId, filesResult)) {
+            loadFilesSizesByCategory(userId, filesResult);
+        }
+        final MediaSizeListener listener = mMediaSizeListener;
+        if (listener != null) {
+            mHandler.post(() -> listener.onMediaSizeLoaded(userId, filesResult));
+        }
+
+        final UserLoad load = loadPackageStats(userId);
+        final StorageResult result = load.result;
+        result.imagesSize = filesResult.imagesSize;
+        result.videosSize = filesResult.videosSize;
+        result.audioSize = filesResult.audioSize;
+        result.documentsAndOtherSize = filesResult.documentsAndOtherSize;
+        result.trashSize = filesResult.trashSize;
+        return load;
+    }
+
+    /**
+     * Loads the file based sizes of the user with a single query grouped by media type and trash
+     * state. Returns false if the provider doesn't honor the grouping.
+     */
+    private boolean loadFilesSizes(int userId, StorageResult result) {
+        final ContentResolver resolver = getContentResolverForUser(userId);
+        if (resolver == null) {
+            return true;
+        }
+
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_INCLUDE);
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                MediaColumns.IS_TRASHED + "=1 OR " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_GROUP_BY,
+                FileColumns.MEDIA_TYPE + "," + MediaColumns.IS_TRASHED);
+        try (Cursor cursor = resolver.query(
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                FILES_SIZE_PROJECTION,
+                queryArgs,
+                null /* cancellationSignal */)) {
+            if (cursor == null) {
+                return true;
+            }
+            if (!isGroupByHonored(cursor)) {
+                Log.w(TAG, "Grouped files size query is not supported");
+                return false;
+            }
+            while (cursor.moveToNext()) {
+                final long size = cursor.getLong(2 /* sum(size) */);
+                if (cursor.getInt(1 /* is_trashed */) != 0) {
+                    result.trashSize += size;
+                    continue;
+                }
+                switch (cursor.getInt(0 /* media_type */)) {
+                    case FileColumns.MEDIA_TYPE_IMAGE:
+                        result.imagesSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_VIDEO:
+                        result.videosSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_AUDIO:
+                        result.audioSize += size;
+                        break;
+                    default:
+                        result.documentsAndOtherSize += size;
+                        break;
+                }
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Failed to query the grouped files size", e);
+            return false;
+        }
+    }
+
+    private static boolean isGroupByHonored(Cursor cursor) {
+        final Bundle extras = cursor.getExtras();
+        final String[] honoredArgs = extras == null
+                ? null : extras.getStringArray(ContentResolver.EXTRA_HONORED_ARGS);
+        return ArrayUtils.contains(honoredArgs, ContentResolver.QUERY_ARG_SQL_GROUP_BY);
+    }
+
+    /** Loads the file based sizes of the user with a query per category. */
+    private void loadFilesSizesByCategory(int userId, StorageResult result) {
+        final Bundle media = new Bundle();
+        media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
+                + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
+        result.imagesSize = getFilesSize(userId, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                media /* queryArgs */);
+        result.videosSize = getFilesSize(userId, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
+                media /* queryArgs */);
+        result.audioSize = getFilesSize(userId, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                media /* queryArgs */);
+
+        final Bundle documentsAndOtherQueryArgs = new Bundle();
+        documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
+                + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
+                + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
+                + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        result.documentsAndOtherSize = getFilesSize(userId,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                documentsAndOtherQueryArgs);
+
+        final Bundle trashQueryArgs = new Bundle();
+        trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        result.trashSize = getFilesSize(userId,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                trashQueryArgs);
+    }
+
+    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
+        final ContentResolver resolver = getContentResolverForUser(userId);
+        if (resolver == null) {
             return 0L;
         }
 
-        try (Cursor cursor = perUserContext.getContentResolver().query(
+        try (Cursor cursor = resolver.query(
                 uri,
                 new String[] {"sum(" + MediaColumns.SIZE + ")"},
                 queryArgs,
@@ -140,28 +305,93 @@ public class StorageAsyncLoader
         }
     }
 
-    private StorageResult getAppsAndGamesSize(int userId) {
+    /** Returns the content resolver of the user, which is kept across the loads. */
+    @Nullable
+    private ContentResolver getContentResolverForUser(int userId) {
+        synchronized (sUserContentResolvers) {
+            ContentResolver resolver = sUserContentResolvers.get(userId);
+            if (resolver != null) {
+                return resolver;
+            }
+            try {
+                resolver = getContext().createPackageContextAsUser(
+                        getContext().getApplicationContext().getPackageName(),
+                        0 /* flags= */,
+                        UserHandle.of(userId)).getContentResolver();
+            } catch (NameNotFoundException e) {
+                Log.e(TAG, "Not able to get Context for user ID " + userId);
+                return null;
+            }
+            sUserContentResolvers.put(userId, resolver);
+            return resolver;
+        }
+    }
+
+    private UserLoad loadPackageStats(int userId) {
         Log.d(TAG, "Loading apps");
         final List<ApplicationInfo> applicationInfos =
                 mPackageManager.getInstalledApplicationsAsUser(0, userId);
-        final StorageResult result = new StorageResult();
+        final UserLoad load = new UserLoad(applicationInfos.size());
         final UserHandle myUser = UserHandle.of(userId);
+        final StorageCacheHelper cacheHelper = new StorageCacheHelper(getContext(), userId);
+        final Map<String, PackageStats> cachedStats = cacheHelper.retrievePackageStats(mUuid);
+        final long now = System.currentTimeMillis();
         for (int i = 0, size = applicationInfos.size(); i < size; i++) {
             final ApplicationInfo app = applicationInfos.get(i);
 
-            StorageStatsSource.AppStorageStats stats;
-            try {
-                stats = mStatsManager.getStatsForPackage(mUuid, app.packageName, myUser);
-            } catch (NameNotFoundException | IOException e) {
-                // This may happen if the package was removed during our calculation.
-                Log.w(TAG, "App unexpectedly not found", e);
-                continue;
+            PackageStats stats = cachedStats.get(app.packageName);
+            if (stats != null && stats.isValidFor(app, now)) {
+                load.cacheHits++;
+            } else {
+                try {
+                    stats = getPackageStats(app, myUser, now);
+                } catch (NameNotFoundException | IOException e) {
+                    // This may happen if the package was removed during our calculation.
+                    Log.w(TAG, "App unexpectedly not found", e);
+                    continue;
+                }
             }
+            load.apps.add(app);
+            load.stats.add(stats);
+        }
+        cacheHelper.cachePackageStats(mUuid, load.stats);
+
+        Log.d(TAG, "Loading external stats");
+        try {
+            load.result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
+                    UserHandle.of(userId));
+        } catch (IOException e) {
+            Log.w(TAG, e);
+        }
+        Log.d(TAG, "Obtaining result completed");
+        return load;
+    }
+
+    private PackageStats getPackageStats(ApplicationInfo app, UserHandle user, long now)
+            throws NameNotFoundException, IOException {
+        final StorageStatsSource.AppStorageStats appStats =
+                mStatsManager.getStatsForPackage(mUuid, app.packageName, user);
+        final PackageStats stats = new PackageStats();
+        stats.packageName = app.packageName;
+        stats.signature = PackageStats.getSignature(app);
+        stats.timestamp = now;
+        stats.codeBytes = appStats.getCodeBytes();
+        stats.dataBytes = appStats.getDataBytes();
+        stats.cacheBytes = appStats.getCacheBytes();
+        stats.cacheQuotaBytes = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
+        return stats;
+    }
+
+    private void addAppsAndGamesSize(UserLoad load) {
+        final StorageResult result = load.result;
+        for (int i = 0, size = load.apps.size(); i < size; i++) {
+            final ApplicationInfo app = load.apps.get(i);
+            final PackageStats stats = load.stats.get(i);
 
-            final long dataSize = stats.getDataBytes();
-            final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
-            final long cacheBytes = stats.getCacheBytes();
-            long blamedSize = dataSize + stats.getCodeBytes();
+            final long dataSize = stats.dataBytes;
+            final long cacheQuota = stats.cacheQuotaBytes;
+            final long cacheBytes = stats.cacheBytes;
+            long blamedSize = dataSize + stats.codeBytes;
             // Technically, we could overages as freeable on the storage settings screen.
             // If the app is using more cache than its quota, we would accidentally subtract the
             // overage from the system size (because it shows up as unused) during our attribution.
@@ -173,7 +403,7 @@ public class StorageAsyncLoader
             // Code bytes may share between different profiles. To know all the duplicate code size
             // and we can get a reasonable system size in StorageItemPreferenceController.
             if (mSeenPackages.contains(app.packageName)) {
-                result.duplicateCodeSize += stats.getCodeBytes();
+                result.duplicateCodeSize += stats.codeBytes;
             } else {
                 mSeenPackages.add(app.packageName);
             }
@@ -197,16 +427,6 @@ public class StorageAsyncLoader
                     break;
             }
         }
-
-        Log.d(TAG, "Loading external stats");
-        try {
-            result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
-                    UserHandle.of(userId));
-        } catch (IOException e) {
-            Log.w(TAG, e);
-        }
-        Log.d(TAG, "Obtaining result completed");
-        return result;
     }
 
     @Override
@@ -231,6 +451,31 @@ public class StorageAsyncLoader
         public StorageStatsSource.ExternalStorageStats externalStats;
     }
 
+    /** The storage result of a user with the stats of its apps, before the apps are attributed. */
+    private static class UserLoad {
+        final StorageResult result = new StorageResult();
+        final List<ApplicationInfo> apps;
+        final List<PackageStats> stats;
+        int cacheHits;
+
+        UserLoad(int capacity) {
+            apps = new ArrayList<>(capacity);
+            stats = new ArrayList<>(capacity);
+        }
+    }
+
+    /**
+     * MediaSizeListener receives the file based sizes of a user from {@link StorageAsyncLoader}
+     * as soon as they're available, so that they can be shown before all the app sizes are loaded.
+     */
+    public interface MediaSizeListener {
+        /**
+         * Called on the main thread with a result which only has the images, videos, audio,
+         * documents and other, and trash sizes of the user.
+         */
+        void onMediaSizeLoaded(int userId, StorageResult result);
+    }
+
     /**
      * ResultHandler defines a destination of data which can handle a result from
      * {@link StorageAsyncLoader}.
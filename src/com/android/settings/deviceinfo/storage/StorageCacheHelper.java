@@ -18,13 +18,29 @@ package com.android.settings.deviceinfo.storage;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * A utility class to cache and restore the storage size information.
  */
 public class StorageCacheHelper {
 
+    private static final String TAG = "StorageCacheHelper";
     private static final String SHARED_PREFERENCE_NAME = "StorageCache";
+    @VisibleForTesting
+    static final String PACKAGE_SHARED_PREFERENCE_NAME = "StoragePackageCache";
     private static final String TOTAL_SIZE_KEY = "total_size_key";
     private static final String TOTAL_USED_SIZE_KEY = "total_used_size_key";
     private static final String IMAGES_SIZE_KEY = "images_size_key";
@@ -37,11 +53,29 @@ public class StorageCacheHelper {
     private static final String SYSTEM_SIZE_KEY = "system_size_key";
     private static final String USED_SIZE_KEY = "used_size_key";
 
+    private static final String INTERNAL_VOLUME_KEY = "internal";
+    private static final String SIGNATURE_KEY = "signature";
+    private static final String TIMESTAMP_KEY = "timestamp";
+    private static final String CODE_BYTES_KEY = "code_bytes";
+    private static final String DATA_BYTES_KEY = "data_bytes";
+    private static final String CACHE_BYTES_KEY = "cache_bytes";
+    private static final String CACHE_QUOTA_BYTES_KEY = "cache_quota_bytes";
+
+    /**
+     * The data of an app keeps changing without any broadcast, e.g. when it's cleared by another
+     * app, so a package snapshot is only reused for a while even if the app is not updated.
+     */
+    @VisibleForTesting
+    static final long PACKAGE_STATS_MAX_AGE_MS = Duration.ofMinutes(10).toMillis();
+
     private final SharedPreferences mSharedPreferences;
+    private final SharedPreferences mPackageSharedPreferences;
 
     public StorageCacheHelper(Context context, int userId) {
         String sharedPrefName = SHARED_PREFERENCE_NAME + userId;
         mSharedPreferences = context.getSharedPreferences(sharedPrefName, Context.MODE_PRIVATE);
+        mPackageSharedPreferences = context.getSharedPreferences(
+                PACKAGE_SHARED_PREFERENCE_NAME + userId, Context.MODE_PRIVATE);
     }
 
     /**
@@ -112,6 +146,68 @@ public class StorageCacheHelper {
         return result;
     }
 
+    /**
+     * Returns the cached storage stats of the packages on the volume, keyed by package name.
+     */
+    public Map<String, PackageStats> retrievePackageStats(@Nullable String volumeUuid) {
+        final String prefix = getVolumeKey(volumeUuid) + "/";
+        final Map<String, PackageStats> result = new ArrayMap<>();
+        for (Map.Entry<String, ?> entry : mPackageSharedPreferences.getAll().entrySet()) {
+            final String key = entry.getKey();
+            if (!key.startsWith(prefix) || !(entry.getValue() instanceof String)) {
+                continue;
+            }
+            final String packageName = key.substring(prefix.length());
+            try {
+                result.put(packageName,
+                        PackageStats.fromJson(packageName, (String) entry.getValue()));
+            } catch (JSONException e) {
+                Log.w(TAG, "Drop the malformed package stats of " + packageName, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the cached storage stats of the packages on the volume, the packages which are not
+     * in the given stats are dropped.
+     */
+    public void cachePackageStats(@Nullable String volumeUuid, Collection<PackageStats> stats) {
+        final String prefix = getVolumeKey(volumeUuid) + "/";
+        final SharedPreferences.Editor editor = mPackageSharedPreferences.edit();
+        for (String key : mPackageSharedPreferences.getAll().keySet()) {
+            if (key.startsWith(prefix)) {
+                editor.remove(key);
+            }
+        }
+        for (PackageStats packageStats : stats) {
+            try {
+                editor.putString(prefix + packageStats.packageName, packageStats.toJson());
+            } catch (JSONException e) {
+                Log.w(TAG, "Can't cache the package stats of " + packageStats.packageName, e);
+            }
+        }
+        editor.apply();
+    }
+
+    /**
+     * Drops the cached storage stats of the package on all volumes.
+     */
+    public void invalidatePackageStats(String packageName) {
+        final String suffix = "/" + packageName;
+        final SharedPreferences.Editor editor = mPackageSharedPreferences.edit();
+        for (String key : mPackageSharedPreferences.getAll().keySet()) {
+            if (key.endsWith(suffix)) {
+                editor.remove(key);
+            }
+        }
+        editor.apply();
+    }
+
+    private static String getVolumeKey(@Nullable String volumeUuid) {
+        return volumeUuid == null ? INTERNAL_VOLUME_KEY : volumeUuid;
+    }
+
     /**
      *  All the cached data about the file size information.
      */
@@ -127,4 +223,56 @@ public class StorageCacheHelper {
         public long trashSize;
         public long systemSize;
     }
+
+    /**
+     * A snapshot of the storage stats of a package, which is valid until the package is updated
+     * or the snapshot is too old. It's checked when the cache is read, and the snapshots of the
+     * removed packages are dropped when the cache is written.
+     */
+    public static class PackageStats {
+        public String packageName;
+        public String signature;
+        public long timestamp;
+        public long codeBytes;
+        public long dataBytes;
+        public long cacheBytes;
+        public long cacheQuotaBytes;
+
+        /** Returns the signature of the installed version of the app. */
+        public static String getSignature(ApplicationInfo app) {
+            return app.sourceDir + "@" + app.longVersionCode;
+        }
+
+        /** Returns true if the snapshot can be used for the app at the given time. */
+        public boolean isValidFor(ApplicationInfo app, long currentTimeMillis) {
+            final long age = currentTimeMillis - timestamp;
+            return age >= 0 && age < PACKAGE_STATS_MAX_AGE_MS
+                    && getSignature(app).equals(signature);
+        }
+
+        private String toJson() throws JSONException {
+            return new JSONObject()
+                    .put(SIGNATURE_KEY, signature)
+                    .put(TIMESTAMP_KEY, timestamp)
+                    .put(CODE_BYTES_KEY, codeBytes)
+                    .put(DATA_BYTES_KEY, dataBytes)
+                    .put(CACHE_BYTES_KEY, cacheBytes)
+                    .put(CACHE_QUOTA_BYTES_KEY, cacheQuotaBytes)
+                    .toString();
+        }
+
+        private static PackageStats fromJson(String packageName, String json)
+                throws JSONException {
+            final JSONObject object = new JSONObject(json);
+            final PackageStats stats = new PackageStats();
+            stats.packageName = packageName;
+            stats.signature = object.getString(SIGNATURE_KEY);
+            stats.timestamp = object.getLong(TIMESTAMP_KEY);
+            stats.codeBytes = object.getLong(CODE_BYTES_KEY);
+            stats.dataBytes = object.getLong(DATA_BYTES_KEY);
+            stats.cacheBytes = object.getLong(CACHE_BYTES_KEY);
+            stats.cacheQuotaBytes = object.getLong(CACHE_QUOTA_BYTES_KEY);
+            return stats;
+        }
+    }
 }
@@ -410,6 +410,22 @@ public class StorageItemPreferenceController extends AbstractPreferenceControlle
         setPrivateStorageCategoryPreferencesVisibility(true);
     }
 
+    /**
+     * Fragments use it to show the file based sizes of the user, which are loaded before the app
+     * sizes. The sizes are only shown once the categories are visible, and the categories are
+     * reordered when all the sizes are loaded in {@link #onLoadFinished}.
+     */
+    public void onMediaSizeLoaded(StorageAsyncLoader.StorageResult result) {
+        if (!mIsPreferenceOrderedBySize) {
+            return;
+        }
+        mImagesPreference.setStorageSize(result.imagesSize, mTotalSize);
+        mVideosPreference.setStorageSize(result.videosSize, mTotalSize);
+        mAudioPreference.setStorageSize(result.audioSize, mTotalSize);
+        mDocumentsAndOtherPreference.setStorageSize(result.documentsAndOtherSize, mTotalSize);
+        mTrashPreference.setStorageSize(result.trashSize, mTotalSize);
+    }
+
     private StorageCacheHelper.StorageCache getSizeInfo(
             SparseArray<StorageAsyncLoader.StorageResult> result, int userId) {
         if (result == null) {
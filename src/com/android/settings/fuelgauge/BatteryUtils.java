@@ -114,9 +114,16 @@ public class BatteryUtils {
     }
 
     private static final String TAG = "BatteryUtils";
+    /** How long a {@link BatteryInfo} is reused while the battery state doesn't change. */
+    @VisibleForTesting
+    static final long BATTERY_INFO_REUSE_MS = 1000L;
 
     private static BatteryUtils sInstance;
     private PackageManager mPackageManager;
+    private final Object mBatteryInfoLock = new Object();
+    private BatteryInfo mLastBatteryInfo;
+    private Intent mLastBatteryBroadcast;
+    private long mLastBatteryInfoTime;
 
     private AppOpsManager mAppOpsManager;
     private Context mContext;
@@ -407,6 +414,25 @@ public class BatteryUtils {
 
     @WorkerThread
     public BatteryInfo getBatteryInfo(final String tag) {
+        // The battery page loads the header and the tips at the same time, they share the info
+        // unless the battery state changes in between.
+        synchronized (mBatteryInfoLock) {
+            final Intent batteryBroadcast = getBatteryIntent(mContext);
+            final long now = SystemClock.elapsedRealtime();
+            if (mLastBatteryInfo != null && now - mLastBatteryInfoTime < BATTERY_INFO_REUSE_MS
+                    && isSameBatteryState(batteryBroadcast, mLastBatteryBroadcast)) {
+                Log.d(tag, "Reuse the BatteryInfo loaded "
+                        + (now - mLastBatteryInfoTime) + "ms ago");
+                return mLastBatteryInfo;
+            }
+            mLastBatteryInfo = loadBatteryInfo(tag, batteryBroadcast);
+            mLastBatteryBroadcast = batteryBroadcast;
+            mLastBatteryInfoTime = SystemClock.elapsedRealtime();
+            return mLastBatteryInfo;
+        }
+    }
+
+    private BatteryInfo loadBatteryInfo(String tag, Intent batteryBroadcast) {
         final BatteryStatsManager systemService = mContext.getSystemService(
                 BatteryStatsManager.class);
         BatteryUsageStats batteryUsageStats;
@@ -421,9 +447,6 @@ public class BatteryUtils {
 
         final long startTime = System.currentTimeMillis();
 
-        // Stuff we always need to get BatteryInfo
-        final Intent batteryBroadcast = getBatteryIntent(mContext);
-
         final long elapsedRealtimeUs = PowerUtil.convertMsToUs(
                 SystemClock.elapsedRealtime());
 
@@ -451,6 +474,23 @@ public class BatteryUtils {
         return batteryInfo;
     }
 
+    @VisibleForTesting
+    static boolean isSameBatteryState(Intent broadcast1, Intent broadcast2) {
+        if (broadcast1 == null || broadcast2 == null) {
+            return false;
+        }
+        return broadcast1.getIntExtra(BatteryManager.EXTRA_LEVEL, -1)
+                        == broadcast2.getIntExtra(BatteryManager.EXTRA_LEVEL, -1)
+                && broadcast1.getIntExtra(BatteryManager.EXTRA_SCALE, -1)
+                        == broadcast2.getIntExtra(BatteryManager.EXTRA_SCALE, -1)
+                && broadcast1.getIntExtra(BatteryManager.EXTRA_PLUGGED, -1)
+                        == broadcast2.getIntExtra(BatteryManager.EXTRA_PLUGGED, -1)
+                && broadcast1.getIntExtra(BatteryManager.EXTRA_STATUS, -1)
+                        == broadcast2.getIntExtra(BatteryManager.EXTRA_STATUS, -1)
+                && broadcast1.getIntExtra(BatteryManager.EXTRA_CHARGING_STATUS, -1)
+                        == broadcast2.getIntExtra(BatteryManager.EXTRA_CHARGING_STATUS, -1);
+    }
+
     @VisibleForTesting
     Estimate getEnhancedEstimate() {
         // Align the same logic in the BatteryControllerImpl.updateEstimate()
@@ -145,6 +145,8 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
 
     private AnomalyDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Lets the UI read the anomalies while the detection job writes them.
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
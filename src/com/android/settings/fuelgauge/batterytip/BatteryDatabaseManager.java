@@ -16,7 +16,6 @@
 
 package com.android.settings.fuelgauge.batterytip;
 
-import static android.database.sqlite.SQLiteDatabase.CONFLICT_IGNORE;
 import static android.database.sqlite.SQLiteDatabase.CONFLICT_REPLACE;
 
 import static com.android.settings.fuelgauge.batterytip.AnomalyDatabaseHelper.AnomalyColumns.ANOMALY_STATE;
@@ -31,7 +30,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.text.TextUtils;
+import android.database.sqlite.SQLiteStatement;
 import android.util.ArrayMap;
 import android.util.SparseLongArray;
 
@@ -40,20 +39,36 @@ import androidx.annotation.VisibleForTesting;
 import com.android.settings.fuelgauge.batterytip.AnomalyDatabaseHelper.ActionColumns;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Database manager for battery data. Now it only contains anomaly data stored in {@link AppInfo}.
  *
- * This manager may be accessed by multi-threads. All the database related methods are synchronized
- * so each operation won't be interfered by other threads.
+ * This manager may be accessed by multi-threads. The database is in write-ahead logging mode, so
+ * the queries run concurrently with each other and with the writes. The writes are serialized by
+ * a lock, which also guards the compiled statements they reuse.
  */
 public class BatteryDatabaseManager {
+    private static final String INSERT_ANOMALY_SQL = "INSERT OR IGNORE INTO " + TABLE_ANOMALY
+            + "(" + UID + "," + PACKAGE_NAME + "," + ANOMALY_TYPE + "," + ANOMALY_STATE + ","
+            + TIME_STAMP_MS + ") VALUES (?,?,?,?,?)";
+    private static final String UPDATE_ANOMALY_STATE_SQL = "UPDATE " + TABLE_ANOMALY
+            + " SET " + ANOMALY_STATE + " = ? WHERE " + PACKAGE_NAME + " = ?";
+    // The query has a constant sql, so its compiled statement is reused from the statement cache
+    // of the connection.
+    private static final String QUERY_ACTION_TIME_SQL = "SELECT " + ActionColumns.UID + ","
+            + ActionColumns.TIME_STAMP_MS + " FROM " + TABLE_ACTION + " WHERE "
+            + ActionColumns.ACTION_TYPE + " = ?";
+
     private static BatteryDatabaseManager sSingleton;
 
     private AnomalyDatabaseHelper mDatabaseHelper;
+    private final Object mWriteLock = new Object();
+    // The compiled statements of the writes, which are only valid for their database.
+    private SQLiteDatabase mStatementDatabase;
+    private SQLiteStatement mInsertAnomalyStatement;
+    private SQLiteStatement mUpdateAnomalyStateStatement;
 
     private BatteryDatabaseManager(Context context) {
         mDatabaseHelper = AnomalyDatabaseHelper.getInstance(context);
@@ -81,24 +96,29 @@ public class BatteryDatabaseManager {
      * @param timestampMs  the time when it is happened
      * @return {@code true} if insert operation succeed
      */
-    public synchronized boolean insertAnomaly(int uid, String packageName, int type,
+    public boolean insertAnomaly(int uid, String packageName, int type,
             int anomalyState,
             long timestampMs) {
-        final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(UID, uid);
-        values.put(PACKAGE_NAME, packageName);
-        values.put(ANOMALY_TYPE, type);
-        values.put(ANOMALY_STATE, anomalyState);
-        values.put(TIME_STAMP_MS, timestampMs);
-
-        return db.insertWithOnConflict(TABLE_ANOMALY, null, values, CONFLICT_IGNORE) != -1;
+        synchronized (mWriteLock) {
+            prepareStatements(mDatabaseHelper.getWritableDatabase());
+            final SQLiteStatement statement = mInsertAnomalyStatement;
+            statement.bindLong(1, uid);
+            bindString(statement, 2, packageName);
+            statement.bindLong(3, type);
+            statement.bindLong(4, anomalyState);
+            statement.bindLong(5, timestampMs);
+            try {
+                return statement.executeInsert() != -1;
+            } finally {
+                statement.clearBindings();
+            }
+        }
     }
 
     /**
      * Query all the anomalies that happened after {@code timestampMsAfter} and with {@code state}.
      */
-    public synchronized List<AppInfo> queryAllAnomalies(long timestampMsAfter, int state) {
+    public List<AppInfo> queryAllAnomalies(long timestampMsAfter, int state) {
         final List<AppInfo> appInfos = new ArrayList<>();
         final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
         final String[] projection = {PACKAGE_NAME, ANOMALY_TYPE, UID};
@@ -131,10 +151,12 @@ public class BatteryDatabaseManager {
         return appInfos;
     }
 
-    public synchronized void deleteAllAnomaliesBeforeTimeStamp(long timestampMs) {
-        final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
-        db.delete(TABLE_ANOMALY, TIME_STAMP_MS + " < ?",
-                new String[]{String.valueOf(timestampMs)});
+    public void deleteAllAnomaliesBeforeTimeStamp(long timestampMs) {
+        synchronized (mWriteLock) {
+            final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+            db.delete(TABLE_ANOMALY, TIME_STAMP_MS + " < ?",
+                    new String[]{String.valueOf(timestampMs)});
+        }
     }
 
     /**
@@ -143,19 +165,27 @@ public class BatteryDatabaseManager {
      * @param appInfos represents the anomalies
      * @param state    which state to update to
      */
-    public synchronized void updateAnomalies(List<AppInfo> appInfos, int state) {
-        if (!appInfos.isEmpty()) {
-            final int size = appInfos.size();
-            final String[] whereArgs = new String[size];
-            for (int i = 0; i < size; i++) {
-                whereArgs[i] = appInfos.get(i).packageName;
-            }
-
+    public void updateAnomalies(List<AppInfo> appInfos, int state) {
+        if (appInfos.isEmpty()) {
+            return;
+        }
+        synchronized (mWriteLock) {
             final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
-            final ContentValues values = new ContentValues();
-            values.put(ANOMALY_STATE, state);
-            db.update(TABLE_ANOMALY, values, PACKAGE_NAME + " IN (" + TextUtils.join(",",
-                    Collections.nCopies(appInfos.size(), "?")) + ")", whereArgs);
+            prepareStatements(db);
+            final SQLiteStatement statement = mUpdateAnomalyStateStatement;
+            // One transaction for the whole list, instead of one per app.
+            db.beginTransaction();
+            try {
+                for (int i = 0, size = appInfos.size(); i < size; i++) {
+                    statement.bindLong(1, state);
+                    bindString(statement, 2, appInfos.get(i).packageName);
+                    statement.executeUpdateDelete();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                statement.clearBindings();
+                db.endTransaction();
+            }
         }
     }
 
@@ -165,22 +195,16 @@ public class BatteryDatabaseManager {
      * @param type of action been performed
      * @return {@link SparseLongArray} where key is uid and value is timestamp
      */
-    public synchronized SparseLongArray queryActionTime(
+    public SparseLongArray queryActionTime(
             @AnomalyDatabaseHelper.ActionType int type) {
         final SparseLongArray timeStamps = new SparseLongArray();
         final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
-        final String[] projection = {ActionColumns.UID, ActionColumns.TIME_STAMP_MS};
-        final String selection = ActionColumns.ACTION_TYPE + " = ? ";
-        final String[] selectionArgs = new String[]{String.valueOf(type)};
-
-        try (Cursor cursor = db.query(TABLE_ACTION, projection, selection, selectionArgs,
-                null /* groupBy */, null /* having */, null /* orderBy */)) {
-            final int uidIndex = cursor.getColumnIndex(ActionColumns.UID);
-            final int timestampIndex = cursor.getColumnIndex(ActionColumns.TIME_STAMP_MS);
 
+        try (Cursor cursor = db.rawQuery(QUERY_ACTION_TIME_SQL,
+                new String[]{String.valueOf(type)})) {
             while (cursor.moveToNext()) {
-                final int uid = cursor.getInt(uidIndex);
-                final long timeStamp = cursor.getLong(timestampIndex);
+                final int uid = cursor.getInt(0 /* uid */);
+                final long timeStamp = cursor.getLong(1 /* time_stamp_ms */);
                 timeStamps.append(uid, timeStamp);
             }
         }
@@ -191,30 +215,56 @@ public class BatteryDatabaseManager {
     /**
      * Insert an action, or update it if already existed
      */
-    public synchronized boolean insertAction(@AnomalyDatabaseHelper.ActionType int type,
+    public boolean insertAction(@AnomalyDatabaseHelper.ActionType int type,
             int uid, String packageName, long timestampMs) {
-        final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
         final ContentValues values = new ContentValues();
         values.put(ActionColumns.UID, uid);
         values.put(ActionColumns.PACKAGE_NAME, packageName);
         values.put(ActionColumns.ACTION_TYPE, type);
         values.put(ActionColumns.TIME_STAMP_MS, timestampMs);
 
-        return db.insertWithOnConflict(TABLE_ACTION, null, values, CONFLICT_REPLACE) != -1;
+        synchronized (mWriteLock) {
+            final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+            return db.insertWithOnConflict(TABLE_ACTION, null, values, CONFLICT_REPLACE) != -1;
+        }
     }
 
     /**
      * Remove an action
      */
-    public synchronized boolean deleteAction(@AnomalyDatabaseHelper.ActionType int type,
+    public boolean deleteAction(@AnomalyDatabaseHelper.ActionType int type,
             int uid, String packageName) {
-        SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
         final String where =
                 ActionColumns.ACTION_TYPE + " = ? AND " + ActionColumns.UID + " = ? AND "
                         + ActionColumns.PACKAGE_NAME + " = ? ";
         final String[] whereArgs = new String[]{String.valueOf(type), String.valueOf(uid),
                 String.valueOf(packageName)};
 
-        return db.delete(TABLE_ACTION, where, whereArgs) != 0;
+        synchronized (mWriteLock) {
+            final SQLiteDatabase db = mDatabaseHelper.getWritableDatabase();
+            return db.delete(TABLE_ACTION, where, whereArgs) != 0;
+        }
+    }
+
+    /** Compiles the statements of the writes once per database, must hold the write lock. */
+    private void prepareStatements(SQLiteDatabase db) {
+        if (mStatementDatabase == db) {
+            return;
+        }
+        if (mStatementDatabase != null) {
+            mInsertAnomalyStatement.close();
+            mUpdateAnomalyStateStatement.close();
+        }
+        mInsertAnomalyStatement = db.compileStatement(INSERT_ANOMALY_SQL);
+        mUpdateAnomalyStateStatement = db.compileStatement(UPDATE_ANOMALY_STATE_SQL);
+        mStatementDatabase = db;
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 }
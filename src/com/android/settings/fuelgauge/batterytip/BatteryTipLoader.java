@@ -18,34 +18,71 @@ package com.android.settings.fuelgauge.batterytip;
 
 import android.content.Context;
 import android.os.BatteryUsageStats;
+import android.os.Parcel;
 import android.os.PowerManager;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.SparseArray;
 
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.fuelgauge.BatteryInfo;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.detectors.BatteryDefenderDetector;
+import com.android.settings.fuelgauge.batterytip.detectors.BatteryTipDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.DockDefenderDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.HighUsageDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.IncompatibleChargerDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.LowBatteryDetector;
-import com.android.settings.fuelgauge.batterytip.detectors.SmartBatteryDetector;
+import com.android.settings.fuelgauge.batterytip.tips.BatteryDefenderTip;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.DockDefenderTip;
+import com.android.settings.fuelgauge.batterytip.tips.HighUsageTip;
+import com.android.settings.fuelgauge.batterytip.tips.IncompatibleChargerTip;
 import com.android.settings.fuelgauge.batterytip.tips.LowBatteryTip;
-import com.android.settingslib.fuelgauge.EstimateKt;
 import com.android.settingslib.utils.AsyncLoaderCompat;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Loader to compute and return a battery tip list. It will always return a full length list even
  * though some tips may have state {@code BaseBatteryTip.StateType.INVISIBLE}.
+ *
+ * <p>The detectors run concurrently, each within its own deadline. A detector which misses it is
+ * replaced by the tip it detected last, or by an invisible tip, so a slow binder or database call
+ * doesn't hold up the other tips. The tips are loaded again once a late detector finds a tip
+ * which differs from the last one.</p>
  */
 public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
     private static final String TAG = "BatteryTipLoader";
 
+    @VisibleForTesting
+    static final long DETECTOR_TIMEOUT_MS = 100L;
+    @VisibleForTesting
+    static final long HIGH_USAGE_DETECTOR_TIMEOUT_MS = 300L;
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private static final ThreadPoolExecutor sExecutor = createExecutor();
+    // The last tip of each type, it's updated by the detectors which finish late too. The tips are
+    // kept marshalled, since the returned ones are changed by the UI.
+    private static final SparseArray<byte[]> sLastTips = new SparseArray<>();
+    private static BatteryTipPolicy sPolicy;
+    private static String sPolicyConstants;
+
     private BatteryUsageStats mBatteryUsageStats;
     @VisibleForTesting
     BatteryUtils mBatteryUtils;
@@ -58,18 +95,35 @@ public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
 
     @Override
     public List<BatteryTip> loadInBackground() {
-        final List<BatteryTip> tips = new ArrayList<>();
-        final BatteryTipPolicy policy = new BatteryTipPolicy(getContext());
+        final BatteryTipPolicy policy = getPolicy(getContext());
         final BatteryInfo batteryInfo = mBatteryUtils.getBatteryInfo(TAG);
         final Context context = getContext().getApplicationContext();
         final boolean isPowerSaveMode =
                 context.getSystemService(PowerManager.class).isPowerSaveMode();
+        final Runnable onLateTipChanged =
+                () -> ThreadUtils.postOnMainThread(this::onContentChanged);
 
-        tips.add(new LowBatteryDetector(context, policy, batteryInfo, isPowerSaveMode).detect());
-        tips.add(new HighUsageDetector(context, policy, mBatteryUsageStats, batteryInfo).detect());
-        tips.add(new BatteryDefenderDetector(batteryInfo, context).detect());
-        tips.add(new DockDefenderDetector(batteryInfo, context).detect());
-        tips.add(new IncompatibleChargerDetector(context).detect());
+        final List<DetectorTask> tasks = new ArrayList<>();
+        tasks.add(new DetectorTask(
+                new LowBatteryDetector(context, policy, batteryInfo, isPowerSaveMode),
+                new LowBatteryTip(BatteryTip.StateType.INVISIBLE, isPowerSaveMode),
+                DETECTOR_TIMEOUT_MS, onLateTipChanged));
+        tasks.add(new DetectorTask(
+                new HighUsageDetector(context, policy, mBatteryUsageStats, batteryInfo),
+                new HighUsageTip(0 /* lastFullChargeTimeMs */, new ArrayList<>()),
+                HIGH_USAGE_DETECTOR_TIMEOUT_MS, onLateTipChanged));
+        tasks.add(new DetectorTask(new BatteryDefenderDetector(batteryInfo, context),
+                new BatteryDefenderTip(BatteryTip.StateType.INVISIBLE,
+                        batteryInfo.pluggedStatus != 0),
+                DETECTOR_TIMEOUT_MS, onLateTipChanged));
+        tasks.add(new DetectorTask(new DockDefenderDetector(batteryInfo, context),
+                new DockDefenderTip(BatteryTip.StateType.INVISIBLE,
+                        BatteryUtils.DockDefenderMode.DISABLED),
+                DETECTOR_TIMEOUT_MS, onLateTipChanged));
+        tasks.add(new DetectorTask(new IncompatibleChargerDetector(context),
+                new IncompatibleChargerTip(BatteryTip.StateType.INVISIBLE),
+                DETECTOR_TIMEOUT_MS, onLateTipChanged));
+        final List<BatteryTip> tips = detect(tasks);
         Collections.sort(tips);
         return tips;
     }
@@ -77,4 +131,185 @@ public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
     @Override
     protected void onDiscardResult(List<BatteryTip> result) {
     }
+
+    /** Runs the detectors concurrently and returns their tips in the order of the tasks. */
+    @VisibleForTesting
+    static List<BatteryTip> detect(List<DetectorTask> tasks) {
+        final long startTime = SystemClock.elapsedRealtime();
+        for (DetectorTask task : tasks) {
+            sExecutor.execute(task);
+        }
+        final List<BatteryTip> tips = new ArrayList<>(tasks.size());
+        for (DetectorTask task : tasks) {
+            BatteryTip tip = null;
+            try {
+                tip = task.get(Math.max(0L,
+                        startTime + task.mTimeoutMs - SystemClock.elapsedRealtime()),
+                        TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                Log.w(TAG, task.mName + " timed out");
+                if (!task.markLate()) {
+                    // It's done meanwhile.
+                    tip = getDoneTip(task);
+                }
+            } catch (ExecutionException e) {
+                Log.e(TAG, task.mName + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Detection is interrupted", e);
+                Thread.currentThread().interrupt();
+            }
+            if (tip == null) {
+                tip = getLastTip(task.mFallbackTip);
+            }
+            tips.add(tip);
+        }
+        Log.d(TAG, String.format("Detected %d tips in %d ms", tips.size(),
+                SystemClock.elapsedRealtime() - startTime));
+        return tips;
+    }
+
+    private static BatteryTip getDoneTip(DetectorTask task) {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, task.mName + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Detection is interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /** Returns a copy of the last tip of the type of the fallback tip, or the fallback tip. */
+    private static BatteryTip getLastTip(BatteryTip fallbackTip) {
+        final byte[] lastTip;
+        synchronized (sLastTips) {
+            lastTip = sLastTips.get(fallbackTip.getType());
+        }
+        if (lastTip == null) {
+            return fallbackTip;
+        }
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(lastTip, 0, lastTip.length);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(BatteryTip.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /** Keeps a copy of the tip, and returns whether it differs from the last one. */
+    private static boolean putLastTip(BatteryTip tip) {
+        final byte[] lastTip;
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(tip, 0 /* flags */);
+            lastTip = parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+        synchronized (sLastTips) {
+            final boolean isChanged = !Arrays.equals(lastTip, sLastTips.get(tip.getType()));
+            sLastTips.put(tip.getType(), lastTip);
+            return isChanged;
+        }
+    }
+
+    /** Returns the policy, which is only parsed again when the constants change. */
+    @VisibleForTesting
+    static synchronized BatteryTipPolicy getPolicy(Context context) {
+        final String constants = Settings.Global.getString(context.getContentResolver(),
+                Settings.Global.BATTERY_TIP_CONSTANTS);
+        if (sPolicy == null || !TextUtils.equals(constants, sPolicyConstants)) {
+            sPolicy = new BatteryTipPolicy(context);
+            sPolicyConstants = constants;
+        }
+        return sPolicy;
+    }
+
+    @VisibleForTesting
+    static void clearCache() {
+        synchronized (BatteryTipLoader.class) {
+            sPolicy = null;
+            sPolicyConstants = null;
+        }
+        synchronized (sLastTips) {
+            sLastTips.clear();
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        // Each detector gets its own thread, so its deadline starts when it's submitted even if
+        // a late detector of an earlier load is still running. The threads are only kept while
+        // the tips are loaded.
+        return new ThreadPoolExecutor(
+                0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> new Thread(
+                        runnable, "BatteryTipDetector-" + threadCount.incrementAndGet()));
+    }
+
+    /** Runs a detector, and keeps its tip for the next loads. */
+    @VisibleForTesting
+    static final class DetectorTask extends FutureTask<BatteryTip> {
+        private final String mName;
+        private final BatteryTip mFallbackTip;
+        private final long mTimeoutMs;
+        private final Runnable mOnLateTipChanged;
+        private final AtomicBoolean mIsTipChanged;
+        // Guarded by this, so the task can't finish unnoticed while it's marked late.
+        private boolean mIsLate;
+
+        /**
+         * @param fallbackTip the tip used if the detector fails or misses its deadline before it
+         *                    ever detected a tip.
+         * @param onLateTipChanged called on the detector thread if the detector misses its deadline
+         *                         and then finds a tip which differs from the last one.
+         */
+        DetectorTask(BatteryTipDetector detector, BatteryTip fallbackTip, long timeoutMs,
+                Runnable onLateTipChanged) {
+            this(detector, fallbackTip, timeoutMs, onLateTipChanged, new AtomicBoolean());
+        }
+
+        @VisibleForTesting
+        DetectorTask(BatteryTipDetector detector, BatteryTip fallbackTip, long timeoutMs) {
+            this(detector, fallbackTip, timeoutMs, null /* onLateTipChanged */);
+        }
+
+        private DetectorTask(BatteryTipDetector detector, BatteryTip fallbackTip, long timeoutMs,
+                Runnable onLateTipChanged, AtomicBoolean isTipChanged) {
+            super(() -> {
+                final BatteryTip tip = detector.detect();
+                isTipChanged.set(putLastTip(tip));
+                return tip;
+            });
+            mName = detector.getClass().getSimpleName();
+            mFallbackTip = fallbackTip;
+            mTimeoutMs = timeoutMs;
+            mOnLateTipChanged = onLateTipChanged;
+            mIsTipChanged = isTipChanged;
+        }
+
+        /** Marks the task as missing its deadline, returns false if it's already done. */
+        synchronized boolean markLate() {
+            if (isDone()) {
+                return false;
+            }
+            mIsLate = true;
+            return true;
+        }
+
+        @Override
+        protected void done() {
+            final boolean isLate;
+            synchronized (this) {
+                isLate = mIsLate;
+            }
+            if (isLate && mIsTipChanged.get() && mOnLateTipChanged != null) {
+                mOnLateTipChanged.run();
+            }
+        }
+    }
 }
@@ -55,11 +55,19 @@ import com.android.settings.R;
 import com.android.settingslib.Utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
-/** A widget component to draw chart graph. */
+/**
+ * A widget component to draw chart graph.
+ *
+ * <p>The text bounds are measured when the view model or the text paint changes, and the
+ * geometry of the dividers, the axis labels and the trapezoids is computed when they or the size
+ * change. A frame only draws the cached geometry, so scrubbing through the chart doesn't allocate.
+ * </p>
+ */
 public class BatteryChartView extends AppCompatImageView implements View.OnClickListener {
     private static final String TAG = "BatteryChartView";
 
@@ -77,6 +85,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private final Rect[] mPercentageBounds = new Rect[]{new Rect(), new Rect(), new Rect()};
     private final List<Rect> mAxisLabelsBounds = new ArrayList<>();
     private final Set<Integer> mLabelDrawnIndexes = new ArraySet<>();
+    private final float[] mHorizontalDividerLines = new float[HORIZONTAL_DIVIDER_COUNT * 4];
+    private final float[] mPercentageBaselines = new float[3];
     private final int mLayoutDirection =
             getContext().getResources().getConfiguration().getLayoutDirection();
 
@@ -105,6 +115,19 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private Paint mTextPaint;
     private AccessibilityNodeProvider mAccessibilityNodeProvider;
     private BatteryChartView.OnSelectListener mOnSelectListener;
+    // The cached geometry, the lines are in the format of Canvas#drawLines().
+    private Rect[] mAxisLabelDisplayAreas = new Rect[0];
+    private boolean[] mIsAxisLabelDrawn = new boolean[0];
+    private int mAxisLabelCount;
+    private float mAxisLabelBaselineY;
+    private float[] mVerticalDividerLines = new float[0];
+    private float[] mHighlightedDividerLines = new float[0];
+    private int mVerticalDividerLineCount;
+    private int mHighlightedDividerLineCount;
+    private boolean mIsTextBoundsDirty = true;
+    private boolean mIsGeometryDirty = true;
+    private int mGeometryWidth;
+    private int mGeometryHeight;
 
     @VisibleForTesting
     TrapezoidSlot[] mTrapezoidSlots;
@@ -129,6 +152,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     public void setViewModel(BatteryChartViewModel viewModel) {
         if (viewModel == null) {
             mViewModel = null;
+            mIsGeometryDirty = true;
             invalidate();
             return;
         }
@@ -136,10 +160,17 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         Log.d(TAG, String.format(
                 "setViewModel(): size: %d, selectedIndex: %d, getHighlightSlotIndex: %d",
                 viewModel.size(), viewModel.selectedIndex(), viewModel.getHighlightSlotIndex()));
+        setClickable(hasAnyValidTrapezoid(viewModel));
+        if (viewModel == mViewModel) {
+            // Only the selected or highlighted slot changes, the geometry is still valid.
+            invalidate();
+            return;
+        }
         mViewModel = viewModel;
         initializeAxisLabelsBounds();
         initializeTrapezoidSlots(viewModel.size() - 1);
-        setClickable(hasAnyValidTrapezoid(viewModel));
+        mIsTextBoundsDirty = true;
+        mIsGeometryDirty = true;
         requestLayout();
     }
 
@@ -158,12 +189,18 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mTextPaint = null;
         }
+        mIsTextBoundsDirty = true;
         requestLayout();
     }
 
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if (!mIsTextBoundsDirty) {
+            return;
+        }
+        mIsTextBoundsDirty = false;
+        mIsGeometryDirty = true;
         // Measures text bounds and updates indent configuration.
         if (mTextPaint != null) {
             mTextPaint.setTextAlign(Paint.Align.LEFT);
@@ -199,6 +236,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
+        updateGeometryIfNeeded();
         // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
         // horizontal percentages and dividers.
         drawHorizontalDividers(canvas);
@@ -233,8 +271,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             case MotionEvent.ACTION_HOVER_MOVE:
                 final int trapezoidIndex = getTrapezoidIndex(event.getX());
                 if (mHoveredIndex != trapezoidIndex) {
-                    mHoveredIndex = trapezoidIndex;
-                    invalidate();
+                    setHoveredIndex(trapezoidIndex);
                     sendAccessibilityEventForHover(AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
                 }
                 // Ignore the super.onHoverEvent() because the hovered trapezoid has already been
@@ -243,8 +280,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             case MotionEvent.ACTION_HOVER_EXIT:
                 if (mHoveredIndex != BatteryChartViewModel.SELECTED_INDEX_INVALID) {
                     sendAccessibilityEventForHover(AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
-                    mHoveredIndex = BatteryChartViewModel.SELECTED_INDEX_INVALID; // reset
-                    invalidate();
+                    setHoveredIndex(BatteryChartViewModel.SELECTED_INDEX_INVALID); // reset
                 }
                 // Ignore the super.onHoverEvent() because the hovered trapezoid has already been
                 // sent here.
@@ -258,8 +294,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     public void onHoverChanged(boolean hovered) {
         super.onHoverChanged(hovered);
         if (!hovered) {
-            mHoveredIndex = BatteryChartViewModel.SELECTED_INDEX_INVALID; // reset
-            invalidate();
+            setHoveredIndex(BatteryChartViewModel.SELECTED_INDEX_INVALID); // reset
         }
     }
 
@@ -316,11 +351,26 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
+    private void setHoveredIndex(int index) {
+        final int previousIndex = mHoveredIndex;
+        mHoveredIndex = index;
+        // Only redraws if a drawn trapezoid gains or loses the hover color.
+        if (isValidToDraw(mViewModel, previousIndex) || isValidToDraw(mViewModel, index)) {
+            invalidate();
+        }
+    }
+
     private void initializeTrapezoidSlots(int count) {
+        if (mTrapezoidSlots != null && mTrapezoidSlots.length == count) {
+            return;
+        }
         mTrapezoidSlots = new TrapezoidSlot[count];
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
             mTrapezoidSlots[index] = new TrapezoidSlot();
         }
+        // Each divider is a line of 4 coordinates.
+        mVerticalDividerLines = new float[(count + 1) * 4];
+        mHighlightedDividerLines = new float[(count + 1) * 4];
     }
 
     private void initializeColors(Context context) {
@@ -388,43 +438,61 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         mTransomIcon = getResources().getDrawable(R.drawable.ic_battery_tips_warning_icon);
     }
 
-    private void drawHorizontalDividers(Canvas canvas) {
+    /** Computes the geometry if the view model, the text bounds or the size is changed. */
+    private void updateGeometryIfNeeded() {
+        final int width = getWidth();
+        final int height = getHeight();
+        if (!mIsGeometryDirty && width == mGeometryWidth && height == mGeometryHeight) {
+            return;
+        }
+        mIsGeometryDirty = false;
+        mGeometryWidth = width;
+        mGeometryHeight = height;
+        updateHorizontalDividers();
+        if (mViewModel == null) {
+            return;
+        }
+        updateVerticalDividers();
+        updateTrapezoidPaths();
+    }
+
+    private void updateHorizontalDividers() {
         final int width = getWidth() - abs(mIndent.width());
         final int height = getHeight() - mIndent.top - mIndent.bottom;
         final float topOffsetY = mIndent.top + mDividerWidth * .5f;
         final float bottomOffsetY = mIndent.top + (height - mDividerHeight - mDividerWidth * .5f);
         final float availableSpace = bottomOffsetY - topOffsetY;
-
-        mDividerPaint.setColor(DIVIDER_COLOR);
         final float dividerOffsetUnit =
                 availableSpace / (float) (HORIZONTAL_DIVIDER_COUNT - 1);
 
-        // Draws 5 divider lines.
         for (int index = 0; index < HORIZONTAL_DIVIDER_COUNT; index++) {
-            float offsetY = topOffsetY + dividerOffsetUnit * index;
-            canvas.drawLine(mIndent.left, offsetY,
-                    mIndent.left + width, offsetY, mDividerPaint);
-
-            //  Draws percentage text only for 100% / 50% / 0%
+            final float offsetY = topOffsetY + dividerOffsetUnit * index;
+            setLine(mHorizontalDividerLines, index, mIndent.left, offsetY,
+                    mIndent.left + width, offsetY);
+            //  Places percentage text only for 100% / 50% / 0%
             if (index % 2 == 0) {
-                drawPercentage(canvas, /*index=*/ (index + 1) / 2, offsetY);
+                final int percentageIndex = (index + 1) / 2;
+                mPercentageBaselines[percentageIndex] =
+                        offsetY + mPercentageBounds[percentageIndex].height() * .5f;
             }
         }
     }
 
-    private void drawPercentage(Canvas canvas, int index, float offsetY) {
+    private void drawHorizontalDividers(Canvas canvas) {
+        // Draws 5 divider lines.
+        mDividerPaint.setColor(DIVIDER_COLOR);
+        canvas.drawLines(mHorizontalDividerLines, mDividerPaint);
         if (mTextPaint != null) {
             mTextPaint.setTextAlign(Paint.Align.RIGHT);
             mTextPaint.setColor(mDefaultTextColor);
-            canvas.drawText(
-                    mPercentages[index],
-                    isRTL() ? mIndent.left - mTextPadding : getWidth(),
-                    offsetY + mPercentageBounds[index].height() * .5f,
-                    mTextPaint);
+            final float x = isRTL() ? mIndent.left - mTextPadding : getWidth();
+            for (int index = 0; index < mPercentages.length; index++) {
+                canvas.drawText(mPercentages[index], x, mPercentageBaselines[index], mTextPaint);
+            }
         }
     }
 
-    private void drawVerticalDividers(Canvas canvas) {
+    private void updateVerticalDividers() {
         final int width = getWidth() - abs(mIndent.width());
         final int dividerCount = mTrapezoidSlots.length + 1;
         final float dividerSpace = dividerCount * mDividerWidth;
@@ -432,43 +500,41 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         final float bottomY = getHeight() - mIndent.bottom;
         final float startY = bottomY - mDividerHeight;
         final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
-        // Draws the axis label slot information.
-        if (mViewModel != null) {
-            final float baselineY = getHeight() - mTextPadding;
-            Rect[] axisLabelDisplayAreas;
-            switch (mViewModel.axisLabelPosition()) {
-                case CENTER_OF_TRAPEZOIDS:
-                    axisLabelDisplayAreas = getAxisLabelDisplayAreas(
-                            /* size= */ mViewModel.size() - 1,
-                            /* baselineX= */ mIndent.left + mDividerWidth + unitWidth * .5f,
-                            /* offsetX= */ mDividerWidth + unitWidth,
-                            baselineY,
-                            /* shiftFirstAndLast= */ false);
-                    break;
-                case BETWEEN_TRAPEZOIDS:
-                default:
-                    axisLabelDisplayAreas = getAxisLabelDisplayAreas(
-                            /* size= */ mViewModel.size(),
-                            /* baselineX= */ mIndent.left + mDividerWidth * .5f,
-                            /* offsetX= */ mDividerWidth + unitWidth,
-                            baselineY,
-                            /* shiftFirstAndLast= */ true);
-                    break;
-            }
-            drawAxisLabels(canvas, axisLabelDisplayAreas, baselineY);
+        // Places the axis label slot information.
+        mAxisLabelBaselineY = getHeight() - mTextPadding;
+        switch (mViewModel.axisLabelPosition()) {
+            case CENTER_OF_TRAPEZOIDS:
+                updateAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size() - 1,
+                        /* baselineX= */ mIndent.left + mDividerWidth + unitWidth * .5f,
+                        /* offsetX= */ mDividerWidth + unitWidth,
+                        mAxisLabelBaselineY,
+                        /* shiftFirstAndLast= */ false);
+                break;
+            case BETWEEN_TRAPEZOIDS:
+            default:
+                updateAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size(),
+                        /* baselineX= */ mIndent.left + mDividerWidth * .5f,
+                        /* offsetX= */ mDividerWidth + unitWidth,
+                        mAxisLabelBaselineY,
+                        /* shiftFirstAndLast= */ true);
+                break;
         }
-        // Draws each vertical dividers.
+        updateAxisLabelsDrawn();
+        // Places each vertical dividers.
+        mVerticalDividerLineCount = 0;
+        mHighlightedDividerLineCount = 0;
         float startX = mDividerWidth * .5f + mIndent.left;
         for (int index = 0; index < dividerCount; index++) {
-            float dividerY = bottomY;
             if (mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
                     && mLabelDrawnIndexes.contains(index)) {
-                mDividerPaint.setColor(mTrapezoidSolidColor);
-                dividerY += mDividerHeight / 4f;
+                setLine(mHighlightedDividerLines, mHighlightedDividerLineCount++,
+                        startX, startY, startX, bottomY + mDividerHeight / 4f);
             } else {
-                mDividerPaint.setColor(DIVIDER_COLOR);
+                setLine(mVerticalDividerLines, mVerticalDividerLineCount++,
+                        startX, startY, startX, bottomY);
             }
-            canvas.drawLine(startX, startY, startX, dividerY, mDividerPaint);
             final float nextX = startX + mDividerWidth + unitWidth;
             // Updates the trapezoid slots for drawing.
             if (index < mTrapezoidSlots.length) {
@@ -480,11 +546,20 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
-    /** Gets all the axis label texts displaying area positions if they are shown. */
-    private Rect[] getAxisLabelDisplayAreas(final int size, final float baselineX,
+    private void drawVerticalDividers(Canvas canvas) {
+        drawAxisLabels(canvas);
+        mDividerPaint.setColor(DIVIDER_COLOR);
+        canvas.drawLines(mVerticalDividerLines, 0, mVerticalDividerLineCount * 4, mDividerPaint);
+        mDividerPaint.setColor(mTrapezoidSolidColor);
+        canvas.drawLines(mHighlightedDividerLines, 0, mHighlightedDividerLineCount * 4,
+                mDividerPaint);
+    }
+
+    /** Updates all the axis label texts displaying area positions if they are shown. */
+    private void updateAxisLabelDisplayAreas(final int size, final float baselineX,
             final float offsetX, final float baselineY, final boolean shiftFirstAndLast) {
-        final Rect[] result = new Rect[size];
-        for (int index = 0; index < result.length; index++) {
+        mAxisLabelCount = size;
+        for (int index = 0; index < size; index++) {
             final float width = mAxisLabelsBounds.get(index).width();
             float middle = baselineX + index * offsetX;
             if (shiftFirstAndLast) {
@@ -499,122 +574,113 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             final float right = left + width;
             final float top = baselineY + mAxisLabelsBounds.get(index).top;
             final float bottom = top + mAxisLabelsBounds.get(index).height();
-            result[index] = new Rect(round(left), round(top), round(right), round(bottom));
+            mAxisLabelDisplayAreas[index].set(
+                    round(left), round(top), round(right), round(bottom));
         }
-        return result;
     }
 
-    private void drawAxisLabels(Canvas canvas, final Rect[] displayAreas, final float baselineY) {
-        final int lastIndex = displayAreas.length - 1;
+    private void updateAxisLabelsDrawn() {
+        final int lastIndex = mAxisLabelCount - 1;
         mLabelDrawnIndexes.clear();
+        Arrays.fill(mIsAxisLabelDrawn, false);
         // Suppose first and last labels are always able to draw.
-        drawAxisLabelText(canvas, 0, displayAreas[0], baselineY);
-        mLabelDrawnIndexes.add(0);
-        drawAxisLabelText(canvas, lastIndex, displayAreas[lastIndex], baselineY);
-        mLabelDrawnIndexes.add(lastIndex);
-        drawAxisLabelsBetweenStartIndexAndEndIndex(canvas, displayAreas, 0, lastIndex, baselineY);
+        setAxisLabelDrawn(0);
+        setAxisLabelDrawn(lastIndex);
+        updateAxisLabelsDrawnBetweenStartIndexAndEndIndex(0, lastIndex);
     }
 
     /**
-     * Recursively draws axis labels between the start index and the end index. If the inner number
-     * can be exactly divided into 2 parts, check and draw the middle index label and then
-     * recursively draw the 2 parts. Otherwise, divide into 3 parts. Check and draw the middle two
-     * labels and then recursively draw the 3 parts. If there are any overlaps, skip drawing and go
-     * back to the uplevel of the recursion.
+     * Recursively finds the axis labels to draw between the start index and the end index. If the
+     * inner number can be exactly divided into 2 parts, check the middle index label and then
+     * recursively check the 2 parts. Otherwise, divide into 3 parts. Check the middle two labels
+     * and then recursively check the 3 parts. If there are any overlaps, skip drawing and go back
+     * to the uplevel of the recursion.
      */
-    private void drawAxisLabelsBetweenStartIndexAndEndIndex(Canvas canvas,
-            final Rect[] displayAreas, final int startIndex, final int endIndex,
-            final float baselineY) {
+    private void updateAxisLabelsDrawnBetweenStartIndexAndEndIndex(
+            final int startIndex, final int endIndex) {
         if (endIndex - startIndex <= 1) {
             return;
         }
         if ((endIndex - startIndex) % 2 == 0) {
             int middleIndex = (startIndex + endIndex) / 2;
-            if (hasOverlap(displayAreas, startIndex, middleIndex)
-                    || hasOverlap(displayAreas, middleIndex, endIndex)) {
+            if (hasOverlap(startIndex, middleIndex) || hasOverlap(middleIndex, endIndex)) {
                 return;
             }
-            drawAxisLabelText(canvas, middleIndex, displayAreas[middleIndex], baselineY);
-            mLabelDrawnIndexes.add(middleIndex);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, startIndex, middleIndex, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex, endIndex, baselineY);
+            setAxisLabelDrawn(middleIndex);
+            updateAxisLabelsDrawnBetweenStartIndexAndEndIndex(startIndex, middleIndex);
+            updateAxisLabelsDrawnBetweenStartIndexAndEndIndex(middleIndex, endIndex);
         } else {
             int middleIndex1 = startIndex + round((endIndex - startIndex) / 3f);
             int middleIndex2 = startIndex + round((endIndex - startIndex) * 2 / 3f);
-            if (hasOverlap(displayAreas, startIndex, middleIndex1)
-                    || hasOverlap(displayAreas, middleIndex1, middleIndex2)
-                    || hasOverlap(displayAreas, middleIndex2, endIndex)) {
+            if (hasOverlap(startIndex, middleIndex1)
+                    || hasOverlap(middleIndex1, middleIndex2)
+                    || hasOverlap(middleIndex2, endIndex)) {
                 return;
             }
-            drawAxisLabelText(canvas, middleIndex1, displayAreas[middleIndex1], baselineY);
-            mLabelDrawnIndexes.add(middleIndex1);
-            drawAxisLabelText(canvas, middleIndex2, displayAreas[middleIndex2], baselineY);
-            mLabelDrawnIndexes.add(middleIndex2);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, startIndex, middleIndex1, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex1, middleIndex2, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex2, endIndex, baselineY);
+            setAxisLabelDrawn(middleIndex1);
+            setAxisLabelDrawn(middleIndex2);
+            updateAxisLabelsDrawnBetweenStartIndexAndEndIndex(startIndex, middleIndex1);
+            updateAxisLabelsDrawnBetweenStartIndexAndEndIndex(middleIndex1, middleIndex2);
+            updateAxisLabelsDrawnBetweenStartIndexAndEndIndex(middleIndex2, endIndex);
         }
     }
 
-    private boolean hasOverlap(
-            final Rect[] displayAreas, final int leftIndex, final int rightIndex) {
-        return displayAreas[leftIndex].right + mTextPadding * 2.3f > displayAreas[rightIndex].left;
+    private void setAxisLabelDrawn(int index) {
+        mIsAxisLabelDrawn[index] = true;
+        mLabelDrawnIndexes.add(index);
+        mLabelDrawnIndexes.add(getAxisLabelTextIndex(index));
+    }
+
+    private boolean hasOverlap(final int leftIndex, final int rightIndex) {
+        return mAxisLabelDisplayAreas[leftIndex].right + mTextPadding * 2.3f
+                > mAxisLabelDisplayAreas[rightIndex].left;
     }
 
     private boolean isRTL() {
         return mLayoutDirection == View.LAYOUT_DIRECTION_RTL;
     }
 
-    private void drawAxisLabelText(
-            Canvas canvas, int index, final Rect displayArea, final float baselineY) {
-        mTextPaint.setColor(mTrapezoidSolidColor);
-        mTextPaint.setTextAlign(Paint.Align.CENTER);
+    private int getAxisLabelTextIndex(int index) {
         // Reverse the sort of axis labels for RTL
         if (isRTL()) {
-            index = mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
-                            ? mViewModel.size() - index - 1     // for hourly
-                            : mViewModel.size() - index - 2;    // for daily
-        }
-        canvas.drawText(
-                mViewModel.getText(index),
-                displayArea.centerX(),
-                baselineY,
-                mTextPaint);
-        mLabelDrawnIndexes.add(index);
+            return mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
+                    ? mViewModel.size() - index - 1     // for hourly
+                    : mViewModel.size() - index - 2;    // for daily
+        }
+        return index;
     }
 
-    private void drawTrapezoids(Canvas canvas) {
-        // Ignores invalid trapezoid data.
-        if (mViewModel == null) {
+    private void drawAxisLabels(Canvas canvas) {
+        if (mTextPaint == null) {
             return;
         }
+        mTextPaint.setColor(mTrapezoidSolidColor);
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+        for (int index = 0; index < mAxisLabelCount; index++) {
+            if (mIsAxisLabelDrawn[index]) {
+                canvas.drawText(
+                        mViewModel.getText(getAxisLabelTextIndex(index)),
+                        mAxisLabelDisplayAreas[index].centerX(),
+                        mAxisLabelBaselineY,
+                        mTextPaint);
+            }
+        }
+    }
+
+    private void updateTrapezoidPaths() {
         final float trapezoidBottom =
                 getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth
                         - mTrapezoidVOffset;
         final float availableSpace =
                 trapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
         final float unitHeight = availableSpace / 100f;
-        // Draws all trapezoid shapes into the canvas.
-        final Path trapezoidPath = new Path();
-        Path trapezoidCurvePath = null;
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            final TrapezoidSlot slot = mTrapezoidSlots[index];
+            slot.mPath.reset();
             // Not draws the trapezoid for corner or not initialization cases.
             if (!isValidToDraw(mViewModel, index)) {
                 continue;
             }
-            // Configures the trapezoid paint color.
-            final int trapezoidColor = (mViewModel.selectedIndex() == index
-                    || mViewModel.selectedIndex() == BatteryChartViewModel.SELECTED_INDEX_ALL)
-                    ? mTrapezoidSolidColor : mTrapezoidColor;
-            final boolean isHoverState = mHoveredIndex == index && isValidToDraw(mViewModel,
-                    mHoveredIndex);
-            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
-
             float leftTop = round(
                     trapezoidBottom - requireNonNull(mViewModel.getLevel(index)) * unitHeight);
             float rightTop = round(trapezoidBottom
@@ -625,19 +691,48 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                 leftTop = rightTop;
                 rightTop = temp;
             }
-            trapezoidPath.reset();
-            trapezoidPath.moveTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, rightTop);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, trapezoidBottom);
+            slot.mPath.moveTo(slot.mLeft, trapezoidBottom);
+            slot.mPath.lineTo(slot.mLeft, leftTop);
+            slot.mPath.lineTo(slot.mRight, rightTop);
+            slot.mPath.lineTo(slot.mRight, trapezoidBottom);
             // A tricky way to make the trapezoid shape drawing the rounded corner.
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
+            slot.mPath.lineTo(slot.mLeft, trapezoidBottom);
+            slot.mPath.lineTo(slot.mLeft, leftTop);
+        }
+    }
+
+    private void drawTrapezoids(Canvas canvas) {
+        // Ignores invalid trapezoid data.
+        if (mViewModel == null) {
+            return;
+        }
+        // Draws all trapezoid shapes into the canvas.
+        for (int index = 0; index < mTrapezoidSlots.length; index++) {
+            // Not draws the trapezoid for corner or not initialization cases.
+            if (!isValidToDraw(mViewModel, index)) {
+                continue;
+            }
+            // Configures the trapezoid paint color.
+            final int trapezoidColor = (mViewModel.selectedIndex() == index
+                    || mViewModel.selectedIndex() == BatteryChartViewModel.SELECTED_INDEX_ALL)
+                    ? mTrapezoidSolidColor : mTrapezoidColor;
+            final boolean isHoverState = mHoveredIndex == index && isValidToDraw(mViewModel,
+                    mHoveredIndex);
+            mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
             // Draws the trapezoid shape into canvas.
-            canvas.drawPath(trapezoidPath, mTrapezoidPaint);
+            canvas.drawPath(mTrapezoidSlots[index].mPath, mTrapezoidPaint);
         }
     }
 
+    private static void setLine(float[] lines, int index, float startX, float startY,
+            float stopX, float stopY) {
+        final int offset = index * 4;
+        lines[offset] = startX;
+        lines[offset + 1] = startY;
+        lines[offset + 2] = stopX;
+        lines[offset + 3] = stopY;
+    }
+
     private boolean isHighlightSlotValid() {
         return mViewModel != null && mViewModel.getHighlightSlotIndex()
                 != BatteryChartViewModel.SELECTED_INDEX_INVALID;
@@ -698,10 +793,20 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     }
 
     private void initializeAxisLabelsBounds() {
-        mAxisLabelsBounds.clear();
-        for (int i = 0; i < mViewModel.size(); i++) {
+        final int size = mViewModel.size();
+        while (mAxisLabelsBounds.size() > size) {
+            mAxisLabelsBounds.remove(mAxisLabelsBounds.size() - 1);
+        }
+        while (mAxisLabelsBounds.size() < size) {
             mAxisLabelsBounds.add(new Rect());
         }
+        if (mAxisLabelDisplayAreas.length != size) {
+            mAxisLabelDisplayAreas = new Rect[size];
+            for (int i = 0; i < size; i++) {
+                mAxisLabelDisplayAreas[i] = new Rect();
+            }
+            mIsAxisLabelDrawn = new boolean[size];
+        }
     }
 
     private static boolean isTrapezoidValid(
@@ -796,11 +901,12 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
-    // A container class for each trapezoid left and right location.
+    // A container class for each trapezoid left and right location and its cached shape.
     @VisibleForTesting
     static final class TrapezoidSlot {
         public float mLeft;
         public float mRight;
+        public final Path mPath = new Path();
 
         @Override
         public String toString() {
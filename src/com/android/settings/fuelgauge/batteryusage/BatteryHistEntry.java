@@ -127,6 +127,54 @@ public class BatteryHistEntry {
         mBatteryHealth = deviceBatteryState.getBatteryHealth();
     }
 
+    /** Creates a {@link BatteryHistEntry} from the columns of {@link BatteryHistoryStore}. */
+    BatteryHistEntry(
+            long uid,
+            long userId,
+            String appLabel,
+            String packageName,
+            boolean isHidden,
+            long bootTimestamp,
+            long timestamp,
+            String zoneId,
+            double totalPower,
+            double consumePower,
+            double foregroundUsageConsumePower,
+            double foregroundServiceUsageConsumePower,
+            double backgroundUsageConsumePower,
+            double cachedUsageConsumePower,
+            double percentOfTotal,
+            long foregroundUsageTimeInMs,
+            long backgroundUsageTimeInMs,
+            int drainType,
+            int consumerType,
+            int batteryLevel,
+            int batteryStatus,
+            int batteryHealth) {
+        mUid = uid;
+        mUserId = userId;
+        mAppLabel = appLabel;
+        mPackageName = packageName;
+        mIsHidden = isHidden;
+        mBootTimestamp = bootTimestamp;
+        mTimestamp = timestamp;
+        mZoneId = zoneId;
+        mTotalPower = totalPower;
+        mConsumePower = consumePower;
+        mForegroundUsageConsumePower = foregroundUsageConsumePower;
+        mForegroundServiceUsageConsumePower = foregroundServiceUsageConsumePower;
+        mBackgroundUsageConsumePower = backgroundUsageConsumePower;
+        mCachedUsageConsumePower = cachedUsageConsumePower;
+        mPercentOfTotal = percentOfTotal;
+        mForegroundUsageTimeInMs = foregroundUsageTimeInMs;
+        mBackgroundUsageTimeInMs = backgroundUsageTimeInMs;
+        mDrainType = drainType;
+        mConsumerType = consumerType;
+        mBatteryLevel = batteryLevel;
+        mBatteryStatus = batteryStatus;
+        mBatteryHealth = batteryHealth;
+    }
+
     private BatteryHistEntry(
             BatteryHistEntry fromEntry,
             long bootTimestamp,
@@ -172,21 +220,25 @@ public class BatteryHistEntry {
     /** Gets an identifier to represent this {@link BatteryHistEntry}. */
     public String getKey() {
         if (mKey == null) {
-            switch (mConsumerType) {
-                case ConvertUtils.CONSUMER_TYPE_UID_BATTERY:
-                    mKey = Long.toString(mUid);
-                    break;
-                case ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY:
-                    mKey = "S|" + mDrainType;
-                    break;
-                case ConvertUtils.CONSUMER_TYPE_USER_BATTERY:
-                    mKey = "U|" + mUserId;
-                    break;
-            }
+            mKey = getKey(mConsumerType, mUid, mUserId, mDrainType);
         }
         return mKey;
     }
 
+    /** Gets the identifier of the entry with the given consumer information. */
+    static String getKey(int consumerType, long uid, long userId, int drainType) {
+        switch (consumerType) {
+            case ConvertUtils.CONSUMER_TYPE_UID_BATTERY:
+                return Long.toString(uid);
+            case ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY:
+                return "S|" + drainType;
+            case ConvertUtils.CONSUMER_TYPE_USER_BATTERY:
+                return "U|" + userId;
+            default:
+                return null;
+        }
+    }
+
     @Override
     public String toString() {
         final String recordAtDateTime = ConvertUtils.utcToLocalTimeForLogging(mTimestamp);
@@ -340,7 +392,7 @@ public class BatteryHistEntry {
                 (int) Math.round(batteryLevel));
     }
 
-    private static double interpolate(double v1, double v2, double ratio) {
+    static double interpolate(double v1, double v2, double ratio) {
         return v1 + ratio * (v2 - v1);
     }
 }
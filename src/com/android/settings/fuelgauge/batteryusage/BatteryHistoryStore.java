@@ -0,0 +1,734 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.database.Cursor;
+import android.util.ArrayMap;
+import android.util.LongSparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A columnar store of the battery history, which keeps the data of each entry in each snapshot
+ * as one row of primitive arrays instead of one {@link BatteryHistEntry} per entry per snapshot.
+ *
+ * <p>Entries are identified by a compact id in an entry table, which is shared with the stores
+ * derived from the same battery history, and the rows of each snapshot are sorted by the entry id.
+ * {@link #asHistoryMap()} adapts the store into the {@code Map<Long, Map<String,
+ * BatteryHistEntry>>} battery history map, whose {@link BatteryHistEntry} values are created on
+ * demand, for the existing callers.</p>
+ */
+final class BatteryHistoryStore {
+    /** Indexes of the cumulative usage values read by {@link #readUsage}. */
+    static final int USAGE_FOREGROUND_TIME = 0;
+    static final int USAGE_BACKGROUND_TIME = 1;
+    static final int USAGE_CONSUME_POWER = 2;
+    static final int USAGE_FOREGROUND_CONSUME_POWER = 3;
+    static final int USAGE_FOREGROUND_SERVICE_CONSUME_POWER = 4;
+    static final int USAGE_BACKGROUND_CONSUME_POWER = 5;
+    static final int USAGE_CACHED_CONSUME_POWER = 6;
+    static final int USAGE_COLUMN_COUNT = 7;
+    /** The columns of the battery state table read by {@link #load}. */
+    static final String[] PROJECTION = new String[] {
+            BatteryHistEntry.KEY_UID,
+            BatteryHistEntry.KEY_USER_ID,
+            BatteryHistEntry.KEY_PACKAGE_NAME,
+            BatteryHistEntry.KEY_TIMESTAMP,
+            BatteryHistEntry.KEY_CONSUMER_TYPE,
+            BatteryHistEntry.KEY_BATTERY_INFORMATION};
+
+    private static final int INITIAL_CAPACITY = 256;
+    // Bits of the snapshot index, entry id and row index to sort the rows in Builder.build().
+    private static final int ROW_BITS = 27;
+    private static final int ENTRY_ID_BITS = 20;
+    private static final int SNAPSHOT_BITS = 16;
+
+    private final EntryTable mEntryTable;
+    // The rows of the snapshot i are [mRowStarts[i], mRowStarts[i + 1]).
+    private final long[] mTimestamps;
+    private final int[] mRowStarts;
+    private final Columns mColumns;
+    private final SnapshotView[] mSnapshotViews;
+
+    private BatteryHistoryStore(
+            EntryTable entryTable, long[] timestamps, int[] rowStarts, Columns columns) {
+        mEntryTable = entryTable;
+        mTimestamps = timestamps;
+        mRowStarts = rowStarts;
+        mColumns = columns;
+        mSnapshotViews = new SnapshotView[timestamps.length];
+        for (int index = 0; index < timestamps.length; index++) {
+            mSnapshotViews[index] = new SnapshotView(index);
+        }
+    }
+
+    /** Loads the battery history from the {@link Cursor} of the battery state table. */
+    static BatteryHistoryStore load(Cursor cursor) {
+        final int uidIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_UID);
+        final int userIdIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_USER_ID);
+        final int packageNameIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_PACKAGE_NAME);
+        final int timestampIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_TIMESTAMP);
+        final int consumerTypeIndex = cursor.getColumnIndex(BatteryHistEntry.KEY_CONSUMER_TYPE);
+        final int batteryInformationIndex =
+                cursor.getColumnIndex(BatteryHistEntry.KEY_BATTERY_INFORMATION);
+        final Builder builder = new Builder();
+        while (cursor.moveToNext()) {
+            final BatteryInformation batteryInformation = batteryInformationIndex < 0
+                    ? BatteryInformation.getDefaultInstance()
+                    : ConvertUtils.getBatteryInformation(
+                            cursor, BatteryHistEntry.KEY_BATTERY_INFORMATION);
+            builder.add(
+                    uidIndex < 0 ? 0L : cursor.getLong(uidIndex),
+                    userIdIndex < 0 ? 0L : cursor.getLong(userIdIndex),
+                    packageNameIndex < 0 ? null : cursor.getString(packageNameIndex),
+                    timestampIndex < 0 ? 0L : cursor.getLong(timestampIndex),
+                    consumerTypeIndex < 0 ? 0 : cursor.getInt(consumerTypeIndex),
+                    batteryInformation);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the store of the battery history map created by {@link #asHistoryMap()}, or null if
+     * the map is not backed by a single store.
+     */
+    @Nullable
+    static BatteryHistoryStore getStore(Map<Long, Map<String, BatteryHistEntry>> historyMap) {
+        BatteryHistoryStore store = null;
+        for (Map<String, BatteryHistEntry> snapshot : historyMap.values()) {
+            if (!(snapshot instanceof SnapshotView)) {
+                return null;
+            }
+            final BatteryHistoryStore snapshotStore = ((SnapshotView) snapshot).getStore();
+            if (store != null && store != snapshotStore) {
+                return null;
+            }
+            store = snapshotStore;
+        }
+        return store;
+    }
+
+    /**
+     * Reads the cumulative usage values of the entry with the given key into {@code usage}, which
+     * is indexed by the {@code USAGE_*} constants. Reads the columns directly without creating
+     * the {@link BatteryHistEntry} if the snapshot is backed by a store.
+     *
+     * @return false if there is no such entry in the snapshot
+     */
+    static boolean readUsage(
+            Map<String, BatteryHistEntry> snapshot, String key, double[] usage) {
+        if (snapshot instanceof SnapshotView) {
+            final SnapshotView view = (SnapshotView) snapshot;
+            final int row = view.findRow(key);
+            if (row < 0) {
+                return false;
+            }
+            view.getStore().readUsage(row, usage);
+            return true;
+        }
+        final BatteryHistEntry entry = snapshot.get(key);
+        if (entry == null) {
+            return false;
+        }
+        usage[USAGE_FOREGROUND_TIME] = entry.mForegroundUsageTimeInMs;
+        usage[USAGE_BACKGROUND_TIME] = entry.mBackgroundUsageTimeInMs;
+        usage[USAGE_CONSUME_POWER] = entry.mConsumePower;
+        usage[USAGE_FOREGROUND_CONSUME_POWER] = entry.mForegroundUsageConsumePower;
+        usage[USAGE_FOREGROUND_SERVICE_CONSUME_POWER] = entry.mForegroundServiceUsageConsumePower;
+        usage[USAGE_BACKGROUND_CONSUME_POWER] = entry.mBackgroundUsageConsumePower;
+        usage[USAGE_CACHED_CONSUME_POWER] = entry.mCachedUsageConsumePower;
+        return true;
+    }
+
+    /** Returns the battery history map backed by this store. */
+    Map<Long, Map<String, BatteryHistEntry>> asHistoryMap() {
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap =
+                new ArrayMap<>(mTimestamps.length);
+        for (int index = 0; index < mTimestamps.length; index++) {
+            historyMap.put(mTimestamps[index], mSnapshotViews[index]);
+        }
+        return historyMap;
+    }
+
+    /** Creates a {@link Builder} for the stores derived from this battery history. */
+    Builder newDerivedBuilder() {
+        return new Builder(mEntryTable);
+    }
+
+    int getSnapshotCount() {
+        return mTimestamps.length;
+    }
+
+    int getRowCount() {
+        return mRowStarts[mTimestamps.length];
+    }
+
+    long getForegroundUsageTimeInMs(int row) {
+        return mColumns.mForegroundUsageTimesInMs[row];
+    }
+
+    long getBackgroundUsageTimeInMs(int row) {
+        return mColumns.mBackgroundUsageTimesInMs[row];
+    }
+
+    private void readUsage(int row, double[] usage) {
+        usage[USAGE_FOREGROUND_TIME] = mColumns.mForegroundUsageTimesInMs[row];
+        usage[USAGE_BACKGROUND_TIME] = mColumns.mBackgroundUsageTimesInMs[row];
+        usage[USAGE_CONSUME_POWER] = mColumns.mConsumePowers[row];
+        usage[USAGE_FOREGROUND_CONSUME_POWER] = mColumns.mForegroundUsageConsumePowers[row];
+        usage[USAGE_FOREGROUND_SERVICE_CONSUME_POWER] =
+                mColumns.mForegroundServiceUsageConsumePowers[row];
+        usage[USAGE_BACKGROUND_CONSUME_POWER] = mColumns.mBackgroundUsageConsumePowers[row];
+        usage[USAGE_CACHED_CONSUME_POWER] = mColumns.mCachedUsageConsumePowers[row];
+    }
+
+    private BatteryHistEntry createEntry(long timestamp, int row) {
+        final Columns columns = mColumns;
+        return new BatteryHistEntry(
+                columns.mUids[row],
+                columns.mUserIds[row],
+                columns.mAppLabels[row],
+                columns.mPackageNames[row],
+                columns.mIsHidden[row],
+                columns.mBootTimestamps[row],
+                timestamp,
+                columns.mZoneIds[row],
+                columns.mTotalPowers[row],
+                columns.mConsumePowers[row],
+                columns.mForegroundUsageConsumePowers[row],
+                columns.mForegroundServiceUsageConsumePowers[row],
+                columns.mBackgroundUsageConsumePowers[row],
+                columns.mCachedUsageConsumePowers[row],
+                columns.mPercentOfTotals[row],
+                columns.mForegroundUsageTimesInMs[row],
+                columns.mBackgroundUsageTimesInMs[row],
+                columns.mDrainTypes[row],
+                columns.mConsumerTypes[row],
+                columns.mBatteryLevels[row],
+                columns.mBatteryStatuses[row],
+                columns.mBatteryHealths[row]);
+    }
+
+    /** A read-only view of the entries in one snapshot, keyed by the entry key. */
+    final class SnapshotView extends AbstractMap<String, BatteryHistEntry> {
+        private final int mSnapshotIndex;
+
+        private SnapshotView(int snapshotIndex) {
+            mSnapshotIndex = snapshotIndex;
+        }
+
+        BatteryHistoryStore getStore() {
+            return BatteryHistoryStore.this;
+        }
+
+        long getTimestamp() {
+            return mTimestamps[mSnapshotIndex];
+        }
+
+        int getRowStart() {
+            return mRowStarts[mSnapshotIndex];
+        }
+
+        int getRowEnd() {
+            return mRowStarts[mSnapshotIndex + 1];
+        }
+
+        /** Returns the row of the entry with the given key, or -1 if there is no such entry. */
+        int findRow(Object key) {
+            final int entryId = mEntryTable.getId(key);
+            return entryId < 0 ? -1 : findRowById(entryId);
+        }
+
+        /** Returns the row of the entry with the given id, or -1 if there is no such entry. */
+        int findRowById(int entryId) {
+            final int row =
+                    Arrays.binarySearch(mColumns.mEntryIds, getRowStart(), getRowEnd(), entryId);
+            return row < 0 ? -1 : row;
+        }
+
+        int getEntryId(int row) {
+            return mColumns.mEntryIds[row];
+        }
+
+        /** Creates the {@link BatteryHistEntry} of the given row. */
+        BatteryHistEntry getEntry(int row) {
+            return createEntry(getTimestamp(), row);
+        }
+
+        /** Returns the sum of the battery level of all entries without creating them. */
+        long getBatteryLevelSum() {
+            long batteryLevelSum = 0;
+            for (int row = getRowStart(); row < getRowEnd(); row++) {
+                batteryLevelSum += mColumns.mBatteryLevels[row];
+            }
+            return batteryLevelSum;
+        }
+
+        @Override
+        public int size() {
+            return getRowEnd() - getRowStart();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return findRow(key) >= 0;
+        }
+
+        @Override
+        public BatteryHistEntry get(Object key) {
+            final int row = findRow(key);
+            return row < 0 ? null : getEntry(row);
+        }
+
+        @NonNull
+        @Override
+        public Set<Entry<String, BatteryHistEntry>> entrySet() {
+            return new AbstractSet<Entry<String, BatteryHistEntry>>() {
+                @Override
+                public int size() {
+                    return SnapshotView.this.size();
+                }
+
+                @NonNull
+                @Override
+                public Iterator<Entry<String, BatteryHistEntry>> iterator() {
+                    return new Iterator<Entry<String, BatteryHistEntry>>() {
+                        private int mRow = getRowStart();
+
+                        @Override
+                        public boolean hasNext() {
+                            return mRow < getRowEnd();
+                        }
+
+                        @Override
+                        public Entry<String, BatteryHistEntry> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final int row = mRow++;
+                            return new SimpleImmutableEntry<>(
+                                    mEntryTable.getKey(getEntryId(row)), getEntry(row));
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /** Builds a {@link BatteryHistoryStore} from rows added in any order. */
+    static final class Builder {
+        private final EntryTable mEntryTable;
+        private final ArrayMap<String, String> mStringPool = new ArrayMap<>();
+        private Columns mColumns = new Columns(INITIAL_CAPACITY);
+        private long[] mRowTimestamps = new long[INITIAL_CAPACITY];
+        private int mRowCount;
+
+        Builder() {
+            this(new EntryTable());
+        }
+
+        private Builder(EntryTable entryTable) {
+            mEntryTable = entryTable;
+        }
+
+        int getRowCount() {
+            return mRowCount;
+        }
+
+        /** Adds the {@link BatteryHistEntry} into the store. */
+        Builder add(BatteryHistEntry entry) {
+            final int row = newRow(entry.mTimestamp, mEntryTable.getOrCreateId(
+                    entry.mConsumerType, entry.mUid, entry.mUserId, entry.mDrainType));
+            final Columns columns = mColumns;
+            columns.mUids[row] = entry.mUid;
+            columns.mUserIds[row] = entry.mUserId;
+            columns.mAppLabels[row] = intern(entry.mAppLabel);
+            columns.mPackageNames[row] = intern(entry.mPackageName);
+            columns.mIsHidden[row] = entry.mIsHidden;
+            columns.mBootTimestamps[row] = entry.mBootTimestamp;
+            columns.mZoneIds[row] = intern(entry.mZoneId);
+            columns.mTotalPowers[row] = entry.mTotalPower;
+            columns.mConsumePowers[row] = entry.mConsumePower;
+            columns.mForegroundUsageConsumePowers[row] = entry.mForegroundUsageConsumePower;
+            columns.mForegroundServiceUsageConsumePowers[row] =
+                    entry.mForegroundServiceUsageConsumePower;
+            columns.mBackgroundUsageConsumePowers[row] = entry.mBackgroundUsageConsumePower;
+            columns.mCachedUsageConsumePowers[row] = entry.mCachedUsageConsumePower;
+            columns.mPercentOfTotals[row] = entry.mPercentOfTotal;
+            columns.mForegroundUsageTimesInMs[row] = entry.mForegroundUsageTimeInMs;
+            columns.mBackgroundUsageTimesInMs[row] = entry.mBackgroundUsageTimeInMs;
+            columns.mDrainTypes[row] = entry.mDrainType;
+            columns.mConsumerTypes[row] = entry.mConsumerType;
+            columns.mBatteryLevels[row] = entry.mBatteryLevel;
+            columns.mBatteryStatuses[row] = entry.mBatteryStatus;
+            columns.mBatteryHealths[row] = entry.mBatteryHealth;
+            return this;
+        }
+
+        private void add(long uid, long userId, String packageName, long timestamp,
+                int consumerType, BatteryInformation batteryInformation) {
+            final int drainType = batteryInformation.getDrainType();
+            final int row = newRow(timestamp,
+                    mEntryTable.getOrCreateId(consumerType, uid, userId, drainType));
+            final DeviceBatteryState deviceBatteryState =
+                    batteryInformation.getDeviceBatteryState();
+            final Columns columns = mColumns;
+            columns.mUids[row] = uid;
+            columns.mUserIds[row] = userId;
+            columns.mAppLabels[row] = intern(batteryInformation.getAppLabel());
+            columns.mPackageNames[row] = intern(packageName);
+            columns.mIsHidden[row] = batteryInformation.getIsHidden();
+            columns.mBootTimestamps[row] = batteryInformation.getBootTimestamp();
+            columns.mZoneIds[row] = intern(batteryInformation.getZoneId());
+            columns.mTotalPowers[row] = batteryInformation.getTotalPower();
+            columns.mConsumePowers[row] = batteryInformation.getConsumePower();
+            columns.mForegroundUsageConsumePowers[row] =
+                    batteryInformation.getForegroundUsageConsumePower();
+            columns.mForegroundServiceUsageConsumePowers[row] =
+                    batteryInformation.getForegroundServiceUsageConsumePower();
+            columns.mBackgroundUsageConsumePowers[row] =
+                    batteryInformation.getBackgroundUsageConsumePower();
+            columns.mCachedUsageConsumePowers[row] =
+                    batteryInformation.getCachedUsageConsumePower();
+            columns.mPercentOfTotals[row] = batteryInformation.getPercentOfTotal();
+            columns.mForegroundUsageTimesInMs[row] =
+                    batteryInformation.getForegroundUsageTimeInMs();
+            columns.mBackgroundUsageTimesInMs[row] =
+                    batteryInformation.getBackgroundUsageTimeInMs();
+            columns.mDrainTypes[row] = drainType;
+            columns.mConsumerTypes[row] = consumerType;
+            columns.mBatteryLevels[row] = deviceBatteryState.getBatteryLevel();
+            columns.mBatteryStatuses[row] = deviceBatteryState.getBatteryStatus();
+            columns.mBatteryHealths[row] = deviceBatteryState.getBatteryHealth();
+        }
+
+        /** Copies the row of a store with the same entry table into the given timestamp. */
+        Builder addRow(long timestamp, BatteryHistoryStore store, int row) {
+            Preconditions.checkArgument(store.mEntryTable == mEntryTable);
+            final int newRow = newRow(timestamp, store.mColumns.mEntryIds[row]);
+            store.mColumns.copyRow(row, mColumns, newRow);
+            return this;
+        }
+
+        /**
+         * Adds the row interpolated between the lower and upper rows of a store with the same
+         * entry table, same as {@link BatteryHistEntry#interpolate}.
+         *
+         * @param lowerRow the lower row or -1 if there is no lower data
+         */
+        Builder addInterpolatedRow(long slotTimestamp, long upperTimestamp, double ratio,
+                BatteryHistoryStore store, int lowerRow, int upperRow) {
+            addRow(slotTimestamp, store, upperRow);
+            final int row = mRowCount - 1;
+            final Columns lower = lowerRow < 0 ? null : store.mColumns;
+            final Columns upper = store.mColumns;
+            final Columns columns = mColumns;
+            columns.mBootTimestamps[row] =
+                    upper.mBootTimestamps[upperRow] - (upperTimestamp - slotTimestamp);
+            columns.mTotalPowers[row] = BatteryHistEntry.interpolate(
+                    lower == null ? 0 : lower.mTotalPowers[lowerRow],
+                    upper.mTotalPowers[upperRow], ratio);
+            columns.mConsumePowers[row] = BatteryHistEntry.interpolate(
+                    lower == null ? 0 : lower.mConsumePowers[lowerRow],
+                    upper.mConsumePowers[upperRow], ratio);
+            columns.mForegroundUsageConsumePowers[row] = BatteryHistEntry.interpolate(
+                    lower == null ? 0 : lower.mForegroundUsageConsumePowers[lowerRow],
+                    upper.mForegroundUsageConsumePowers[upperRow], ratio);
+            columns.mForegroundServiceUsageConsumePowers[row] = BatteryHistEntry.interpolate(
+                    lower == null ? 0 : lower.mForegroundServiceUsageConsumePowers[lowerRow],
+                    upper.mForegroundServiceUsageConsumePowers[upperRow], ratio);
+            columns.mBackgroundUsageConsumePowers[row] = BatteryHistEntry.interpolate(
+                    lower == null ? 0 : lower.mBackgroundUsageConsumePowers[lowerRow],
+                    upper.mBackgroundUsageConsumePowers[upperRow], ratio);
+            columns.mCachedUsageConsumePowers[row] = BatteryHistEntry.interpolate(
+                    lower == null ? 0 : lower.mCachedUsageConsumePowers[lowerRow],
+                    upper.mCachedUsageConsumePowers[upperRow], ratio);
+            columns.mForegroundUsageTimesInMs[row] = Math.round(BatteryHistEntry.interpolate(
+                    (double) (lower == null ? 0 : lower.mForegroundUsageTimesInMs[lowerRow]),
+                    (double) upper.mForegroundUsageTimesInMs[upperRow], ratio));
+            columns.mBackgroundUsageTimesInMs[row] = Math.round(BatteryHistEntry.interpolate(
+                    (double) (lower == null ? 0 : lower.mBackgroundUsageTimesInMs[lowerRow]),
+                    (double) upper.mBackgroundUsageTimesInMs[upperRow], ratio));
+            columns.mBatteryLevels[row] = lower == null
+                    ? upper.mBatteryLevels[upperRow]
+                    : (int) Math.round(BatteryHistEntry.interpolate(
+                            lower.mBatteryLevels[lowerRow], upper.mBatteryLevels[upperRow],
+                            ratio));
+            return this;
+        }
+
+        /** Builds the store, the last added row wins if an entry is added twice in a snapshot. */
+        BatteryHistoryStore build() {
+            final int rowCount = mRowCount;
+            final long[] timestamps = getSortedTimestamps(mRowTimestamps, rowCount);
+            Preconditions.checkState(timestamps.length < (1 << SNAPSHOT_BITS)
+                    && mEntryTable.size() < (1 << ENTRY_ID_BITS)
+                    && rowCount < (1 << ROW_BITS));
+            // Sorts the rows by the snapshot, then the entry id and then the added order.
+            final long[] sortKeys = new long[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                final long snapshotIndex = Arrays.binarySearch(timestamps, mRowTimestamps[row]);
+                sortKeys[row] = (snapshotIndex << (ENTRY_ID_BITS + ROW_BITS))
+                        | ((long) mColumns.mEntryIds[row] << ROW_BITS)
+                        | row;
+            }
+            Arrays.sort(sortKeys);
+            int uniqueRowCount = 0;
+            for (int index = 0; index < rowCount; index++) {
+                if (!isOverriddenRow(sortKeys, index)) {
+                    uniqueRowCount++;
+                }
+            }
+            final Columns columns = new Columns(uniqueRowCount);
+            final int[] rowStarts = new int[timestamps.length + 1];
+            int newRow = 0;
+            for (int index = 0; index < rowCount; index++) {
+                if (isOverriddenRow(sortKeys, index)) {
+                    continue;
+                }
+                final int row = (int) (sortKeys[index] & ((1 << ROW_BITS) - 1));
+                final int snapshotIndex = (int) (sortKeys[index] >>> (ENTRY_ID_BITS + ROW_BITS));
+                mColumns.copyRow(row, columns, newRow++);
+                rowStarts[snapshotIndex + 1] = newRow;
+            }
+            // Fills the starts of the snapshots without any row.
+            for (int index = 1; index < rowStarts.length; index++) {
+                rowStarts[index] = Math.max(rowStarts[index], rowStarts[index - 1]);
+            }
+            return new BatteryHistoryStore(mEntryTable, timestamps, rowStarts, columns);
+        }
+
+        private int newRow(long timestamp, int entryId) {
+            if (mRowCount == mRowTimestamps.length) {
+                final int capacity = mRowCount * 2;
+                mRowTimestamps = Arrays.copyOf(mRowTimestamps, capacity);
+                mColumns = mColumns.copyOf(capacity);
+            }
+            mRowTimestamps[mRowCount] = timestamp;
+            mColumns.mEntryIds[mRowCount] = entryId;
+            return mRowCount++;
+        }
+
+        private String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            final String pooledValue = mStringPool.putIfAbsent(value, value);
+            return pooledValue != null ? pooledValue : value;
+        }
+
+        private static boolean isOverriddenRow(long[] sortKeys, int index) {
+            // The rows of the same entry in the same snapshot only differ in the row bits.
+            return index + 1 < sortKeys.length
+                    && (sortKeys[index] >>> ROW_BITS) == (sortKeys[index + 1] >>> ROW_BITS);
+        }
+
+        private static long[] getSortedTimestamps(long[] rowTimestamps, int rowCount) {
+            final long[] sortedTimestamps = Arrays.copyOf(rowTimestamps, rowCount);
+            Arrays.sort(sortedTimestamps);
+            int count = 0;
+            for (int index = 0; index < rowCount; index++) {
+                if (count == 0 || sortedTimestamps[count - 1] != sortedTimestamps[index]) {
+                    sortedTimestamps[count++] = sortedTimestamps[index];
+                }
+            }
+            return Arrays.copyOf(sortedTimestamps, count);
+        }
+    }
+
+    /** Maps the entry keys into compact ids, entries are only added while loading the data. */
+    private static final class EntryTable {
+        private final LongSparseArray<Integer> mIdsByIdentity = new LongSparseArray<>();
+        private final ArrayMap<String, Integer> mIdsByKey = new ArrayMap<>();
+        private final List<String> mKeys = new ArrayList<>();
+
+        int size() {
+            return mKeys.size();
+        }
+
+        String getKey(int entryId) {
+            return mKeys.get(entryId);
+        }
+
+        int getId(Object key) {
+            final Integer entryId = mIdsByKey.get(key);
+            return entryId == null ? -1 : entryId;
+        }
+
+        int getOrCreateId(int consumerType, long uid, long userId, int drainType) {
+            // Avoids creating the key string for each row.
+            final long identity = getIdentity(consumerType, uid, userId, drainType);
+            Integer entryId = mIdsByIdentity.get(identity);
+            if (entryId == null) {
+                entryId = mKeys.size();
+                final String key = BatteryHistEntry.getKey(consumerType, uid, userId, drainType);
+                mKeys.add(key);
+                mIdsByIdentity.put(identity, entryId);
+                mIdsByKey.put(key, entryId);
+            }
+            return entryId;
+        }
+
+        /** Encodes the fields of {@link BatteryHistEntry#getKey()} into a long. */
+        private static long getIdentity(int consumerType, long uid, long userId, int drainType) {
+            switch (consumerType) {
+                case ConvertUtils.CONSUMER_TYPE_UID_BATTERY:
+                    return (uid << 2) | 1;
+                case ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY:
+                    return ((long) drainType << 2) | 2;
+                case ConvertUtils.CONSUMER_TYPE_USER_BATTERY:
+                    return (userId << 2) | 3;
+                default:
+                    return 0L;
+            }
+        }
+    }
+
+    /** The parallel arrays of all the fields of the rows except the timestamp. */
+    private static final class Columns {
+        final int[] mEntryIds;
+        final long[] mUids;
+        final long[] mUserIds;
+        final String[] mAppLabels;
+        final String[] mPackageNames;
+        final boolean[] mIsHidden;
+        final long[] mBootTimestamps;
+        final String[] mZoneIds;
+        final double[] mTotalPowers;
+        final double[] mConsumePowers;
+        final double[] mForegroundUsageConsumePowers;
+        final double[] mForegroundServiceUsageConsumePowers;
+        final double[] mBackgroundUsageConsumePowers;
+        final double[] mCachedUsageConsumePowers;
+        final double[] mPercentOfTotals;
+        final long[] mForegroundUsageTimesInMs;
+        final long[] mBackgroundUsageTimesInMs;
+        final int[] mDrainTypes;
+        final int[] mConsumerTypes;
+        final int[] mBatteryLevels;
+        final int[] mBatteryStatuses;
+        final int[] mBatteryHealths;
+
+        Columns(int capacity) {
+            this(new int[capacity], new long[capacity], new long[capacity],
+                    new String[capacity], new String[capacity], new boolean[capacity],
+                    new long[capacity], new String[capacity], new double[capacity],
+                    new double[capacity], new double[capacity], new double[capacity],
+                    new double[capacity], new double[capacity], new double[capacity],
+                    new long[capacity], new long[capacity], new int[capacity], new int[capacity],
+                    new int[capacity], new int[capacity], new int[capacity]);
+        }
+
+        private Columns(int[] entryIds, long[] uids, long[] userIds, String[] appLabels,
+                String[] packageNames, boolean[] isHidden, long[] bootTimestamps,
+                String[] zoneIds, double[] totalPowers, double[] consumePowers,
+                double[] foregroundUsageConsumePowers,
+                double[] foregroundServiceUsageConsumePowers,
+                double[] backgroundUsageConsumePowers, double[] cachedUsageConsumePowers,
+                double[] percentOfTotals, long[] foregroundUsageTimesInMs,
+                long[] backgroundUsageTimesInMs, int[] drainTypes, int[] consumerTypes,
+                int[] batteryLevels, int[] batteryStatuses, int[] batteryHealths) {
+            mEntryIds = entryIds;
+            mUids = uids;
+            mUserIds = userIds;
+            mAppLabels = appLabels;
+            mPackageNames = packageNames;
+            mIsHidden = isHidden;
+            mBootTimestamps = bootTimestamps;
+            mZoneIds = zoneIds;
+            mTotalPowers = totalPowers;
+            mConsumePowers = consumePowers;
+            mForegroundUsageConsumePowers = foregroundUsageConsumePowers;
+            mForegroundServiceUsageConsumePowers = foregroundServiceUsageConsumePowers;
+            mBackgroundUsageConsumePowers = backgroundUsageConsumePowers;
+            mCachedUsageConsumePowers = cachedUsageConsumePowers;
+            mPercentOfTotals = percentOfTotals;
+            mForegroundUsageTimesInMs = foregroundUsageTimesInMs;
+            mBackgroundUsageTimesInMs = backgroundUsageTimesInMs;
+            mDrainTypes = drainTypes;
+            mConsumerTypes = consumerTypes;
+            mBatteryLevels = batteryLevels;
+            mBatteryStatuses = batteryStatuses;
+            mBatteryHealths = batteryHealths;
+        }
+
+        Columns copyOf(int capacity) {
+            return new Columns(
+                    Arrays.copyOf(mEntryIds, capacity),
+                    Arrays.copyOf(mUids, capacity),
+                    Arrays.copyOf(mUserIds, capacity),
+                    Arrays.copyOf(mAppLabels, capacity),
+                    Arrays.copyOf(mPackageNames, capacity),
+                    Arrays.copyOf(mIsHidden, capacity),
+                    Arrays.copyOf(mBootTimestamps, capacity),
+                    Arrays.copyOf(mZoneIds, capacity),
+                    Arrays.copyOf(mTotalPowers, capacity),
+                    Arrays.copyOf(mConsumePowers, capacity),
+                    Arrays.copyOf(mForegroundUsageConsumePowers, capacity),
+                    Arrays.copyOf(mForegroundServiceUsageConsumePowers, capacity),
+                    Arrays.copyOf(mBackgroundUsageConsumePowers, capacity),
+                    Arrays.copyOf(mCachedUsageConsumePowers, capacity),
+                    Arrays.copyOf(mPercentOfTotals, capacity),
+                    Arrays.copyOf(mForegroundUsageTimesInMs, capacity),
+                    Arrays.copyOf(mBackgroundUsageTimesInMs, capacity),
+                    Arrays.copyOf(mDrainTypes, capacity),
+                    Arrays.copyOf(mConsumerTypes, capacity),
+                    Arrays.copyOf(mBatteryLevels, capacity),
+                    Arrays.copyOf(mBatteryStatuses, capacity),
+                    Arrays.copyOf(mBatteryHealths, capacity));
+        }
+
+        void copyRow(int row, Columns to, int toRow) {
+            to.mEntryIds[toRow] = mEntryIds[row];
+            to.mUids[toRow] = mUids[row];
+            to.mUserIds[toRow] = mUserIds[row];
+            to.mAppLabels[toRow] = mAppLabels[row];
+            to.mPackageNames[toRow] = mPackageNames[row];
+            to.mIsHidden[toRow] = mIsHidden[row];
+            to.mBootTimestamps[toRow] = mBootTimestamps[row];
+            to.mZoneIds[toRow] = mZoneIds[row];
+            to.mTotalPowers[toRow] = mTotalPowers[row];
+            to.mConsumePowers[toRow] = mConsumePowers[row];
+            to.mForegroundUsageConsumePowers[toRow] = mForegroundUsageConsumePowers[row];
+            to.mForegroundServiceUsageConsumePowers[toRow] =
+                    mForegroundServiceUsageConsumePowers[row];
+            to.mBackgroundUsageConsumePowers[toRow] = mBackgroundUsageConsumePowers[row];
+            to.mCachedUsageConsumePowers[toRow] = mCachedUsageConsumePowers[row];
+            to.mPercentOfTotals[toRow] = mPercentOfTotals[row];
+            to.mForegroundUsageTimesInMs[toRow] = mForegroundUsageTimesInMs[row];
+            to.mBackgroundUsageTimesInMs[toRow] = mBackgroundUsageTimesInMs[row];
+            to.mDrainTypes[toRow] = mDrainTypes[row];
+            to.mConsumerTypes[toRow] = mConsumerTypes[row];
+            to.mBatteryLevels[toRow] = mBatteryLevels[row];
+            to.mBatteryStatuses[toRow] = mBatteryStatuses[row];
+            to.mBatteryHealths[toRow] = mBatteryHealths[row];
+        }
+    }
+}
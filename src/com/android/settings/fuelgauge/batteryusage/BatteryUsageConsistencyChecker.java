@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.android.settings.fuelgauge.batteryusage.ConvertUtils.utcToLocalTimeForLogging;
+
+import android.os.SystemProperties;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares the incremental battery usage result, which reuses the persisted
+ * {@link BatteryUsageSlot} data, with a full recompute from the battery history.
+ *
+ * <p>Only enabled when {@link #PROPERTY_VERIFY_INCREMENTAL} is set, since it doubles the cost of
+ * loading the battery usage page.</p>
+ */
+final class BatteryUsageConsistencyChecker {
+    private static final String TAG = "BatteryUsageConsistency";
+    private static final double POWER_TOLERANCE = 0.01d;
+    private static final long TIME_TOLERANCE_MS = 1000L;
+
+    @VisibleForTesting
+    static final String PROPERTY_VERIFY_INCREMENTAL =
+            "debug.settings.battery_usage.verify_incremental";
+
+    // For testing only.
+    @VisibleForTesting
+    static Boolean sFakeEnabled;
+
+    private Map<Long, BatteryDiffData> mIncrementalResult;
+    private Map<Long, BatteryDiffData> mFullResult;
+
+    /** Whether the incremental result should be compared with a full recompute. */
+    static boolean isEnabled() {
+        return sFakeEnabled != null
+                ? sFakeEnabled
+                : SystemProperties.getBoolean(PROPERTY_VERIFY_INCREMENTAL, false);
+    }
+
+    /** Records the result generated from the persisted slots and new battery history only. */
+    synchronized void onIncrementalResultLoaded(Map<Long, BatteryDiffData> batteryDiffDataMap) {
+        mIncrementalResult = batteryDiffDataMap;
+        compareIfReady();
+    }
+
+    /** Records the result generated from the whole battery history. */
+    synchronized void onFullResultLoaded(Map<Long, BatteryDiffData> batteryDiffDataMap) {
+        mFullResult = batteryDiffDataMap;
+        compareIfReady();
+    }
+
+    private void compareIfReady() {
+        if (mIncrementalResult == null || mFullResult == null) {
+            return;
+        }
+        final List<String> mismatches = findMismatches(mIncrementalResult, mFullResult);
+        if (mismatches.isEmpty()) {
+            Log.d(TAG, String.format("incremental result matches full recompute, slots=%d",
+                    mFullResult.size()));
+        } else {
+            Log.w(TAG, String.format("incremental result has %d mismatches:", mismatches.size()));
+            mismatches.forEach(mismatch -> Log.w(TAG, mismatch));
+        }
+        mIncrementalResult = null;
+        mFullResult = null;
+    }
+
+    /** Returns human readable differences between the incremental and full results. */
+    @VisibleForTesting
+    static List<String> findMismatches(
+            Map<Long, BatteryDiffData> incrementalResult, Map<Long, BatteryDiffData> fullResult) {
+        final List<String> mismatches = new ArrayList<>();
+        for (Map.Entry<Long, BatteryDiffData> fullEntry : fullResult.entrySet()) {
+            final long startTimestamp = fullEntry.getKey();
+            final String slotName = utcToLocalTimeForLogging(startTimestamp);
+            final BatteryDiffData fullData = fullEntry.getValue();
+            final BatteryDiffData incrementalData = incrementalResult.get(startTimestamp);
+            if (!incrementalResult.containsKey(startTimestamp)) {
+                mismatches.add("missing slot " + slotName);
+                continue;
+            }
+            if (incrementalData == null || fullData == null) {
+                if (incrementalData != fullData) {
+                    mismatches.add("empty data mismatch in slot " + slotName);
+                }
+                continue;
+            }
+            if (incrementalData.getEndTimestamp() != fullData.getEndTimestamp()) {
+                mismatches.add(String.format(Locale.ENGLISH,
+                        "slot %s endTimestamp=%s expected=%s", slotName,
+                        utcToLocalTimeForLogging(incrementalData.getEndTimestamp()),
+                        utcToLocalTimeForLogging(fullData.getEndTimestamp())));
+                // The usage of a slot with different boundaries is not comparable.
+                continue;
+            }
+            compareEntries(slotName, toEntryMap(incrementalData), toEntryMap(fullData),
+                    mismatches);
+        }
+        return mismatches;
+    }
+
+    private static void compareEntries(
+            String slotName,
+            Map<String, BatteryDiffEntry> incrementalEntries,
+            Map<String, BatteryDiffEntry> fullEntries,
+            List<String> mismatches) {
+        for (Map.Entry<String, BatteryDiffEntry> fullEntry : fullEntries.entrySet()) {
+            final BatteryDiffEntry expected = fullEntry.getValue();
+            final BatteryDiffEntry actual = incrementalEntries.get(fullEntry.getKey());
+            if (actual == null) {
+                mismatches.add(String.format("slot %s missing entry %s",
+                        slotName, fullEntry.getKey()));
+            } else if (!isSameUsage(actual, expected)) {
+                mismatches.add(String.format(Locale.ENGLISH,
+                        "slot %s entry %s consumePower=%f expected=%f"
+                                + " fgTime=%d expected=%d bgTime=%d expected=%d",
+                        slotName, fullEntry.getKey(),
+                        actual.mConsumePower, expected.mConsumePower,
+                        actual.mForegroundUsageTimeInMs, expected.mForegroundUsageTimeInMs,
+                        actual.mBackgroundUsageTimeInMs, expected.mBackgroundUsageTimeInMs));
+            }
+        }
+        for (String key : incrementalEntries.keySet()) {
+            if (!fullEntries.containsKey(key)) {
+                mismatches.add(String.format("slot %s unexpected entry %s", slotName, key));
+            }
+        }
+    }
+
+    private static boolean isSameUsage(BatteryDiffEntry actual, BatteryDiffEntry expected) {
+        return Math.abs(actual.mConsumePower - expected.mConsumePower) <= POWER_TOLERANCE
+                && Math.abs(actual.mForegroundUsageTimeInMs - expected.mForegroundUsageTimeInMs)
+                        <= TIME_TOLERANCE_MS
+                && Math.abs(actual.mBackgroundUsageTimeInMs - expected.mBackgroundUsageTimeInMs)
+                        <= TIME_TOLERANCE_MS;
+    }
+
+    private static Map<String, BatteryDiffEntry> toEntryMap(BatteryDiffData batteryDiffData) {
+        final Map<String, BatteryDiffEntry> entryMap = new ArrayMap<>();
+        batteryDiffData.getAppDiffEntryList().forEach(entry -> entryMap.put(entry.mKey, entry));
+        batteryDiffData.getSystemDiffEntryList().forEach(
+                entry -> entryMap.put(entry.mKey, entry));
+        return entryMap;
+    }
+}
@@ -17,16 +17,24 @@
 package com.android.settings.fuelgauge.batteryusage;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.net.Uri;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQueryBuilder;
 
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventDao;
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
@@ -35,14 +43,22 @@ import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateSnapshotDao;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateSnapshotEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryUsageSlotEntity;
+import com.android.settings.utils.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
 
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /** {@link ContentProvider} class to fetch battery usage data. */
 public class BatteryUsageContentProvider extends ContentProvider {
@@ -60,9 +76,24 @@ public class BatteryUsageContentProvider extends ContentProvider {
     private static final int BATTERY_STATE_LATEST_TIMESTAMP_CODE = 6;
     private static final int BATTERY_USAGE_SLOT_CODE = 7;
 
+    /** Columns of the battery state table which can be requested in the projection. */
+    private static final Set<String> BATTERY_STATE_COLUMNS = Set.of(
+            "id", "uid", "userId", "packageName", "timestamp", "consumerType",
+            "isFullChargeCycleStart", "batteryInformation", "batteryInformationDebug");
+
     private static final List<Integer> ALL_BATTERY_EVENT_TYPES =
             Arrays.stream(BatteryEventType.values()).map(type -> type.getNumber()).toList();
+    /** The tables whose row counts are shown in the dump. */
+    private static final List<String> DUMP_TABLES = List.of(
+            "BatteryState", "BatteryStateSnapshotEntity", "AppUsageEventEntity",
+            "BatteryEventEntity", "BatteryUsageSlotEntity");
     private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+    // The latencies of the queries by the path of the uri.
+    private static final Map<String, LatencyHistogram> sQueryLatencies = new ArrayMap<>();
+    // The timestamp of the latest inserted snapshot, to insert the snapshot header only once for
+    // all the battery states in the same snapshot. It's shared by the provider instances and
+    // accessed from the binder threads, and inserting the same header twice only replaces it.
+    private static volatile long sLatestSnapshotTimestamp = -1L;
 
     static {
         sUriMatcher.addURI(
@@ -96,7 +127,9 @@ public class BatteryUsageContentProvider extends ContentProvider {
     }
 
     private Clock mClock;
+    private BatteryStateDatabase mDatabase;
     private BatteryStateDao mBatteryStateDao;
+    private BatteryStateSnapshotDao mBatteryStateSnapshotDao;
     private AppUsageEventDao mAppUsageEventDao;
     private BatteryEventDao mBatteryEventDao;
     private BatteryUsageSlotDao mBatteryUsageSlotDao;
@@ -113,11 +146,12 @@ public class BatteryUsageContentProvider extends ContentProvider {
             return false;
         }
         mClock = Clock.systemUTC();
-        final BatteryStateDatabase database = BatteryStateDatabase.getInstance(getContext());
-        mBatteryStateDao = database.batteryStateDao();
-        mAppUsageEventDao = database.appUsageEventDao();
-        mBatteryEventDao = database.batteryEventDao();
-        mBatteryUsageSlotDao = database.batteryUsageSlotDao();
+        mDatabase = BatteryStateDatabase.getInstance(getContext());
+        mBatteryStateDao = mDatabase.batteryStateDao();
+        mBatteryStateSnapshotDao = mDatabase.batteryStateSnapshotDao();
+        mAppUsageEventDao = mDatabase.appUsageEventDao();
+        mBatteryEventDao = mDatabase.batteryEventDao();
+        mBatteryUsageSlotDao = mDatabase.batteryUsageSlotDao();
         Log.w(TAG, "create content provider from " + getCallingPackage());
         return true;
     }
@@ -126,28 +160,45 @@ public class BatteryUsageContentProvider extends ContentProvider {
     @Override
     public Cursor query(
             @NonNull Uri uri,
-            @Nullable String[] strings,
+            @Nullable String[] projection,
             @Nullable String s,
             @Nullable String[] strings1,
             @Nullable String s1) {
+        final long timestamp = mClock.millis();
+        final Cursor cursor;
         switch (sUriMatcher.match(uri)) {
             case BATTERY_STATE_CODE:
-                return getBatteryStates(uri);
+                cursor = getBatteryStates(uri, projection);
+                break;
             case APP_USAGE_EVENT_CODE:
-                return getAppUsageEvents(uri);
+                cursor = getAppUsageEvents(uri);
+                break;
             case APP_USAGE_LATEST_TIMESTAMP_CODE:
-                return getAppUsageLatestTimestamp(uri);
+                cursor = getAppUsageLatestTimestamp(uri);
+                break;
             case BATTERY_EVENT_CODE:
-                return getBatteryEvents(uri);
+                cursor = getBatteryEvents(uri);
+                break;
             case LAST_FULL_CHARGE_TIMESTAMP_CODE:
-                return getLastFullChargeTimestamp(uri);
+                cursor = getLastFullChargeTimestamp(uri);
+                break;
             case BATTERY_STATE_LATEST_TIMESTAMP_CODE:
-                return getBatteryStateLatestTimestamp(uri);
+                cursor = getBatteryStateLatestTimestamp(uri);
+                break;
             case BATTERY_USAGE_SLOT_CODE:
-                return getBatteryUsageSlots(uri);
+                cursor = getBatteryUsageSlots(uri);
+                break;
             default:
                 throw new IllegalArgumentException("unknown URI: " + uri);
         }
+        // The database cursors run the query when their first window is filled. Fills it here
+        // so that the latency covers the query itself rather than only its setup, the caller
+        // would fill it right away anyway.
+        if (cursor != null) {
+            cursor.getCount();
+        }
+        recordQueryLatency(uri, mClock.millis() - timestamp);
+        return cursor;
     }
 
     @Nullable
@@ -162,7 +213,7 @@ public class BatteryUsageContentProvider extends ContentProvider {
         try {
             switch (sUriMatcher.match(uri)) {
                 case BATTERY_STATE_CODE:
-                    mBatteryStateDao.insert(BatteryState.create(contentValues));
+                    insertBatteryState(BatteryState.create(contentValues));
                     break;
                 case APP_USAGE_EVENT_CODE:
                     mAppUsageEventDao.insert(AppUsageEventEntity.create(contentValues));
@@ -186,6 +237,87 @@ public class BatteryUsageContentProvider extends ContentProvider {
         return uri;
     }
 
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        final long timestamp = mClock.millis();
+        try {
+            switch (sUriMatcher.match(uri)) {
+                case BATTERY_STATE_CODE:
+                    final List<BatteryState> states = new ArrayList<>(values.length);
+                    for (ContentValues contentValues : values) {
+                        states.add(BatteryState.create(contentValues));
+                    }
+                    mDatabase.runInTransaction(() -> insertBatteryStates(states));
+                    break;
+                case APP_USAGE_EVENT_CODE:
+                    final List<AppUsageEventEntity> events = new ArrayList<>(values.length);
+                    for (ContentValues contentValues : values) {
+                        events.add(AppUsageEventEntity.create(contentValues));
+                    }
+                    mAppUsageEventDao.insertAll(events);
+                    break;
+                case BATTERY_EVENT_CODE:
+                    final List<BatteryEventEntity> batteryEvents = new ArrayList<>(values.length);
+                    for (ContentValues contentValues : values) {
+                        batteryEvents.add(BatteryEventEntity.create(contentValues));
+                    }
+                    mBatteryEventDao.insertAll(batteryEvents);
+                    break;
+                case BATTERY_USAGE_SLOT_CODE:
+                    final List<BatteryUsageSlotEntity> slots = new ArrayList<>(values.length);
+                    for (ContentValues contentValues : values) {
+                        slots.add(BatteryUsageSlotEntity.create(contentValues));
+                    }
+                    mBatteryUsageSlotDao.insertAll(slots);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown URI: " + uri);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // The snapshot header may be rolled back with the transaction.
+            clearLatestSnapshotTimestamp();
+            Log.e(TAG, "bulkInsert() from:" + uri + " error:", e);
+            return 0;
+        }
+        Log.d(TAG, String.format("bulkInsert() %d rows into %s in %d/ms",
+                values.length, uri.getLastPathSegment(), mClock.millis() - timestamp));
+        return values.length;
+    }
+
+    /**
+     * Applies all the operations in one transaction, e.g. a whole snapshot of battery states.
+     * Nothing is committed if any of the operations fails.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(
+            @NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        boolean successful = false;
+        mDatabase.beginTransaction();
+        try {
+            final ContentProviderResult[] results = super.applyBatch(operations);
+            for (int i = 0; i < results.length; i++) {
+                // insert() logs and returns null for a failed row, which fails the whole batch.
+                if (results[i] == null || results[i].uri == null) {
+                    throw new OperationApplicationException(
+                            "applyBatch() failed at operation " + i, i);
+                }
+            }
+            mDatabase.setTransactionSuccessful();
+            successful = true;
+            return results;
+        } finally {
+            mDatabase.endTransaction();
+            if (!successful) {
+                // The snapshot header may be rolled back with the transaction.
+                clearLatestSnapshotTimestamp();
+            }
+        }
+    }
+
     @Override
     public int delete(@NonNull Uri uri, @Nullable String s, @Nullable String[] strings) {
         throw new UnsupportedOperationException("unsupported!");
@@ -200,6 +332,79 @@ public class BatteryUsageContentProvider extends ContentProvider {
         throw new UnsupportedOperationException("unsupported!");
     }
 
+    /** Returns the query latencies, which are shown in the Settings dump. */
+    public static JSONObject dump(Context context) throws JSONException {
+        final JSONObject obj = new JSONObject();
+        final JSONObject queries = new JSONObject();
+        synchronized (sQueryLatencies) {
+            for (Map.Entry<String, LatencyHistogram> entry : sQueryLatencies.entrySet()) {
+                queries.put(entry.getKey(), entry.getValue().toJson());
+            }
+        }
+        obj.put("queries", queries);
+        return obj;
+    }
+
+    /**
+     * Returns the row counts of the tables, which are only shown in the Settings dump when they
+     * are requested since they open and scan the database.
+     */
+    public static JSONObject dumpRowCounts(Context context) throws JSONException {
+        final JSONObject rowCounts = new JSONObject();
+        if (DatabaseUtils.isWorkProfile(context)) {
+            return rowCounts;
+        }
+        final SupportSQLiteDatabase database =
+                BatteryStateDatabase.getInstance(context).getOpenHelper().getReadableDatabase();
+        for (String table : DUMP_TABLES) {
+            try (Cursor cursor = database.query("SELECT COUNT(*) FROM " + table)) {
+                rowCounts.put(table, cursor.moveToFirst() ? cursor.getLong(0) : 0);
+            }
+        }
+        return rowCounts;
+    }
+
+    /**
+     * Clears the timestamp of the latest inserted snapshot, e.g. when the snapshot headers are
+     * deleted, so the next battery state inserts its snapshot header again.
+     */
+    static void clearLatestSnapshotTimestamp() {
+        sLatestSnapshotTimestamp = -1L;
+    }
+
+    private static void recordQueryLatency(Uri uri, long latencyMs) {
+        final String path = uri.getLastPathSegment();
+        LatencyHistogram latencies;
+        synchronized (sQueryLatencies) {
+            latencies = sQueryLatencies.get(path);
+            if (latencies == null) {
+                latencies = new LatencyHistogram();
+                sQueryLatencies.put(path, latencies);
+            }
+        }
+        latencies.record(latencyMs);
+    }
+
+    private void insertBatteryState(BatteryState batteryState) {
+        mBatteryStateDao.insert(batteryState);
+        insertSnapshotIfNeeded(batteryState);
+    }
+
+    private void insertBatteryStates(List<BatteryState> batteryStates) {
+        mBatteryStateDao.insertAll(batteryStates);
+        for (BatteryState batteryState : batteryStates) {
+            insertSnapshotIfNeeded(batteryState);
+        }
+    }
+
+    private void insertSnapshotIfNeeded(BatteryState batteryState) {
+        // All the battery states in the same snapshot share the same header.
+        if (batteryState.timestamp != sLatestSnapshotTimestamp) {
+            mBatteryStateSnapshotDao.insert(BatteryStateSnapshotEntity.create(batteryState));
+            sLatestSnapshotTimestamp = batteryState.timestamp;
+        }
+    }
+
     private Cursor getLastFullChargeTimestamp(Uri uri) {
         final long timestamp = mClock.millis();
         Cursor cursor = null;
@@ -227,12 +432,20 @@ public class BatteryUsageContentProvider extends ContentProvider {
         return cursor;
     }
 
-    private Cursor getBatteryStates(Uri uri) {
+    private Cursor getBatteryStates(Uri uri, String[] projection) {
         final long queryTimestamp = getQueryTimestamp(uri);
         final long timestamp = mClock.millis();
         Cursor cursor = null;
         try {
-            cursor = mBatteryStateDao.getBatteryStatesAfter(queryTimestamp);
+            if (projection == null || projection.length == 0) {
+                cursor = mBatteryStateDao.getBatteryStatesAfter(queryTimestamp);
+            } else {
+                cursor = mBatteryStateDao.getBatteryStates(createProjectionQuery(
+                        DatabaseUtils.BATTERY_STATE_TABLE, validateProjection(projection),
+                        queryTimestamp));
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (RuntimeException e) {
             Log.e(TAG, "query() from:" + uri + " error:", e);
         }
@@ -305,6 +518,24 @@ public class BatteryUsageContentProvider extends ContentProvider {
         return cursor;
     }
 
+    private static SupportSQLiteQuery createProjectionQuery(
+            String table, String[] projection, long queryTimestamp) {
+        return SupportSQLiteQueryBuilder.builder(table)
+                .columns(projection)
+                .selection("timestamp >= ?", new Object[] {queryTimestamp})
+                .orderBy("timestamp ASC")
+                .create();
+    }
+
+    private static String[] validateProjection(String[] projection) {
+        for (String column : projection) {
+            if (!BATTERY_STATE_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("unknown column: " + column);
+            }
+        }
+        return projection;
+    }
+
     private List<Integer> getQueryBatteryEventTypes(Uri uri) {
         Log.d(TAG, "getQueryBatteryEventTypes from uri: " + uri);
         final String batteryEventTypesParameter =
@@ -171,6 +171,15 @@ public class DataProcessManager {
      * Starts the async tasks to load battery history data and app usage data.
      */
     public void start(boolean isFromPeriodJob) {
+        start(isFromPeriodJob, /*shouldReuseBatteryUsageSlots=*/ true);
+    }
+
+    /**
+     * Starts the async tasks to load battery history data and app usage data. The persisted
+     * battery usage slots are ignored if {@code shouldReuseBatteryUsageSlots} is false, so the
+     * whole result is computed from the battery history.
+     */
+    public void start(boolean isFromPeriodJob, boolean shouldReuseBatteryUsageSlots) {
         // If we have battery level data, load the battery history map and app usage simultaneously.
         if (mHourlyBatteryLevelsPerDay != null) {
             if (isFromPeriodJob) {
@@ -182,8 +191,12 @@ public class DataProcessManager {
                 loadCurrentBatteryHistoryMap();
                 // Loads the latest app usage list from the service.
                 loadCurrentAppUsageList();
-                // Loads existing battery usage slots from database.
-                loadBatteryUsageSlotList();
+                if (shouldReuseBatteryUsageSlots) {
+                    // Loads existing battery usage slots from database.
+                    loadBatteryUsageSlotList();
+                } else {
+                    mIsBatteryUsageSlotLoaded = true;
+                }
             }
             // Loads app usage list from database.
             loadDatabaseAppUsageList();
@@ -227,6 +240,11 @@ public class DataProcessManager {
         return mIsCurrentBatteryHistoryLoaded;
     }
 
+    @VisibleForTesting
+    boolean getIsBatteryUsageSlotLoaded() {
+        return mIsBatteryUsageSlotLoaded;
+    }
+
     @VisibleForTesting
     boolean getShowScreenOnTime() {
         return mShowScreenOnTime;
@@ -481,7 +499,10 @@ public class DataProcessManager {
             protected Map<Long, BatteryDiffData> doInBackground(Void... voids) {
                 final long startTime = System.currentTimeMillis();
                 final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
-                for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
+                // Reuses the persisted slots before the raw start timestamp, only the slots after
+                // it are recomputed from the new battery history data.
+                for (BatteryUsageSlot batteryUsageSlot :
+                        getReusableBatteryUsageSlots(mBatteryUsageSlotList, mRawStartTimestamp)) {
                     batteryDiffDataMap.put(batteryUsageSlot.getStartTimestamp(),
                             ConvertUtils.convertToBatteryDiffData(
                                     mContext, batteryUsageSlot, getSystemAppsPackageNames(),
@@ -509,6 +530,29 @@ public class DataProcessManager {
         }.execute();
     }
 
+    /**
+     * Returns the persisted slots which start before {@code processedTimestamp}. If a slot was
+     * persisted more than once (e.g. it was incomplete in the previous periodic job), only the
+     * longest one is kept.
+     */
+    @VisibleForTesting
+    static List<BatteryUsageSlot> getReusableBatteryUsageSlots(
+            final List<BatteryUsageSlot> batteryUsageSlotList, final long processedTimestamp) {
+        final Map<Long, BatteryUsageSlot> slotMap = new ArrayMap<>();
+        for (BatteryUsageSlot batteryUsageSlot : batteryUsageSlotList) {
+            final long startTimestamp = batteryUsageSlot.getStartTimestamp();
+            if (startTimestamp >= processedTimestamp) {
+                continue;
+            }
+            final BatteryUsageSlot existingSlot = slotMap.get(startTimestamp);
+            if (existingSlot == null
+                    || existingSlot.getEndTimestamp() < batteryUsageSlot.getEndTimestamp()) {
+                slotMap.put(startTimestamp, batteryUsageSlot);
+            }
+        }
+        return new ArrayList<>(slotMap.values());
+    }
+
     // Whether we should load app usage data from service or database.
     private synchronized boolean shouldLoadAppUsageData() {
         if (!mShowScreenOnTime) {
@@ -576,11 +620,23 @@ public class DataProcessManager {
                 DatabaseUtils.getBatteryEvents(
                         context, Calendar.getInstance(), lastFullChargeTime,
                         BATTERY_LEVEL_RECORD_EVENTS);
+        // The battery level record events are generated together with the battery usage slots,
+        // so only the battery history after the latest event needs to be processed. The earlier
+        // data is loaded from the persisted slots. The events are sorted by timestamp in
+        // descending order, the first one is the latest and the last one is the oldest.
         final long startTimestamp = batteryLevelRecordEvents.isEmpty()
                 ? lastFullChargeTime : batteryLevelRecordEvents.get(0).getTimestamp();
+        OnBatteryDiffDataMapLoadedListener listener = onBatteryUsageMapLoadedListener;
+        if (!isFromPeriodJob && !batteryLevelRecordEvents.isEmpty()
+                && BatteryUsageConsistencyChecker.isEnabled()) {
+            listener = startConsistencyCheck(context, handler,
+                    batteryLevelRecordEvents.get(batteryLevelRecordEvents.size() - 1)
+                            .getTimestamp(),
+                    lastFullChargeTime, onBatteryUsageMapLoadedListener);
+        }
         final BatteryLevelData batteryLevelData = getPeriodBatteryLevelData(context, handler,
                 startTimestamp, lastFullChargeTime, isFromPeriodJob,
-                onBatteryUsageMapLoadedListener);
+                /*shouldReuseBatteryUsageSlots=*/ true, listener);
         Log.d(TAG, String.format("execute getBatteryLevelData in %d/ms,"
                         + " batteryLevelRecordEvents.size=%d",
                 (System.currentTimeMillis() - start), batteryLevelRecordEvents.size()));
@@ -590,12 +646,35 @@ public class DataProcessManager {
                 : BatteryLevelData.combine(batteryLevelData, batteryLevelRecordEvents);
     }
 
+    /**
+     * Recomputes the battery usage from {@code fullStartTimestamp} without the persisted slots
+     * and compares it with the incremental result delivered to the returned listener.
+     */
+    private static OnBatteryDiffDataMapLoadedListener startConsistencyCheck(
+            Context context,
+            @Nullable Handler handler,
+            final long fullStartTimestamp,
+            final long lastFullChargeTime,
+            final OnBatteryDiffDataMapLoadedListener onBatteryUsageMapLoadedListener) {
+        Log.d(TAG, "startConsistencyCheck() from "
+                + ConvertUtils.utcToLocalTimeForLogging(fullStartTimestamp));
+        final BatteryUsageConsistencyChecker checker = new BatteryUsageConsistencyChecker();
+        getPeriodBatteryLevelData(context, handler, fullStartTimestamp, lastFullChargeTime,
+                /*isFromPeriodJob=*/ false, /*shouldReuseBatteryUsageSlots=*/ false,
+                checker::onFullResultLoaded);
+        return batteryDiffDataMap -> {
+            checker.onIncrementalResultLoaded(batteryDiffDataMap);
+            onBatteryUsageMapLoadedListener.onBatteryDiffDataMapLoaded(batteryDiffDataMap);
+        };
+    }
+
     private static BatteryLevelData getPeriodBatteryLevelData(
             Context context,
             @Nullable Handler handler,
             final long startTimestamp,
             final long lastFullChargeTime,
             final boolean isFromPeriodJob,
+            final boolean shouldReuseBatteryUsageSlots,
             final OnBatteryDiffDataMapLoadedListener onBatteryDiffDataMapLoadedListener) {
         final long currentTime = System.currentTimeMillis();
         Log.d(TAG, String.format("getPeriodBatteryLevelData() startTimestamp=%s",
@@ -638,7 +717,7 @@ public class DataProcessManager {
                 lastFullChargeTime,
                 onBatteryDiffDataMapLoadedListener,
                 batteryLevelData.getHourlyBatteryLevelsPerDay(),
-                processedBatteryHistoryMap).start(isFromPeriodJob);
+                processedBatteryHistoryMap).start(isFromPeriodJob, shouldReuseBatteryUsageSlots);
 
         return batteryLevelData;
     }
@@ -16,6 +16,14 @@
 
 package com.android.settings.fuelgauge.batteryusage;
 
+import static com.android.settings.fuelgauge.batteryusage.BatteryHistoryStore.USAGE_BACKGROUND_CONSUME_POWER;
+import static com.android.settings.fuelgauge.batteryusage.BatteryHistoryStore.USAGE_BACKGROUND_TIME;
+import static com.android.settings.fuelgauge.batteryusage.BatteryHistoryStore.USAGE_CACHED_CONSUME_POWER;
+import static com.android.settings.fuelgauge.batteryusage.BatteryHistoryStore.USAGE_COLUMN_COUNT;
+import static com.android.settings.fuelgauge.batteryusage.BatteryHistoryStore.USAGE_CONSUME_POWER;
+import static com.android.settings.fuelgauge.batteryusage.BatteryHistoryStore.USAGE_FOREGROUND_CONSUME_POWER;
+import static com.android.settings.fuelgauge.batteryusage.BatteryHistoryStore.USAGE_FOREGROUND_SERVICE_CONSUME_POWER;
+import static com.android.settings.fuelgauge.batteryusage.BatteryHistoryStore.USAGE_FOREGROUND_TIME;
 import static com.android.settings.fuelgauge.batteryusage.ConvertUtils.getEffectivePackageName;
 import static com.android.settings.fuelgauge.batteryusage.ConvertUtils.isSystemConsumer;
 import static com.android.settings.fuelgauge.batteryusage.ConvertUtils.isUidConsumer;
@@ -62,6 +70,7 @@ import com.google.common.base.Preconditions;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -427,8 +436,16 @@ public final class DataProcessor {
         Collections.sort(rawTimestampList);
         final long currentTime = getCurrentTimeMillis();
         final List<Long> expectedTimestampList = getTimestampSlots(rawTimestampList, currentTime);
-        interpolateHistory(
-                context, rawTimestampList, expectedTimestampList, batteryHistoryMap, resultMap);
+        // Interpolates into a derived columnar store if the history is loaded into a store.
+        final BatteryHistoryStore batteryHistoryStore =
+                BatteryHistoryStore.getStore(batteryHistoryMap);
+        final BatteryHistoryStore.Builder interpolatedStoreBuilder =
+                batteryHistoryStore == null ? null : batteryHistoryStore.newDerivedBuilder();
+        interpolateHistory(context, rawTimestampList, expectedTimestampList, batteryHistoryMap,
+                interpolatedStoreBuilder, resultMap);
+        if (interpolatedStoreBuilder != null) {
+            resultMap.putAll(interpolatedStoreBuilder.build().asHistoryMap());
+        }
         Log.d(TAG, String.format("getHistoryMapWithExpectedTimestamps() size=%d in %d/ms",
                 resultMap.size(), (System.currentTimeMillis() - startTime)));
         return resultMap;
@@ -1081,6 +1098,7 @@ public final class DataProcessor {
             final List<Long> rawTimestampList,
             final List<Long> expectedTimestampSlots,
             final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
+            @Nullable final BatteryHistoryStore.Builder interpolatedStoreBuilder,
             final Map<Long, Map<String, BatteryHistEntry>> resultMap) {
         if (rawTimestampList.isEmpty() || expectedTimestampSlots.isEmpty()) {
             return;
@@ -1092,7 +1110,7 @@ public final class DataProcessor {
         resultMap.put(startTimestamp, batteryHistoryMap.get(startTimestamp));
         for (int index = 1; index < expectedTimestampSlotsSize - 1; index++) {
             interpolateHistoryForSlot(context, expectedTimestampSlots.get(index), rawTimestampList,
-                    batteryHistoryMap, resultMap);
+                    batteryHistoryMap, interpolatedStoreBuilder, resultMap);
         }
         resultMap.put(endTimestamp,
                 Map.of(CURRENT_TIME_BATTERY_HISTORY_PLACEHOLDER, EMPTY_BATTERY_HIST_ENTRY));
@@ -1103,6 +1121,7 @@ public final class DataProcessor {
             final long currentSlot,
             final List<Long> rawTimestampList,
             final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
+            @Nullable final BatteryHistoryStore.Builder interpolatedStoreBuilder,
             final Map<Long, Map<String, BatteryHistEntry>> resultMap) {
         final long[] nearestTimestamps = findNearestTimestamp(rawTimestampList, currentSlot);
         final long lowerTimestamp = nearestTimestamps[0];
@@ -1126,8 +1145,8 @@ public final class DataProcessor {
             resultMap.put(currentSlot, new ArrayMap<>());
             return;
         }
-        interpolateHistoryForSlot(
-                context, currentSlot, lowerTimestamp, upperTimestamp, batteryHistoryMap, resultMap);
+        interpolateHistoryForSlot(context, currentSlot, lowerTimestamp, upperTimestamp,
+                batteryHistoryMap, interpolatedStoreBuilder, resultMap);
     }
 
     private static void interpolateHistoryForSlot(
@@ -1136,6 +1155,7 @@ public final class DataProcessor {
             final long lowerTimestamp,
             final long upperTimestamp,
             final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
+            @Nullable final BatteryHistoryStore.Builder interpolatedStoreBuilder,
             final Map<Long, Map<String, BatteryHistEntry>> resultMap) {
         final Map<String, BatteryHistEntry> lowerEntryDataMap =
                 batteryHistoryMap.get(lowerTimestamp);
@@ -1162,9 +1182,17 @@ public final class DataProcessor {
             return;
         }
         log(context, "apply interpolation arithmetic", currentSlot, null);
-        final Map<String, BatteryHistEntry> newHistEntryMap = new ArrayMap<>();
         final double timestampLength = upperTimestamp - lowerTimestamp;
         final double timestampDiff = currentSlot - lowerTimestamp;
+        if (interpolatedStoreBuilder != null) {
+            interpolateSnapshotForSlot(context, currentSlot, upperTimestamp,
+                    /*ratio=*/ timestampDiff / timestampLength,
+                    (BatteryHistoryStore.SnapshotView) lowerEntryDataMap,
+                    (BatteryHistoryStore.SnapshotView) upperEntryDataMap,
+                    interpolatedStoreBuilder, resultMap);
+            return;
+        }
+        final Map<String, BatteryHistEntry> newHistEntryMap = new ArrayMap<>();
         // Applies interpolation arithmetic for each BatteryHistEntry.
         for (String entryKey : upperEntryDataMap.keySet()) {
             final BatteryHistEntry lowerEntry = lowerEntryDataMap.get(entryKey);
@@ -1197,6 +1225,48 @@ public final class DataProcessor {
         resultMap.put(currentSlot, newHistEntryMap);
     }
 
+    /**
+     * Same as the interpolation arithmetic in {@link #interpolateHistoryForSlot}, but reads the
+     * columns of the store directly and adds the interpolated rows into the derived store.
+     */
+    private static void interpolateSnapshotForSlot(
+            Context context,
+            final long currentSlot,
+            final long upperTimestamp,
+            final double ratio,
+            final BatteryHistoryStore.SnapshotView lowerSnapshot,
+            final BatteryHistoryStore.SnapshotView upperSnapshot,
+            final BatteryHistoryStore.Builder interpolatedStoreBuilder,
+            final Map<Long, Map<String, BatteryHistEntry>> resultMap) {
+        final BatteryHistoryStore store = upperSnapshot.getStore();
+        final int rowCount = interpolatedStoreBuilder.getRowCount();
+        for (int upperRow = upperSnapshot.getRowStart(); upperRow < upperSnapshot.getRowEnd();
+                upperRow++) {
+            final int lowerRow = lowerSnapshot.findRowById(upperSnapshot.getEntryId(upperRow));
+            // Checks whether there is any abnormal battery reset conditions.
+            if (lowerRow >= 0
+                    && (store.getForegroundUsageTimeInMs(lowerRow)
+                            > store.getForegroundUsageTimeInMs(upperRow)
+                    || store.getBackgroundUsageTimeInMs(lowerRow)
+                            > store.getBackgroundUsageTimeInMs(upperRow))) {
+                interpolatedStoreBuilder.addRow(currentSlot, store, upperRow);
+                log(context, "abnormal reset condition is found", currentSlot,
+                        sDebug ? upperSnapshot.getEntry(upperRow) : null);
+                continue;
+            }
+            interpolatedStoreBuilder.addInterpolatedRow(
+                    currentSlot, upperTimestamp, ratio, store, lowerRow, upperRow);
+            if (lowerRow < 0) {
+                log(context, "cannot find lower entry data", currentSlot,
+                        sDebug ? upperSnapshot.getEntry(upperRow) : null);
+            }
+        }
+        // The interpolated rows are put into the result map after building the derived store.
+        if (interpolatedStoreBuilder.getRowCount() == rowCount) {
+            resultMap.put(currentSlot, new ArrayMap<>());
+        }
+    }
+
     private static Integer getLevel(
             Context context,
             final Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap,
@@ -1214,8 +1284,13 @@ public final class DataProcessor {
         }
         // Averages the battery level in each time slot to avoid corner conditions.
         float batteryLevelCounter = 0;
-        for (BatteryHistEntry entry : entryMap.values()) {
-            batteryLevelCounter += entry.mBatteryLevel;
+        if (entryMap instanceof BatteryHistoryStore.SnapshotView) {
+            batteryLevelCounter =
+                    ((BatteryHistoryStore.SnapshotView) entryMap).getBatteryLevelSum();
+        } else {
+            for (BatteryHistEntry entry : entryMap.values()) {
+                batteryLevelCounter += entry.mBatteryLevel;
+            }
         }
         return Math.round(batteryLevelCounter / entryMap.size());
     }
@@ -1323,6 +1398,11 @@ public final class DataProcessor {
             allBatteryHistEntryKeys.addAll(slotBatteryHistMap.keySet());
         }
 
+        // Reads the cumulative usage values into the reused arrays instead of creating the
+        // BatteryHistEntry of each slot when the history is backed by BatteryHistoryStore.
+        final int slotCount = slotBatteryHistoryList.size();
+        final double[][] slotUsages = new double[slotCount][USAGE_COLUMN_COUNT];
+
         // Calculates all packages diff usage data in a specific time slot.
         for (String key : allBatteryHistEntryKeys) {
             if (key == null) {
@@ -1330,13 +1410,18 @@ public final class DataProcessor {
             }
 
             BatteryHistEntry selectedBatteryEntry = null;
-            final List<BatteryHistEntry> batteryHistEntries = new ArrayList<>();
-            for (Map<String, BatteryHistEntry> slotBatteryHistMap : slotBatteryHistoryList) {
-                BatteryHistEntry entry =
-                        slotBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-                batteryHistEntries.add(entry);
-                if (selectedBatteryEntry == null && entry != EMPTY_BATTERY_HIST_ENTRY) {
-                    selectedBatteryEntry = entry;
+            for (int i = 0; i < slotCount; i++) {
+                final Map<String, BatteryHistEntry> slotBatteryHistMap =
+                        slotBatteryHistoryList.get(i);
+                if (!BatteryHistoryStore.readUsage(slotBatteryHistMap, key, slotUsages[i])) {
+                    Arrays.fill(slotUsages[i], 0);
+                    continue;
+                }
+                if (selectedBatteryEntry == null) {
+                    final BatteryHistEntry entry = slotBatteryHistMap.get(key);
+                    if (entry != EMPTY_BATTERY_HIST_ENTRY) {
+                        selectedBatteryEntry = entry;
+                    }
                 }
             }
             if (selectedBatteryEntry == null) {
@@ -1358,37 +1443,37 @@ public final class DataProcessor {
             double foregroundServiceUsageConsumePower = 0;
             double backgroundUsageConsumePower = 0;
             double cachedUsageConsumePower = 0;
-            for (int i = 0; i < batteryHistEntries.size() - 1; i++) {
-                final BatteryHistEntry currentEntry = batteryHistEntries.get(i);
-                final BatteryHistEntry nextEntry = batteryHistEntries.get(i + 1);
+            for (int i = 0; i < slotCount - 1; i++) {
+                final double[] currentUsage = slotUsages[i];
+                final double[] nextUsage = slotUsages[i + 1];
                 foregroundUsageTimeInMs +=
                         getDiffValue(
-                                currentEntry.mForegroundUsageTimeInMs,
-                                nextEntry.mForegroundUsageTimeInMs);
+                                (long) currentUsage[USAGE_FOREGROUND_TIME],
+                                (long) nextUsage[USAGE_FOREGROUND_TIME]);
                 backgroundUsageTimeInMs +=
                         getDiffValue(
-                                currentEntry.mBackgroundUsageTimeInMs,
-                                nextEntry.mBackgroundUsageTimeInMs);
+                                (long) currentUsage[USAGE_BACKGROUND_TIME],
+                                (long) nextUsage[USAGE_BACKGROUND_TIME]);
                 consumePower +=
                         getDiffValue(
-                                currentEntry.mConsumePower,
-                                nextEntry.mConsumePower);
+                                currentUsage[USAGE_CONSUME_POWER],
+                                nextUsage[USAGE_CONSUME_POWER]);
                 foregroundUsageConsumePower +=
                         getDiffValue(
-                                currentEntry.mForegroundUsageConsumePower,
-                                nextEntry.mForegroundUsageConsumePower);
+                                currentUsage[USAGE_FOREGROUND_CONSUME_POWER],
+                                nextUsage[USAGE_FOREGROUND_CONSUME_POWER]);
                 foregroundServiceUsageConsumePower +=
                         getDiffValue(
-                                currentEntry.mForegroundServiceUsageConsumePower,
-                                nextEntry.mForegroundServiceUsageConsumePower);
+                                currentUsage[USAGE_FOREGROUND_SERVICE_CONSUME_POWER],
+                                nextUsage[USAGE_FOREGROUND_SERVICE_CONSUME_POWER]);
                 backgroundUsageConsumePower +=
                         getDiffValue(
-                                currentEntry.mBackgroundUsageConsumePower,
-                                nextEntry.mBackgroundUsageConsumePower);
+                                currentUsage[USAGE_BACKGROUND_CONSUME_POWER],
+                                nextUsage[USAGE_BACKGROUND_CONSUME_POWER]);
                 cachedUsageConsumePower +=
                         getDiffValue(
-                                currentEntry.mCachedUsageConsumePower,
-                                nextEntry.mCachedUsageConsumePower);
+                                currentUsage[USAGE_CACHED_CONSUME_POWER],
+                                nextUsage[USAGE_CACHED_CONSUME_POWER]);
             }
             if (isSystemConsumer(selectedBatteryEntry.mConsumerType)
                     && selectedBatteryEntry.mDrainType == BatteryConsumer.POWER_COMPONENT_SCREEN) {
@@ -19,10 +19,12 @@ import static com.android.settings.fuelgauge.batteryusage.ConvertUtils.utcToLoca
 
 import android.app.usage.IUsageStatsManager;
 import android.app.usage.UsageStatsManager;
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.content.OperationApplicationException;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
@@ -39,6 +41,7 @@ import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.fuelgauge.BatteryUsageHistoricalLogEntry.Action;
@@ -53,6 +56,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -74,6 +78,9 @@ public final class DatabaseUtils {
     static final String KEY_LAST_UPLOAD_FULL_CHARGE_TIME = "last_upload_full_charge_time";
     static final String KEY_LAST_USAGE_SOURCE = "last_usage_source";
     static final String KEY_DISMISSED_POWER_ANOMALY_KEYS = "dismissed_power_anomaly_keys";
+    static final String KEY_LAST_BATTERY_STATE_WRITE = "last_battery_state_write";
+    static final String KEY_LAST_APP_USAGE_EVENT_WRITE = "last_app_usage_event_write";
+    static final String KEY_LAST_BATTERY_EVENT_WRITE = "last_battery_event_write";
 
     /** An authority name of the battery content provider. */
     public static final String AUTHORITY = "com.android.settings.battery.usage.provider";
@@ -324,26 +331,20 @@ public final class DatabaseUtils {
                                 QUERY_KEY_TIMESTAMP, Long.toString(queryTimestamp))
                         .build();
 
-        final List<BatteryHistEntry> batteryHistEntryList = loadListFromContentProvider(
-                context, batteryStateUri, cursor -> new BatteryHistEntry(cursor));
-        final Map<Long, Map<String, BatteryHistEntry>> resultMap = new ArrayMap();
-        for (final BatteryHistEntry entry : batteryHistEntryList) {
-            final long timestamp = entry.mTimestamp;
-            final String key = entry.getKey();
-            Map batteryHistEntryMap = resultMap.get(timestamp);
-            // Creates new one if there is no corresponding map.
-            if (batteryHistEntryMap == null) {
-                batteryHistEntryMap = new ArrayMap();
-                resultMap.put(timestamp, batteryHistEntryMap);
-            }
-            batteryHistEntryMap.put(key, entry);
-        }
+        // Keeps the history in the columnar store, the map values are views of the store. Only
+        // queries the columns read by the store, e.g. not the debug string of each battery state.
+        final BatteryHistoryStore batteryHistoryStore = loadFromContentProvider(
+                context, batteryStateUri, BatteryHistoryStore.PROJECTION,
+                /*defaultValue=*/ null, BatteryHistoryStore::load);
+        final Map<Long, Map<String, BatteryHistEntry>> resultMap =
+                batteryHistoryStore == null ? new ArrayMap<>() : batteryHistoryStore.asHistoryMap();
 
-        if (resultMap == null || resultMap.isEmpty()) {
+        if (resultMap.isEmpty()) {
             Log.d(TAG, "getBatteryHistoryMap() returns empty or null");
         } else {
-            Log.d(TAG, String.format("getBatteryHistoryMap() size=%d in %d/ms",
-                    resultMap.size(), (System.currentTimeMillis() - startTime)));
+            Log.d(TAG, String.format("getBatteryHistoryMap() size=%d rows=%d in %d/ms",
+                    resultMap.size(), batteryHistoryStore.getRowCount(),
+                    (System.currentTimeMillis() - startTime)));
         }
         return resultMap;
     }
@@ -383,7 +384,9 @@ public final class DatabaseUtils {
                 database.appUsageEventDao().clearAll();
                 database.batteryEventDao().clearAll();
                 database.batteryStateDao().clearAll();
+                database.batteryStateSnapshotDao().clearAll();
                 database.batteryUsageSlotDao().clearAll();
+                BatteryUsageContentProvider.clearLatestSnapshotTimestamp();
             } catch (RuntimeException e) {
                 Log.e(TAG, "clearAll() failed", e);
             }
@@ -401,6 +404,7 @@ public final class DatabaseUtils {
                 database.appUsageEventDao().clearAllBefore(earliestTimestamp);
                 database.batteryEventDao().clearAllBefore(earliestTimestamp);
                 database.batteryStateDao().clearAllBefore(earliestTimestamp);
+                database.batteryStateSnapshotDao().clearAllBefore(earliestTimestamp);
                 database.batteryUsageSlotDao().clearAllBefore(earliestTimestamp);
             } catch (RuntimeException e) {
                 Log.e(TAG, "clearAllBefore() failed", e);
@@ -450,14 +454,15 @@ public final class DatabaseUtils {
         final ContentResolver resolver = context.getContentResolver();
         // Inserts all ContentValues into battery provider.
         if (!valuesList.isEmpty()) {
-            final ContentValues[] valuesArray = new ContentValues[valuesList.size()];
-            valuesList.toArray(valuesArray);
             try {
-                size = resolver.bulkInsert(APP_USAGE_EVENT_URI, valuesArray);
+                final long writeStartTime = System.currentTimeMillis();
+                size = insertInBatch(resolver, APP_USAGE_EVENT_URI, valuesList);
+                recordWriteStats(context, KEY_LAST_APP_USAGE_EVENT_WRITE, size,
+                        System.currentTimeMillis() - writeStartTime);
                 resolver.notifyChange(APP_USAGE_EVENT_URI, /*observer=*/ null);
                 Log.d(TAG, "insert() app usage events data into database");
             } catch (Exception e) {
-                Log.e(TAG, "bulkInsert() app usage data into database error:", e);
+                Log.e(TAG, "applyBatch() app usage data into database error:", e);
             }
         }
         Log.d(TAG, String.format("sendAppUsageEventData() size=%d in %d/ms",
@@ -495,14 +500,15 @@ public final class DatabaseUtils {
         final ContentResolver resolver = context.getContentResolver();
         // Inserts all ContentValues into battery provider.
         if (!valuesList.isEmpty()) {
-            final ContentValues[] valuesArray = new ContentValues[valuesList.size()];
-            valuesList.toArray(valuesArray);
             try {
-                size = resolver.bulkInsert(BATTERY_EVENT_URI, valuesArray);
+                final long writeStartTime = System.currentTimeMillis();
+                size = insertInBatch(resolver, BATTERY_EVENT_URI, valuesList);
+                recordWriteStats(context, KEY_LAST_BATTERY_EVENT_WRITE, size,
+                        System.currentTimeMillis() - writeStartTime);
                 resolver.notifyChange(BATTERY_EVENT_URI, /*observer=*/ null);
                 Log.d(TAG, "insert() battery event data into database");
             } catch (Exception e) {
-                Log.e(TAG, "bulkInsert() battery event data into database error:", e);
+                Log.e(TAG, "applyBatch() battery event data into database error:", e);
             }
         }
         Log.d(TAG, String.format("sendBatteryEventData() size=%d in %d/ms",
@@ -523,14 +529,12 @@ public final class DatabaseUtils {
         final ContentResolver resolver = context.getContentResolver();
         // Inserts all ContentValues into battery provider.
         if (!valuesList.isEmpty()) {
-            final ContentValues[] valuesArray = new ContentValues[valuesList.size()];
-            valuesList.toArray(valuesArray);
             try {
-                size = resolver.bulkInsert(BATTERY_USAGE_SLOT_URI, valuesArray);
+                size = insertInBatch(resolver, BATTERY_USAGE_SLOT_URI, valuesList);
                 resolver.notifyChange(BATTERY_USAGE_SLOT_URI, /*observer=*/ null);
                 Log.d(TAG, "insert() battery usage slots data into database");
             } catch (Exception e) {
-                Log.e(TAG, "bulkInsert() battery usage slots data into database error:", e);
+                Log.e(TAG, "applyBatch() battery usage slots data into database error:", e);
             }
         }
         Log.d(TAG, String.format("sendBatteryUsageSlotData() size=%d in %d/ms",
@@ -595,14 +599,15 @@ public final class DatabaseUtils {
         String errorMessage = "";
         // Inserts all ContentValues into battery provider.
         if (!valuesList.isEmpty()) {
-            final ContentValues[] valuesArray = new ContentValues[valuesList.size()];
-            valuesList.toArray(valuesArray);
             try {
-                size = resolver.bulkInsert(BATTERY_CONTENT_URI, valuesArray);
+                final long writeStartTime = System.currentTimeMillis();
+                size = insertInBatch(resolver, BATTERY_CONTENT_URI, valuesList);
+                recordWriteStats(context, KEY_LAST_BATTERY_STATE_WRITE, size,
+                        System.currentTimeMillis() - writeStartTime);
                 Log.d(TAG, "insert() battery states data into database with isFullChargeStart:"
                         + isFullChargeStart);
             } catch (Exception e) {
-                Log.e(TAG, "bulkInsert() data into database error:", e);
+                Log.e(TAG, "applyBatch() data into database error:", e);
             }
         } else {
             // Inserts one fake data into battery provider.
@@ -640,6 +645,21 @@ public final class DatabaseUtils {
         return valuesList;
     }
 
+    /**
+     * Inserts all values into the battery provider as one batch, so they're committed in one
+     * transaction and a failed row rolls back the whole batch.
+     */
+    private static int insertInBatch(
+            final ContentResolver resolver, final Uri uri, final List<ContentValues> valuesList)
+            throws OperationApplicationException, RemoteException {
+        final ArrayList<ContentProviderOperation> operations =
+                new ArrayList<>(valuesList.size());
+        for (ContentValues values : valuesList) {
+            operations.add(ContentProviderOperation.newInsert(uri).withValues(values).build());
+        }
+        return resolver.applyBatch(AUTHORITY, operations).length;
+    }
+
     /** Dump all required data into {@link PrintWriter}. */
     public static void dump(Context context, PrintWriter writer) {
         writeString(context, writer, "BatteryLevelChanged",
@@ -656,6 +676,12 @@ public final class DatabaseUtils {
                 KEY_LAST_UPLOAD_FULL_CHARGE_TIME);
         writeString(context, writer, "DismissedPowerAnomalyKeys",
                 KEY_DISMISSED_POWER_ANOMALY_KEYS);
+        writeString(context, writer, "LastBatteryStateWrite",
+                KEY_LAST_BATTERY_STATE_WRITE);
+        writeString(context, writer, "LastAppUsageEventWrite",
+                KEY_LAST_APP_USAGE_EVENT_WRITE);
+        writeString(context, writer, "LastBatteryEventWrite",
+                KEY_LAST_BATTERY_EVENT_WRITE);
     }
 
     static SharedPreferences getSharedPreferences(Context context) {
@@ -728,16 +754,37 @@ public final class DatabaseUtils {
         }
     }
 
+    /** Records the size, wall time and throughput of the latest batched write for dump. */
+    @VisibleForTesting
+    static void recordWriteStats(
+            Context context, String preferenceKey, int size, long elapsedTimeMs) {
+        final SharedPreferences sharedPreferences = getSharedPreferences(context);
+        if (sharedPreferences != null) {
+            final long rowsPerSecond = size * 1000L / Math.max(elapsedTimeMs, 1L);
+            final String content = String.format(Locale.ENGLISH,
+                    "%s size=%d in %d/ms (%d rows/s)",
+                    utcToLocalTimeForLogging(System.currentTimeMillis()), size, elapsedTimeMs,
+                    rowsPerSecond);
+            sharedPreferences.edit().putString(preferenceKey, content).apply();
+        }
+    }
+
     @VisibleForTesting
     static <T> T loadFromContentProvider(
             Context context, Uri uri, T defaultValue, Function<Cursor, T> cursorReader) {
+        return loadFromContentProvider(
+                context, uri, /*projection=*/ null, defaultValue, cursorReader);
+    }
+
+    private static <T> T loadFromContentProvider(Context context, Uri uri,
+            @Nullable String[] projection, T defaultValue, Function<Cursor, T> cursorReader) {
         // Transfer work profile to user profile. Please see b/297036263.
         context = getParentContext(context);
         if (context == null) {
             return defaultValue;
         }
         try (Cursor cursor = sFakeSupplier != null ? sFakeSupplier.get() :
-                context.getContentResolver().query(uri, null, null, null)) {
+                context.getContentResolver().query(uri, projection, null, null)) {
             return (cursor == null || cursor.getCount() == 0)
                     ? defaultValue : cursorReader.apply(cursor);
         }
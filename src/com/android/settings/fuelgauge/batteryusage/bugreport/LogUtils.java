@@ -47,15 +47,15 @@ public final class LogUtils {
         // Dumps phenotype environments.
         DatabaseUtils.dump(context, writer);
         writer.flush();
-        final BatteryStateDao dao =
-                BatteryStateDatabase
-                        .getInstance(context.getApplicationContext())
-                        .batteryStateDao();
+        final BatteryStateDatabase database =
+                BatteryStateDatabase.getInstance(context.getApplicationContext());
+        final BatteryStateDao dao = database.batteryStateDao();
         final long timeOffset =
                 Clock.systemUTC().millis() - DUMP_TIME_OFFSET.toMillis();
 
         // Gets all distinct timestamps.
-        final List<Long> timestamps = dao.getDistinctTimestamps(timeOffset);
+        final List<Long> timestamps =
+                database.batteryStateSnapshotDao().getTimestamps(timeOffset);
         final int distinctCount = timestamps.size();
         writer.println("\n\tBattery DatabaseHistory:");
         writer.println("distinct timestamp count:" + distinctCount);
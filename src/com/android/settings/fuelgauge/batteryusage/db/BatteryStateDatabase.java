@@ -17,28 +17,68 @@
 package com.android.settings.fuelgauge.batteryusage.db;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 /** A {@link RoomDatabase} for battery usage states history. */
 @Database(
         entities = {AppUsageEventEntity.class, BatteryEventEntity.class, BatteryState.class,
-                BatteryUsageSlotEntity.class},
-        version = 1)
+                BatteryStateSnapshotEntity.class, BatteryUsageSlotEntity.class},
+        version = 2)
 public abstract class BatteryStateDatabase extends RoomDatabase {
     private static final String TAG = "BatteryStateDatabase";
 
     private static BatteryStateDatabase sBatteryStateDatabase;
 
+    /**
+     * Adds the timestamp index of the battery state table and the snapshot header table, which is
+     * filled from the existing battery states.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_BatteryState_timestamp`"
+                    + " ON `BatteryState` (`timestamp`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `BatteryStateSnapshotEntity`"
+                    + " (`timestamp` INTEGER NOT NULL, `batteryLevel` INTEGER NOT NULL,"
+                    + " `batteryStatus` INTEGER NOT NULL, `batteryHealth` INTEGER NOT NULL,"
+                    + " `isFullChargeCycleStart` INTEGER NOT NULL, PRIMARY KEY(`timestamp`))");
+            // All the battery states in the same snapshot have the same device battery state.
+            try (Cursor cursor = database.query("SELECT timestamp, isFullChargeCycleStart,"
+                    + " batteryInformation FROM BatteryState GROUP BY timestamp")) {
+                while (cursor.moveToNext()) {
+                    final BatteryStateSnapshotEntity snapshot = BatteryStateSnapshotEntity.create(
+                            cursor.getLong(0), cursor.getInt(1) != 0, cursor.getString(2));
+                    database.execSQL("INSERT OR REPLACE INTO `BatteryStateSnapshotEntity`"
+                            + " VALUES (?, ?, ?, ?, ?)", new Object[] {
+                                    snapshot.timestamp,
+                                    snapshot.batteryLevel,
+                                    snapshot.batteryStatus,
+                                    snapshot.batteryHealth,
+                                    snapshot.isFullChargeCycleStart ? 1 : 0});
+                }
+            }
+            Log.d(TAG, "migrate battery states database from version 1 to 2");
+        }
+    };
+
     /** Provides DAO for app usage event table. */
     public abstract AppUsageEventDao appUsageEventDao();
     /** Provides DAO for battery event table. */
     public abstract BatteryEventDao batteryEventDao();
     /** Provides DAO for battery state table. */
     public abstract BatteryStateDao batteryStateDao();
+    /** Provides DAO for battery state snapshot table. */
+    public abstract BatteryStateSnapshotDao batteryStateSnapshotDao();
     /** Provides DAO for battery usage slot table. */
     public abstract BatteryUsageSlotDao batteryUsageSlotDao();
 
@@ -50,6 +90,7 @@ public abstract class BatteryStateDatabase extends RoomDatabase {
                                     context, BatteryStateDatabase.class, "battery-usage-db-v9")
                             // Allows accessing data in the main thread for dumping bugreport.
                             .allowMainThreadQueries()
+                            .addMigrations(MIGRATION_1_2)
                             .fallbackToDestructiveMigration()
                             .build();
             Log.d(TAG, "initialize battery states database");
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.android.settings.fuelgauge.BatteryUtils;
+import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+import com.android.settings.fuelgauge.batteryusage.DeviceBatteryState;
+
+import java.util.Locale;
+
+/**
+ * A {@link Entity} class to save the header of each battery states snapshot into database, which
+ * has one row per snapshot timestamp instead of one row per app in the {@link BatteryState}.
+ */
+@Entity
+public class BatteryStateSnapshotEntity {
+    /** Keys for accessing the columns. */
+    public static final String KEY_TIMESTAMP = "timestamp";
+    public static final String KEY_BATTERY_LEVEL = "batteryLevel";
+    public static final String KEY_BATTERY_STATUS = "batteryStatus";
+    public static final String KEY_BATTERY_HEALTH = "batteryHealth";
+    public static final String KEY_IS_FULL_CHARGE_CYCLE_START = "isFullChargeCycleStart";
+
+    @PrimaryKey
+    public final long timestamp;
+    public final int batteryLevel;
+    public final int batteryStatus;
+    public final int batteryHealth;
+    public final boolean isFullChargeCycleStart;
+
+    public BatteryStateSnapshotEntity(
+            final long timestamp,
+            final int batteryLevel,
+            final int batteryStatus,
+            final int batteryHealth,
+            final boolean isFullChargeCycleStart) {
+        this.timestamp = timestamp;
+        this.batteryLevel = batteryLevel;
+        this.batteryStatus = batteryStatus;
+        this.batteryHealth = batteryHealth;
+        this.isFullChargeCycleStart = isFullChargeCycleStart;
+    }
+
+    @Override
+    public String toString() {
+        final String recordAtDateTime = ConvertUtils.utcToLocalTimeForLogging(timestamp);
+        final StringBuilder builder = new StringBuilder()
+                .append("\nBatteryStateSnapshot{")
+                .append(String.format(Locale.US,
+                        "\n\ttimestamp=%s|batteryLevel=%d|batteryStatus=%d|batteryHealth=%d"
+                                + "|isStart=%b",
+                        recordAtDateTime, batteryLevel, batteryStatus, batteryHealth,
+                        isFullChargeCycleStart))
+                .append("\n}");
+        return builder.toString();
+    }
+
+    /** Creates new {@link BatteryStateSnapshotEntity} from the {@link BatteryState}. */
+    public static BatteryStateSnapshotEntity create(BatteryState batteryState) {
+        return create(batteryState.timestamp, batteryState.isFullChargeCycleStart,
+                batteryState.batteryInformation);
+    }
+
+    /** Creates new {@link BatteryStateSnapshotEntity} from the encoded battery information. */
+    static BatteryStateSnapshotEntity create(
+            long timestamp, boolean isFullChargeCycleStart, String batteryInformation) {
+        final DeviceBatteryState deviceBatteryState =
+                BatteryUtils.parseProtoFromString(
+                        batteryInformation, BatteryInformation.getDefaultInstance())
+                        .getDeviceBatteryState();
+        return new BatteryStateSnapshotEntity(
+                timestamp,
+                deviceBatteryState.getBatteryLevel(),
+                deviceBatteryState.getBatteryStatus(),
+                deviceBatteryState.getBatteryHealth(),
+                isFullChargeCycleStart);
+    }
+}
@@ -41,11 +41,11 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
 
@@ -58,12 +58,22 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
     private static final String TAG = "ContextualCardLoader";
     private static final long ELIGIBILITY_CHECKER_TIMEOUT_MS = 400;
 
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    // Shared by all the loads, the idle threads are kept for reuse for a while. Every checker
+    // gets its own thread, since the checkers share the same timeout and a queued checker would
+    // be cancelled before it starts.
+    private static final ThreadPoolExecutor sEligibilityExecutor = createEligibilityExecutor();
+
     private final ContentObserver mObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
         @Override
         public void onChange(boolean selfChange, Uri uri) {
             if (isStarted()) {
                 mNotifyUri = uri;
+                if (CardContentProvider.REFRESH_CARD_URI.equals(uri)) {
+                    getEligibleCardCache().clear();
+                }
                 forceLoad();
             }
         }
@@ -188,42 +198,84 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             return candidates;
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
-        final List<ContextualCard> cards = new ArrayList<>();
-        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
+        final EligibleCardCache cache = getEligibleCardCache();
+        cache.removeExpired();
+        final MetricsFeatureProvider metricsFeatureProvider =
+                FeatureFactory.getFactory(mContext).getMetricsFeatureProvider();
+        final ContextualCard[] results = new ContextualCard[candidates.size()];
+        final List<Integer> checkedIndexes = new ArrayList<>();
+        final List<EligibleCardChecker> checkers = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            final ContextualCard candidate = candidates.get(i);
+            // The ranking score is not part of the cached result, so the cards with a negative
+            // score are always left to the checker, which rejects them without binding.
+            if (candidate.getRankingScore() >= 0 && cache.contains(candidate)) {
+                final long startTime = System.currentTimeMillis();
+                results[i] = cache.get(candidate);
+                EligibleCardChecker.logEligibility(metricsFeatureProvider, candidate,
+                        results[i] != null, System.currentTimeMillis() - startTime);
+                continue;
+            }
+            checkedIndexes.add(i);
+            checkers.add(new EligibleCardChecker(mContext, candidate));
+        }
 
-        final List<EligibleCardChecker> checkers = candidates.stream()
-                .map(card -> new EligibleCardChecker(mContext, card))
-                .collect(Collectors.toList());
-        try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
-                    TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Log.w(TAG, "Failed to get eligible states for all cards", e);
+        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
+        if (!checkers.isEmpty()) {
+            try {
+                eligibleCards = sEligibilityExecutor.invokeAll(checkers,
+                        ELIGIBILITY_CHECKER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Failed to get eligible states for all cards", e);
+            }
         }
-        executor.shutdown();
 
         // Collect future and eligible cards
         for (int i = 0; i < eligibleCards.size(); i++) {
             final Future<ContextualCard> cardFuture = eligibleCards.get(i);
+            final ContextualCard candidate = candidates.get(checkedIndexes.get(i));
             if (cardFuture.isCancelled()) {
                 Log.w(TAG, "Timeout getting eligible state for card: "
-                        + candidates.get(i).getSliceUri());
+                        + candidate.getSliceUri());
                 continue;
             }
 
             try {
                 final ContextualCard card = cardFuture.get();
-                if (card != null) {
-                    cards.add(card);
+                results[checkedIndexes.get(i)] = card;
+                if (candidate.getRankingScore() >= 0) {
+                    cache.put(candidate, card);
                 }
             } catch (Exception e) {
                 Log.w(TAG, "Failed to get eligible state for card", e);
             }
         }
+
+        final List<ContextualCard> cards = new ArrayList<>();
+        for (ContextualCard card : results) {
+            if (card != null) {
+                cards.add(card);
+            }
+        }
+        Log.d(TAG, String.format("Eligibility checked for %d cards, %d cached",
+                checkers.size(), candidates.size() - checkers.size()));
         return cards;
     }
 
+    @VisibleForTesting
+    EligibleCardCache getEligibleCardCache() {
+        return EligibleCardCache.getInstance();
+    }
+
+    private static ThreadPoolExecutor createEligibilityExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                0 /* corePoolSize */, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> new Thread(
+                        runnable, "EligibleCardChecker-" + threadCount.incrementAndGet()));
+    }
+
     private boolean isLargeCard(ContextualCard card) {
         return card.getSliceUri().equals(CONTEXTUAL_WIFI_SLICE_URI)
                 || card.getSliceUri().equals(BLUETOOTH_DEVICES_SLICE_URI);
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import android.os.SystemClock;
+import android.util.ArrayMap;
+
+import androidx.slice.Slice;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Caches the eligibility results of {@link EligibleCardChecker} by card name and slice uri for a
+ * short time, so that returning to the homepage doesn't bind every slice again.
+ *
+ * <p>The bound slice is cached with the result, which the renderer shows until it binds the slice
+ * again. The cache is cleared when the cards are asked to refresh.</p>
+ */
+class EligibleCardCache {
+
+    @VisibleForTesting
+    static final long ENTRY_TTL_MS = 15_000L;
+
+    private static EligibleCardCache sInstance;
+
+    private final Map<String, Entry> mEntries = new ArrayMap<>();
+
+    static synchronized EligibleCardCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new EligibleCardCache();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    EligibleCardCache() {
+    }
+
+    /**
+     * Returns true if the eligibility of the card is cached and hasn't expired.
+     */
+    synchronized boolean contains(ContextualCard card) {
+        return getEntry(getKey(card)) != null;
+    }
+
+    /**
+     * Returns the card if it's eligible, or null if it's not eligible or the result is not cached.
+     */
+    @Nullable
+    synchronized ContextualCard get(ContextualCard card) {
+        final Entry entry = getEntry(getKey(card));
+        if (entry == null || !entry.mEligible) {
+            return null;
+        }
+        return card.mutate()
+                .setSlice(entry.mSlice)
+                .setHasInlineAction(entry.mHasInlineAction)
+                .build();
+    }
+
+    /**
+     * Caches the result of {@link EligibleCardChecker}, which is null if the card is not eligible.
+     */
+    synchronized void put(ContextualCard card, @Nullable ContextualCard result) {
+        mEntries.put(getKey(card), new Entry(result != null,
+                result != null && result.hasInlineAction(),
+                result != null ? result.getSlice() : null, SystemClock.elapsedRealtime()));
+    }
+
+    /** Drops all the entries. */
+    synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /** Drops the expired entries. */
+    synchronized void removeExpired() {
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Nullable
+    private Entry getEntry(String key) {
+        final Entry entry = mEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            mEntries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private static String getKey(ContextualCard card) {
+        return card.getName() + "|" + card.getSliceUri();
+    }
+
+    private static final class Entry {
+        private final boolean mEligible;
+        // Whether the slice has a toggle, which doesn't change with the state of the slice.
+        private final boolean mHasInlineAction;
+        @Nullable
+        private final Slice mSlice;
+        private final long mTimestamp;
+
+        Entry(boolean eligible, boolean hasInlineAction, @Nullable Slice slice, long timestamp) {
+            mEligible = eligible;
+            mHasInlineAction = hasInlineAction;
+            mSlice = slice;
+            mTimestamp = timestamp;
+        }
+
+        boolean isExpired() {
+            return SystemClock.elapsedRealtime() - mTimestamp > ENTRY_TTL_MS;
+        }
+    }
+}
@@ -60,26 +60,32 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
         ContextualCard result;
 
         if (isCardEligibleToDisplay(mCard)) {
-            metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
-                    SettingsEnums.ACTION_CONTEXTUAL_CARD_ELIGIBILITY,
-                    SettingsEnums.SETTINGS_HOMEPAGE,
-                    mCard.getTextSliceUri() /* key */, 1 /* true */);
             result = mCard;
         } else {
-            metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
-                    SettingsEnums.ACTION_CONTEXTUAL_CARD_ELIGIBILITY,
-                    SettingsEnums.SETTINGS_HOMEPAGE,
-                    mCard.getTextSliceUri() /* key */, 0 /* false */);
             result = null;
         }
+        logEligibility(metricsFeatureProvider, mCard, result != null,
+                System.currentTimeMillis() - startTime);
+
+        return result;
+    }
+
+    /**
+     * Logs the eligibility of the card and its loading time, which is also logged for the cached
+     * results.
+     */
+    static void logEligibility(MetricsFeatureProvider metricsFeatureProvider, ContextualCard card,
+            boolean eligible, long loadTimeMs) {
+        metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
+                SettingsEnums.ACTION_CONTEXTUAL_CARD_ELIGIBILITY,
+                SettingsEnums.SETTINGS_HOMEPAGE,
+                card.getTextSliceUri() /* key */, eligible ? 1 /* true */ : 0 /* false */);
         // Log individual card loading time
         metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
                 SettingsEnums.ACTION_CONTEXTUAL_CARD_LOAD,
                 SettingsEnums.SETTINGS_HOMEPAGE,
-                mCard.getTextSliceUri() /* key */,
-                (int) (System.currentTimeMillis() - startTime) /* value */);
-
-        return result;
+                card.getTextSliceUri() /* key */,
+                (int) loadTimeMs /* value */);
     }
 
     @VisibleForTesting
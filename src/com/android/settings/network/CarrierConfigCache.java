@@ -27,6 +27,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.PersistableBundle;
+import android.os.SystemClock;
 import android.telephony.CarrierConfigManager;
 import android.telephony.SubscriptionManager;
 import android.util.Log;
@@ -34,11 +35,25 @@ import android.util.Log;
 import androidx.annotation.GuardedBy;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settingslib.utils.ThreadUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This is a singleton class for Carrier-Configuration cache.
+ *
+ * <p>The configs are only dropped when {@link CarrierConfigManager#ACTION_CARRIER_CONFIG_CHANGED}
+ * is received, for the changed subscription only if the broadcast names one. The configs are
+ * loaded with one lock per subscription, so that a caller waits for a load of the same
+ * subscription which is in flight, e.g. from {@link #prefetchActiveSubscriptions}, instead of
+ * doing the binder call again.</p>
  */
 public class CarrierConfigCache {
     private static final String TAG = "CarrConfCache";
@@ -65,6 +80,25 @@ public class CarrierConfigCache {
     @VisibleForTesting
     protected static CarrierConfigManager sCarrierConfigManager;
 
+    private static final Map<Integer, Object> sLoadLocks = new ConcurrentHashMap<>();
+    /**
+     * Counts the invalidations per subscription, so that a config which was loaded while its
+     * subscription got invalidated is not cached.
+     */
+    @GuardedBy("sCarrierConfigs")
+    private static final Map<Integer, Integer> sGenerations = new ConcurrentHashMap<>();
+    @GuardedBy("sCarrierConfigs")
+    private static int sGlobalGeneration;
+
+    private static final AtomicLong sHitCount = new AtomicLong();
+    private static final AtomicLong sMissCount = new AtomicLong();
+    private static final AtomicLong sMainThreadMissCount = new AtomicLong();
+    private static final AtomicLong sPrefetchCount = new AtomicLong();
+    private static final AtomicLong sLoadCount = new AtomicLong();
+    private static final AtomicLong sLoadTimeNs = new AtomicLong();
+    private static final AtomicLong sMaxLoadTimeNs = new AtomicLong();
+    private static final AtomicInteger sInvalidationCount = new AtomicInteger();
+
     /**
      * Static method to create a singleton class for Carrier-Configuration cache.
      *
@@ -140,20 +174,114 @@ public class CarrierConfigCache {
     public PersistableBundle getConfigForSubId(int subId) {
         if (sCarrierConfigManager == null) return null;
 
-        synchronized (sCarrierConfigs) {
-            if (sCarrierConfigs.containsKey(subId)) {
-                return sCarrierConfigs.get(subId);
+        PersistableBundle config = sCarrierConfigs.get(subId);
+        if (config != null) {
+            sHitCount.incrementAndGet();
+            return config;
+        }
+        sMissCount.incrementAndGet();
+        if (ThreadUtils.isMainThread()) {
+            sMainThreadMissCount.incrementAndGet();
+        }
+        return loadConfigForSubId(subId);
+    }
+
+    /**
+     * Loads the Carrier-Configurations of all active subscriptions in background, so that the
+     * preference controllers of a page don't do the binder calls on the main thread.
+     *
+     * @param context The Context this is associated with.
+     */
+    public void prefetchActiveSubscriptions(@NonNull Context context) {
+        if (sCarrierConfigManager == null) return;
+
+        final Context appContext = context.getApplicationContext();
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final SubscriptionManager subscriptionManager =
+                    appContext.getSystemService(SubscriptionManager.class);
+            if (subscriptionManager == null) return;
+
+            for (int subId : subscriptionManager.getActiveSubscriptionIdList()) {
+                if (!sCarrierConfigs.containsKey(subId)) {
+                    sPrefetchCount.incrementAndGet();
+                    loadConfigForSubId(subId);
+                }
+            }
+        });
+    }
+
+    private static PersistableBundle loadConfigForSubId(int subId) {
+        synchronized (sLoadLocks.computeIfAbsent(subId, key -> new Object())) {
+            // Another thread may have loaded it while this one was waiting for the lock.
+            PersistableBundle config = sCarrierConfigs.get(subId);
+            if (config != null) {
+                return config;
+            }
+
+            final int generation;
+            final int globalGeneration;
+            synchronized (sCarrierConfigs) {
+                generation = sGenerations.getOrDefault(subId, 0);
+                globalGeneration = sGlobalGeneration;
             }
-            final PersistableBundle config = sCarrierConfigManager.getConfigForSubId(subId);
+            final long startTime = SystemClock.elapsedRealtimeNanos();
+            config = sCarrierConfigManager.getConfigForSubId(subId);
+            recordLoadTime(SystemClock.elapsedRealtimeNanos() - startTime);
             if (config == null) {
                 Log.e(TAG, "Could not get carrier config, subId:" + subId);
                 return null;
             }
-            sCarrierConfigs.put(subId, config);
+            synchronized (sCarrierConfigs) {
+                if (generation == sGenerations.getOrDefault(subId, 0)
+                        && globalGeneration == sGlobalGeneration) {
+                    sCarrierConfigs.put(subId, config);
+                }
+            }
             return config;
         }
     }
 
+    private static void recordLoadTime(long loadTimeNs) {
+        sLoadCount.incrementAndGet();
+        sLoadTimeNs.addAndGet(loadTimeNs);
+        sMaxLoadTimeNs.accumulateAndGet(loadTimeNs, Math::max);
+    }
+
+    /**
+     * Drops the cached Carrier-Configuration of the subscription, or all of them for an invalid
+     * subscription ID.
+     */
+    @VisibleForTesting
+    static void invalidate(int subId) {
+        sInvalidationCount.incrementAndGet();
+        synchronized (sCarrierConfigs) {
+            if (SubscriptionManager.isValidSubscriptionId(subId)) {
+                sCarrierConfigs.remove(subId);
+                sGenerations.merge(subId, 1, Integer::sum);
+            } else {
+                sCarrierConfigs.clear();
+                sGlobalGeneration++;
+            }
+        }
+    }
+
+    /** Returns the cache statistics, which are shown in the dump of the Settings. */
+    public static JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        final long loadCount = sLoadCount.get();
+        obj.put("cached", sCarrierConfigs.size());
+        obj.put("hits", sHitCount.get());
+        obj.put("misses", sMissCount.get());
+        obj.put("main_thread_misses", sMainThreadMissCount.get());
+        obj.put("prefetches", sPrefetchCount.get());
+        obj.put("invalidations", sInvalidationCount.get());
+        obj.put("loads", loadCount);
+        obj.put("load_avg_us", loadCount == 0
+                ? 0 : TimeUnit.NANOSECONDS.toMicros(sLoadTimeNs.get() / loadCount));
+        obj.put("load_max_us", TimeUnit.NANOSECONDS.toMicros(sMaxLoadTimeNs.get()));
+        return obj;
+    }
+
     /**
      * Gets the Carrier-Configuration for the default subscription.
      *
@@ -170,14 +298,7 @@ public class CarrierConfigCache {
         public void onReceive(Context context, Intent intent) {
             if (!ACTION_CARRIER_CONFIG_CHANGED.equals(intent.getAction())) return;
 
-            final int subId = intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID);
-            synchronized (sCarrierConfigs) {
-                if (SubscriptionManager.isValidSubscriptionId(subId)) {
-                    sCarrierConfigs.remove(subId);
-                } else {
-                    sCarrierConfigs.clear();
-                }
-            }
+            invalidate(intent.getIntExtra(EXTRA_SUBSCRIPTION_INDEX, INVALID_SUBSCRIPTION_ID));
         }
     }
 }
@@ -34,10 +34,12 @@ import android.telephony.UiccCardInfo;
 import android.telephony.UiccPortInfo;
 import android.telephony.UiccSlotInfo;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.IndentingPrintWriter;
 import android.util.Log;
 
 import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.LifecycleOwner;
 
 import com.android.settings.network.telephony.MobileNetworkUtils;
@@ -67,6 +69,11 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
 
     private static final String TAG = "MobileNetworkRepository";
     private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
+    /**
+     * The changes are collected for a while before they are written, since a SIM change notifies
+     * the subscriptions, the data and the roaming changes in bursts.
+     */
+    private static final long WRITE_DELAY_MS = 100;
 
     private static ExecutorService sExecutor = Executors.newSingleThreadExecutor();
     private static Map<Integer, SubscriptionInfoEntity> sCacheSubscriptionInfoEntityMap =
@@ -106,6 +113,21 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
             new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, PhoneCallStateTelephonyCallback> mTelephonyCallbackMap =
             new ConcurrentHashMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mFlushRunnable = () -> sExecutor.execute(this::flushPendingUpdates);
+    private final Object mPendingLock = new Object();
+    @GuardedBy("mPendingLock")
+    private boolean mIsSubInfoListChanged;
+    @GuardedBy("mPendingLock")
+    private final ArraySet<Integer> mPendingMobileNetworkInfoSubIds = new ArraySet<>();
+    @GuardedBy("mPendingLock")
+    private boolean mIsFlushScheduled;
+    // Only accessed by sExecutor.
+    private final PendingWrites mPendingWrites = new PendingWrites();
+    @GuardedBy("mPendingLock")
+    private int mUpdateRequestCount;
+    @GuardedBy("mPendingLock")
+    private int mWriteTransactionCount;
 
     @NonNull
     public static MobileNetworkRepository getInstance(Context context) {
@@ -192,9 +214,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
             if (tm == null) {
                 return;
             }
-            sExecutor.execute(() -> {
-                insertMobileNetworkInfo(mContext, mRegSubId, tm);
-            });
+            scheduleMobileNetworkInfoUpdate(mRegSubId);
             boolean isDataRoamingEnabled = tm.isDataRoamingEnabled();
             for (MobileNetworkCallback callback : sCallbacks) {
                 callback.onDataRoamingChanged(mRegSubId, isDataRoamingEnabled);
@@ -238,10 +258,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         MobileDataContentObserver dataContentObserver = new MobileDataContentObserver(
                 new Handler(Looper.getMainLooper()));
         dataContentObserver.setOnMobileDataChangedListener(() -> {
-            sExecutor.execute(() -> {
-                insertMobileNetworkInfo(mContext, subId,
-                        getTelephonyManagerBySubId(mContext, subId));
-            });
+            scheduleMobileNetworkInfoUpdate(subId);
         });
         dataContentObserver.register(mContext, subId);
         mDataContentObserverMap.put(subId, dataContentObserver);
@@ -520,7 +537,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
                     Log.d(TAG, "Convert subId " + subId + " to SubscriptionInfoEntity: "
                             + subInfoEntity);
                 }
-                mMobileNetworkDatabase.insertSubsInfo(subInfoEntity);
+                mPendingWrites.mSubInfos.put(subId, subInfoEntity);
                 mMetricsFeatureProvider.action(mContext,
                         SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_SUB_INFO, subId);
                 insertUiccInfo(subId, telephonyManager);
@@ -535,9 +552,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         if (DEBUG) {
             Log.d(TAG, "deleteAllInfoBySubId, subId = " + subId);
         }
-        mMobileNetworkDatabase.deleteSubInfoBySubId(subId);
-        mMobileNetworkDatabase.deleteUiccInfoBySubId(subId);
-        mMobileNetworkDatabase.deleteMobileNetworkInfoBySubId(subId);
+        mPendingWrites.delete(subId);
         synchronized (this) {
             mActiveSubInfoEntityList.removeIf(info -> info.subId.equals(subId));
         }
@@ -607,7 +622,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         if (!sCacheUiccInfoEntityMap.containsKey(subId)
                 || !sCacheUiccInfoEntityMap.get(subId).equals(uiccInfoEntity)) {
             sCacheUiccInfoEntityMap.put(subId, uiccInfoEntity);
-            mMobileNetworkDatabase.insertUiccInfo(uiccInfoEntity);
+            mPendingWrites.mUiccInfos.put(subId, uiccInfoEntity);
             mMetricsFeatureProvider.action(mContext,
                     SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_UICC_INFO, subId);
         }
@@ -630,7 +645,7 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         if (!sCacheMobileNetworkInfoEntityMap.containsKey(subId)
                 || !sCacheMobileNetworkInfoEntityMap.get(subId).equals(mobileNetworkInfoEntity)) {
             sCacheMobileNetworkInfoEntityMap.put(subId, mobileNetworkInfoEntity);
-            mMobileNetworkDatabase.insertMobileNetworkInfo(mobileNetworkInfoEntity);
+            mPendingWrites.mMobileNetworkInfos.put(subId, mobileNetworkInfoEntity);
             mMetricsFeatureProvider.action(mContext,
                     SettingsEnums.ACTION_MOBILE_NETWORK_DB_INSERT_MOBILE_NETWORK_INFO, subId);
         }
@@ -691,76 +706,182 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
 
     @Override
     public void onSubscriptionsChanged() {
-        insertAvailableSubInfoToEntity(
-                SubscriptionUtil.getSelectableSubscriptionInfoList(mContext));
+        synchronized (mPendingLock) {
+            mIsSubInfoListChanged = true;
+            scheduleFlushLocked();
+        }
+    }
+
+    private void scheduleMobileNetworkInfoUpdate(int subId) {
+        synchronized (mPendingLock) {
+            mPendingMobileNetworkInfoSubIds.add(subId);
+            scheduleFlushLocked();
+        }
+    }
+
+    @GuardedBy("mPendingLock")
+    private void scheduleFlushLocked() {
+        mUpdateRequestCount++;
+        if (!mIsFlushScheduled) {
+            mIsFlushScheduled = true;
+            mHandler.postDelayed(mFlushRunnable, WRITE_DELAY_MS);
+        }
+    }
+
+    /**
+     * Applies the changes which are collected since the last flush, the subscription list is only
+     * loaded once however many times it's changed, and all the writes are done in one transaction.
+     */
+    private void flushPendingUpdates() {
+        final boolean isSubInfoListChanged;
+        final Integer[] subIds;
+        synchronized (mPendingLock) {
+            isSubInfoListChanged = mIsSubInfoListChanged;
+            subIds = mPendingMobileNetworkInfoSubIds.toArray(new Integer[0]);
+            mIsSubInfoListChanged = false;
+            mPendingMobileNetworkInfoSubIds.clear();
+            mIsFlushScheduled = false;
+        }
+
+        if (isSubInfoListChanged) {
+            insertAvailableSubInfoToEntity(
+                    SubscriptionUtil.getSelectableSubscriptionInfoList(mContext));
+        }
+        for (int subId : subIds) {
+            // The subscription is removed above, its network info is not written back.
+            if (mPendingWrites.isDeleted(subId) && !mSubscriptionInfoMap.containsKey(subId)) {
+                continue;
+            }
+            insertMobileNetworkInfo(mContext, subId, getTelephonyManagerBySubId(mContext, subId));
+        }
+        if (mPendingWrites.isEmpty()) {
+            return;
+        }
+        mMobileNetworkDatabase.runInTransaction(() -> mPendingWrites.writeTo(
+                mMobileNetworkDatabase));
+        mPendingWrites.clear();
+        synchronized (mPendingLock) {
+            mWriteTransactionCount++;
+        }
     }
 
     private void insertAvailableSubInfoToEntity(List<SubscriptionInfo> inputAvailableInfoList) {
-        sExecutor.execute(() -> {
-            SubscriptionInfoEntity[] availableInfoArray = null;
-            int availableEntitySize = 0;
-            synchronized (this) {
-                availableInfoArray = mAvailableSubInfoEntityList.toArray(
-                    new SubscriptionInfoEntity[0]);
-                availableEntitySize = mAvailableSubInfoEntityList.size();
+        SubscriptionInfoEntity[] availableInfoArray = null;
+        int availableEntitySize = 0;
+        synchronized (this) {
+            availableInfoArray = mAvailableSubInfoEntityList.toArray(
+                new SubscriptionInfoEntity[0]);
+            availableEntitySize = mAvailableSubInfoEntityList.size();
+        }
+        if ((inputAvailableInfoList == null || inputAvailableInfoList.size() == 0)
+                && availableEntitySize != 0) {
+            if (DEBUG) {
+                Log.d(TAG, "availableSudInfoList from framework is empty, remove all subs");
             }
-            if ((inputAvailableInfoList == null || inputAvailableInfoList.size() == 0)
-                    && availableEntitySize != 0) {
-                if (DEBUG) {
-                    Log.d(TAG, "availableSudInfoList from framework is empty, remove all subs");
-                }
 
-                for (SubscriptionInfoEntity info : availableInfoArray) {
-                    deleteAllInfoBySubId(info.subId);
-                }
+            for (SubscriptionInfoEntity info : availableInfoArray) {
+                deleteAllInfoBySubId(info.subId);
+            }
 
-            } else if (inputAvailableInfoList != null) {
-                SubscriptionInfo[] inputAvailableInfoArray = inputAvailableInfoList.toArray(
-                        new SubscriptionInfo[0]);
-                // Remove the redundant subInfo
-                if (inputAvailableInfoList.size() <= availableEntitySize) {
-                    for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
-                        int subId = subInfo.getSubscriptionId();
-                        if (mSubscriptionInfoMap.containsKey(subId)) {
-                            mSubscriptionInfoMap.remove(subId);
-                        }
+        } else if (inputAvailableInfoList != null) {
+            SubscriptionInfo[] inputAvailableInfoArray = inputAvailableInfoList.toArray(
+                    new SubscriptionInfo[0]);
+            // Remove the redundant subInfo
+            if (inputAvailableInfoList.size() <= availableEntitySize) {
+                for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+                    int subId = subInfo.getSubscriptionId();
+                    if (mSubscriptionInfoMap.containsKey(subId)) {
+                        mSubscriptionInfoMap.remove(subId);
                     }
+                }
 
-                    if (!mSubscriptionInfoMap.isEmpty()) {
-                        for (Integer key : mSubscriptionInfoMap.keySet()) {
-                            if (key != null) {
-                                deleteAllInfoBySubId(String.valueOf(key));
-                            }
+                if (!mSubscriptionInfoMap.isEmpty()) {
+                    for (Integer key : mSubscriptionInfoMap.keySet()) {
+                        if (key != null) {
+                            deleteAllInfoBySubId(String.valueOf(key));
                         }
-                    } else if (inputAvailableInfoList.size() < availableEntitySize) {
-                        // Check the subInfo between the new list from framework and old list in
-                        // the database, if the subInfo is not existed in the new list, delete it
-                        // from the database.
-                        for (SubscriptionInfoEntity info : availableInfoArray) {
-                            if (sCacheSubscriptionInfoEntityMap.containsKey(info.getSubId())) {
-                                deleteAllInfoBySubId(info.subId);
-                            }
+                    }
+                } else if (inputAvailableInfoList.size() < availableEntitySize) {
+                    // Check the subInfo between the new list from framework and old list in
+                    // the database, if the subInfo is not existed in the new list, delete it
+                    // from the database.
+                    for (SubscriptionInfoEntity info : availableInfoArray) {
+                        if (sCacheSubscriptionInfoEntityMap.containsKey(info.getSubId())) {
+                            deleteAllInfoBySubId(info.subId);
                         }
                     }
                 }
+            }
 
-                // Insert all new available subInfo to database.
-                for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+            // Insert all new available subInfo to database.
+            for (SubscriptionInfo subInfo : inputAvailableInfoArray) {
+                if (DEBUG) {
+                    Log.d(TAG, "insert subInfo to subInfoEntity, subInfo = " + subInfo);
+                }
+                if (subInfo.isEmbedded()
+                        && subInfo.getProfileClass() == PROFILE_CLASS_PROVISIONING) {
                     if (DEBUG) {
-                        Log.d(TAG, "insert subInfo to subInfoEntity, subInfo = " + subInfo);
+                        Log.d(TAG, "Do not insert the provision eSIM");
                     }
-                    if (subInfo.isEmbedded()
-                            && subInfo.getProfileClass() == PROFILE_CLASS_PROVISIONING) {
-                        if (DEBUG) {
-                            Log.d(TAG, "Do not insert the provision eSIM");
-                        }
-                        continue;
-                    }
-                    mSubscriptionInfoMap.put(subInfo.getSubscriptionId(), subInfo);
-                    insertSubInfo(mContext, subInfo);
+                    continue;
                 }
+                mSubscriptionInfoMap.put(subInfo.getSubscriptionId(), subInfo);
+                insertSubInfo(mContext, subInfo);
             }
-        });
+        }
+    }
+
+    /** The database writes of a flush, only the last entity of a subscription is written. */
+    @VisibleForTesting
+    static class PendingWrites {
+        final ArraySet<String> mDeletedSubIds = new ArraySet<>();
+        final Map<Integer, SubscriptionInfoEntity> mSubInfos = new ArrayMap<>();
+        final Map<Integer, UiccInfoEntity> mUiccInfos = new ArrayMap<>();
+        final Map<Integer, MobileNetworkInfoEntity> mMobileNetworkInfos = new ArrayMap<>();
+
+        void delete(String subId) {
+            final int id = Integer.parseInt(subId);
+            mSubInfos.remove(id);
+            mUiccInfos.remove(id);
+            mMobileNetworkInfos.remove(id);
+            mDeletedSubIds.add(subId);
+        }
+
+        boolean isDeleted(int subId) {
+            return mDeletedSubIds.contains(String.valueOf(subId));
+        }
+
+        boolean isEmpty() {
+            return mDeletedSubIds.isEmpty() && mSubInfos.isEmpty() && mUiccInfos.isEmpty()
+                    && mMobileNetworkInfos.isEmpty();
+        }
+
+        /** Writes the deletions first, since a subscription can be inserted again after them. */
+        void writeTo(MobileNetworkDatabase database) {
+            for (String subId : mDeletedSubIds) {
+                database.deleteSubInfoBySubId(subId);
+                database.deleteUiccInfoBySubId(subId);
+                database.deleteMobileNetworkInfoBySubId(subId);
+            }
+            if (!mSubInfos.isEmpty()) {
+                database.insertSubsInfo(
+                        mSubInfos.values().toArray(new SubscriptionInfoEntity[0]));
+            }
+            if (!mUiccInfos.isEmpty()) {
+                database.insertUiccInfo(mUiccInfos.values().toArray(new UiccInfoEntity[0]));
+            }
+            if (!mMobileNetworkInfos.isEmpty()) {
+                database.insertMobileNetworkInfo(
+                        mMobileNetworkInfos.values().toArray(new MobileNetworkInfoEntity[0]));
+            }
+        }
+
+        void clear() {
+            mDeletedSubIds.clear();
+            mSubInfos.clear();
+            mUiccInfos.clear();
+            mMobileNetworkInfos.clear();
+        }
     }
 
     public boolean isAirplaneModeOn() {
@@ -835,6 +956,10 @@ public class MobileNetworkRepository extends SubscriptionManager.OnSubscriptions
         printwriter.println(" uiccInfoEntityList= " + mUiccInfoEntityList);
         printwriter.println(" CacheSubscriptionInfoEntityMap= " + sCacheSubscriptionInfoEntityMap);
         printwriter.println(" SubscriptionInfoMap= " + mSubscriptionInfoMap);
+        synchronized (mPendingLock) {
+            printwriter.println(" updateRequests= " + mUpdateRequestCount
+                    + ", writeTransactions= " + mWriteTransactionCount);
+        }
         printwriter.flush();
         printwriter.decreaseIndent();
     }
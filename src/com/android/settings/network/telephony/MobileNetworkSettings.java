@@ -63,6 +63,7 @@ import com.android.settings.Settings.MobileNetworkActivity;
 import com.android.settings.SettingsActivity;
 import com.android.settings.datausage.BillingCyclePreferenceController;
 import com.android.settings.datausage.DataUsageSummaryPreferenceController;
+import com.android.settings.network.CarrierConfigCache;
 import com.android.settings.network.CarrierWifiTogglePreferenceController;
 import com.android.settings.network.MobileNetworkRepository;
 import com.android.settings.network.SubscriptionUtil;
@@ -353,6 +354,8 @@ public class MobileNetworkSettings extends AbstractMobileNetworkSettings impleme
 
     @Override
     public void onAttach(Context context) {
+        // The preference controllers read the carrier configs while the page is created.
+        CarrierConfigCache.getInstance(context).prefetchActiveSubscriptions(context);
         super.onAttach(context);
 
         if (mSubId == SubscriptionManager.INVALID_SUBSCRIPTION_ID) {
@@ -21,23 +21,49 @@ import android.app.NotificationHistory.HistoricalNotification;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.os.LocaleList;
+import android.os.SystemClock;
 import android.os.UserHandle;
+import android.util.ArrayMap;
+import android.util.LruCache;
 import android.util.Slog;
+import android.util.SparseArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.notification.NotificationBackend;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 
+/**
+ * Loads the notification history grouped by package, and delivers the packages in pages with the
+ * most recent ones first so the top of the list is shown before all the labels and icons are
+ * resolved.
+ */
 public class HistoryLoader {
     private static final String TAG = "HistoryLoader";
+
+    @VisibleForTesting
+    static final int PAGE_SIZE = 8;
+    private static final int MAX_CACHED_APPS = 64;
+
+    // The labels and icons are shared by the loads, the history page is often opened again. An
+    // entry is dropped once its package is updated, and all of them once the locales change.
+    private static final LruCache<AppKey, AppInfo> sAppInfoCache =
+            new LruCache<>(MAX_CACHED_APPS);
+    @GuardedBy("sAppInfoCache")
+    private static LocaleList sCachedLocales;
+
     private final Context mContext;
     private final NotificationBackend mBackend;
     private final PackageManager mPm;
+    private volatile boolean mIsCanceled;
 
     public HistoryLoader(Context context, NotificationBackend backend, PackageManager pm) {
         mContext = context;
@@ -48,52 +74,175 @@ public class HistoryLoader {
     public void load(OnHistoryLoaderListener listener) {
         ThreadUtils.postOnBackgroundThread(() -> {
             try {
-                Map<String, NotificationHistoryPackage> historicalNotifications = new HashMap<>();
-                NotificationHistory history =
+                final long startTime = SystemClock.elapsedRealtime();
+                clearAppInfoCacheIfLocalesChanged(
+                        mContext.getResources().getConfiguration().getLocales());
+                final List<NotificationHistoryPackage> packages = groupByPackage(
                         mBackend.getNotificationHistory(mContext.getPackageName(),
-                                mContext.getAttributionTag());
-                while (history.hasNextNotification()) {
-                    HistoricalNotification hn = history.getNextNotification();
-
-                    String key = hn.getPackage() + "|" + hn.getUid();
-                    NotificationHistoryPackage hnsForPackage = historicalNotifications.getOrDefault(
-                            key,
-                            new NotificationHistoryPackage(hn.getPackage(), hn.getUid()));
-                    hnsForPackage.notifications.add(hn);
-                    historicalNotifications.put(key, hnsForPackage);
-                }
-                List<NotificationHistoryPackage> packages =
-                        new ArrayList<>(historicalNotifications.values());
+                                mContext.getAttributionTag()));
                 Collections.sort(packages,
                         (o1, o2) -> -1 * Long.compare(o1.getMostRecent(), o2.getMostRecent()));
-                for (NotificationHistoryPackage nhp : packages) {
-                    ApplicationInfo info;
-                    try {
-                        info = mPm.getApplicationInfoAsUser(
-                                nhp.pkgName,
-                                PackageManager.MATCH_UNINSTALLED_PACKAGES
-                                        | PackageManager.MATCH_DISABLED_COMPONENTS
-                                        | PackageManager.MATCH_DIRECT_BOOT_UNAWARE
-                                        | PackageManager.MATCH_DIRECT_BOOT_AWARE,
-                                UserHandle.getUserId(nhp.uid));
-                        if (info != null) {
-                            nhp.label = String.valueOf(mPm.getApplicationLabel(info));
-                            nhp.icon = mPm.getUserBadgedIcon(mPm.getApplicationIcon(info),
-                                    UserHandle.of(UserHandle.getUserId(nhp.uid)));
-                        }
-                    } catch (PackageManager.NameNotFoundException e) {
-                        // app is gone, just show package name and generic icon
-                        nhp.icon = mPm.getDefaultActivityIcon();
+                for (int offset = 0; offset < packages.size(); offset += PAGE_SIZE) {
+                    if (mIsCanceled) {
+                        return;
                     }
+                    final List<NotificationHistoryPackage> page = packages.subList(offset,
+                            Math.min(offset + PAGE_SIZE, packages.size()));
+                    for (NotificationHistoryPackage nhp : page) {
+                        loadAppInfo(nhp);
+                    }
+                    final int pageOffset = offset;
+                    ThreadUtils.postOnMainThread(() -> {
+                        if (!mIsCanceled) {
+                            listener.onHistoryPageLoaded(page, pageOffset);
+                        }
+                    });
                 }
-                ThreadUtils.postOnMainThread(() -> listener.onHistoryLoaded(packages));
+                ThreadUtils.postOnMainThread(() -> {
+                    if (!mIsCanceled) {
+                        listener.onHistoryLoaded(packages.size());
+                    }
+                });
+                Slog.d(TAG, String.format("Loaded %d packages in %d ms", packages.size(),
+                        SystemClock.elapsedRealtime() - startTime));
             } catch (Exception e) {
                 Slog.e(TAG, "Error loading history", e);
             }
         });
     }
 
+    /** Stops delivering the pages, e.g. when the history is loaded again. */
+    public void cancel() {
+        mIsCanceled = true;
+    }
+
+    @VisibleForTesting
+    static List<NotificationHistoryPackage> groupByPackage(NotificationHistory history) {
+        final List<NotificationHistoryPackage> packages = new ArrayList<>();
+        final SparseArray<ArrayMap<String, NotificationHistoryPackage>> packagesByUid =
+                new SparseArray<>();
+        while (history.hasNextNotification()) {
+            final HistoricalNotification hn = history.getNextNotification();
+            ArrayMap<String, NotificationHistoryPackage> packagesOfUid =
+                    packagesByUid.get(hn.getUid());
+            if (packagesOfUid == null) {
+                packagesOfUid = new ArrayMap<>();
+                packagesByUid.put(hn.getUid(), packagesOfUid);
+            }
+            NotificationHistoryPackage hnsForPackage = packagesOfUid.get(hn.getPackage());
+            if (hnsForPackage == null) {
+                hnsForPackage = new NotificationHistoryPackage(hn.getPackage(), hn.getUid());
+                packagesOfUid.put(hn.getPackage(), hnsForPackage);
+                packages.add(hnsForPackage);
+            }
+            hnsForPackage.notifications.add(hn);
+        }
+        return packages;
+    }
+
+    private void loadAppInfo(NotificationHistoryPackage nhp) {
+        final ApplicationInfo info;
+        try {
+            info = mPm.getApplicationInfoAsUser(
+                    nhp.pkgName,
+                    PackageManager.MATCH_UNINSTALLED_PACKAGES
+                            | PackageManager.MATCH_DISABLED_COMPONENTS
+                            | PackageManager.MATCH_DIRECT_BOOT_UNAWARE
+                            | PackageManager.MATCH_DIRECT_BOOT_AWARE,
+                    UserHandle.getUserId(nhp.uid));
+        } catch (PackageManager.NameNotFoundException e) {
+            // app is gone, just show package name and generic icon
+            nhp.icon = mPm.getDefaultActivityIcon();
+            return;
+        }
+        if (info == null) {
+            return;
+        }
+        final AppKey key = new AppKey(nhp.uid, nhp.pkgName);
+        final String version = info.sourceDir + "@" + info.longVersionCode;
+        AppInfo appInfo = sAppInfoCache.get(key);
+        if (appInfo == null || !appInfo.mVersion.equals(version)) {
+            appInfo = new AppInfo(String.valueOf(mPm.getApplicationLabel(info)),
+                    mPm.getUserBadgedIcon(mPm.getApplicationIcon(info),
+                            UserHandle.of(UserHandle.getUserId(nhp.uid))),
+                    version);
+            // An icon without a constant state can't be copied for the rows of the next loads.
+            if (appInfo.mIcon.getConstantState() != null) {
+                sAppInfoCache.put(key, appInfo);
+            } else {
+                sAppInfoCache.remove(key);
+            }
+        }
+        nhp.label = appInfo.mLabel;
+        // The drawables are shown by several loads, each row needs its own state.
+        nhp.icon = appInfo.mIcon.getConstantState() != null
+                ? appInfo.mIcon.getConstantState().newDrawable(mContext.getResources())
+                : appInfo.mIcon;
+    }
+
+    private static void clearAppInfoCacheIfLocalesChanged(LocaleList locales) {
+        synchronized (sAppInfoCache) {
+            if (!locales.equals(sCachedLocales)) {
+                sAppInfoCache.evictAll();
+                sCachedLocales = locales;
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static void clearAppInfoCache() {
+        synchronized (sAppInfoCache) {
+            sAppInfoCache.evictAll();
+            sCachedLocales = null;
+        }
+    }
+
     interface OnHistoryLoaderListener {
-        void onHistoryLoaded(List<NotificationHistoryPackage> notificationsByPackage);
+        /**
+         * Called on the main thread with each page of packages, the most recent first.
+         *
+         * @param offset the position of the first package of the page in the whole list.
+         */
+        void onHistoryPageLoaded(List<NotificationHistoryPackage> page, int offset);
+
+        /** Called on the main thread after the last page. */
+        void onHistoryLoaded(int packageCount);
+    }
+
+    private static final class AppKey {
+        private final int mUid;
+        private final String mPackageName;
+
+        AppKey(int uid, String packageName) {
+            mUid = uid;
+            mPackageName = packageName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AppKey)) {
+                return false;
+            }
+            final AppKey other = (AppKey) o;
+            return mUid == other.mUid && Objects.equals(mPackageName, other.mPackageName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mUid + Objects.hashCode(mPackageName);
+        }
+    }
+
+    private static final class AppInfo {
+        private final CharSequence mLabel;
+        private final Drawable mIcon;
+        // The package is updated if its source dir or version code differs.
+        private final String mVersion;
+
+        AppInfo(CharSequence label, Drawable icon, String version) {
+            mLabel = label;
+            mIcon = icon;
+            mVersion = version;
+        }
     }
 }
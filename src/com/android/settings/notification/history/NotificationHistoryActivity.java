@@ -68,6 +68,7 @@ import com.android.settingslib.widget.OnMainSwitchChangeListener;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -156,14 +157,31 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         }
     }
 
-    private HistoryLoader.OnHistoryLoaderListener mOnHistoryLoaderListener = notifications -> {
-        findViewById(R.id.today_list).setVisibility(
-                notifications.isEmpty() ? View.GONE : View.VISIBLE);
-        mCountdownLatch.countDown();
-        View recyclerView = mTodayView.findViewById(R.id.apps);
-        recyclerView.setClipToOutline(true);
-        mTodayView.setOutlineProvider(mOutlineProvider);
-        mSnoozeView.setOutlineProvider(mOutlineProvider);
+    private final HistoryLoader.OnHistoryLoaderListener mOnHistoryLoaderListener =
+            new HistoryLoader.OnHistoryLoaderListener() {
+        @Override
+        public void onHistoryPageLoaded(List<NotificationHistoryPackage> page, int offset) {
+            if (offset == 0) {
+                // Show the most recent packages right away, the next pages are appended.
+                findViewById(R.id.today_list).setVisibility(View.VISIBLE);
+                View recyclerView = mTodayView.findViewById(R.id.apps);
+                recyclerView.setClipToOutline(true);
+                mTodayView.setOutlineProvider(mOutlineProvider);
+                mSnoozeView.setOutlineProvider(mOutlineProvider);
+            }
+            addPackageViews(page, offset);
+        }
+
+        @Override
+        public void onHistoryLoaded(int packageCount) {
+            if (packageCount == 0) {
+                findViewById(R.id.today_list).setVisibility(View.GONE);
+            }
+            mCountdownLatch.countDown();
+        }
+    };
+
+    private void addPackageViews(List<NotificationHistoryPackage> notifications, int offset) {
         // for each package, new header and recycler view
         for (int i = 0, notificationsSize = notifications.size(); i < notificationsSize; i++) {
             NotificationHistoryPackage nhp = notifications.get(i);
@@ -184,7 +202,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
             header.setStateDescription(container.getVisibility() == View.VISIBLE
                     ? getString(R.string.condition_expand_hide)
                     : getString(R.string.condition_expand_show));
-            int finalI = i;
+            int finalI = offset + i;
             header.setOnClickListener(v -> {
                 container.setVisibility(container.getVisibility() == View.VISIBLE
                         ? View.GONE : View.VISIBLE);
@@ -225,7 +243,15 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
 
             mTodayView.addView(viewForPackage);
         }
-    };
+    }
+
+    private void clearTodayView() {
+        // The pages which are still loading must not be added back.
+        if (mHistoryLoader != null) {
+            mHistoryLoader.cancel();
+        }
+        mTodayView.removeAllViews();
+    }
 
     private void configureNotificationList(View recyclerView) {
         recyclerView.setClipToOutline(true);
@@ -266,7 +292,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         // wait for history loading and recent/snooze loading
         mCountdownLatch = new CountDownLatch(2);
 
-        mTodayView.removeAllViews();
+        clearTodayView();
         mHistoryLoader = new HistoryLoader(this, new NotificationBackend(), mPm);
         mHistoryLoader.load(mOnHistoryLoaderListener);
 
@@ -350,7 +376,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         } else {
             mHistoryOn.setVisibility(View.GONE);
             mHistoryOff.setVisibility(View.VISIBLE);
-            mTodayView.removeAllViews();
+            clearTodayView();
         }
         mHistoryEmpty.setVisibility(View.GONE);
     }
@@ -382,7 +408,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
                     mHistoryOff.setVisibility(View.VISIBLE);
                     mHistoryEmpty.setVisibility(View.GONE);
                 }
-                mTodayView.removeAllViews();
+                clearTodayView();
             };
 
     private final NotificationListenerService mListener = new NotificationListenerService() {
@@ -29,6 +29,7 @@ import android.provider.SearchIndexableResource;
 import android.util.Log;
 
 import androidx.annotation.CallSuper;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.core.BasePreferenceController;
@@ -167,6 +168,63 @@ public class BaseSearchIndexProvider implements Indexable.SearchIndexProvider {
         return null;
     }
 
+    /**
+     * Returns the inputs which the overridden methods of this provider depend on, so that the
+     * non-indexable keys and the raw data of this page can be cached until any of the inputs
+     * change. The availability of the controllers is checked by the cache itself. Returns null if
+     * they can't be cached, e.g. they depend on the hardware or the network state.
+     *
+     * <p>A provider which only indexes its xml has no inputs besides the controllers.</p>
+     */
+    @Nullable
+    public SearchIndexableCache.Inputs getCacheInputs(Context context) {
+        return getClass() == BaseSearchIndexProvider.class ? new SearchIndexableCache.Inputs()
+                : null;
+    }
+
+    /**
+     * Returns the search availability of this page and of its controllers, which the
+     * non-indexable keys depend on. Returns null if a controller decides its non-indexable keys
+     * by itself, so they can't be cached.
+     */
+    @Nullable
+    String getSearchAvailabilityFingerprint(Context context) {
+        if (!isPageSearchEnabled(context)) {
+            return "disabled";
+        }
+        final StringBuilder builder = new StringBuilder("enabled;");
+        final List<AbstractPreferenceController> controllers = getPreferenceControllers(context);
+        if (controllers == null) {
+            return builder.toString();
+        }
+        for (AbstractPreferenceController controller : controllers) {
+            if (overridesUpdateNonIndexableKeys(controller)) {
+                return null;
+            }
+            builder.append(controller.getPreferenceKey()).append('=')
+                    .append(controller.isAvailable());
+            if (controller instanceof BasePreferenceController) {
+                builder.append('/').append(
+                        ((BasePreferenceController) controller).getAvailabilityStatus());
+            }
+            builder.append(';');
+        }
+        return builder.toString();
+    }
+
+    private static boolean overridesUpdateNonIndexableKeys(
+            AbstractPreferenceController controller) {
+        try {
+            final Class<?> declaringClass = controller.getClass()
+                    .getMethod("updateNonIndexableKeys", List.class).getDeclaringClass();
+            return declaringClass != BasePreferenceController.class
+                    && declaringClass != PreferenceControllerMixin.class;
+        } catch (NoSuchMethodException e) {
+            // Such a controller is always non-indexable.
+            return false;
+        }
+    }
+
     /**
      * Returns true if the page should be considered in search query. If return false, entire page
      * will be suppressed during search query.
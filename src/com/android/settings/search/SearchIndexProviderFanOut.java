@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.search.SearchIndexableData;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queries the search index provider of each {@link SearchIndexableData} concurrently in a
+ * bounded worker pool, so that a single slow controller doesn't hold up the other providers.
+ *
+ * <p>The providers run concurrently on the worker threads instead of one after another on the
+ * binder thread, so they must not depend on the order they run in or share unsynchronized state
+ * with other providers. No provider result is dropped for being slow: the providers which take
+ * longer than 3 seconds are only logged, and if the fan-out isn't done within 20 seconds, e.g.
+ * the worker threads are all blocked, the providers which haven't started yet run serially on
+ * the calling thread. The timing of the latest run of each query is logged and kept for
+ * dumpsys.</p>
+ */
+public final class SearchIndexProviderFanOut {
+    private static final String TAG = "SearchIndexFanOut";
+
+    private static final int MAX_THREADS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+    private static final long SLOW_PROVIDER_TIME_MS = 3_000L;
+    /** The deadline of the worker threads, in case they are all blocked. */
+    private static final long FAN_OUT_TIMEOUT_MS = 20_000L;
+
+    // For testing only.
+    @VisibleForTesting
+    static long sSlowProviderTimeMs = SLOW_PROVIDER_TIME_MS;
+    @VisibleForTesting
+    static long sFanOutTimeoutMs = FAN_OUT_TIMEOUT_MS;
+
+    private static final ThreadPoolExecutor sExecutor = createExecutor();
+    private static final Map<String, QueryStats> sQueryStats = new ArrayMap<>();
+
+    /** Queries one provider, returns null if the provider has nothing to index. */
+    interface ProviderQuery<T> {
+        T query(SearchIndexableData bundle) throws Exception;
+    }
+
+    private SearchIndexProviderFanOut() {
+    }
+
+    /**
+     * Runs the query for all the bundles and returns the non-null results in the bundle order,
+     * the providers which throw are skipped.
+     *
+     * @throws RuntimeException if a provider throws and
+     *     {@link SettingsSearchIndexablesProvider#SYSPROP_CRASH_ON_ERROR} is set
+     */
+    static <T> List<T> query(
+            String queryName, Collection<SearchIndexableData> bundles, ProviderQuery<T> query) {
+        final long startTime = SystemClock.elapsedRealtime();
+        final List<ProviderTask<T>> tasks = new ArrayList<>(bundles.size());
+        for (SearchIndexableData bundle : bundles) {
+            final ProviderTask<T> task = new ProviderTask<>(bundle, query);
+            tasks.add(task);
+            sExecutor.execute(task);
+        }
+
+        final QueryStats stats = new QueryStats(tasks.size());
+        final List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (!awaitTasks(tasks, startTime + sFanOutTimeoutMs)) {
+                // The worker threads are blocked, runs the pending providers on this thread.
+                for (ProviderTask<T> task : tasks) {
+                    if (task.runIfNotStarted()) {
+                        stats.mSerialCount++;
+                    }
+                }
+                Log.w(TAG, queryName + " ran " + stats.mSerialCount
+                        + " providers serially after the fan-out timeout");
+            }
+            for (ProviderTask<T> task : tasks) {
+                final T result = getResult(queryName, task, stats);
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.w(TAG, queryName + " is interrupted", e);
+            Thread.currentThread().interrupt();
+            // The running providers are left to finish, only the pending ones are skipped.
+            for (ProviderTask<T> task : tasks) {
+                task.cancel(/* mayInterruptIfRunning= */ false);
+            }
+        }
+
+        stats.mElapsedTimeMs = SystemClock.elapsedRealtime() - startTime;
+        synchronized (sQueryStats) {
+            sQueryStats.put(queryName, stats);
+        }
+        Log.i(TAG, queryName + ": " + stats);
+        return results;
+    }
+
+    /** Returns false if the tasks are not all done before the deadline. */
+    private static <T> boolean awaitTasks(List<ProviderTask<T>> tasks, long deadline)
+            throws InterruptedException {
+        for (ProviderTask<T> task : tasks) {
+            try {
+                task.get(Math.max(0L, deadline - SystemClock.elapsedRealtime()),
+                        TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                // Handled when the result is read.
+            } catch (TimeoutException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Waits for the provider and returns its result, or null if it throws. */
+    private static <T> T getResult(String queryName, ProviderTask<T> task, QueryStats stats)
+            throws InterruptedException {
+        final String providerName = task.getProviderName();
+        T result = null;
+        try {
+            result = task.get();
+        } catch (ExecutionException e) {
+            // Catch a generic crash, we crash when the system property exists so that we can
+            // test if crashes need to be fixed.
+            if (System.getProperty(SettingsSearchIndexablesProvider.SYSPROP_CRASH_ON_ERROR)
+                    != null) {
+                throw new RuntimeException(e.getCause());
+            }
+            stats.mFailedCount++;
+            Log.e(TAG, "Error trying to " + queryName + " from: " + providerName, e.getCause());
+        }
+        final long elapsedTime = task.getElapsedTime();
+        if (elapsedTime > sSlowProviderTimeMs) {
+            stats.mSlowCount++;
+            Log.w(TAG, queryName + " is slow for: " + providerName + " in " + elapsedTime + " ms");
+        }
+        stats.addProviderTime(providerName, elapsedTime);
+        return result;
+    }
+
+    /** Returns the timing metrics of the latest run of each query for dumpsys. */
+    public static JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        synchronized (sQueryStats) {
+            for (Map.Entry<String, QueryStats> entry : sQueryStats.entrySet()) {
+                obj.put(entry.getKey(), entry.getValue().toString());
+            }
+        }
+        return obj;
+    }
+
+    @VisibleForTesting
+    static void clearStats() {
+        synchronized (sQueryStats) {
+            sQueryStats.clear();
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_THREADS, MAX_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> new Thread(
+                        runnable, "SearchIndexFanOut-" + threadCount.incrementAndGet()));
+        // Only keeps the threads while indexing.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** Queries one provider, on a worker thread or on the calling thread. */
+    private static final class ProviderTask<T> extends FutureTask<T> {
+        private final SearchIndexableData mBundle;
+        private final AtomicBoolean mStarted = new AtomicBoolean();
+        private volatile long mStartTime;
+        private volatile long mEndTime;
+
+        ProviderTask(SearchIndexableData bundle, ProviderQuery<T> query) {
+            super(() -> query.query(bundle));
+            mBundle = bundle;
+        }
+
+        @Override
+        public void run() {
+            runIfNotStarted();
+        }
+
+        /** Runs the provider on the current thread, returns false if it already started. */
+        boolean runIfNotStarted() {
+            if (!mStarted.compareAndSet(false, true)) {
+                return false;
+            }
+            mStartTime = SystemClock.elapsedRealtime();
+            try {
+                super.run();
+            } finally {
+                mEndTime = SystemClock.elapsedRealtime();
+            }
+            return true;
+        }
+
+        String getProviderName() {
+            return mBundle.getTargetClass().getName();
+        }
+
+        long getElapsedTime() {
+            final long startTime = mStartTime;
+            if (startTime == 0L) {
+                return 0L;
+            }
+            final long endTime = mEndTime;
+            return (endTime == 0L ? SystemClock.elapsedRealtime() : endTime) - startTime;
+        }
+    }
+
+    /** Timing metrics of one run of a query. */
+    private static final class QueryStats {
+        private final int mProviderCount;
+        private int mFailedCount;
+        private int mSlowCount;
+        private int mSerialCount;
+        private long mElapsedTimeMs;
+        private long mTotalProviderTimeMs;
+        private long mSlowestProviderTimeMs;
+        private String mSlowestProvider;
+
+        QueryStats(int providerCount) {
+            mProviderCount = providerCount;
+        }
+
+        void addProviderTime(String providerName, long elapsedTimeMs) {
+            mTotalProviderTimeMs += elapsedTimeMs;
+            if (elapsedTimeMs > mSlowestProviderTimeMs) {
+                mSlowestProviderTimeMs = elapsedTimeMs;
+                mSlowestProvider = providerName;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("providers=%d failed=%d slow=%d serial=%d in %d/ms"
+                            + " (total provider time %d/ms, slowest %s in %d/ms)",
+                    mProviderCount, mFailedCount, mSlowCount, mSerialCount, mElapsedTimeMs,
+                    mTotalProviderTimeMs, mSlowestProvider, mSlowestProviderTimeMs);
+        }
+    }
+}
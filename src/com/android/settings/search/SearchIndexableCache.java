@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.UserManager;
+import android.provider.Settings;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.search.SearchIndexableData;
+import com.android.settingslib.search.SearchIndexableRaw;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A disk-backed cache of the non-indexable keys and the raw data of the search index providers.
+ *
+ * <p>Only the providers which declare their {@link Inputs} in
+ * {@link BaseSearchIndexProvider#getCacheInputs(Context)} are cached. The whole cache is dropped
+ * when the build, the Settings package, the locale or the user restrictions change, and an entry
+ * of a provider is recomputed when any of its own inputs change. The non-indexable keys are also
+ * recomputed when the search availability of the page or of its controllers changes.</p>
+ */
+public class SearchIndexableCache {
+    private static final String TAG = "SearchIndexableCache";
+
+    @VisibleForTesting
+    static final String PREFS_FILE = "search_indexable_cache";
+    @VisibleForTesting
+    static final String KEY_FINGERPRINT = "fingerprint";
+    @VisibleForTesting
+    static final String QUERY_NON_INDEXABLE_KEYS = "non_indexable_keys";
+    @VisibleForTesting
+    static final String QUERY_RAW_DATA = "raw_data";
+
+    private static final String ENTRY_FINGERPRINT = "fingerprint";
+    private static final String ENTRY_DATA = "data";
+
+    private static final String RAW_TITLE = "title";
+    private static final String RAW_SUMMARY_ON = "summaryOn";
+    private static final String RAW_SUMMARY_OFF = "summaryOff";
+    private static final String RAW_ENTRIES = "entries";
+    private static final String RAW_KEYWORDS = "keywords";
+    private static final String RAW_SCREEN_TITLE = "screenTitle";
+    private static final String RAW_CLASS_NAME = "className";
+    private static final String RAW_ICON_RES_ID = "iconResId";
+    private static final String RAW_INTENT_ACTION = "intentAction";
+    private static final String RAW_INTENT_TARGET_PACKAGE = "intentTargetPackage";
+    private static final String RAW_INTENT_TARGET_CLASS = "intentTargetClass";
+    private static final String RAW_KEY = "key";
+    private static final String RAW_USER_ID = "userId";
+    private static final String RAW_RANK = "rank";
+    private static final String RAW_ENABLED = "enabled";
+    private static final String RAW_PACKAGE_NAME = "packageName";
+    private static final String RAW_LOCALE = "locale";
+
+    // The build, the Settings package and the user don't change while the process is alive.
+    private static String sProcessFingerprint;
+
+    private final Context mContext;
+    private final String mQueryName;
+    private final SharedPreferences mPrefs;
+    private final Map<String, String> mPendingWrites = new ArrayMap<>();
+    private final AtomicInteger mHitCount = new AtomicInteger();
+    private final AtomicInteger mMissCount = new AtomicInteger();
+
+    /**
+     * The settings and packages which the cached data of a provider depend on, besides the build,
+     * the Settings package, the locale and the user restrictions.
+     */
+    public static final class Inputs {
+        private final List<Uri> mSettingUris = new ArrayList<>();
+        private final List<String> mPackageNames = new ArrayList<>();
+
+        /**
+         * Adds a {@link Settings.Global}, {@link Settings.Secure} or {@link Settings.System} uri,
+         * e.g. {@code Settings.Global.getUriFor(Settings.Global.AUTO_TIME_ZONE)}.
+         */
+        public Inputs addSetting(Uri uri) {
+            mSettingUris.add(uri);
+            return this;
+        }
+
+        /** Adds a package whose version or enabled state the data depend on. */
+        public Inputs addPackage(String packageName) {
+            mPackageNames.add(packageName);
+            return this;
+        }
+
+        String getFingerprint(Context context) {
+            final StringBuilder builder = new StringBuilder();
+            final ContentResolver resolver = context.getContentResolver();
+            for (Uri uri : mSettingUris) {
+                builder.append(uri).append('=').append(getSettingValue(resolver, uri)).append(';');
+            }
+            for (String packageName : mPackageNames) {
+                builder.append(packageName).append('=')
+                        .append(getPackageFingerprint(context, packageName)).append(';');
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Opens the cache of a query, which is cleared first if the global fingerprint has changed.
+     */
+    static SearchIndexableCache open(Context context, String queryName) {
+        final SharedPreferences prefs =
+                context.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE);
+        final String fingerprint = getGlobalFingerprint(context);
+        if (!fingerprint.equals(prefs.getString(KEY_FINGERPRINT, null))) {
+            Log.i(TAG, "global fingerprint changed, clear the cache");
+            prefs.edit().clear().putString(KEY_FINGERPRINT, fingerprint).apply();
+        }
+        return new SearchIndexableCache(context, queryName, prefs);
+    }
+
+    private SearchIndexableCache(Context context, String queryName, SharedPreferences prefs) {
+        mContext = context;
+        mQueryName = queryName;
+        mPrefs = prefs;
+    }
+
+    /**
+     * Returns the cached non-indexable keys of the provider, or computes and caches them if the
+     * provider inputs have changed. This method is thread-safe.
+     */
+    List<String> getNonIndexableKeys(SearchIndexableData bundle, Loader<List<String>> loader)
+            throws Exception {
+        final String inputsFingerprint = getProviderFingerprint(bundle);
+        if (inputsFingerprint == null) {
+            return loader.load();
+        }
+        final String availabilityFingerprint =
+                ((BaseSearchIndexProvider) bundle.getSearchIndexProvider())
+                        .getSearchAvailabilityFingerprint(mContext);
+        if (availabilityFingerprint == null) {
+            return loader.load();
+        }
+        final String fingerprint = inputsFingerprint + "|" + availabilityFingerprint;
+        final JSONArray cached = getCachedData(bundle, fingerprint);
+        if (cached != null) {
+            final List<String> keys = new ArrayList<>(cached.length());
+            for (int i = 0; i < cached.length(); i++) {
+                keys.add(cached.getString(i));
+            }
+            return keys;
+        }
+        final List<String> keys = loader.load();
+        putCachedData(bundle, fingerprint, keys == null ? new JSONArray() : new JSONArray(keys));
+        return keys;
+    }
+
+    /**
+     * Returns the cached raw data of the provider, or computes and caches them if the provider
+     * inputs have changed. This method is thread-safe.
+     */
+    List<SearchIndexableRaw> getRawData(SearchIndexableData bundle,
+            Loader<List<SearchIndexableRaw>> loader) throws Exception {
+        final String fingerprint = getProviderFingerprint(bundle);
+        if (fingerprint == null) {
+            return loader.load();
+        }
+        final JSONArray cached = getCachedData(bundle, fingerprint);
+        if (cached != null) {
+            final List<SearchIndexableRaw> raws = new ArrayList<>(cached.length());
+            for (int i = 0; i < cached.length(); i++) {
+                raws.add(toSearchIndexableRaw(mContext, cached.getJSONObject(i)));
+            }
+            return raws;
+        }
+        final List<SearchIndexableRaw> raws = loader.load();
+        final JSONArray data = new JSONArray();
+        if (raws != null) {
+            for (SearchIndexableRaw raw : raws) {
+                data.put(toJson(raw));
+            }
+        }
+        putCachedData(bundle, fingerprint, data);
+        return raws;
+    }
+
+    /** Writes the recomputed entries to disk and logs the hit rate of this query. */
+    void commit() {
+        final SharedPreferences.Editor editor = mPrefs.edit();
+        synchronized (mPendingWrites) {
+            if (!mPendingWrites.isEmpty()) {
+                for (Map.Entry<String, String> entry : mPendingWrites.entrySet()) {
+                    editor.putString(entry.getKey(), entry.getValue());
+                }
+                editor.apply();
+                mPendingWrites.clear();
+            }
+        }
+        Log.i(TAG, String.format("%s hits=%d misses=%d", mQueryName, mHitCount.get(),
+                mMissCount.get()));
+    }
+
+    @VisibleForTesting
+    int getHitCount() {
+        return mHitCount.get();
+    }
+
+    @VisibleForTesting
+    int getMissCount() {
+        return mMissCount.get();
+    }
+
+    /** Computes the data of a provider on a cache miss. */
+    interface Loader<T> {
+        T load() throws Exception;
+    }
+
+    @Nullable
+    private String getProviderFingerprint(SearchIndexableData bundle) {
+        if (!(bundle.getSearchIndexProvider() instanceof BaseSearchIndexProvider)) {
+            return null;
+        }
+        final Inputs inputs = ((BaseSearchIndexProvider) bundle.getSearchIndexProvider())
+                .getCacheInputs(mContext);
+        return inputs == null ? null : inputs.getFingerprint(mContext);
+    }
+
+    @Nullable
+    private JSONArray getCachedData(SearchIndexableData bundle, String fingerprint) {
+        final String json = mPrefs.getString(getEntryKey(bundle), null);
+        if (json != null) {
+            try {
+                final JSONObject entry = new JSONObject(json);
+                if (fingerprint.equals(entry.getString(ENTRY_FINGERPRINT))) {
+                    mHitCount.incrementAndGet();
+                    return entry.getJSONArray(ENTRY_DATA);
+                }
+            } catch (JSONException e) {
+                Log.w(TAG, "invalid cache entry of " + bundle.getTargetClass().getName(), e);
+            }
+        }
+        mMissCount.incrementAndGet();
+        return null;
+    }
+
+    private void putCachedData(SearchIndexableData bundle, String fingerprint, JSONArray data)
+            throws JSONException {
+        final JSONObject entry = new JSONObject();
+        entry.put(ENTRY_FINGERPRINT, fingerprint);
+        entry.put(ENTRY_DATA, data);
+        synchronized (mPendingWrites) {
+            mPendingWrites.put(getEntryKey(bundle), entry.toString());
+        }
+    }
+
+    private String getEntryKey(SearchIndexableData bundle) {
+        return mQueryName + "/" + bundle.getTargetClass().getName();
+    }
+
+    @VisibleForTesting
+    static String getGlobalFingerprint(Context context) {
+        synchronized (SearchIndexableCache.class) {
+            if (sProcessFingerprint == null) {
+                sProcessFingerprint = Build.FINGERPRINT + ";"
+                        + getPackageFingerprint(context, context.getPackageName()) + ";"
+                        + context.getUserId() + ";";
+            }
+        }
+        final StringBuilder builder = new StringBuilder(sProcessFingerprint)
+                .append(context.getResources().getConfiguration().getLocales().toLanguageTags())
+                .append(';');
+        final Bundle restrictions =
+                context.getSystemService(UserManager.class).getUserRestrictions();
+        // Sorts the restrictions so that the fingerprint is stable.
+        for (String restriction : new TreeSet<>(restrictions.keySet())) {
+            if (restrictions.getBoolean(restriction)) {
+                builder.append(restriction).append(',');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String getPackageFingerprint(Context context, String packageName) {
+        try {
+            final PackageInfo info = context.getPackageManager().getPackageInfo(packageName,
+                    PackageManager.MATCH_DISABLED_COMPONENTS);
+            return info.getLongVersionCode() + "/" + info.lastUpdateTime + "/"
+                    + (info.applicationInfo != null && info.applicationInfo.enabled);
+        } catch (PackageManager.NameNotFoundException e) {
+            return "none";
+        }
+    }
+
+    @Nullable
+    private static String getSettingValue(ContentResolver resolver, Uri uri) {
+        final List<String> segments = uri.getPathSegments();
+        if (segments.size() != 2) {
+            return null;
+        }
+        final String table = segments.get(0);
+        final String name = segments.get(1);
+        if ("global".equals(table)) {
+            return Settings.Global.getString(resolver, name);
+        } else if ("secure".equals(table)) {
+            return Settings.Secure.getString(resolver, name);
+        } else if ("system".equals(table)) {
+            return Settings.System.getString(resolver, name);
+        }
+        return null;
+    }
+
+    private static JSONObject toJson(SearchIndexableRaw raw) throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put(RAW_TITLE, raw.title);
+        obj.put(RAW_SUMMARY_ON, raw.summaryOn);
+        obj.put(RAW_SUMMARY_OFF, raw.summaryOff);
+        obj.put(RAW_ENTRIES, raw.entries);
+        obj.put(RAW_KEYWORDS, raw.keywords);
+        obj.put(RAW_SCREEN_TITLE, raw.screenTitle);
+        obj.put(RAW_CLASS_NAME, raw.className);
+        obj.put(RAW_ICON_RES_ID, raw.iconResId);
+        obj.put(RAW_INTENT_ACTION, raw.intentAction);
+        obj.put(RAW_INTENT_TARGET_PACKAGE, raw.intentTargetPackage);
+        obj.put(RAW_INTENT_TARGET_CLASS, raw.intentTargetClass);
+        obj.put(RAW_KEY, raw.key);
+        obj.put(RAW_USER_ID, raw.userId);
+        obj.put(RAW_RANK, raw.rank);
+        obj.put(RAW_ENABLED, raw.enabled);
+        obj.put(RAW_PACKAGE_NAME, raw.packageName);
+        if (raw.locale != null) {
+            obj.put(RAW_LOCALE, raw.locale.toLanguageTag());
+        }
+        return obj;
+    }
+
+    private static SearchIndexableRaw toSearchIndexableRaw(Context context, JSONObject obj) {
+        final SearchIndexableRaw raw = new SearchIndexableRaw(context);
+        raw.title = obj.optString(RAW_TITLE, null);
+        raw.summaryOn = obj.optString(RAW_SUMMARY_ON, null);
+        raw.summaryOff = obj.optString(RAW_SUMMARY_OFF, null);
+        raw.entries = obj.optString(RAW_ENTRIES, null);
+        raw.keywords = obj.optString(RAW_KEYWORDS, null);
+        raw.screenTitle = obj.optString(RAW_SCREEN_TITLE, null);
+        raw.className = obj.optString(RAW_CLASS_NAME, null);
+        raw.iconResId = obj.optInt(RAW_ICON_RES_ID);
+        raw.intentAction = obj.optString(RAW_INTENT_ACTION, null);
+        raw.intentTargetPackage = obj.optString(RAW_INTENT_TARGET_PACKAGE, null);
+        raw.intentTargetClass = obj.optString(RAW_INTENT_TARGET_CLASS, null);
+        raw.key = obj.optString(RAW_KEY, null);
+        raw.userId = obj.optInt(RAW_USER_ID, raw.userId);
+        raw.rank = obj.optInt(RAW_RANK, raw.rank);
+        raw.enabled = obj.optBoolean(RAW_ENABLED, raw.enabled);
+        raw.packageName = obj.optString(RAW_PACKAGE_NAME, null);
+        final String locale = obj.optString(RAW_LOCALE, null);
+        if (locale != null) {
+            raw.locale = Locale.forLanguageTag(locale);
+        }
+        return raw;
+    }
+}
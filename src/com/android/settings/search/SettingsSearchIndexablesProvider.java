@@ -176,9 +176,8 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
+        rawList.addAll(getDynamicSearchIndexableRawData(context, bundles));
         for (SearchIndexableData bundle : bundles) {
-            rawList.addAll(getDynamicSearchIndexableRawData(context, bundle));
-
             // Refresh the search enabled state for indexing injection raw data
             final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
             if (provider instanceof BaseSearchIndexProvider) {
@@ -275,72 +274,71 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
         final List<String> nonIndexableKeys = new ArrayList<>();
-
-        for (SearchIndexableData bundle : bundles) {
-            final long startTime = System.currentTimeMillis();
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-            List<String> providerNonIndexableKeys;
-            try {
-                providerNonIndexableKeys = provider.getNonIndexableKeys(context);
-            } catch (Exception e) {
-                // Catch a generic crash. In the absence of the catch, the background thread will
-                // silently fail anyway, so we aren't losing information by catching the exception.
-                // We crash when the system property exists so that we can test if crashes need to
-                // be fixed.
-                // The gain is that if there is a crash in a specific controller, we don't lose all
-                // non-indexable keys, but we can still find specific crashes in development.
-                if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
-                    throw new RuntimeException(e);
-                }
-                Log.e(TAG, "Error trying to get non-indexable keys from: "
-                        + bundle.getTargetClass().getName(), e);
-                continue;
-            }
-
-            if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
-                if (DEBUG) {
-                    final long totalTime = System.currentTimeMillis() - startTime;
-                    Log.d(TAG, "No indexable, total time " + totalTime);
-                }
-                continue;
-            }
-
-            if (providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
-                Log.v(TAG, provider + " tried to add an empty non-indexable key");
-            }
-
-            if (DEBUG) {
-                final long totalTime = System.currentTimeMillis() - startTime;
-                Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size() + ", total time "
-                        + totalTime);
-            }
-
+        final SearchIndexableCache cache = SearchIndexableCache.open(
+                context, SearchIndexableCache.QUERY_NON_INDEXABLE_KEYS);
+        // The providers which throw are skipped, so that if there is a crash in a specific
+        // controller, we don't lose all non-indexable keys.
+        final List<List<String>> providerNonIndexableKeysList = SearchIndexProviderFanOut.query(
+                "getNonIndexableKeys", bundles, bundle -> {
+                    final long startTime = System.currentTimeMillis();
+                    final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+                    final List<String> providerNonIndexableKeys = cache.getNonIndexableKeys(
+                            bundle, () -> getNonIndexableKeys(context, provider));
+                    if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
+                        if (DEBUG) {
+                            final long totalTime = System.currentTimeMillis() - startTime;
+                            Log.d(TAG, "No indexable, total time " + totalTime);
+                        }
+                        return null;
+                    }
+
+                    if (DEBUG) {
+                        final long totalTime = System.currentTimeMillis() - startTime;
+                        Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size()
+                                + ", total time " + totalTime);
+                    }
+                    return providerNonIndexableKeys;
+                });
+        cache.commit();
+        for (List<String> providerNonIndexableKeys : providerNonIndexableKeysList) {
             nonIndexableKeys.addAll(providerNonIndexableKeys);
         }
 
         return nonIndexableKeys;
     }
 
+    private static List<String> getNonIndexableKeys(Context context,
+            Indexable.SearchIndexProvider provider) {
+        final List<String> providerNonIndexableKeys = provider.getNonIndexableKeys(context);
+        if (providerNonIndexableKeys != null && providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
+            Log.v(TAG, provider + " tried to add an empty non-indexable key");
+        }
+        return providerNonIndexableKeys;
+    }
+
     private List<SearchIndexableResource> getSearchIndexableResourcesFromProvider(Context context) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
         List<SearchIndexableResource> resourceList = new ArrayList<>();
 
-        for (SearchIndexableData bundle : bundles) {
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-            final List<SearchIndexableResource> resList =
-                    provider.getXmlResourcesToIndex(context, true);
-
-            if (resList == null) {
-                continue;
-            }
-
-            for (SearchIndexableResource item : resList) {
-                item.className = TextUtils.isEmpty(item.className)
-                        ? bundle.getTargetClass().getName()
-                        : item.className;
-            }
-
+        final List<List<SearchIndexableResource>> providerResourcesList =
+                SearchIndexProviderFanOut.query("getXmlResourcesToIndex", bundles, bundle -> {
+                    Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+                    final List<SearchIndexableResource> resList =
+                            provider.getXmlResourcesToIndex(context, true);
+
+                    if (resList == null) {
+                        return null;
+                    }
+
+                    for (SearchIndexableResource item : resList) {
+                        item.className = TextUtils.isEmpty(item.className)
+                                ? bundle.getTargetClass().getName()
+                                : item.className;
+                    }
+                    return resList;
+                });
+        for (List<SearchIndexableResource> resList : providerResourcesList) {
             resourceList.addAll(resList);
         }
 
@@ -351,21 +349,31 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
         final List<SearchIndexableRaw> rawList = new ArrayList<>();
-
-        for (SearchIndexableData bundle : bundles) {
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-            final List<SearchIndexableRaw> providerRaws = provider.getRawDataToIndex(context,
-                    true /* enabled */);
-
-            if (providerRaws == null) {
-                continue;
-            }
-
-            for (SearchIndexableRaw raw : providerRaws) {
-                // The classname and intent information comes from the PreIndexData
-                // This will be more clear when provider conversion is done at PreIndex time.
-                raw.className = bundle.getTargetClass().getName();
-            }
+        final SearchIndexableCache cache =
+                SearchIndexableCache.open(context, SearchIndexableCache.QUERY_RAW_DATA);
+
+        final List<List<SearchIndexableRaw>> providerRawsList =
+                SearchIndexProviderFanOut.query("getRawDataToIndex", bundles,
+                        bundle -> cache.getRawData(bundle, () -> {
+                            Indexable.SearchIndexProvider provider =
+                                    bundle.getSearchIndexProvider();
+                            final List<SearchIndexableRaw> providerRaws =
+                                    provider.getRawDataToIndex(context, true /* enabled */);
+
+                            if (providerRaws == null) {
+                                return null;
+                            }
+
+                            for (SearchIndexableRaw raw : providerRaws) {
+                                // The classname and intent information comes from the
+                                // PreIndexData. This will be more clear when provider conversion
+                                // is done at PreIndex time.
+                                raw.className = bundle.getTargetClass().getName();
+                            }
+                            return providerRaws;
+                        }));
+        cache.commit();
+        for (List<SearchIndexableRaw> providerRaws : providerRawsList) {
             rawList.addAll(providerRaws);
         }
 
@@ -373,20 +381,29 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     }
 
     private List<SearchIndexableRaw> getDynamicSearchIndexableRawData(Context context,
-            SearchIndexableData bundle) {
-        final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-        final List<SearchIndexableRaw> providerRaws =
-                provider.getDynamicRawDataToIndex(context, true /* enabled */);
-        if (providerRaws == null) {
-            return new ArrayList<>();
-        }
-
-        for (SearchIndexableRaw raw : providerRaws) {
-            // The classname and intent information comes from the PreIndexData
-            // This will be more clear when provider conversion is done at PreIndex time.
-            raw.className = bundle.getTargetClass().getName();
+            Collection<SearchIndexableData> bundles) {
+        final List<SearchIndexableRaw> rawList = new ArrayList<>();
+        final List<List<SearchIndexableRaw>> providerRawsList =
+                SearchIndexProviderFanOut.query("getDynamicRawDataToIndex", bundles, bundle -> {
+                    final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+                    final List<SearchIndexableRaw> providerRaws =
+                            provider.getDynamicRawDataToIndex(context, true /* enabled */);
+                    if (providerRaws == null) {
+                        return null;
+                    }
+
+                    for (SearchIndexableRaw raw : providerRaws) {
+                        // The classname and intent information comes from the PreIndexData
+                        // This will be more clear when provider conversion is done at PreIndex
+                        // time.
+                        raw.className = bundle.getTargetClass().getName();
+                    }
+                    return providerRaws;
+                });
+        for (List<SearchIndexableRaw> providerRaws : providerRawsList) {
+            rawList.addAll(providerRaws);
         }
-        return providerRaws;
+        return rawList;
     }
 
     @VisibleForTesting
@@ -37,6 +37,7 @@ import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.KeyValueListParser;
 import android.util.Log;
+import android.util.LruCache;
 import android.util.Pair;
 
 import androidx.annotation.NonNull;
@@ -53,9 +54,13 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.notification.VolumeSeekBarPreferenceController;
 import com.android.settings.notification.zen.ZenModeSliceBuilder;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.utils.LatencyHistogram;
 import com.android.settingslib.SliceBroadcastRelay;
 import com.android.settingslib.utils.ThreadUtils;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -63,7 +68,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -78,7 +83,7 @@ import java.util.stream.Collectors;
  * return an stub {@link Slice} with the correct {@link Uri} immediately. In the background, the
  * data corresponding to the key in the {@link Uri} is read by {@link SlicesDatabaseAccessor}, and
  * the entire row is converted into a {@link SliceData}. Once complete, it is stored in
- * {@link #mSliceWeakDataCache}, and then an update sent via the Slice framework to the Slice.
+ * {@link #mSliceDataCache}, and then an update sent via the Slice framework to the Slice.
  * The {@link Slice} displayed by the Slice-presenter will re-query this Slice-provider and find
  * the {@link SliceData} cached to build the full {@link Slice}.
  *
@@ -132,11 +137,26 @@ public class SettingsSliceProvider extends SliceProvider {
 
     private static final KeyValueListParser KEY_VALUE_LIST_PARSER = new KeyValueListParser(',');
 
+    /**
+     * Max number of {@link SliceData} kept in {@link #mSliceDataCache}, which is well above the
+     * number of slices pinned at the same time, e.g. by a panel or the search results.
+     */
+    private static final int SLICE_DATA_CACHE_SIZE = 64;
+
+    // The binds which found the slice data in the cache and those which didn't, and the loads of
+    // the slice data, which also include the loads when a slice is pinned.
+    private static final AtomicInteger sCacheHitCount = new AtomicInteger();
+    private static final AtomicInteger sCacheMissCount = new AtomicInteger();
+    private static final LatencyHistogram sLoadLatencies = new LatencyHistogram();
+
     @VisibleForTesting
     SlicesDatabaseAccessor mSlicesDatabaseAccessor;
 
     @VisibleForTesting
-    Map<Uri, SliceData> mSliceWeakDataCache;
+    LruCache<Uri, SliceData> mSliceDataCache;
+
+    // The uris whose slice data is being loaded.
+    private final Set<Uri> mLoadingUris = Collections.synchronizedSet(new ArraySet<>());
 
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
@@ -154,7 +174,7 @@ public class SettingsSliceProvider extends SliceProvider {
     public boolean onCreateSliceProvider() {
         Log.d(TAG, "onCreateSliceProvider");
         mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(getContext());
-        mSliceWeakDataCache = new WeakHashMap<>();
+        mSliceDataCache = new LruCache<>(SLICE_DATA_CACHE_SIZE);
         return true;
     }
 
@@ -191,13 +211,26 @@ public class SettingsSliceProvider extends SliceProvider {
             return;
         }
 
-        // Start warming the slice, we expect someone will want it soon.
-        loadSliceInBackground(sliceUri);
+        // Start warming the slice, we expect someone will want it soon. Off the main thread, load
+        // it right away so that the first bind after pinning finds it in the cache.
+        if (ThreadUtils.isMainThread()) {
+            loadSliceInBackground(sliceUri);
+        } else {
+            final StrictMode.ThreadPolicy oldPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .permitAll()
+                    .build());
+            try {
+                loadSlice(sliceUri);
+            } finally {
+                StrictMode.setThreadPolicy(oldPolicy);
+            }
+        }
     }
 
     @Override
     public void onSliceUnpinned(Uri sliceUri) {
-        mSliceWeakDataCache.remove(sliceUri);
+        mSliceDataCache.remove(sliceUri);
         final Context context = getContext();
         if (!VolumeSliceHelper.unregisterUri(context, sliceUri)) {
             SliceBroadcastRelay.unregisterReceivers(context, sliceUri);
@@ -272,11 +305,13 @@ public class SettingsSliceProvider extends SliceProvider {
                         .createWifiCallingPreferenceSlice(sliceUri);
             }
 
-            final SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
+            final SliceData cachedSliceData = mSliceDataCache.get(sliceUri);
             if (cachedSliceData == null) {
+                sCacheMissCount.incrementAndGet();
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
+            sCacheHitCount.incrementAndGet();
             return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
@@ -402,10 +437,24 @@ public class SettingsSliceProvider extends SliceProvider {
 
     @VisibleForTesting
     void loadSlice(Uri uri) {
-        if (mSliceWeakDataCache.containsKey(uri)) {
-            Log.d(TAG, uri + " loaded from cache");
+        // The binds and the pin of a slice may load it at the same time, e.g. a bind before the
+        // load of the pin has notified the change. Only one of them loads it.
+        if (!mLoadingUris.add(uri)) {
+            Log.d(TAG, uri + " is being loaded");
             return;
         }
+        try {
+            if (mSliceDataCache.get(uri) != null) {
+                Log.d(TAG, uri + " loaded from cache");
+                return;
+            }
+            buildSliceData(uri);
+        } finally {
+            mLoadingUris.remove(uri);
+        }
+    }
+
+    private void buildSliceData(Uri uri) {
         long startBuildTime = System.currentTimeMillis();
 
         final SliceData sliceData;
@@ -432,11 +481,24 @@ public class SettingsSliceProvider extends SliceProvider {
 
         ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
 
-        mSliceWeakDataCache.put(uri, sliceData);
+        mSliceDataCache.put(uri, sliceData);
         getContext().getContentResolver().notifyChange(uri, null /* content observer */);
 
-        Log.d(TAG, "Built slice (" + uri + ") in: " +
-                (System.currentTimeMillis() - startBuildTime));
+        final long buildTime = System.currentTimeMillis() - startBuildTime;
+        sLoadLatencies.record(buildTime);
+        Log.d(TAG, "Built slice (" + uri + ") in: " + buildTime);
+    }
+
+    /** Returns the statistics of the slice data cache, which are shown in the Settings dump. */
+    public static JSONObject dumpCacheStats() throws JSONException {
+        final int hits = sCacheHitCount.get();
+        final int misses = sCacheMissCount.get();
+        final JSONObject obj = new JSONObject();
+        obj.put("hits", hits);
+        obj.put("misses", misses);
+        obj.put("hit_rate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        obj.put("loads", sLoadLatencies.toJson());
+        return obj;
     }
 
     @VisibleForTesting
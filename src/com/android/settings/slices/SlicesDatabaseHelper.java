@@ -16,15 +16,23 @@
 
 package com.android.settings.slices;
 
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ChangedPackages;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.os.Build;
+import android.provider.Settings;
+import android.util.ArraySet;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.R;
+
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * Defines the schema for the Slices database.
@@ -36,10 +44,15 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "slices_index.db";
     private static final String SHARED_PREFS_TAG = "slices_shared_prefs";
 
-    private static final int DATABASE_VERSION = 9;
+    private static final String KEY_BOOT_COUNT = "boot_count";
+    private static final String KEY_PACKAGE_SEQUENCE_NUMBER = "package_sequence_number";
+    private static final String KEY_INPUT_HASH = "input_hash";
+
+    private static final int DATABASE_VERSION = 10;
 
     public interface Tables {
         String TABLE_SLICES_INDEX = "slices_index";
+        String TABLE_FRAGMENT_HASHES = "slices_fragment_hashes";
     }
 
     public interface IndexColumns {
@@ -110,6 +123,19 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
         String HIGHLIGHT_MENU_RESOURCE = "highlight_menu";
     }
 
+    public interface FragmentHashColumns {
+        /**
+         * Classname of the fragment, which is the same as {@link IndexColumns#FRAGMENT}.
+         */
+        String FRAGMENT = "fragment";
+
+        /**
+         * Hash of all the indexed rows of the fragment, used to skip the unchanged fragments
+         * when the slices are indexed again.
+         */
+        String HASH = "hash";
+    }
+
     private static final String CREATE_SLICES_TABLE =
             "CREATE VIRTUAL TABLE " + Tables.TABLE_SLICES_INDEX + " USING fts4"
                     + "("
@@ -141,6 +167,15 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                     + " INTEGER DEFAULT 0 "
                     + ");";
 
+    private static final String CREATE_FRAGMENT_HASHES_TABLE =
+            "CREATE TABLE " + Tables.TABLE_FRAGMENT_HASHES
+                    + "("
+                    + FragmentHashColumns.FRAGMENT
+                    + " TEXT PRIMARY KEY, "
+                    + FragmentHashColumns.HASH
+                    + " TEXT"
+                    + ");";
+
     private final Context mContext;
 
     private static SlicesDatabaseHelper sSingleton;
@@ -186,11 +221,40 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
 
     /**
      * Marks the current state of the device for the validity of the data. Should be called after
-     * a full index of the TABLE_SLICES_INDEX.
+     * a full or an incremental index of the TABLE_SLICES_INDEX.
      */
     public void setIndexedState() {
-        setBuildIndexed();
-        setLocaleIndexed();
+        setIndexedState(null /* inputHash */);
+    }
+
+    /**
+     * Marks the current state of the device for the validity of the data, along with the hash of
+     * the inputs of the indexed slice data, see {@link #getIndexedInputHash()}.
+     */
+    public void setIndexedState(String inputHash) {
+        // Clears the state of the previous build and locale, since the index is no longer
+        // reconstructed when they change.
+        final SharedPreferences.Editor editor =
+                mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
+                        .edit()
+                        .clear()
+                        .putBoolean(getBuildTag(), true /* value */)
+                        .putBoolean(Locale.getDefault().toString(), true /* value */)
+                        .putInt(KEY_BOOT_COUNT, getBootCount())
+                        .putInt(KEY_PACKAGE_SEQUENCE_NUMBER, getPackageSequenceNumber());
+        if (inputHash != null) {
+            editor.putString(KEY_INPUT_HASH, inputHash);
+        }
+        editor.apply();
+    }
+
+    /**
+     * @return the hash of the inputs of the indexed slice data, or {@code null} if the data is
+     * not indexed with one.
+     */
+    public String getIndexedInputHash() {
+        return mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
+                .getString(KEY_INPUT_HASH, null /* defValue */);
     }
 
     /**
@@ -199,30 +263,18 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
      * @return {@code true} if database should be rebuilt, {@code false} otherwise.
      */
     public boolean isSliceDataIndexed() {
-        return isBuildIndexed() && isLocaleIndexed();
+        return isBuildIndexed() && isLocaleIndexed() && isPackagesIndexed();
     }
 
     private void createDatabases(SQLiteDatabase db) {
         db.execSQL(CREATE_SLICES_TABLE);
+        db.execSQL(CREATE_FRAGMENT_HASHES_TABLE);
         Log.d(TAG, "Created databases");
     }
 
     private void dropTables(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_INDEX);
-    }
-
-    private void setBuildIndexed() {
-        mContext.getSharedPreferences(SHARED_PREFS_TAG, 0 /* mode */)
-                .edit()
-                .putBoolean(getBuildTag(), true /* value */)
-                .apply();
-    }
-
-    private void setLocaleIndexed() {
-        mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
-                .edit()
-                .putBoolean(Locale.getDefault().toString(), true /* value */)
-                .apply();
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_FRAGMENT_HASHES);
     }
 
     private boolean isBuildIndexed() {
@@ -237,7 +289,64 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                 .getBoolean(Locale.getDefault().toString(), false /* default */);
     }
 
+    /**
+     * Indicates if no package which provides slices is installed, updated or removed since the
+     * last index, in which case the availability of the slices may have changed.
+     */
+    private boolean isPackagesIndexed() {
+        final SharedPreferences prefs =
+                mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE);
+        // The package sequence number is reset on reboot.
+        if (prefs.getInt(KEY_BOOT_COUNT, -1) != getBootCount()) {
+            return false;
+        }
+        final ChangedPackages changedPackages =
+                getChangedPackages(prefs.getInt(KEY_PACKAGE_SEQUENCE_NUMBER, 0));
+        if (changedPackages == null) {
+            return true;
+        }
+        final Set<String> slicePackageNames = getSlicePackageNames();
+        for (String packageName : changedPackages.getPackageNames()) {
+            if (slicePackageNames.contains(packageName)) {
+                Log.d(TAG, "Slice package changed: " + packageName);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the packages whose slices are indexed, which are Settings itself and the
+     * accessibility services exposed as slices.
+     */
+    Set<String> getSlicePackageNames() {
+        final Set<String> packageNames = new ArraySet<>();
+        packageNames.add(mContext.getPackageName());
+        for (String component : mContext.getResources()
+                .getStringArray(R.array.config_settings_slices_accessibility_components)) {
+            final ComponentName componentName = ComponentName.unflattenFromString(component);
+            if (componentName != null) {
+                packageNames.add(componentName.getPackageName());
+            }
+        }
+        return packageNames;
+    }
+
+    private int getPackageSequenceNumber() {
+        final ChangedPackages changedPackages = getChangedPackages(0 /* sequenceNumber */);
+        return changedPackages == null ? 0 : changedPackages.getSequenceNumber();
+    }
+
     @VisibleForTesting
+    ChangedPackages getChangedPackages(int sequenceNumber) {
+        return mContext.getPackageManager().getChangedPackages(sequenceNumber);
+    }
+
+    private int getBootCount() {
+        return Settings.Global.getInt(mContext.getContentResolver(), Settings.Global.BOOT_COUNT,
+                -1 /* def */);
+    }
+
     String getBuildTag() {
         return Build.FINGERPRINT;
     }
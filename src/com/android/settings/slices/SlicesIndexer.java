@@ -16,9 +16,17 @@
 
 package com.android.settings.slices;
 
+import android.app.settings.SettingsEnums;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.provider.SearchIndexableResource;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -26,18 +34,50 @@ import androidx.annotation.VisibleForTesting;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.slices.SlicesDatabaseHelper.FragmentHashColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
+import com.android.settingslib.search.Indexable.SearchIndexProvider;
+import com.android.settingslib.search.SearchIndexableData;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
  * indexable data {@link SliceData} to be stored for Slices.
+ *
+ * <p>The rows are hashed per fragment, and only the fragments whose rows have changed since the
+ * last index are rewritten. The fragments are not converted at all if the inputs of the slice
+ * data haven't changed since the last index.</p>
  */
 class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
+    private static final String METRICS_KEY_INDEXING_TIME = "slices_indexing_time";
+
+    private static final String INSERT_SLICE_SQL = "INSERT INTO " + Tables.TABLE_SLICES_INDEX
+            + " (" + IndexColumns.KEY
+            + ", " + IndexColumns.SLICE_URI
+            + ", " + IndexColumns.TITLE
+            + ", " + IndexColumns.SUMMARY
+            + ", " + IndexColumns.SCREENTITLE
+            + ", " + IndexColumns.KEYWORDS
+            + ", " + IndexColumns.ICON_RESOURCE
+            + ", " + IndexColumns.FRAGMENT
+            + ", " + IndexColumns.CONTROLLER
+            + ", " + IndexColumns.SLICE_TYPE
+            + ", " + IndexColumns.UNAVAILABLE_SLICE_SUBTITLE
+            + ", " + IndexColumns.PUBLIC_SLICE
+            + ", " + IndexColumns.HIGHLIGHT_MENU_RESOURCE
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     private Context mContext;
 
@@ -66,24 +106,91 @@ class SlicesIndexer implements Runnable {
             return;
         }
 
-        final SQLiteDatabase database = mHelper.getWritableDatabase();
+        final long startTime = SystemClock.elapsedRealtime();
+        // Only converts the fragments into slice data when the inputs have changed, e.g. not
+        // after every reboot.
+        final String inputHash = getSliceInputHash();
+        if (inputHash.equals(mHelper.getIndexedInputHash())) {
+            mHelper.setIndexedState(inputHash);
+            final long totalTime = SystemClock.elapsedRealtime() - startTime;
+            logIndexingTime(totalTime);
+            Log.d(TAG, String.format("Slice inputs unchanged - checked in %d ms", totalTime));
+            return;
+        }
+
+        final List<SliceData> indexData = getSliceData();
+        final long convertTime = SystemClock.elapsedRealtime() - startTime;
 
-        long startTime = System.currentTimeMillis();
+        final SQLiteDatabase database = mHelper.getWritableDatabase();
+        final int updatedFragmentCount;
         database.beginTransaction();
         try {
-            mHelper.reconstruct(database);
-            List<SliceData> indexData = getSliceData();
-            insertSliceData(database, indexData);
-
-            mHelper.setIndexedState();
+            updatedFragmentCount = updateSliceData(database, indexData);
 
-            // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
+            mHelper.setIndexedState(inputHash);
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
         }
+
+        final long totalTime = SystemClock.elapsedRealtime() - startTime;
+        logIndexingTime(totalTime);
+        Log.d(TAG, String.format(
+                "Indexing slices database: %d slices, %d fragments updated in %d ms"
+                        + " (convert %d ms)",
+                indexData.size(), updatedFragmentCount, totalTime, convertTime));
+    }
+
+    private void logIndexingTime(long totalTime) {
+        FeatureFactory.getFactory(mContext).getMetricsFeatureProvider()
+                .action(SettingsEnums.PAGE_UNKNOWN,
+                        SettingsEnums.ACTION_SETTINGS_SLICE_CHANGED,
+                        SettingsEnums.PAGE_UNKNOWN,
+                        METRICS_KEY_INDEXING_TIME,
+                        (int) totalTime);
+    }
+
+    /**
+     * Hashes the inputs of the slice data, which are cheap to read compared to the slice data: the
+     * build, the locale, the search index providers with their XML resources, and the versions of
+     * the packages which provide slices.
+     */
+    @VisibleForTesting
+    String getSliceInputHash() {
+        final StringBuilder builder = new StringBuilder()
+                .append(mHelper.getBuildTag()).append('\n')
+                .append(Locale.getDefault()).append('\n');
+        final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(mContext)
+                .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
+        for (SearchIndexableData bundle : bundles) {
+            builder.append(bundle.getTargetClass().getName());
+            final SearchIndexProvider provider = bundle.getSearchIndexProvider();
+            if (provider != null) {
+                builder.append('\0').append(provider.getClass().getName());
+                final List<SearchIndexableResource> resources =
+                        provider.getXmlResourcesToIndex(mContext, true /* enabled */);
+                if (resources != null) {
+                    for (SearchIndexableResource resource : resources) {
+                        builder.append('\0').append(resource.xmlResId);
+                    }
+                }
+            }
+            builder.append('\n');
+        }
+        final PackageManager packageManager = mContext.getPackageManager();
+        for (String packageName : new TreeSet<>(mHelper.getSlicePackageNames())) {
+            builder.append(packageName);
+            try {
+                final PackageInfo packageInfo = packageManager.getPackageInfo(packageName,
+                        0 /* flags */);
+                builder.append('\0').append(packageInfo.getLongVersionCode())
+                        .append('\0').append(packageInfo.lastUpdateTime);
+            } catch (PackageManager.NameNotFoundException e) {
+                // The package is not installed, which is part of the inputs as well.
+            }
+            builder.append('\n');
+        }
+        return digest(builder.toString());
     }
 
     @VisibleForTesting
@@ -94,32 +201,155 @@ class SlicesIndexer implements Runnable {
                 .getSliceData();
     }
 
+    /**
+     * Replaces the rows of the fragments whose rows have changed since the last index, and
+     * removes the rows of the fragments which are gone.
+     *
+     * @return the number of the updated and removed fragments.
+     */
     @VisibleForTesting
-    void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
-
+    int updateSliceData(SQLiteDatabase database, List<SliceData> indexData) {
+        final Map<String, List<SliceData>> fragmentSliceData = new ArrayMap<>();
         for (SliceData dataRow : indexData) {
-            values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.SLICE_URI, dataRow.getUri().toString());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
-            final CharSequence screenTitle = dataRow.getScreenTitle();
-            if (screenTitle != null) {
-                values.put(IndexColumns.SCREENTITLE, screenTitle.toString());
+            final String fragment = dataRow.getFragmentClassName();
+            if (fragment == null) {
+                Log.w(TAG, "Skip slice without a fragment: " + dataRow.getKey());
+                continue;
+            }
+            List<SliceData> sliceData = fragmentSliceData.get(fragment);
+            if (sliceData == null) {
+                sliceData = new ArrayList<>();
+                fragmentSliceData.put(fragment, sliceData);
+            }
+            sliceData.add(dataRow);
+        }
+
+        final Map<String, String> indexedHashes = getIndexedFragmentHashes(database);
+        int updatedFragmentCount = 0;
+        for (String fragment : indexedHashes.keySet()) {
+            if (!fragmentSliceData.containsKey(fragment)) {
+                deleteFragment(database, fragment);
+                updatedFragmentCount++;
+            }
+        }
+
+        final List<SliceData> insertData = new ArrayList<>();
+        for (Map.Entry<String, List<SliceData>> entry : fragmentSliceData.entrySet()) {
+            final String fragment = entry.getKey();
+            final String hash = getHash(entry.getValue());
+            if (hash.equals(indexedHashes.get(fragment))) {
+                continue;
             }
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-            values.put(IndexColumns.PUBLIC_SLICE, dataRow.isPublicSlice());
-            values.put(IndexColumns.HIGHLIGHT_MENU_RESOURCE, dataRow.getHighlightMenuRes());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
+            if (indexedHashes.containsKey(fragment)) {
+                deleteFragment(database, fragment);
+            }
+            insertData.addAll(entry.getValue());
+            final ContentValues values = new ContentValues();
+            values.put(FragmentHashColumns.FRAGMENT, fragment);
+            values.put(FragmentHashColumns.HASH, hash);
+            database.replaceOrThrow(Tables.TABLE_FRAGMENT_HASHES, null /* nullColumnHack */,
                     values);
+            updatedFragmentCount++;
+        }
+        insertSliceData(database, insertData);
+        return updatedFragmentCount;
+    }
+
+    @VisibleForTesting
+    void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
+        if (indexData.isEmpty()) {
+            return;
+        }
+        final SQLiteStatement statement = database.compileStatement(INSERT_SLICE_SQL);
+        try {
+            for (SliceData dataRow : indexData) {
+                bindString(statement, 1, dataRow.getKey());
+                bindString(statement, 2, dataRow.getUri().toString());
+                bindString(statement, 3, dataRow.getTitle());
+                bindString(statement, 4, dataRow.getSummary());
+                final CharSequence screenTitle = dataRow.getScreenTitle();
+                bindString(statement, 5, screenTitle != null ? screenTitle.toString() : null);
+                bindString(statement, 6, dataRow.getKeywords());
+                statement.bindLong(7, dataRow.getIconResource());
+                bindString(statement, 8, dataRow.getFragmentClassName());
+                bindString(statement, 9, dataRow.getPreferenceController());
+                statement.bindLong(10, dataRow.getSliceType());
+                bindString(statement, 11, dataRow.getUnavailableSliceSubtitle());
+                statement.bindLong(12, dataRow.isPublicSlice() ? 1 : 0);
+                statement.bindLong(13, dataRow.getHighlightMenuRes());
+
+                statement.executeInsert();
+                statement.clearBindings();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static Map<String, String> getIndexedFragmentHashes(SQLiteDatabase database) {
+        final Map<String, String> hashes = new ArrayMap<>();
+        try (Cursor cursor = database.query(Tables.TABLE_FRAGMENT_HASHES,
+                new String[]{FragmentHashColumns.FRAGMENT, FragmentHashColumns.HASH},
+                null /* selection */, null /* selectionArgs */, null /* groupBy */,
+                null /* having */, null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                final String fragment = cursor.getString(0);
+                if (fragment != null) {
+                    hashes.put(fragment, cursor.getString(1));
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private static void deleteFragment(SQLiteDatabase database, String fragment) {
+        final String[] whereArgs = new String[]{fragment};
+        database.delete(Tables.TABLE_SLICES_INDEX, IndexColumns.FRAGMENT + " = ?", whereArgs);
+        database.delete(Tables.TABLE_FRAGMENT_HASHES, FragmentHashColumns.FRAGMENT + " = ?",
+                whereArgs);
+    }
+
+    /** Hashes all the indexed columns of the rows of a fragment. */
+    @VisibleForTesting
+    static String getHash(List<SliceData> sliceData) {
+        final StringBuilder builder = new StringBuilder();
+        for (SliceData dataRow : sliceData) {
+            builder.append(dataRow.getKey()).append('\0')
+                    .append(dataRow.getUri()).append('\0')
+                    .append(dataRow.getTitle()).append('\0')
+                    .append(dataRow.getSummary()).append('\0')
+                    .append(dataRow.getScreenTitle()).append('\0')
+                    .append(dataRow.getKeywords()).append('\0')
+                    .append(dataRow.getIconResource()).append('\0')
+                    .append(dataRow.getPreferenceController()).append('\0')
+                    .append(dataRow.getSliceType()).append('\0')
+                    .append(dataRow.getUnavailableSliceSubtitle()).append('\0')
+                    .append(dataRow.isPublicSlice()).append('\0')
+                    .append(dataRow.getHighlightMenuRes()).append('\n');
+        }
+        return digest(builder.toString());
+    }
+
+    private static String digest(String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hash = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Falls back to the value itself, which is still comparable.
+            return value;
+        }
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
         }
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A histogram of latencies in milliseconds, which is cheap enough to record on every call and is
+ * shown in the dump of {@link com.android.settings.SettingsDumpService}.
+ *
+ * <p>The buckets are powers of two, the bucket {@code i} counts the latencies below
+ * {@code 2^i} ms which are not counted by the previous bucket, and the last bucket counts the
+ * rest.</p>
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 14;
+
+    private final int[] mBuckets = new int[BUCKET_COUNT];
+    private int mCount;
+    private long mTotalMs;
+    private long mMaxMs;
+
+    /** Records a latency in milliseconds. */
+    public synchronized void record(long latencyMs) {
+        final long latency = Math.max(latencyMs, 0);
+        mBuckets[getBucket(latency)]++;
+        mCount++;
+        mTotalMs += latency;
+        mMaxMs = Math.max(mMaxMs, latency);
+    }
+
+    /** Returns the number of recorded latencies. */
+    public synchronized int getCount() {
+        return mCount;
+    }
+
+    /** Returns the recorded latencies, the buckets are listed up to the last non-empty one. */
+    public synchronized JSONObject toJson() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("count", mCount);
+        obj.put("avg_ms", mCount == 0 ? 0 : mTotalMs / mCount);
+        obj.put("max_ms", mMaxMs);
+        int lastBucket = BUCKET_COUNT - 1;
+        while (lastBucket >= 0 && mBuckets[lastBucket] == 0) {
+            lastBucket--;
+        }
+        final JSONArray buckets = new JSONArray();
+        for (int i = 0; i <= lastBucket; i++) {
+            buckets.put(mBuckets[i]);
+        }
+        obj.put("buckets", buckets);
+        return obj;
+    }
+
+    private static int getBucket(long latencyMs) {
+        // The number of bits of the latency, e.g. 0 for 0 ms, 1 for 1 ms and 2 for 2-3 ms.
+        final int bits = Long.SIZE - Long.numberOfLeadingZeros(latencyMs);
+        return Math.min(bits, BUCKET_COUNT - 1);
+    }
+}
@@ -96,6 +96,22 @@ public class WifiEntryPreference extends RestrictedPreference implements
         return mWifiEntry;
     }
 
+    /**
+     * Replaces the {@link WifiEntry} of the preference, e.g. when the tracker recreates the entry
+     * of the same network, so that the preference doesn't need to be recreated.
+     */
+    public void setWifiEntry(@NonNull WifiEntry wifiEntry) {
+        if (wifiEntry == mWifiEntry) {
+            return;
+        }
+        mWifiEntry.setListener(null);
+        mWifiEntry = wifiEntry;
+        mWifiEntry.setListener(this);
+        refresh();
+        // The friction icon depends on the entry, but is only bound with the view.
+        notifyChanged();
+    }
+
     @Override
     public void onBindViewHolder(final PreferenceViewHolder view) {
         super.onBindViewHolder(view);
@@ -166,8 +166,21 @@ public class WifiSettings extends RestrictedSettingsFragment
         return WifiPickerTracker.isVerboseLoggingEnabled();
     }
 
+    /**
+     * The delay to update the list after the Wi-Fi entries are changed. It's raised while the
+     * entries change faster than the list is updated, e.g. with lots of networks around, so that
+     * more changes are applied at once.
+     */
+    @VisibleForTesting
+    static final long MIN_UPDATE_DELAY_MS = 300;
+    @VisibleForTesting
+    static final long MAX_UPDATE_DELAY_MS = 2400;
+
     private boolean mIsWifiEntryListStale = true;
+    private long mUpdateDelayMs = MIN_UPDATE_DELAY_MS;
+    private long mLastWifiEntriesUpdatedMs;
     private final Runnable mUpdateWifiEntryPreferencesRunnable = () -> {
+        mLastWifiEntriesUpdatedMs = SystemClock.elapsedRealtime();
         updateWifiEntryPreferences();
     };
     private final Runnable mHideProgressBarRunnable = () -> {
@@ -754,9 +767,25 @@ public class WifiSettings extends RestrictedSettingsFragment
             if (handler != null && handler.hasCallbacks(mUpdateWifiEntryPreferencesRunnable)) {
                 return;
             }
+            if (mLastWifiEntriesUpdatedMs != 0) {
+                mUpdateDelayMs = getUpdateDelayMs(mUpdateDelayMs,
+                        SystemClock.elapsedRealtime() - mLastWifiEntriesUpdatedMs);
+            }
             setProgressBarVisible(true);
-            view.postDelayed(mUpdateWifiEntryPreferencesRunnable, 300);
+            view.postDelayed(mUpdateWifiEntryPreferencesRunnable, mUpdateDelayMs);
+        }
+    }
+
+    /**
+     * Returns the delay for the next update, which is doubled if the entries changed again within
+     * the current delay since the last update, and halved otherwise.
+     */
+    @VisibleForTesting
+    static long getUpdateDelayMs(long currentDelayMs, long changeIntervalMs) {
+        if (changeIntervalMs < currentDelayMs) {
+            return Math.min(currentDelayMs * 2, MAX_UPDATE_DELAY_MS);
         }
+        return Math.max(currentDelayMs / 2, MIN_UPDATE_DELAY_MS);
     }
 
     private void updateWifiEntryPreferences() {
@@ -803,6 +832,8 @@ public class WifiSettings extends RestrictedSettingsFragment
         }
 
         int index = 0;
+        // Diff the entries against the preferences by key, the preferences of the networks which
+        // are still around are kept and only moved.
         cacheRemoveAllPrefs(mWifiEntryPreferenceCategory);
         List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
         for (WifiEntry wifiEntry : wifiEntries) {
@@ -812,37 +843,37 @@ public class WifiSettings extends RestrictedSettingsFragment
             LongPressWifiEntryPreference pref =
                     (LongPressWifiEntryPreference) getCachedPreference(key);
             if (pref != null) {
-                if (pref.getWifiEntry() == wifiEntry) {
-                    pref.setOrder(index++);
-                    continue;
-                } else {
-                    // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
+                pref.setOrder(index++);
+                if (pref.getWifiEntry() != wifiEntry) {
+                    // The tracker recreated the entry of the network, keep the preference.
+                    pref.setWifiEntry(wifiEntry);
+                    setHelpButtonListener(pref);
                 }
+                continue;
             }
 
             pref = createLongPressWifiEntryPreference(wifiEntry);
             pref.setKey(wifiEntry.getKey());
             pref.setOrder(index++);
             pref.refresh();
-
-            if (wifiEntry.getHelpUriString() != null) {
-                pref.setOnButtonClickListener(preference -> {
-                    openSubscriptionHelpPage(wifiEntry);
-                });
-            }
+            setHelpButtonListener(pref);
             mWifiEntryPreferenceCategory.addPreference(pref);
         }
+
+        Preference emptyListPref = hasAvailableWifiEntries
+                ? null : getCachedPreference(PREF_KEY_EMPTY_WIFI_LIST);
         removeCachedPrefs(mWifiEntryPreferenceCategory);
 
         if (!hasAvailableWifiEntries) {
             setProgressBarVisible(true);
-            Preference pref = new Preference(getPrefContext());
-            pref.setSelectable(false);
-            pref.setSummary(R.string.wifi_empty_list_wifi_on);
-            pref.setOrder(index++);
-            pref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
-            mWifiEntryPreferenceCategory.addPreference(pref);
+            if (emptyListPref == null) {
+                emptyListPref = new Preference(getPrefContext());
+                emptyListPref.setSelectable(false);
+                emptyListPref.setSummary(R.string.wifi_empty_list_wifi_on);
+                emptyListPref.setKey(PREF_KEY_EMPTY_WIFI_LIST);
+                mWifiEntryPreferenceCategory.addPreference(emptyListPref);
+            }
+            emptyListPref.setOrder(index++);
         } else {
             // Continuing showing progress bar for an additional delay to overlap with animation
             final View view = getView();
@@ -856,6 +887,12 @@ public class WifiSettings extends RestrictedSettingsFragment
         setAdditionalSettingsSummaries();
     }
 
+    private void setHelpButtonListener(LongPressWifiEntryPreference pref) {
+        final WifiEntry wifiEntry = pref.getWifiEntry();
+        pref.setOnButtonClickListener(wifiEntry.getHelpUriString() == null ? null
+                : preference -> openSubscriptionHelpPage(wifiEntry));
+    }
+
     private void launchNetworkDetailsFragment(LongPressWifiEntryPreference pref) {
         final WifiEntry wifiEntry = pref.getWifiEntry();
         final Context context = getContext();
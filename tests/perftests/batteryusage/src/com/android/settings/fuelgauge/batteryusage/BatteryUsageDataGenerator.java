@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.ContentValues;
+import android.os.BatteryManager;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Generates synthetic battery usage data for the battery usage pipeline benchmarks. */
+final class BatteryUsageDataGenerator {
+    /** 2023-01-02 00:00:00 UTC, all generated data starts from this timestamp. */
+    static final long START_TIMESTAMP = 1672617600000L;
+    /** The periodic job is delayed a few minutes from the sharp hour in the field. */
+    private static final long SNAPSHOT_DELAY_MS = 7 * DateUtils.MINUTE_IN_MILLIS;
+    private static final long BOOT_TIMESTAMP = START_TIMESTAMP - DateUtils.DAY_IN_MILLIS;
+    private static final int FIRST_APPLICATION_UID = 10000;
+    private static final int USER_ID = 0;
+    private static final int SEED = 20230102;
+
+    private final Random mRandom = new Random(SEED);
+    private final int mDays;
+    private final int mUidCount;
+
+    BatteryUsageDataGenerator(int days, int uidCount) {
+        mDays = days;
+        mUidCount = uidCount;
+    }
+
+    /** Returns the end timestamp of the generated data, used as the current time. */
+    long getEndTimestamp() {
+        return START_TIMESTAMP + mDays * DateUtils.DAY_IN_MILLIS;
+    }
+
+    /** Returns the package name of the app with the given index. */
+    static String getPackageName(int index) {
+        return "com.android.settings.perf.app" + index;
+    }
+
+    /**
+     * Generates the raw battery history map, which has one snapshot per hour and one
+     * {@link BatteryHistEntry} per uid in each snapshot, same as the BatteryState table.
+     */
+    Map<Long, Map<String, BatteryHistEntry>> generateBatteryHistoryMap() {
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new ArrayMap<>();
+        final double[] consumePowers = new double[mUidCount];
+        final long[] foregroundTimes = new long[mUidCount];
+        final long[] backgroundTimes = new long[mUidCount];
+        final int hours = mDays * 24;
+        for (int hour = 0; hour < hours; hour++) {
+            final long timestamp =
+                    START_TIMESTAMP + hour * DateUtils.HOUR_IN_MILLIS + SNAPSHOT_DELAY_MS;
+            final int batteryLevel = 100 - (hour % 100);
+            final Map<String, BatteryHistEntry> entryMap = new ArrayMap<>(mUidCount);
+            for (int index = 0; index < mUidCount; index++) {
+                consumePowers[index] += mRandom.nextDouble() * 2;
+                foregroundTimes[index] += mRandom.nextInt((int) DateUtils.MINUTE_IN_MILLIS);
+                backgroundTimes[index] += mRandom.nextInt((int) DateUtils.MINUTE_IN_MILLIS);
+                final BatteryHistEntry entry = createBatteryHistEntry(index, timestamp,
+                        batteryLevel, consumePowers[index], foregroundTimes[index],
+                        backgroundTimes[index]);
+                entryMap.put(entry.getKey(), entry);
+            }
+            batteryHistoryMap.put(timestamp, entryMap);
+        }
+        return batteryHistoryMap;
+    }
+
+    /**
+     * Generates the app usage events, each app is resumed and stopped
+     * {@code sessionsPerHour} times in each hour.
+     */
+    List<AppUsageEvent> generateAppUsageEvents(int packageCount, int sessionsPerHour) {
+        final List<AppUsageEvent> appUsageEvents = new ArrayList<>();
+        final long sessionLength = DateUtils.HOUR_IN_MILLIS / sessionsPerHour;
+        final int hours = mDays * 24;
+        int instanceId = 0;
+        for (int hour = 0; hour < hours; hour++) {
+            final long hourStart = START_TIMESTAMP + hour * DateUtils.HOUR_IN_MILLIS;
+            for (int session = 0; session < sessionsPerHour; session++) {
+                final long sessionStart = hourStart + session * sessionLength;
+                final int index = mRandom.nextInt(packageCount);
+                final long resumeTime = sessionStart + mRandom.nextInt((int) sessionLength / 2);
+                final long stopTime = resumeTime + mRandom.nextInt((int) sessionLength / 2);
+                appUsageEvents.add(createAppUsageEvent(
+                        AppUsageEventType.ACTIVITY_RESUMED, resumeTime, index, instanceId));
+                appUsageEvents.add(createAppUsageEvent(
+                        AppUsageEventType.ACTIVITY_STOPPED, stopTime, index, instanceId));
+                instanceId++;
+            }
+        }
+        return appUsageEvents;
+    }
+
+    /** Generates the battery level data from the processed history map timestamps. */
+    static BatteryLevelData generateBatteryLevelData(
+            Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap) {
+        final Map<Long, Integer> batteryLevelMap = new ArrayMap<>();
+        int level = 100;
+        for (Long timestamp : processedBatteryHistoryMap.keySet()) {
+            batteryLevelMap.put(timestamp, Math.max(level--, 1));
+        }
+        return new BatteryLevelData(batteryLevelMap);
+    }
+
+    private static BatteryHistEntry createBatteryHistEntry(int index, long timestamp,
+            int batteryLevel, double consumePower, long foregroundUsageTimeInMs,
+            long backgroundUsageTimeInMs) {
+        final BatteryInformation batteryInformation =
+                BatteryInformation
+                        .newBuilder()
+                        .setDeviceBatteryState(DeviceBatteryState.newBuilder()
+                                .setBatteryLevel(batteryLevel)
+                                .setBatteryStatus(BatteryManager.BATTERY_STATUS_DISCHARGING)
+                                .setBatteryHealth(BatteryManager.BATTERY_HEALTH_GOOD)
+                                .build())
+                        .setBootTimestamp(timestamp - BOOT_TIMESTAMP)
+                        .setAppLabel("App " + index)
+                        .setConsumePower(consumePower)
+                        .setForegroundUsageConsumePower(consumePower / 2)
+                        .setBackgroundUsageConsumePower(consumePower / 2)
+                        .setForegroundUsageTimeInMs(foregroundUsageTimeInMs)
+                        .setBackgroundUsageTimeInMs(backgroundUsageTimeInMs)
+                        .build();
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, getPackageName(index));
+        values.put(BatteryHistEntry.KEY_UID, (long) (FIRST_APPLICATION_UID + index));
+        values.put(BatteryHistEntry.KEY_USER_ID, (long) USER_ID);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION,
+                ConvertUtils.convertBatteryInformationToString(batteryInformation));
+        return new BatteryHistEntry(values);
+    }
+
+    private static AppUsageEvent createAppUsageEvent(
+            AppUsageEventType type, long timestamp, int index, int instanceId) {
+        return AppUsageEvent.newBuilder()
+                .setType(type)
+                .setTimestamp(timestamp)
+                .setUserId(USER_ID)
+                .setUid(FIRST_APPLICATION_UID + index)
+                .setInstanceId(instanceId)
+                .setPackageName(getPackageName(index))
+                .build();
+    }
+}
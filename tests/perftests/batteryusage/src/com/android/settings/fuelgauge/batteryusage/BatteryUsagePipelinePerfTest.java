@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Debug;
+import android.perftests.utils.BenchmarkState;
+import android.perftests.utils.PerfStatusReporter;
+import android.util.ArrayMap;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Benchmarks each stage of the battery usage pipeline with 6 days of synthetic data.
+ *
+ * <p>Besides the timing reported by {@link PerfStatusReporter}, the allocated object count and
+ * bytes of a single run of each stage are reported as {@code <stage>_alloc_count} and
+ * {@code <stage>_alloc_bytes} in the instrumentation status.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatteryUsagePipelinePerfTest {
+    private static final int DAYS = 6;
+    private static final int UID_COUNT = 2000;
+    private static final int APP_USAGE_PACKAGE_COUNT = 300;
+    private static final int APP_USAGE_SESSIONS_PER_HOUR = 60;
+
+    private static Context sContext;
+    private static Map<Long, Map<String, BatteryHistEntry>> sBatteryHistoryMap;
+    private static Map<Long, Map<String, BatteryHistEntry>> sProcessedBatteryHistoryMap;
+    private static BatteryLevelData sBatteryLevelData;
+    private static Map<Long, BatteryDiffData> sBatteryDiffDataMap;
+    private static List<AppUsageEvent> sAppUsageEvents;
+    private static long sEndTimestamp;
+
+    @Rule
+    public PerfStatusReporter mPerfStatusReporter = new PerfStatusReporter();
+
+    @BeforeClass
+    public static void setUpClass() {
+        sContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        final BatteryUsageDataGenerator generator =
+                new BatteryUsageDataGenerator(DAYS, UID_COUNT);
+        sEndTimestamp = generator.getEndTimestamp();
+        DataProcessor.sTestCurrentTimeMillis = sEndTimestamp;
+
+        sBatteryHistoryMap = generator.generateBatteryHistoryMap();
+        sProcessedBatteryHistoryMap =
+                DataProcessor.getHistoryMapWithExpectedTimestamps(sContext, sBatteryHistoryMap);
+        replaceCurrentTimePlaceholder(sProcessedBatteryHistoryMap, sBatteryHistoryMap);
+        sBatteryLevelData =
+                BatteryUsageDataGenerator.generateBatteryLevelData(sProcessedBatteryHistoryMap);
+        sBatteryDiffDataMap = getBatteryDiffDataMap();
+        sAppUsageEvents = generator.generateAppUsageEvents(
+                APP_USAGE_PACKAGE_COUNT, APP_USAGE_SESSIONS_PER_HOUR);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        DataProcessor.sTestCurrentTimeMillis = 0;
+    }
+
+    @Test
+    public void getHistoryMapWithExpectedTimestamps() {
+        final BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        reportAllocations("interpolateHistory", () ->
+                DataProcessor.getHistoryMapWithExpectedTimestamps(sContext, sBatteryHistoryMap));
+        while (state.keepRunning()) {
+            DataProcessor.getHistoryMapWithExpectedTimestamps(sContext, sBatteryHistoryMap);
+        }
+    }
+
+    @Test
+    public void getBatteryDiffDataMap() {
+        final BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        reportAllocations("getBatteryDiffDataMap",
+                BatteryUsagePipelinePerfTest::getBatteryDiffDataMap);
+        while (state.keepRunning()) {
+            getBatteryDiffDataMap();
+        }
+    }
+
+    @Test
+    public void generateBatteryUsageMap() {
+        final BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        reportAllocations("generateBatteryUsageMap", () -> DataProcessor.generateBatteryUsageMap(
+                sContext, sBatteryDiffDataMap, sBatteryLevelData));
+        while (state.keepRunning()) {
+            DataProcessor.generateBatteryUsageMap(
+                    sContext, sBatteryDiffDataMap, sBatteryLevelData);
+        }
+    }
+
+    @Test
+    public void buildAppUsagePeriodList() {
+        final BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        final long startTimestamp = BatteryUsageDataGenerator.START_TIMESTAMP;
+        reportAllocations("buildAppUsagePeriodList", () -> DataProcessor.buildAppUsagePeriodList(
+                sContext, sAppUsageEvents, new ArrayList<>(), startTimestamp, sEndTimestamp));
+        while (state.keepRunning()) {
+            DataProcessor.buildAppUsagePeriodList(
+                    sContext, sAppUsageEvents, new ArrayList<>(), startTimestamp, sEndTimestamp);
+        }
+    }
+
+    @Test
+    public void generateAppUsagePeriodMap() {
+        final BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        reportAllocations("generateAppUsagePeriodMap", () ->
+                DataProcessor.generateAppUsagePeriodMap(sContext,
+                        sBatteryLevelData.getHourlyBatteryLevelsPerDay(), sAppUsageEvents,
+                        new ArrayList<>()));
+        while (state.keepRunning()) {
+            DataProcessor.generateAppUsagePeriodMap(sContext,
+                    sBatteryLevelData.getHourlyBatteryLevelsPerDay(), sAppUsageEvents,
+                    new ArrayList<>());
+        }
+    }
+
+    @Test
+    public void convertToBatteryUsageSlotList() {
+        final BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        reportAllocations("convertToBatteryUsageSlotList", () ->
+                ConvertUtils.convertToBatteryUsageSlotList(sBatteryDiffDataMap));
+        while (state.keepRunning()) {
+            ConvertUtils.convertToBatteryUsageSlotList(sBatteryDiffDataMap);
+        }
+    }
+
+    @Test
+    public void convertToBatteryDiffData() {
+        final BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        final List<BatteryUsageSlot> batteryUsageSlots =
+                ConvertUtils.convertToBatteryUsageSlotList(sBatteryDiffDataMap);
+        final Runnable convertAll = () -> {
+            for (BatteryUsageSlot batteryUsageSlot : batteryUsageSlots) {
+                ConvertUtils.convertToBatteryDiffData(
+                        sContext, batteryUsageSlot, Set.of(), Set.of());
+            }
+        };
+        reportAllocations("convertToBatteryDiffData", convertAll);
+        while (state.keepRunning()) {
+            convertAll.run();
+        }
+    }
+
+    @Test
+    public void convertBatteryUsageSlotToContentValues() {
+        final BenchmarkState state = mPerfStatusReporter.getBenchmarkState();
+        final List<BatteryUsageSlot> batteryUsageSlots =
+                ConvertUtils.convertToBatteryUsageSlotList(sBatteryDiffDataMap);
+        final Runnable convertAll = () -> {
+            for (BatteryUsageSlot batteryUsageSlot : batteryUsageSlots) {
+                ConvertUtils.convertBatteryUsageSlotToContentValues(batteryUsageSlot);
+            }
+        };
+        reportAllocations("convertBatteryUsageSlotToContentValues", convertAll);
+        while (state.keepRunning()) {
+            convertAll.run();
+        }
+    }
+
+    private static Map<Long, BatteryDiffData> getBatteryDiffDataMap() {
+        return DataProcessor.getBatteryDiffDataMap(sContext,
+                sBatteryLevelData.getHourlyBatteryLevelsPerDay(), sProcessedBatteryHistoryMap,
+                /*appUsagePeriodMap=*/ null, Set.of(), Set.of());
+    }
+
+    /** Replaces the placeholder with the latest snapshot as the current battery stats. */
+    private static void replaceCurrentTimePlaceholder(
+            Map<Long, Map<String, BatteryHistEntry>> processedBatteryHistoryMap,
+            Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+        long latestTimestamp = 0;
+        for (long timestamp : batteryHistoryMap.keySet()) {
+            latestTimestamp = Math.max(latestTimestamp, timestamp);
+        }
+        final Map<String, BatteryHistEntry> latestSnapshot =
+                new ArrayMap<>(batteryHistoryMap.get(latestTimestamp));
+        for (Map.Entry<Long, Map<String, BatteryHistEntry>> mapEntry
+                : processedBatteryHistoryMap.entrySet()) {
+            if (mapEntry.getValue().containsKey(
+                    DataProcessor.CURRENT_TIME_BATTERY_HISTORY_PLACEHOLDER)) {
+                mapEntry.setValue(latestSnapshot);
+            }
+        }
+    }
+
+    /** Runs the stage once and reports the allocations of the current thread. */
+    private static void reportAllocations(String stageName, Runnable stage) {
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        stage.run();
+        Debug.stopAllocCounting();
+        final Bundle status = new Bundle();
+        status.putLong(stageName + "_alloc_count", Debug.getThreadAllocCount());
+        status.putLong(stageName + "_alloc_bytes", Debug.getThreadAllocSize());
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+}
@@ -33,6 +33,7 @@ import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -51,6 +52,8 @@ public class SettingsDumpServiceTest {
     private static final String PACKAGE_BROWSER = "com.android.test.browser";
     private static final String PACKAGE_NULL = "android";
     private static final int ANOMALY_VERSION = 2;
+    private static final String TEST_SECTION = "test_section";
+    private static final String TEST_ON_DEMAND_SECTION = "test_on_demand_section";
 
     @Mock
     private PackageManager mPackageManager;
@@ -66,6 +69,15 @@ public class SettingsDumpServiceTest {
                 PackageManager.MATCH_DEFAULT_ONLY)).thenReturn(mResolveInfo);
         mTestService = spy(new TestService());
         mTestService.setPackageManager(mPackageManager);
+        SettingsDumpService.registerSection(TEST_SECTION, context -> "test_value");
+        SettingsDumpService.registerOnDemandSection(TEST_ON_DEMAND_SECTION,
+                context -> "on_demand_value");
+    }
+
+    @After
+    public void tearDown() {
+        SettingsDumpService.unregisterSection(TEST_SECTION);
+        SettingsDumpService.unregisterSection(TEST_ON_DEMAND_SECTION);
     }
 
     @Test
@@ -114,6 +126,55 @@ public class SettingsDumpServiceTest {
                 .contains("{\"" + SettingsDumpService.KEY_SERVICE + "\":");
     }
 
+    @Test
+    public void testDump_selectedSection_onlyDumpSelectedSection() {
+        final StringWriter stringWriter = new StringWriter();
+
+        mTestService.dump(null, new PrintWriter(stringWriter),
+                new String[] {TEST_SECTION, "no_such_section"});
+
+        final String dump = stringWriter.toString();
+        assertThat(dump).contains("\"" + TEST_SECTION + "\":\"test_value\"");
+        assertThat(dump).contains("\"" + SettingsDumpService.KEY_UNKNOWN_SECTIONS
+                + "\":[\"no_such_section\"]");
+        assertThat(dump).doesNotContain("\"" + SettingsDumpService.KEY_STORAGE + "\"");
+    }
+
+    @Test
+    public void testDump_onDemandSectionSelected_dumpOnDemandSection() {
+        final StringWriter stringWriter = new StringWriter();
+
+        mTestService.dump(null, new PrintWriter(stringWriter),
+                new String[] {TEST_SECTION, TEST_ON_DEMAND_SECTION});
+
+        final String dump = stringWriter.toString();
+        assertThat(dump).contains("\"" + TEST_SECTION + "\":\"test_value\"");
+        assertThat(dump).contains("\"" + TEST_ON_DEMAND_SECTION + "\":\"on_demand_value\"");
+    }
+
+    @Test
+    public void testDump_onDemandSectionNotSelected_skipOnDemandSection() {
+        final StringWriter stringWriter = new StringWriter();
+
+        mTestService.dump(null, new PrintWriter(stringWriter), new String[] {TEST_SECTION});
+
+        assertThat(stringWriter.toString()).doesNotContain("on_demand_value");
+    }
+
+    @Test
+    public void testDump_listSections_printSectionNames() {
+        final StringWriter stringWriter = new StringWriter();
+
+        mTestService.dump(null, new PrintWriter(stringWriter),
+                new String[] {SettingsDumpService.ARG_LIST_SECTIONS});
+
+        final String dump = stringWriter.toString();
+        assertThat(dump).contains(SettingsDumpService.KEY_STORAGE);
+        assertThat(dump).contains(TEST_SECTION);
+        assertThat(dump).contains(TEST_ON_DEMAND_SECTION);
+        assertThat(dump).doesNotContain("test_value");
+    }
+
     /**
      * Test service used to pass in the mock {@link PackageManager}
      */
@@ -34,6 +34,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -68,7 +69,6 @@ import org.robolectric.RuntimeEnvironment;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
 public class AppStateNotificationBridgeTest {
@@ -87,6 +87,7 @@ public class AppStateNotificationBridgeTest {
     @Mock
     private NotificationBackend mBackend;
     private Context mContext;
+    private NotificationSentStatsStore mSentStatsStore;
     private AppStateNotificationBridge mBridge;
 
     @Before
@@ -99,9 +100,13 @@ public class AppStateNotificationBridgeTest {
         // most tests assume no work profile
         when(mUserManager.getProfileIdsWithDisabled(anyInt())).thenReturn(new int[]{});
         mContext = RuntimeEnvironment.application.getApplicationContext();
+        mSentStatsStore = new NotificationSentStatsStore(mContext.getSharedPreferences(
+                "notification_sent_stats_test", Context.MODE_PRIVATE));
+        mSentStatsStore.clear();
 
         mBridge = new AppStateNotificationBridge(mContext, mState,
-                mock(AppStateBaseBridge.Callback.class), mUsageStats, mUserManager, mBackend);
+                mock(AppStateBaseBridge.Callback.class), mUsageStats, mUserManager, mBackend,
+                mSentStatsStore);
     }
 
     private AppEntry getMockAppEntry(String pkg) {
@@ -125,7 +130,9 @@ public class AppStateNotificationBridgeTest {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
                 .thenReturn(mock(UsageEvents.class));
 
-        assertThat(mBridge.getAggregatedUsageEvents()).isEmpty();
+        mBridge.updateSentStats();
+
+        assertThat(mSentStatsStore.getPackageCount(0)).isEqualTo(0);
     }
 
     @Test
@@ -146,8 +153,9 @@ public class AppStateNotificationBridgeTest {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
                 .thenReturn(usageEvents);
 
-        Map<String, NotificationsSentState> map = mBridge.getAggregatedUsageEvents();
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).sentCount).isEqualTo(1);
+        mBridge.updateSentStats();
+
+        assertThat(mSentStatsStore.getSentState(0, PKG1).sentCount).isEqualTo(1);
     }
 
     @Test
@@ -168,9 +176,10 @@ public class AppStateNotificationBridgeTest {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
                 .thenReturn(usageEvents);
 
-        Map<String, NotificationsSentState> map  = mBridge.getAggregatedUsageEvents();
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).sentCount).isEqualTo(2);
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).lastSent).isEqualTo(6);
+        mBridge.updateSentStats();
+
+        assertThat(mSentStatsStore.getSentState(0, PKG1).sentCount).isEqualTo(2);
+        assertThat(mSentStatsStore.getSentState(0, PKG1).lastSent).isEqualTo(6);
     }
 
     @Test
@@ -191,12 +200,12 @@ public class AppStateNotificationBridgeTest {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
                 .thenReturn(usageEvents);
 
-        Map<String, NotificationsSentState> map
-                = mBridge.getAggregatedUsageEvents();
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).sentCount).isEqualTo(1);
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG2)).sentCount).isEqualTo(1);
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).lastSent).isEqualTo(6);
-        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG2)).lastSent).isEqualTo(1);
+        mBridge.updateSentStats();
+
+        assertThat(mSentStatsStore.getSentState(0, PKG1).sentCount).isEqualTo(1);
+        assertThat(mSentStatsStore.getSentState(0, PKG2).sentCount).isEqualTo(1);
+        assertThat(mSentStatsStore.getSentState(0, PKG1).lastSent).isEqualTo(6);
+        assertThat(mSentStatsStore.getSentState(0, PKG2).lastSent).isEqualTo(1);
     }
 
     @Test
@@ -287,7 +296,8 @@ public class AppStateNotificationBridgeTest {
         when(mUserManager.getProfiles(anyInt())).thenReturn(Arrays.asList(
                 new UserInfo(1, "", UserInfo.FLAG_MANAGED_PROFILE | UserInfo.FLAG_PROFILE)));
         mBridge = new AppStateNotificationBridge(mContext, mState,
-                mock(AppStateBaseBridge.Callback.class), mUsageStats, mUserManager, mBackend);
+                mock(AppStateBaseBridge.Callback.class), mUsageStats, mUserManager, mBackend,
+                mSentStatsStore);
 
         List<Event> eventsProfileOwner = new ArrayList<>();
         for (int i = 0; i < 8; i++) {
@@ -375,6 +385,28 @@ public class AppStateNotificationBridgeTest {
         assertThat(((NotificationsSentState) entry.extraInfo).blockable).isTrue();
     }
 
+    @Test
+    public void testUpdateExtraInfo_statsLoaded_advanceStoreInsteadOfPackageQuery()
+            throws RemoteException {
+        List<Event> events = new ArrayList<>();
+        Event good = new Event();
+        good.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        good.mPackage = PKG1;
+        good.mTimeStamp = 1;
+        events.add(good);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(events), mock(UsageEvents.class));
+        mBridge.updateSentStats();
+
+        AppEntry entry = getMockAppEntry(PKG1);
+        mBridge.updateExtraInfo(entry, "", 0);
+
+        verify(mUsageStats, never()).queryEventsForPackageForUser(
+                anyLong(), anyLong(), anyInt(), anyString(), anyString());
+        assertThat(((NotificationsSentState) entry.extraInfo).sentCount).isEqualTo(1);
+        assertThat(((NotificationsSentState) entry.extraInfo).lastSent).isEqualTo(1);
+    }
+
     @Test
     public void testSummary_recency() {
         NotificationsSentState neverSent = new NotificationsSentState();
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.IUsageStatsManager;
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageEvents.Event;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Parcel;
+import android.os.RemoteException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationSentStatsStoreTest {
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+    private static final String CALLING_PKG = "settings";
+    private static final int USER_ID = 0;
+    private static final long NOW = NotificationSentStatsStore.WINDOW_MS * 2;
+
+    @Mock
+    private IUsageStatsManager mUsageStats;
+    private final List<Event> mEvents = new ArrayList<>();
+    private SharedPreferences mPreferences;
+    private NotificationSentStatsStore mStore;
+
+    @Before
+    public void setUp() throws RemoteException {
+        MockitoAnnotations.initMocks(this);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenAnswer(invocation -> getUsageEvents(
+                        invocation.getArgument(0), invocation.getArgument(1)));
+        mPreferences = RuntimeEnvironment.application.getSharedPreferences(
+                "notification_sent_stats_test", Context.MODE_PRIVATE);
+        mPreferences.edit().clear().commit();
+        mStore = new NotificationSentStatsStore(mPreferences);
+    }
+
+    @Test
+    public void update_firstUpdate_scanWholeWindow() {
+        addEvent(PKG1, NOW - NotificationSentStatsStore.WINDOW_MS - 1);
+        addEvent(PKG1, NOW - 2);
+        addEvent(PKG1, NOW - 1);
+        addEvent(PKG2, NOW - 3);
+
+        assertThat(mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW)).isTrue();
+
+        assertThat(mStore.isLoaded(USER_ID)).isTrue();
+        assertThat(mStore.getSentState(USER_ID, PKG1).sentCount).isEqualTo(2);
+        assertThat(mStore.getSentState(USER_ID, PKG1).lastSent).isEqualTo(NOW - 1);
+        assertThat(mStore.getSentState(USER_ID, PKG2).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void update_secondUpdate_onlyScanNewAndExpiredEvents() throws RemoteException {
+        final long windowStart = NOW - NotificationSentStatsStore.WINDOW_MS;
+        addEvent(PKG1, windowStart + 5);
+        addEvent(PKG2, windowStart + 20);
+        mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW);
+        addEvent(PKG2, NOW + 5);
+
+        mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW + 10);
+
+        verify(mUsageStats).queryEventsForUser(windowStart, windowStart + 10, USER_ID,
+                CALLING_PKG);
+        verify(mUsageStats).queryEventsForUser(NOW, NOW + 10, USER_ID, CALLING_PKG);
+        assertThat(mStore.getSentState(USER_ID, PKG1)).isNull();
+        assertThat(mStore.getSentState(USER_ID, PKG2).sentCount).isEqualTo(2);
+        assertThat(mStore.getSentState(USER_ID, PKG2).lastSent).isEqualTo(NOW + 5);
+        assertThat(mStore.getPackageCount(USER_ID)).isEqualTo(1);
+    }
+
+    @Test
+    public void update_afterWholeWindow_scanWholeWindowAgain() throws RemoteException {
+        addEvent(PKG1, NOW - 1);
+        mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW);
+        final long later = NOW + NotificationSentStatsStore.WINDOW_MS;
+
+        mStore.update(mUsageStats, USER_ID, CALLING_PKG, later);
+
+        verify(mUsageStats).queryEventsForUser(NOW, later, USER_ID, CALLING_PKG);
+        assertThat(mStore.getSentState(USER_ID, PKG1)).isNull();
+    }
+
+    @Test
+    public void update_queryFails_dropUserStats() throws RemoteException {
+        addEvent(PKG1, NOW - 1);
+        mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenThrow(new RemoteException());
+
+        assertThat(mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW + 1)).isFalse();
+
+        assertThat(mStore.isLoaded(USER_ID)).isFalse();
+        assertThat(mStore.getSentState(USER_ID, PKG1)).isNull();
+    }
+
+    @Test
+    public void update_afterProcessRestart_onlyScanNewAndExpiredEvents() throws RemoteException {
+        final long windowStart = NOW - NotificationSentStatsStore.WINDOW_MS;
+        addEvent(PKG1, windowStart + 5);
+        addEvent(PKG2, NOW - 1);
+        mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW);
+        addEvent(PKG2, NOW + 5);
+        final NotificationSentStatsStore restartedStore =
+                new NotificationSentStatsStore(mPreferences);
+
+        assertThat(restartedStore.isLoaded(USER_ID)).isTrue();
+        assertThat(restartedStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW + 10)).isTrue();
+
+        verify(mUsageStats, never()).queryEventsForUser(windowStart + 10, NOW + 10, USER_ID,
+                CALLING_PKG);
+        verify(mUsageStats).queryEventsForUser(NOW, NOW + 10, USER_ID, CALLING_PKG);
+        assertThat(restartedStore.getSentState(USER_ID, PKG1)).isNull();
+        assertThat(restartedStore.getSentState(USER_ID, PKG2).sentCount).isEqualTo(2);
+        assertThat(restartedStore.getSentState(USER_ID, PKG2).lastSent).isEqualTo(NOW + 5);
+    }
+
+    @Test
+    public void isLoaded_afterQueryFailsAndProcessRestart_returnFalse() throws RemoteException {
+        addEvent(PKG1, NOW - 1);
+        mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenThrow(new RemoteException());
+        mStore.update(mUsageStats, USER_ID, CALLING_PKG, NOW + 1);
+
+        assertThat(new NotificationSentStatsStore(mPreferences).isLoaded(USER_ID)).isFalse();
+    }
+
+    @Test
+    public void isLoaded_corruptedPreferences_returnFalse() {
+        mPreferences.edit().putString("user_" + USER_ID, "corrupted").commit();
+
+        assertThat(mStore.isLoaded(USER_ID)).isFalse();
+    }
+
+    private void addEvent(String pkg, long timeStamp) {
+        final Event event = new Event();
+        event.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        event.mPackage = pkg;
+        event.mTimeStamp = timeStamp;
+        mEvents.add(event);
+    }
+
+    private UsageEvents getUsageEvents(long begin, long end) {
+        final List<Event> events = new ArrayList<>();
+        for (Event event : mEvents) {
+            if (event.mTimeStamp >= begin && event.mTimeStamp < end) {
+                events.add(event);
+            }
+        }
+        final UsageEvents usageEvents = new UsageEvents(events, new String[] {PKG1, PKG2});
+        final Parcel parcel = Parcel.obtain();
+        parcel.setDataPosition(0);
+        usageEvents.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        return UsageEvents.CREATOR.createFromParcel(parcel);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.content.pm.ApplicationInfo;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppSearchIndexTest {
+
+    private List<AppEntry> mEntries;
+    private AppSearchIndex mSearchIndex;
+
+    @Before
+    public void setUp() {
+        mEntries = new ArrayList<>();
+        mEntries.add(createAppEntry("Écran Tool", "com.example.screen"));
+        mEntries.add(createAppEntry("Calendar", "com.example.calendar"));
+        mEntries.add(createAppEntry("Camera", "org.camera"));
+        mEntries.add(createAppEntry("Maps", null));
+        mSearchIndex = new AppSearchIndex(mEntries);
+    }
+
+    @Test
+    public void normalize_foldCaseAndDiacritics() {
+        assertThat(AppSearchIndex.normalize("Écran ÀÇÜ")).isEqualTo("ecran acu");
+        assertThat(AppSearchIndex.normalize(null)).isEmpty();
+    }
+
+    @Test
+    public void search_diacriticsInLabel_match() {
+        assertThat(getLabels(mSearchIndex.search("ecr", () -> false)))
+                .containsExactly("Écran Tool");
+    }
+
+    @Test
+    public void search_wordStartAndSubstring_matchInListOrder() {
+        assertThat(getLabels(mSearchIndex.search("TOOL", () -> false)))
+                .containsExactly("Écran Tool");
+        assertThat(getLabels(mSearchIndex.search("a", () -> false)))
+                .containsExactly("Écran Tool", "Calendar", "Camera", "Maps").inOrder();
+    }
+
+    @Test
+    public void search_packageNamePrefix_match() {
+        assertThat(getLabels(mSearchIndex.search("com.example", () -> false)))
+                .containsExactly("Écran Tool", "Calendar").inOrder();
+        assertThat(mSearchIndex.search("example", () -> false)).isEmpty();
+    }
+
+    @Test
+    public void search_extendedQuery_searchInLastResults() {
+        assertThat(getLabels(mSearchIndex.search("ca", () -> false)))
+                .containsExactly("Calendar", "Camera").inOrder();
+
+        assertThat(getLabels(mSearchIndex.search("cam", () -> false)))
+                .containsExactly("Camera");
+        assertThat(getLabels(mSearchIndex.search("m", () -> false)))
+                .containsExactly("Camera", "Maps").inOrder();
+    }
+
+    @Test
+    public void search_cancelled_returnNull() {
+        assertThat(mSearchIndex.search("ca", () -> true)).isNull();
+    }
+
+    @Test
+    public void isIndexOf_sameList_returnTrue() {
+        assertThat(mSearchIndex.isIndexOf(mEntries)).isTrue();
+        assertThat(mSearchIndex.isIndexOf(new ArrayList<>(mEntries))).isFalse();
+    }
+
+    private static AppEntry createAppEntry(String label, String packageName) {
+        final AppEntry entry = mock(AppEntry.class);
+        entry.label = label;
+        if (packageName != null) {
+            entry.info = new ApplicationInfo();
+            entry.info.packageName = packageName;
+        }
+        return entry;
+    }
+
+    private static List<String> getLabels(List<AppEntry> entries) {
+        final List<String> labels = new ArrayList<>();
+        for (AppEntry entry : entries) {
+            labels.add(entry.label);
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class DashboardPageTracerTest {
+    private static final String PAGE = "TestPage";
+
+    @After
+    public void tearDown() {
+        DashboardPageTracer.clearStats();
+    }
+
+    @Test
+    public void finish_firstStart_recordColdStartAndPhases() throws Exception {
+        final DashboardPageTracer tracer = new DashboardPageTracer(PAGE);
+        tracer.beginPhase(DashboardPageTracer.PHASE_PARSE_XML);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(20));
+        tracer.endPhase();
+        tracer.beginPhase(DashboardPageTracer.PHASE_FIRST_UPDATE_STATE);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(5));
+        tracer.finish();
+
+        final JSONObject page = DashboardPageTracer.dump().getJSONObject(PAGE);
+        final JSONObject phases = page.getJSONObject("last_phases_ms");
+
+        assertThat(page.getJSONObject("cold_starts").getInt("count")).isEqualTo(1);
+        assertThat(page.getJSONObject("warm_starts").getInt("count")).isEqualTo(0);
+        assertThat(phases.getLong(DashboardPageTracer.PHASE_PARSE_XML)).isEqualTo(20);
+        assertThat(phases.getLong(DashboardPageTracer.PHASE_FIRST_UPDATE_STATE)).isEqualTo(5);
+    }
+
+    @Test
+    public void finish_secondStart_recordWarmStart() throws Exception {
+        new DashboardPageTracer(PAGE).finish();
+        new DashboardPageTracer(PAGE).finish();
+
+        final JSONObject page = DashboardPageTracer.dump().getJSONObject(PAGE);
+
+        assertThat(page.getJSONObject("cold_starts").getInt("count")).isEqualTo(1);
+        assertThat(page.getJSONObject("warm_starts").getInt("count")).isEqualTo(1);
+    }
+
+    @Test
+    public void finish_afterFinish_ignoreLaterCalls() throws Exception {
+        final DashboardPageTracer tracer = new DashboardPageTracer(PAGE);
+        tracer.finish();
+        tracer.beginPhase(DashboardPageTracer.PHASE_INJECT_TILES);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(20));
+        tracer.endPhase();
+        tracer.finish();
+
+        final JSONObject page = DashboardPageTracer.dump().getJSONObject(PAGE);
+
+        assertThat(page.getJSONObject("cold_starts").getInt("count")).isEqualTo(1);
+        assertThat(page.getJSONObject("last_phases_ms").length()).isEqualTo(0);
+    }
+
+    @Test
+    public void getSlowestControllers_sumDurationsAndSortBySlowest() {
+        final DashboardPageTracer tracer = new DashboardPageTracer(PAGE);
+        traceController(tracer, "FastController", 1);
+        traceController(tracer, "SlowController", 10);
+        traceController(tracer, "FastController", 2);
+        for (int i = 0; i < DashboardPageTracer.SLOWEST_CONTROLLER_COUNT; i++) {
+            traceController(tracer, "Controller" + i, 0);
+        }
+
+        final List<Map.Entry<String, Long>> controllers = tracer.getSlowestControllers();
+
+        assertThat(controllers).hasSize(DashboardPageTracer.SLOWEST_CONTROLLER_COUNT);
+        assertThat(controllers.get(0).getKey()).isEqualTo("SlowController");
+        assertThat(controllers.get(1).getKey()).isEqualTo("FastController");
+        assertThat(controllers.get(1).getValue()).isEqualTo(Duration.ofMillis(3).toNanos());
+    }
+
+    private static void traceController(DashboardPageTracer tracer, String name, long ms) {
+        tracer.beginController(name);
+        ShadowSystemClock.advanceBy(Duration.ofMillis(ms));
+        tracer.endController();
+    }
+}
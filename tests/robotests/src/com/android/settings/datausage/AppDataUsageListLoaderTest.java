@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.PackageManager;
+import android.content.pm.UserInfo;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppDataUsageListLoaderTest {
+    private static final int CURRENT_USER_ID = 0;
+    private static final int WORK_USER_ID = 10;
+    private static final int OTHER_USER_ID = 11;
+    private static final int REMOVED_USER_ID = 12;
+    private static final int APP_UID_1 = UserHandle.getUid(CURRENT_USER_ID, 10001);
+    private static final int APP_UID_2 = UserHandle.getUid(CURRENT_USER_ID, 10002);
+    private static final String CARRIER_PACKAGE = "com.android.carrier";
+
+    @Mock
+    private UserManager mUserManager;
+    @Mock
+    private PackageManager mPackageManager;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mUserManager.getUserProfiles()).thenReturn(Arrays.asList(
+                UserHandle.of(CURRENT_USER_ID), UserHandle.of(WORK_USER_ID)));
+        when(mUserManager.getUserInfo(OTHER_USER_ID)).thenReturn(new UserInfo());
+    }
+
+    @Test
+    public void build_sameUid_accumulateUsage() {
+        final AppDataUsageListLoader.Aggregator aggregator = createAggregator();
+        aggregator.add(APP_UID_1, 100);
+        aggregator.add(APP_UID_1, 50);
+        aggregator.add(APP_UID_2, 10);
+
+        final AppDataUsageListLoader.Result result = aggregator.build();
+
+        assertThat(getKeys(result.items)).containsExactly(APP_UID_1, APP_UID_2).inOrder();
+        assertThat(result.items.get(0).total).isEqualTo(150);
+        assertThat(result.largest).isEqualTo(150);
+    }
+
+    @Test
+    public void build_workProfileApp_addToManagedUserItem() {
+        final AppDataUsageListLoader.Aggregator aggregator = createAggregator();
+        final int workUid = UserHandle.getUid(WORK_USER_ID, 10001);
+        aggregator.add(workUid, 100);
+
+        final AppDataUsageListLoader.Result result = aggregator.build();
+
+        assertThat(getKeys(result.items)).containsExactly(workUid,
+                UidDetailProvider.buildKeyForUser(WORK_USER_ID));
+    }
+
+    @Test
+    public void build_otherUsers_collapseByUser() {
+        final AppDataUsageListLoader.Aggregator aggregator = createAggregator();
+        aggregator.add(UserHandle.getUid(OTHER_USER_ID, 10001), 100);
+        aggregator.add(UserHandle.getUid(OTHER_USER_ID, 10002), 100);
+        aggregator.add(UserHandle.getUid(REMOVED_USER_ID, 10001), 10);
+        aggregator.add(UserHandle.getUid(REMOVED_USER_ID, 10002), 10);
+
+        final AppDataUsageListLoader.Result result = aggregator.build();
+
+        assertThat(getKeys(result.items)).containsExactly(
+                UidDetailProvider.buildKeyForUser(OTHER_USER_ID), UID_REMOVED).inOrder();
+        assertThat(result.items.get(0).category).isEqualTo(AppItem.CATEGORY_USER);
+        verify(mUserManager, times(1)).getUserInfo(OTHER_USER_ID);
+        verify(mUserManager, times(1)).getUserInfo(REMOVED_USER_ID);
+    }
+
+    @Test
+    public void build_systemUid_collapseToSystem() {
+        final AppDataUsageListLoader.Aggregator aggregator = createAggregator();
+        aggregator.add(Process.ROOT_UID, 100);
+        aggregator.add(Process.PHONE_UID, 100);
+
+        final AppDataUsageListLoader.Result result = aggregator.build();
+
+        assertThat(getKeys(result.items)).containsExactly(Process.SYSTEM_UID);
+        assertThat(result.items.get(0).total).isEqualTo(200);
+    }
+
+    @Test
+    public void build_restrictedUid_markRestrictedForProfilesOnly() {
+        final AppDataUsageListLoader.Aggregator aggregator = createAggregator();
+        aggregator.add(APP_UID_1, 100);
+        aggregator.addRestricted(APP_UID_1);
+        aggregator.addRestricted(APP_UID_2);
+        aggregator.addRestricted(UserHandle.getUid(OTHER_USER_ID, 10001));
+
+        final AppDataUsageListLoader.Result result = aggregator.build();
+
+        assertThat(getKeys(result.items)).containsExactly(APP_UID_1, APP_UID_2).inOrder();
+        assertThat(result.items.get(0).restricted).isTrue();
+        assertThat(result.items.get(1).restricted).isTrue();
+        assertThat(result.items.get(1).total).isEqualTo(-1);
+    }
+
+    @Test
+    public void build_hiddenPackage_removeItem() {
+        when(mPackageManager.getPackagesForUid(APP_UID_1))
+                .thenReturn(new String[] {CARRIER_PACKAGE});
+        final AppDataUsageListLoader.Aggregator aggregator = new AppDataUsageListLoader.Aggregator(
+                CURRENT_USER_ID, mUserManager, mPackageManager,
+                Collections.singletonList(CARRIER_PACKAGE));
+        aggregator.add(APP_UID_1, 100);
+        aggregator.add(APP_UID_2, 10);
+
+        final AppDataUsageListLoader.Result result = aggregator.build();
+
+        assertThat(getKeys(result.items)).containsExactly(APP_UID_2);
+    }
+
+    private AppDataUsageListLoader.Aggregator createAggregator() {
+        return new AppDataUsageListLoader.Aggregator(CURRENT_USER_ID, mUserManager,
+                mPackageManager, Collections.emptyList());
+    }
+
+    private static List<Integer> getKeys(List<AppItem> items) {
+        return items.stream().map(item -> item.key).collect(Collectors.toList());
+    }
+}
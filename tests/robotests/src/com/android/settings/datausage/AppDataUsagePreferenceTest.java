@@ -18,6 +18,8 @@ package com.android.settings.datausage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.graphics.Color;
@@ -73,13 +75,22 @@ public class AppDataUsagePreferenceTest {
     }
 
     @Test
-    public void createPref_noCachedUidDetail_shouldSetAppInfo() {
+    public void createPref_noCachedUidDetail_shouldNotLoadUidDetail() {
+        mPreference = new AppDataUsagePreference(RuntimeEnvironment.application, mAppItem,
+                50 /* percent */, mUidDetailProvider);
+
+        verify(mUidDetailProvider, never()).getUidDetail(mAppItem.key, true /* blocking */);
+    }
+
+    @Test
+    public void bindPref_noCachedUidDetail_shouldSetAppInfo() {
         when(mUidDetailProvider.getUidDetail(mAppItem.key, true /* blocking */))
                 .thenReturn(mUidDetail);
-
         mPreference = new AppDataUsagePreference(RuntimeEnvironment.application, mAppItem,
                 50 /* percent */, mUidDetailProvider);
 
+        mPreference.onBindViewHolder(createPreferenceViewHolder());
+
         assertThat(mPreference.getTitle()).isEqualTo(mUidDetail.label);
         assertThat(mPreference.getIcon()).isEqualTo(mUidDetail.icon);
     }
@@ -90,10 +101,7 @@ public class AppDataUsagePreferenceTest {
                 .thenReturn(mUidDetail);
         mPreference = new AppDataUsagePreference(RuntimeEnvironment.application, mAppItem,
                 50 /* percent */, mUidDetailProvider);
-        final View view = LayoutInflater.from(RuntimeEnvironment.application).inflate(
-                com.android.settingslib.R.layout.preference_app, null);
-        final PreferenceViewHolder preferenceViewHolder =
-                PreferenceViewHolder.createInstanceForTests(view);
+        final PreferenceViewHolder preferenceViewHolder = createPreferenceViewHolder();
         final ProgressBar progressBar = (ProgressBar) preferenceViewHolder.findViewById(
                 android.R.id.progress);
 
@@ -101,4 +109,10 @@ public class AppDataUsagePreferenceTest {
 
         assertThat(progressBar.getContentDescription()).isEqualTo(FIFTY_PERCENT);
     }
+
+    private PreferenceViewHolder createPreferenceViewHolder() {
+        final View view = LayoutInflater.from(RuntimeEnvironment.application).inflate(
+                com.android.settingslib.R.layout.preference_app, null);
+        return PreferenceViewHolder.createInstanceForTests(view);
+    }
 }
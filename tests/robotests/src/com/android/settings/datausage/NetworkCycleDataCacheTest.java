@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.NetworkTemplate;
+import android.util.SparseLongArray;
+
+import com.android.settingslib.net.NetworkCycleChartData;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class NetworkCycleDataCacheTest {
+    private static final long START = 1521583200000L;
+    private static final long END = 1521676800000L;
+    private static final long CLOSED_TIME = END + NetworkCycleDataCache.CLOSED_CYCLE_DELAY_MS;
+
+    private final NetworkTemplate mWifiTemplate =
+            new NetworkTemplate.Builder(NetworkTemplate.MATCH_WIFI).build();
+    private final NetworkTemplate mMobileTemplate =
+            new NetworkTemplate.Builder(NetworkTemplate.MATCH_MOBILE).build();
+
+    @After
+    public void tearDown() {
+        NetworkCycleDataCache.clear();
+    }
+
+    @Test
+    public void isClosed_beforeDelay_returnFalse() {
+        assertThat(NetworkCycleDataCache.isClosed(END, END + 1)).isFalse();
+        assertThat(NetworkCycleDataCache.isClosed(END, CLOSED_TIME)).isTrue();
+    }
+
+    @Test
+    public void putUidUsage_closedCycle_cached() {
+        final SparseLongArray usage = new SparseLongArray();
+        usage.put(10001, 100L);
+
+        NetworkCycleDataCache.putUidUsage(mWifiTemplate, START, END, usage, CLOSED_TIME);
+
+        assertThat(NetworkCycleDataCache.getUidUsage(
+                new NetworkTemplate.Builder(NetworkTemplate.MATCH_WIFI).build(), START, END))
+                .isSameInstanceAs(usage);
+        assertThat(NetworkCycleDataCache.getUidUsage(mMobileTemplate, START, END)).isNull();
+        assertThat(NetworkCycleDataCache.getUidUsage(mWifiTemplate, START, END + 1)).isNull();
+    }
+
+    @Test
+    public void putUidUsage_openCycle_notCached() {
+        NetworkCycleDataCache.putUidUsage(mWifiTemplate, START, END, new SparseLongArray(),
+                END - 1);
+
+        assertThat(NetworkCycleDataCache.getUidUsage(mWifiTemplate, START, END)).isNull();
+    }
+
+    @Test
+    public void putChartData_returnCopyForTemplate() {
+        final List<NetworkCycleChartData> data = new ArrayList<>();
+        final NetworkCycleChartData.Builder builder = new NetworkCycleChartData.Builder();
+        builder.setStartTime(START)
+                .setEndTime(END);
+        data.add(builder.build());
+
+        NetworkCycleDataCache.putChartData(mWifiTemplate, data);
+        data.clear();
+
+        assertThat(NetworkCycleDataCache.getChartData(mWifiTemplate)).hasSize(1);
+        assertThat(NetworkCycleDataCache.getChartData(mMobileTemplate)).isNull();
+    }
+}
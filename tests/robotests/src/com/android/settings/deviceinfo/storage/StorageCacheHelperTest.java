@@ -19,6 +19,7 @@ package com.android.settings.deviceinfo.storage;
 import static com.google.common.truth.Truth.assertThat;
 
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.os.UserHandle;
 
 import androidx.test.core.app.ApplicationProvider;
@@ -28,6 +29,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
 @RunWith(AndroidJUnit4.class)
 public class StorageCacheHelperTest {
     private static final long FAKE_IMAGES_SIZE = 7000L;
@@ -41,6 +46,10 @@ public class StorageCacheHelperTest {
     private static final long FAKE_TOTAL_SIZE = 256000L;
     private static final long FAKE_TOTAL_USED_SIZE = 50000L;
     private static final long FAKE_USED_SIZE = 6500L;
+    private static final long FAKE_CODE_BYTES = 1200L;
+    private static final String FAKE_VOLUME_UUID = "volume";
+    private static final String PACKAGE_NAME_1 = "com.android.test1";
+    private static final String PACKAGE_NAME_2 = "com.android.test2";
 
     private Context mContext;
     private StorageCacheHelper mHelper;
@@ -90,6 +99,104 @@ public class StorageCacheHelperTest {
         assertThat(mHelper.retrieveUsedSize()).isEqualTo(FAKE_USED_SIZE);
     }
 
+    @Test
+    public void cachePackageStats_shouldBeRetrievedOnSameVolume() {
+        mHelper.cachePackageStats(null /* volumeUuid */,
+                Arrays.asList(getFakePackageStats(PACKAGE_NAME_1)));
+
+        final Map<String, StorageCacheHelper.PackageStats> stats =
+                mHelper.retrievePackageStats(null /* volumeUuid */);
+
+        assertThat(stats.keySet()).containsExactly(PACKAGE_NAME_1);
+        assertThat(stats.get(PACKAGE_NAME_1).codeBytes).isEqualTo(FAKE_CODE_BYTES);
+        assertThat(mHelper.retrievePackageStats(FAKE_VOLUME_UUID)).isEmpty();
+    }
+
+    @Test
+    public void cachePackageStats_shouldDropMissingPackages() {
+        mHelper.cachePackageStats(null /* volumeUuid */, Arrays.asList(
+                getFakePackageStats(PACKAGE_NAME_1), getFakePackageStats(PACKAGE_NAME_2)));
+
+        mHelper.cachePackageStats(null /* volumeUuid */,
+                Arrays.asList(getFakePackageStats(PACKAGE_NAME_2)));
+
+        assertThat(mHelper.retrievePackageStats(null /* volumeUuid */).keySet())
+                .containsExactly(PACKAGE_NAME_2);
+    }
+
+    @Test
+    public void cachePackageStats_shouldNotAffectCachedSizeInfo() {
+        mHelper.cachePackageStats(null /* volumeUuid */,
+                Arrays.asList(getFakePackageStats(PACKAGE_NAME_1)));
+
+        assertThat(mHelper.hasCachedSizeInfo()).isFalse();
+    }
+
+    @Test
+    public void invalidatePackageStats_shouldDropPackageOnAllVolumes() {
+        mHelper.cachePackageStats(null /* volumeUuid */, Arrays.asList(
+                getFakePackageStats(PACKAGE_NAME_1), getFakePackageStats(PACKAGE_NAME_2)));
+        mHelper.cachePackageStats(FAKE_VOLUME_UUID,
+                Arrays.asList(getFakePackageStats(PACKAGE_NAME_1)));
+
+        mHelper.invalidatePackageStats(PACKAGE_NAME_1);
+
+        assertThat(mHelper.retrievePackageStats(null /* volumeUuid */).keySet())
+                .containsExactly(PACKAGE_NAME_2);
+        assertThat(mHelper.retrievePackageStats(FAKE_VOLUME_UUID)).isEmpty();
+    }
+
+    @Test
+    public void isValidFor_sameVersion_shouldReturnTrue() {
+        final StorageCacheHelper.PackageStats stats = getFakePackageStats(PACKAGE_NAME_1);
+
+        assertThat(stats.isValidFor(getFakeApp(), stats.timestamp + 1)).isTrue();
+    }
+
+    @Test
+    public void isValidFor_appUpdated_shouldReturnFalse() {
+        final StorageCacheHelper.PackageStats stats = getFakePackageStats(PACKAGE_NAME_1);
+        final ApplicationInfo app = getFakeApp();
+        app.longVersionCode = 2;
+
+        assertThat(stats.isValidFor(app, stats.timestamp + 1)).isFalse();
+    }
+
+    @Test
+    public void isValidFor_tooOld_shouldReturnFalse() {
+        final StorageCacheHelper.PackageStats stats = getFakePackageStats(PACKAGE_NAME_1);
+
+        assertThat(stats.isValidFor(getFakeApp(),
+                stats.timestamp + StorageCacheHelper.PACKAGE_STATS_MAX_AGE_MS)).isFalse();
+    }
+
+    @Test
+    public void cachePackageStats_emptyStats_shouldClearVolume() {
+        mHelper.cachePackageStats(null /* volumeUuid */,
+                Arrays.asList(getFakePackageStats(PACKAGE_NAME_1)));
+
+        mHelper.cachePackageStats(null /* volumeUuid */, Collections.emptyList());
+
+        assertThat(mHelper.retrievePackageStats(null /* volumeUuid */)).isEmpty();
+    }
+
+    private ApplicationInfo getFakeApp() {
+        final ApplicationInfo app = new ApplicationInfo();
+        app.packageName = PACKAGE_NAME_1;
+        app.sourceDir = "/data/app/" + PACKAGE_NAME_1 + "/base.apk";
+        app.longVersionCode = 1;
+        return app;
+    }
+
+    private StorageCacheHelper.PackageStats getFakePackageStats(String packageName) {
+        final StorageCacheHelper.PackageStats stats = new StorageCacheHelper.PackageStats();
+        stats.packageName = packageName;
+        stats.signature = StorageCacheHelper.PackageStats.getSignature(getFakeApp());
+        stats.timestamp = 1000L;
+        stats.codeBytes = FAKE_CODE_BYTES;
+        return stats;
+    }
+
     private StorageCacheHelper.StorageCache getFakeStorageCache() {
         StorageCacheHelper.StorageCache result = new StorageCacheHelper.StorageCache();
         result.trashSize = FAKE_TRASH_SIZE;
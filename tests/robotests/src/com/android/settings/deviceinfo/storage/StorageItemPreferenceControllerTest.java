@@ -354,6 +354,39 @@ public class StorageItemPreferenceControllerTest {
         assertThat(mController.mTrashPreference.getSummary().toString()).isEqualTo("100 kB");
     }
 
+    @Test
+    @Config(shadows = ShadowUserManager.class)
+    public void onMediaSizeLoaded_afterLoadFinished_updateFilePreferences() {
+        mController.displayPreference(mPreferenceScreen);
+        final StorageAsyncLoader.StorageResult result = new StorageAsyncLoader.StorageResult();
+        result.allAppsExceptGamesSize = MEGABYTE_IN_BYTES * 90;
+        final SparseArray<StorageAsyncLoader.StorageResult> results = new SparseArray<>();
+        results.put(0, result);
+        mController.onLoadFinished(results, 0);
+
+        final StorageAsyncLoader.StorageResult mediaResult =
+                new StorageAsyncLoader.StorageResult();
+        mediaResult.imagesSize = MEGABYTE_IN_BYTES * 350;
+        mediaResult.trashSize = KILOBYTE_IN_BYTES * 100;
+        mController.onMediaSizeLoaded(mediaResult);
+
+        assertThat(mController.mImagesPreference.getSummary().toString()).isEqualTo("350 MB");
+        assertThat(mController.mTrashPreference.getSummary().toString()).isEqualTo("100 kB");
+        assertThat(mController.mAppsPreference.getSummary().toString()).isEqualTo("90 MB");
+    }
+
+    @Test
+    public void onMediaSizeLoaded_beforeLoadFinished_doNothing() {
+        mController.displayPreference(mPreferenceScreen);
+        final StorageAsyncLoader.StorageResult mediaResult =
+                new StorageAsyncLoader.StorageResult();
+        mediaResult.imagesSize = MEGABYTE_IN_BYTES * 350;
+
+        mController.onMediaSizeLoaded(mediaResult);
+
+        assertThat(mController.mImagesPreference.getSummary()).isNull();
+    }
+
     @Test
     public void settingUserIdAppliesNewIcons() {
         mController.displayPreference(mPreferenceScreen);
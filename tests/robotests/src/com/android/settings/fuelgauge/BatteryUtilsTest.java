@@ -45,6 +45,7 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.os.BatteryConsumer;
+import android.os.BatteryManager;
 import android.os.BatteryStats;
 import android.os.BatteryStatsManager;
 import android.os.BatteryUsageStats;
@@ -473,6 +474,28 @@ public class BatteryUtilsTest {
         assertThat(mBatteryUtils.getBatteryInfo(TAG)).isNotNull();
     }
 
+    @Test
+    public void getBatteryInfo_sameBatteryState_reuseBatteryInfo() {
+        when(mContext.registerReceiver(nullable(BroadcastReceiver.class),
+                any(IntentFilter.class))).thenReturn(new Intent());
+
+        final BatteryInfo batteryInfo = mBatteryUtils.getBatteryInfo(TAG);
+
+        assertThat(mBatteryUtils.getBatteryInfo(TAG)).isSameInstanceAs(batteryInfo);
+    }
+
+    @Test
+    public void getBatteryInfo_batteryLevelChanged_loadBatteryInfo() {
+        when(mContext.registerReceiver(nullable(BroadcastReceiver.class),
+                any(IntentFilter.class))).thenReturn(new Intent());
+        final BatteryInfo batteryInfo = mBatteryUtils.getBatteryInfo(TAG);
+        when(mContext.registerReceiver(nullable(BroadcastReceiver.class),
+                any(IntentFilter.class)))
+                .thenReturn(new Intent().putExtra(BatteryManager.EXTRA_LEVEL, 50));
+
+        assertThat(mBatteryUtils.getBatteryInfo(TAG)).isNotSameInstanceAs(batteryInfo);
+    }
+
     @Test
     public void getEnhancedEstimate_doesNotUpdateCache_ifEstimateFresh() {
         Estimate estimate = new Estimate(1000, true, 1000);
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batterytip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.util.SparseLongArray;
+
+import com.android.settings.testutils.DatabaseTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatteryDatabaseManagerTest {
+    private static final int UID = 1234;
+    private static final int UID_OTHER = 5678;
+    private static final String PACKAGE_NAME = "com.android.package";
+    private static final String PACKAGE_NAME_OTHER = "com.android.package.other";
+    private static final String PACKAGE_NAME_NEW = "com.android.package.new";
+    private static final int ANOMALY_TYPE = 1;
+    private static final long TIMESTAMP = 1000L;
+
+    private Context mContext;
+    private BatteryDatabaseManager mDatabaseManager;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mDatabaseManager = BatteryDatabaseManager.getInstance(mContext);
+    }
+
+    @After
+    public void cleanUp() {
+        DatabaseTestUtils.clearDb(mContext);
+    }
+
+    @Test
+    public void insertAnomaly_sameAnomalyTwice_onlyInsertOnce() {
+        assertThat(mDatabaseManager.insertAnomaly(UID, PACKAGE_NAME, ANOMALY_TYPE,
+                AnomalyDatabaseHelper.State.NEW, TIMESTAMP)).isTrue();
+        mDatabaseManager.insertAnomaly(UID, PACKAGE_NAME, ANOMALY_TYPE,
+                AnomalyDatabaseHelper.State.NEW, TIMESTAMP);
+
+        final List<AppInfo> appInfos = mDatabaseManager.queryAllAnomalies(0,
+                AnomalyDatabaseHelper.State.NEW);
+
+        assertThat(appInfos).hasSize(1);
+        assertThat(appInfos.get(0).packageName).isEqualTo(PACKAGE_NAME);
+        assertThat(appInfos.get(0).uid).isEqualTo(UID);
+    }
+
+    @Test
+    public void updateAnomalies_updateListedPackagesOnly() {
+        mDatabaseManager.insertAnomaly(UID, PACKAGE_NAME, ANOMALY_TYPE,
+                AnomalyDatabaseHelper.State.NEW, TIMESTAMP);
+        mDatabaseManager.insertAnomaly(UID_OTHER, PACKAGE_NAME_OTHER, ANOMALY_TYPE,
+                AnomalyDatabaseHelper.State.NEW, TIMESTAMP);
+        mDatabaseManager.insertAnomaly(UID_OTHER, PACKAGE_NAME_NEW, ANOMALY_TYPE,
+                AnomalyDatabaseHelper.State.NEW, TIMESTAMP);
+
+        mDatabaseManager.updateAnomalies(Arrays.asList(
+                new AppInfo.Builder().setUid(UID).setPackageName(PACKAGE_NAME).build(),
+                new AppInfo.Builder().setUid(UID_OTHER).setPackageName(PACKAGE_NAME_OTHER)
+                        .build()),
+                AnomalyDatabaseHelper.State.HANDLED);
+
+        final List<AppInfo> newAppInfos = mDatabaseManager.queryAllAnomalies(0,
+                AnomalyDatabaseHelper.State.NEW);
+        final List<AppInfo> handledAppInfos = mDatabaseManager.queryAllAnomalies(0,
+                AnomalyDatabaseHelper.State.HANDLED);
+        assertThat(newAppInfos).hasSize(1);
+        assertThat(newAppInfos.get(0).packageName).isEqualTo(PACKAGE_NAME_NEW);
+        assertThat(handledAppInfos).hasSize(2);
+    }
+
+    @Test
+    public void queryActionTime_returnTimeOfEachUid() {
+        mDatabaseManager.insertAction(AnomalyDatabaseHelper.ActionType.RESTRICTION, UID,
+                PACKAGE_NAME, TIMESTAMP);
+        mDatabaseManager.insertAction(AnomalyDatabaseHelper.ActionType.RESTRICTION, UID_OTHER,
+                PACKAGE_NAME_OTHER, TIMESTAMP + 1);
+
+        final SparseLongArray timeStamps = mDatabaseManager.queryActionTime(
+                AnomalyDatabaseHelper.ActionType.RESTRICTION);
+
+        assertThat(timeStamps.size()).isEqualTo(2);
+        assertThat(timeStamps.get(UID)).isEqualTo(TIMESTAMP);
+        assertThat(timeStamps.get(UID_OTHER)).isEqualTo(TIMESTAMP + 1);
+    }
+}
@@ -26,12 +26,15 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.BatteryUsageStats;
 import android.os.PowerManager;
+import android.provider.Settings;
 
 import com.android.settings.fuelgauge.BatteryInfo;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.tips.AppLabelPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.AppRestrictionPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.IncompatibleChargerTip;
+import com.android.settings.fuelgauge.batterytip.tips.LowBatteryTip;
 
 import org.junit.After;
 import org.junit.Before;
@@ -44,7 +47,10 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.util.ReflectionHelpers;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 public class BatteryTipLoaderTest {
@@ -83,6 +89,7 @@ public class BatteryTipLoaderTest {
 
     @After
     public void tearDown() {
+        BatteryTipLoader.clearCache();
         ReflectionHelpers.setStaticField(AppLabelPredicate.class, "sInstance", null);
         ReflectionHelpers.setStaticField(AppRestrictionPredicate.class, "sInstance", null);
     }
@@ -96,4 +103,117 @@ public class BatteryTipLoaderTest {
             assertThat(batteryTips.get(i).getType()).isEqualTo(TIP_ORDER[i]);
         }
     }
+
+    @Test
+    public void detect_detectorTimesOut_returnFallbackTip() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final BatteryTip fallbackTip = new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false);
+        final BatteryTipLoader.DetectorTask lateTask = new BatteryTipLoader.DetectorTask(() -> {
+            awaitUninterruptibly(latch);
+            return new LowBatteryTip(BatteryTip.StateType.NEW, false);
+        }, fallbackTip, 10 /* timeoutMs */);
+
+        final List<BatteryTip> tips = BatteryTipLoader.detect(Arrays.asList(lateTask,
+                new BatteryTipLoader.DetectorTask(
+                        () -> new IncompatibleChargerTip(BatteryTip.StateType.NEW),
+                        new IncompatibleChargerTip(BatteryTip.StateType.INVISIBLE),
+                        BatteryTipLoader.DETECTOR_TIMEOUT_MS)));
+        latch.countDown();
+        lateTask.get();
+
+        assertThat(tips.get(0)).isSameInstanceAs(fallbackTip);
+        assertThat(tips.get(1).getState()).isEqualTo(BatteryTip.StateType.NEW);
+    }
+
+    @Test
+    public void detect_detectorTimesOutAfterSuccess_returnCopyOfLastTip() throws Exception {
+        final BatteryTip lastTip = new LowBatteryTip(BatteryTip.StateType.NEW, false);
+        BatteryTipLoader.detect(Arrays.asList(new BatteryTipLoader.DetectorTask(() -> lastTip,
+                new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false),
+                BatteryTipLoader.DETECTOR_TIMEOUT_MS)));
+        final CountDownLatch latch = new CountDownLatch(1);
+        final BatteryTipLoader.DetectorTask lateTask = new BatteryTipLoader.DetectorTask(() -> {
+            awaitUninterruptibly(latch);
+            return new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false);
+        }, new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false), 10 /* timeoutMs */);
+
+        final List<BatteryTip> tips = BatteryTipLoader.detect(Arrays.asList(lateTask));
+        latch.countDown();
+        lateTask.get();
+
+        assertThat(tips.get(0)).isNotSameInstanceAs(lastTip);
+        assertThat(tips.get(0).getType()).isEqualTo(BatteryTip.TipType.LOW_BATTERY);
+        assertThat(tips.get(0).getState()).isEqualTo(BatteryTip.StateType.NEW);
+    }
+
+    @Test
+    public void detect_lateTipChanged_notifyChange() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch changed = new CountDownLatch(1);
+        final BatteryTipLoader.DetectorTask lateTask = new BatteryTipLoader.DetectorTask(() -> {
+            awaitUninterruptibly(latch);
+            return new LowBatteryTip(BatteryTip.StateType.NEW, false);
+        }, new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false), 10 /* timeoutMs */,
+                changed::countDown);
+
+        BatteryTipLoader.detect(Arrays.asList(lateTask));
+        latch.countDown();
+        lateTask.get();
+
+        assertThat(changed.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void detect_lateTipUnchanged_notNotifyChange() throws Exception {
+        BatteryTipLoader.detect(Arrays.asList(new BatteryTipLoader.DetectorTask(
+                () -> new LowBatteryTip(BatteryTip.StateType.NEW, false),
+                new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false),
+                BatteryTipLoader.DETECTOR_TIMEOUT_MS)));
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch changed = new CountDownLatch(1);
+        final BatteryTipLoader.DetectorTask lateTask = new BatteryTipLoader.DetectorTask(() -> {
+            awaitUninterruptibly(latch);
+            return new LowBatteryTip(BatteryTip.StateType.NEW, false);
+        }, new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false), 10 /* timeoutMs */,
+                changed::countDown);
+
+        BatteryTipLoader.detect(Arrays.asList(lateTask));
+        latch.countDown();
+        lateTask.get();
+
+        assertThat(changed.await(100, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    public void detect_inTime_notNotifyChange() throws Exception {
+        final CountDownLatch changed = new CountDownLatch(1);
+        final BatteryTipLoader.DetectorTask task = new BatteryTipLoader.DetectorTask(
+                () -> new LowBatteryTip(BatteryTip.StateType.NEW, false),
+                new LowBatteryTip(BatteryTip.StateType.INVISIBLE, false),
+                BatteryTipLoader.DETECTOR_TIMEOUT_MS, changed::countDown);
+
+        BatteryTipLoader.detect(Arrays.asList(task));
+
+        assertThat(changed.await(100, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    public void getPolicy_constantsUnchanged_reusePolicy() {
+        final BatteryTipPolicy policy = BatteryTipLoader.getPolicy(mContext);
+
+        assertThat(BatteryTipLoader.getPolicy(mContext)).isSameInstanceAs(policy);
+
+        Settings.Global.putString(mContext.getContentResolver(),
+                Settings.Global.BATTERY_TIP_CONSTANTS, "high_usage_enabled=false");
+
+        assertThat(BatteryTipLoader.getPolicy(mContext)).isNotSameInstanceAs(policy);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -17,10 +17,20 @@ package com.android.settings.fuelgauge.batteryusage;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static com.android.settingslib.fuelgauge.BatteryStatus.BATTERY_LEVEL_UNKNOWN;
+
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.RectF;
 import android.os.LocaleList;
+import android.view.MotionEvent;
 import android.view.View;
 
 import com.android.settings.fuelgauge.PowerUsageFeatureProvider;
@@ -90,4 +100,97 @@ public final class BatteryChartViewTest {
         mBatteryChartView.onClick(mMockView);
         assertThat(selectedIndex[0]).isEqualTo(BatteryChartViewModel.SELECTED_INDEX_ALL);
     }
+
+    @Test
+    public void setViewModel_sameSize_reuseTrapezoidSlots() {
+        mBatteryChartView.setViewModel(new BatteryChartViewModel(
+                List.of(90, 80, 70, 60), List.of(0L, 0L, 0L, 0L),
+                BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS, null));
+        final BatteryChartView.TrapezoidSlot[] trapezoidSlots = mBatteryChartView.mTrapezoidSlots;
+
+        mBatteryChartView.setViewModel(new BatteryChartViewModel(
+                List.of(50, 40, 30, 20), List.of(0L, 0L, 0L, 0L),
+                BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS, null));
+
+        assertThat(mBatteryChartView.mTrapezoidSlots).isSameInstanceAs(trapezoidSlots);
+    }
+
+    @Test
+    public void setViewModel_differentSize_recreateTrapezoidSlots() {
+        mBatteryChartView.setViewModel(new BatteryChartViewModel(
+                List.of(90, 80, 70, 60), List.of(0L, 0L, 0L, 0L),
+                BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS, null));
+
+        mBatteryChartView.setViewModel(new BatteryChartViewModel(
+                List.of(90, 80, 70), List.of(0L, 0L, 0L),
+                BatteryChartViewModel.AxisLabelPosition.CENTER_OF_TRAPEZOIDS, null));
+
+        assertThat(mBatteryChartView.mTrapezoidSlots).hasLength(2);
+    }
+
+    @Test
+    public void setViewModel_sameViewModel_onlyInvalidate() {
+        final BatteryChartView batteryChartView = spy(new BatteryChartView(mContext));
+        final BatteryChartViewModel batteryChartViewModel = new BatteryChartViewModel(
+                List.of(90, 80, 70, 60), List.of(0L, 0L, 0L, 0L),
+                BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS, null);
+        batteryChartView.setViewModel(batteryChartViewModel);
+        clearInvocations(batteryChartView);
+
+        batteryChartViewModel.setSelectedIndex(1);
+        batteryChartView.setViewModel(batteryChartViewModel);
+
+        verify(batteryChartView, never()).requestLayout();
+        verify(batteryChartView, atLeastOnce()).invalidate();
+    }
+
+    @Test
+    public void draw_sizeChanged_updateTrapezoidPaths() {
+        mBatteryChartView.setViewModel(new BatteryChartViewModel(
+                List.of(90, 80, 70, 60), List.of(0L, 0L, 0L, 0L),
+                BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS, null));
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(800, 200, Bitmap.Config.ARGB_8888));
+        final RectF bounds = new RectF();
+        mBatteryChartView.layout(0, 0, 400, 200);
+        mBatteryChartView.draw(canvas);
+        final BatteryChartView.TrapezoidSlot lastSlot = mBatteryChartView.mTrapezoidSlots[2];
+        final float right = lastSlot.mRight;
+        lastSlot.mPath.computeBounds(bounds, true /* exact */);
+        final float pathRight = bounds.right;
+
+        mBatteryChartView.layout(0, 0, 800, 200);
+        mBatteryChartView.draw(canvas);
+
+        lastSlot.mPath.computeBounds(bounds, true /* exact */);
+        assertThat(lastSlot.mRight).isGreaterThan(right);
+        assertThat(bounds.right).isGreaterThan(pathRight);
+    }
+
+    @Test
+    public void onHoverEvent_undrawnTrapezoid_notInvalidate() {
+        final BatteryChartView batteryChartView = spy(new BatteryChartView(mContext));
+        batteryChartView.setViewModel(new BatteryChartViewModel(
+                List.of(BATTERY_LEVEL_UNKNOWN, BATTERY_LEVEL_UNKNOWN, 70, 60),
+                List.of(0L, 0L, 0L, 0L),
+                BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS, null));
+        for (int i = 0; i < batteryChartView.mTrapezoidSlots.length; i++) {
+            batteryChartView.mTrapezoidSlots[i].mLeft = i * 100;
+            batteryChartView.mTrapezoidSlots[i].mRight = i * 100 + 50;
+        }
+        clearInvocations(batteryChartView);
+
+        batteryChartView.onHoverEvent(createHoverEvent(/* x= */ 0));
+        batteryChartView.onHoverEvent(createHoverEvent(/* x= */ 100));
+
+        verify(batteryChartView, never()).invalidate();
+
+        batteryChartView.onHoverEvent(createHoverEvent(/* x= */ 200));
+
+        verify(batteryChartView).invalidate();
+    }
+
+    private static MotionEvent createHoverEvent(float x) {
+        return MotionEvent.obtain(/* downTime= */ 0, /* eventTime= */ 0,
+                MotionEvent.ACTION_HOVER_MOVE, x, /* y= */ 0, /* metaState= */ 0);
+    }
 }
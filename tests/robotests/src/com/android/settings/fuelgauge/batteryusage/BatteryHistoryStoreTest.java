@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+import android.database.MatrixCursor;
+import android.os.BatteryManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryHistoryStoreTest {
+    private static final long TIMESTAMP_1 = 1000L;
+    private static final long TIMESTAMP_2 = 2000L;
+    private static final long UID_1 = 10001L;
+    private static final long UID_2 = 10002L;
+
+    @Test
+    public void load_fromCursor_returnExpectedHistoryMap() {
+        final MatrixCursor cursor = new MatrixCursor(new String[]{
+                BatteryHistEntry.KEY_UID,
+                BatteryHistEntry.KEY_USER_ID,
+                BatteryHistEntry.KEY_PACKAGE_NAME,
+                BatteryHistEntry.KEY_TIMESTAMP,
+                BatteryHistEntry.KEY_CONSUMER_TYPE,
+                BatteryHistEntry.KEY_BATTERY_INFORMATION});
+        addRow(cursor, UID_1, TIMESTAMP_1, /*consumePower=*/ 1.5, /*batteryLevel=*/ 90);
+        addRow(cursor, UID_2, TIMESTAMP_1, /*consumePower=*/ 2.5, /*batteryLevel=*/ 90);
+        addRow(cursor, UID_1, TIMESTAMP_2, /*consumePower=*/ 3.5, /*batteryLevel=*/ 80);
+
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap =
+                BatteryHistoryStore.load(cursor).asHistoryMap();
+
+        assertThat(historyMap.keySet()).containsExactly(TIMESTAMP_1, TIMESTAMP_2);
+        assertThat(historyMap.get(TIMESTAMP_1)).hasSize(2);
+        assertThat(historyMap.get(TIMESTAMP_2)).hasSize(1);
+        final BatteryHistEntry entry = historyMap.get(TIMESTAMP_1).get(getKey(UID_2));
+        assertThat(entry.mUid).isEqualTo(UID_2);
+        assertThat(entry.mTimestamp).isEqualTo(TIMESTAMP_1);
+        assertThat(entry.mPackageName).isEqualTo("package" + UID_2);
+        assertThat(entry.mAppLabel).isEqualTo("label" + UID_2);
+        assertThat(entry.mConsumePower).isEqualTo(2.5);
+        assertThat(entry.mBatteryLevel).isEqualTo(90);
+        assertThat(entry.mBatteryStatus).isEqualTo(BatteryManager.BATTERY_STATUS_DISCHARGING);
+        assertThat(historyMap.get(TIMESTAMP_2).get(getKey(UID_1)).mConsumePower)
+                .isEqualTo(3.5);
+        assertThat(historyMap.get(TIMESTAMP_2).containsKey(getKey(UID_2))).isFalse();
+    }
+
+    @Test
+    public void asHistoryMap_sameAsEntries() {
+        final Map<Long, Map<String, BatteryHistEntry>> expectedMap = new HashMap<>();
+        final BatteryHistoryStore.Builder builder = new BatteryHistoryStore.Builder();
+        for (long timestamp : new long[]{TIMESTAMP_2, TIMESTAMP_1}) {
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            for (long uid : new long[]{UID_2, UID_1}) {
+                final BatteryHistEntry entry = createBatteryHistEntry(
+                        uid, timestamp, /*consumePower=*/ uid + timestamp, /*batteryLevel=*/ 50);
+                entryMap.put(entry.getKey(), entry);
+                builder.add(entry);
+            }
+            expectedMap.put(timestamp, entryMap);
+        }
+
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap =
+                builder.build().asHistoryMap();
+
+        assertThat(historyMap.keySet()).isEqualTo(expectedMap.keySet());
+        for (long timestamp : expectedMap.keySet()) {
+            final Map<String, BatteryHistEntry> snapshot = historyMap.get(timestamp);
+            assertThat(snapshot.keySet()).isEqualTo(expectedMap.get(timestamp).keySet());
+            for (Map.Entry<String, BatteryHistEntry> entry : snapshot.entrySet()) {
+                assertThat(entry.getValue().toString())
+                        .isEqualTo(expectedMap.get(timestamp).get(entry.getKey()).toString());
+            }
+        }
+    }
+
+    @Test
+    public void build_sameEntryAddedTwice_keepLastAddedEntry() {
+        final BatteryHistoryStore store = new BatteryHistoryStore.Builder()
+                .add(createBatteryHistEntry(UID_1, TIMESTAMP_1, 1.0, 90))
+                .add(createBatteryHistEntry(UID_1, TIMESTAMP_1, 2.0, 90))
+                .build();
+
+        assertThat(store.getRowCount()).isEqualTo(1);
+        assertThat(store.asHistoryMap().get(TIMESTAMP_1).get(getKey(UID_1)).mConsumePower)
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    public void getStore_storeBackedMap_returnStore() {
+        final BatteryHistoryStore store = new BatteryHistoryStore.Builder()
+                .add(createBatteryHistEntry(UID_1, TIMESTAMP_1, 1.0, 90))
+                .add(createBatteryHistEntry(UID_1, TIMESTAMP_2, 2.0, 80))
+                .build();
+
+        assertThat(BatteryHistoryStore.getStore(store.asHistoryMap())).isSameInstanceAs(store);
+    }
+
+    @Test
+    public void getStore_mixedMap_returnNull() {
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap = new HashMap<>(
+                new BatteryHistoryStore.Builder()
+                        .add(createBatteryHistEntry(UID_1, TIMESTAMP_1, 1.0, 90))
+                        .build()
+                        .asHistoryMap());
+        historyMap.put(TIMESTAMP_2, new HashMap<>());
+
+        assertThat(BatteryHistoryStore.getStore(historyMap)).isNull();
+    }
+
+    @Test
+    public void readUsage_storeAndMapSnapshot_returnSameUsage() {
+        final BatteryHistEntry entry = createBatteryHistEntry(UID_1, TIMESTAMP_1, 1.5, 90);
+        final Map<String, BatteryHistEntry> snapshot = new BatteryHistoryStore.Builder()
+                .add(entry).build().asHistoryMap().get(TIMESTAMP_1);
+        final double[] storeUsage = new double[BatteryHistoryStore.USAGE_COLUMN_COUNT];
+        final double[] mapUsage = new double[BatteryHistoryStore.USAGE_COLUMN_COUNT];
+
+        assertThat(BatteryHistoryStore.readUsage(snapshot, entry.getKey(), storeUsage)).isTrue();
+        assertThat(BatteryHistoryStore.readUsage(
+                Map.of(entry.getKey(), entry), entry.getKey(), mapUsage)).isTrue();
+        assertThat(storeUsage).isEqualTo(mapUsage);
+        assertThat(storeUsage[BatteryHistoryStore.USAGE_CONSUME_POWER]).isEqualTo(1.5);
+        assertThat(BatteryHistoryStore.readUsage(snapshot, getKey(UID_2), storeUsage)).isFalse();
+    }
+
+    @Test
+    public void addInterpolatedRow_sameAsBatteryHistEntryInterpolate() {
+        final long slotTimestamp = 1500L;
+        final double ratio = 0.25;
+        final BatteryHistEntry lowerEntry = createBatteryHistEntry(UID_1, TIMESTAMP_1, 10, 90);
+        final BatteryHistEntry upperEntry = createBatteryHistEntry(UID_1, TIMESTAMP_2, 20, 70);
+        final BatteryHistoryStore store =
+                new BatteryHistoryStore.Builder().add(lowerEntry).add(upperEntry).build();
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap = store.asHistoryMap();
+        final int lowerRow = ((BatteryHistoryStore.SnapshotView) historyMap.get(TIMESTAMP_1))
+                .findRow(lowerEntry.getKey());
+        final int upperRow = ((BatteryHistoryStore.SnapshotView) historyMap.get(TIMESTAMP_2))
+                .findRow(upperEntry.getKey());
+
+        final BatteryHistoryStore interpolatedStore = store.newDerivedBuilder()
+                .addInterpolatedRow(
+                        slotTimestamp, TIMESTAMP_2, ratio, store, lowerRow, upperRow)
+                .build();
+
+        final BatteryHistEntry expectedEntry = BatteryHistEntry.interpolate(
+                slotTimestamp, TIMESTAMP_2, ratio, lowerEntry, upperEntry);
+        assertThat(interpolatedStore.asHistoryMap().get(slotTimestamp)
+                .get(upperEntry.getKey()).toString()).isEqualTo(expectedEntry.toString());
+    }
+
+    @Test
+    public void addInterpolatedRow_withoutLowerRow_sameAsBatteryHistEntryInterpolate() {
+        final long slotTimestamp = 1500L;
+        final double ratio = 0.25;
+        final BatteryHistEntry upperEntry = createBatteryHistEntry(UID_1, TIMESTAMP_2, 20, 70);
+        final BatteryHistoryStore store = new BatteryHistoryStore.Builder().add(upperEntry).build();
+
+        final BatteryHistoryStore interpolatedStore = store.newDerivedBuilder()
+                .addInterpolatedRow(slotTimestamp, TIMESTAMP_2, ratio, store,
+                        /*lowerRow=*/ -1, /*upperRow=*/ 0)
+                .build();
+
+        final BatteryHistEntry expectedEntry = BatteryHistEntry.interpolate(
+                slotTimestamp, TIMESTAMP_2, ratio, /*lowerHistEntry=*/ null, upperEntry);
+        assertThat(interpolatedStore.asHistoryMap().get(slotTimestamp)
+                .get(upperEntry.getKey()).toString()).isEqualTo(expectedEntry.toString());
+    }
+
+    private static String getKey(long uid) {
+        return Long.toString(uid);
+    }
+
+    private static BatteryInformation createBatteryInformation(
+            long uid, double consumePower, int batteryLevel) {
+        return BatteryInformation
+                .newBuilder()
+                .setDeviceBatteryState(DeviceBatteryState
+                        .newBuilder()
+                        .setBatteryLevel(batteryLevel)
+                        .setBatteryStatus(BatteryManager.BATTERY_STATUS_DISCHARGING)
+                        .setBatteryHealth(BatteryManager.BATTERY_HEALTH_GOOD)
+                        .build())
+                .setAppLabel("label" + uid)
+                .setBootTimestamp(100L)
+                .setTotalPower(100)
+                .setConsumePower(consumePower)
+                .setForegroundUsageConsumePower(consumePower / 2)
+                .setBackgroundUsageConsumePower(consumePower / 4)
+                .setForegroundUsageTimeInMs((long) (consumePower * 100))
+                .setBackgroundUsageTimeInMs((long) (consumePower * 200))
+                .build();
+    }
+
+    private static void addRow(MatrixCursor cursor, long uid, long timestamp,
+            double consumePower, int batteryLevel) {
+        cursor.addRow(new Object[]{
+                uid,
+                /*userId=*/ 0L,
+                "package" + uid,
+                timestamp,
+                ConvertUtils.CONSUMER_TYPE_UID_BATTERY,
+                ConvertUtils.convertBatteryInformationToString(
+                        createBatteryInformation(uid, consumePower, batteryLevel))});
+    }
+
+    private static BatteryHistEntry createBatteryHistEntry(
+            long uid, long timestamp, double consumePower, int batteryLevel) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_UID, uid);
+        values.put(BatteryHistEntry.KEY_USER_ID, 0L);
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, "package" + uid);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION,
+                ConvertUtils.convertBatteryInformationToString(
+                        createBatteryInformation(uid, consumePower, batteryLevel)));
+        return new BatteryHistEntry(values);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryUsageConsistencyCheckerTest {
+    private static final String KEY_1 = "key1";
+    private static final String KEY_2 = "key2";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void cleanUp() {
+        BatteryUsageConsistencyChecker.sFakeEnabled = null;
+    }
+
+    @Test
+    public void isEnabled_defaultValue_returnFalse() {
+        assertThat(BatteryUsageConsistencyChecker.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void isEnabled_fakeEnabled_returnTrue() {
+        BatteryUsageConsistencyChecker.sFakeEnabled = true;
+
+        assertThat(BatteryUsageConsistencyChecker.isEnabled()).isTrue();
+    }
+
+    @Test
+    public void findMismatches_sameResult_returnEmptyList() {
+        final Map<Long, BatteryDiffData> incrementalResult =
+                Map.of(1000L, createBatteryDiffData(2000L, KEY_1, 10.0));
+        final Map<Long, BatteryDiffData> fullResult =
+                Map.of(1000L, createBatteryDiffData(2000L, KEY_1, 10.0));
+
+        assertThat(BatteryUsageConsistencyChecker.findMismatches(incrementalResult, fullResult))
+                .isEmpty();
+    }
+
+    @Test
+    public void findMismatches_missingSlot_returnMismatch() {
+        final Map<Long, BatteryDiffData> fullResult =
+                Map.of(1000L, createBatteryDiffData(2000L, KEY_1, 10.0));
+
+        assertThat(BatteryUsageConsistencyChecker.findMismatches(Map.of(), fullResult))
+                .hasSize(1);
+    }
+
+    @Test
+    public void findMismatches_differentEndTimestamp_returnMismatch() {
+        final Map<Long, BatteryDiffData> incrementalResult =
+                Map.of(1000L, createBatteryDiffData(1500L, KEY_1, 10.0));
+        final Map<Long, BatteryDiffData> fullResult =
+                Map.of(1000L, createBatteryDiffData(2000L, KEY_1, 10.0));
+
+        assertThat(BatteryUsageConsistencyChecker.findMismatches(incrementalResult, fullResult))
+                .hasSize(1);
+    }
+
+    @Test
+    public void findMismatches_differentEntries_returnMismatches() {
+        final Map<Long, BatteryDiffData> incrementalResult =
+                Map.of(1000L, createBatteryDiffData(2000L, KEY_1, 5.0));
+        final Map<Long, BatteryDiffData> fullResult =
+                Map.of(1000L, createBatteryDiffData(2000L, KEY_2, 10.0));
+
+        // One missing entry and one unexpected entry.
+        assertThat(BatteryUsageConsistencyChecker.findMismatches(incrementalResult, fullResult))
+                .hasSize(2);
+    }
+
+    @Test
+    public void findMismatches_differentConsumePower_returnMismatch() {
+        final Map<Long, BatteryDiffData> incrementalResult =
+                Map.of(1000L, createBatteryDiffData(2000L, KEY_1, 5.0));
+        final Map<Long, BatteryDiffData> fullResult =
+                Map.of(1000L, createBatteryDiffData(2000L, KEY_1, 10.0));
+
+        assertThat(BatteryUsageConsistencyChecker.findMismatches(incrementalResult, fullResult))
+                .hasSize(1);
+    }
+
+    private BatteryDiffData createBatteryDiffData(
+            final long endTimestamp, final String key, final double consumePower) {
+        final BatteryDiffEntry entry = new BatteryDiffEntry(
+                mContext, key, /*legacyLabel=*/ key, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+        entry.mConsumePower = consumePower;
+        final List<BatteryDiffEntry> appEntries = new ArrayList<>();
+        appEntries.add(entry);
+        return new BatteryDiffData(mContext, /*startTimestamp=*/ 1000L, endTimestamp,
+                /*startBatteryLevel=*/ 100, /*endBatteryLevel=*/ 90, /*screenOnTime=*/ 0L,
+                appEntries, /*systemDiffEntries=*/ new ArrayList<>(), Set.of(), Set.of(),
+                /*isAccumulated=*/ true);
+    }
+}
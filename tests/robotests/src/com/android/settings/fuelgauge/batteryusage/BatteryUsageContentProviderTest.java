@@ -20,9 +20,12 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.junit.Assert.assertThrows;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
 
@@ -44,6 +47,7 @@ import org.robolectric.RobolectricTestRunner;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /** Tests for {@link BatteryUsageContentProvider}. */
@@ -68,6 +72,7 @@ public final class BatteryUsageContentProviderTest {
         mProvider = new BatteryUsageContentProvider();
         mProvider.attachInfo(mContext, /*info=*/ null);
         BatteryTestUtils.setUpBatteryStateDatabase(mContext);
+        BatteryUsageContentProvider.clearLatestSnapshotTimestamp();
     }
 
     @Test
@@ -189,6 +194,59 @@ public final class BatteryUsageContentProviderTest {
         cursor.close();
     }
 
+    @Test
+    public void query_batteryStateWithProjection_returnsProjectedColumns() throws Exception {
+        mProvider.onCreate();
+        final Duration currentTime = Duration.ofHours(52);
+        insertBatteryState(currentTime, Long.toString(currentTime.toMillis() - 8));
+        final String[] projection =
+                new String[] {BatteryHistEntry.KEY_TIMESTAMP, BatteryHistEntry.KEY_PACKAGE_NAME};
+
+        final Cursor cursor = mProvider.query(
+                createBatteryStateUri(currentTime.toMillis() - 2), projection,
+                /*s=*/ null, /*strings1=*/ null, /*s1=*/ null);
+
+        assertThat(cursor.getCount()).isEqualTo(2);
+        assertThat(cursor.getColumnNames()).asList().containsExactlyElementsIn(projection);
+        cursor.moveToFirst();
+        assertThat(cursor.getString(1)).isEqualTo(PACKAGE_NAME2);
+        cursor.moveToNext();
+        assertThat(cursor.getString(1)).isEqualTo(PACKAGE_NAME3);
+        cursor.close();
+    }
+
+    @Test
+    public void query_batteryStateWithHistoryProjection_loadsBatteryHistory() throws Exception {
+        mProvider.onCreate();
+        final Duration currentTime = Duration.ofHours(52);
+        insertBatteryState(currentTime, Long.toString(currentTime.toMillis() - 8));
+
+        final Cursor cursor = mProvider.query(
+                createBatteryStateUri(currentTime.toMillis() - 2),
+                BatteryHistoryStore.PROJECTION, /*s=*/ null, /*strings1=*/ null, /*s1=*/ null);
+
+        assertThat(cursor.getColumnNames()).asList()
+                .containsExactlyElementsIn(BatteryHistoryStore.PROJECTION);
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap =
+                BatteryHistoryStore.load(cursor).asHistoryMap();
+        assertThat(batteryHistoryMap.keySet()).containsExactly(
+                currentTime.toMillis() - 2, currentTime.toMillis());
+        assertThat(batteryHistoryMap.get(currentTime.toMillis()).values().iterator().next()
+                .mPackageName).isEqualTo(PACKAGE_NAME3);
+        cursor.close();
+    }
+
+    @Test
+    public void query_batteryStateWithUnknownColumn_throwsIllegalArgumentException() {
+        mProvider.onCreate();
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mProvider.query(createBatteryStateUri(0L),
+                        new String[] {"timestamp", "1; DROP TABLE BatteryState"},
+                        /*s=*/ null, /*strings1=*/ null, /*s1=*/ null));
+    }
+
     @Test
     public void query_getBatteryStateLatestTimestamp_returnsExpectedResult() throws Exception {
         mProvider.onCreate();
@@ -314,6 +372,43 @@ public final class BatteryUsageContentProviderTest {
         assertThat(states.get(0).batteryInformation).isEqualTo(expectedBatteryInformationString);
     }
 
+    @Test
+    public void insert_batteryStatesInSameSnapshot_insertsSnapshotOnce() {
+        mProvider.onCreate();
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_UID, Long.valueOf(101L));
+        values.put(BatteryHistEntry.KEY_USER_ID, Long.valueOf(1001L));
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, PACKAGE_NAME1);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, Long.valueOf(2100021L));
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, Integer.valueOf(2));
+        values.put(BatteryHistEntry.KEY_IS_FULL_CHARGE_CYCLE_START, true);
+        mProvider.insert(VALID_BATTERY_STATE_CONTENT_URI, values);
+        values.put(BatteryHistEntry.KEY_UID, Long.valueOf(102L));
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, PACKAGE_NAME2);
+        mProvider.insert(VALID_BATTERY_STATE_CONTENT_URI, values);
+
+        assertThat(BatteryStateDatabase.getInstance(mContext).batteryStateSnapshotDao()
+                .getTimestamps(0)).containsExactly(2100021L);
+    }
+
+    @Test
+    public void insert_afterClearLatestSnapshotTimestamp_insertsSnapshotAgain() {
+        mProvider.onCreate();
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_UID, Long.valueOf(101L));
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, PACKAGE_NAME1);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, Long.valueOf(2100021L));
+        mProvider.insert(VALID_BATTERY_STATE_CONTENT_URI, values);
+        final BatteryStateDatabase database = BatteryStateDatabase.getInstance(mContext);
+        database.batteryStateSnapshotDao().clearAll();
+
+        BatteryUsageContentProvider.clearLatestSnapshotTimestamp();
+        mProvider.insert(VALID_BATTERY_STATE_CONTENT_URI, values);
+
+        assertThat(database.batteryStateSnapshotDao().getTimestamps(0))
+                .containsExactly(2100021L);
+    }
+
     @Test
     public void insert_partialFieldsContentValues_returnsExpectedResult() {
         mProvider.onCreate();
@@ -442,6 +537,119 @@ public final class BatteryUsageContentProviderTest {
         assertThat(cursor2.getCount()).isEqualTo(0);
     }
 
+    @Test
+    public void bulkInsert_batteryStates_insertsAllWithSnapshotHeaders() {
+        mProvider.onCreate();
+        final ContentValues[] valuesArray = new ContentValues[] {
+                createBatteryStateValues(101L, PACKAGE_NAME1, 2100021L),
+                createBatteryStateValues(102L, PACKAGE_NAME2, 2100021L),
+                createBatteryStateValues(101L, PACKAGE_NAME1, 2200021L)};
+
+        final int size = mProvider.bulkInsert(VALID_BATTERY_STATE_CONTENT_URI, valuesArray);
+
+        assertThat(size).isEqualTo(3);
+        final BatteryStateDatabase database = BatteryStateDatabase.getInstance(mContext);
+        assertThat(database.batteryStateDao().getAllAfter(0)).hasSize(3);
+        assertThat(database.batteryStateSnapshotDao().getTimestamps(0))
+                .containsExactly(2100021L, 2200021L);
+    }
+
+    @Test
+    public void bulkInsert_appUsageEvents_insertsAll() {
+        mProvider.onCreate();
+        final ContentValues[] valuesArray = new ContentValues[2];
+        for (int index = 0; index < valuesArray.length; index++) {
+            valuesArray[index] = new ContentValues();
+            valuesArray[index].put(AppUsageEventEntity.KEY_UID, 101L);
+            valuesArray[index].put(AppUsageEventEntity.KEY_USER_ID, 1001L);
+            valuesArray[index].put(AppUsageEventEntity.KEY_TIMESTAMP, 10001L + index);
+            valuesArray[index].put(AppUsageEventEntity.KEY_APP_USAGE_EVENT_TYPE, 1);
+            valuesArray[index].put(AppUsageEventEntity.KEY_PACKAGE_NAME, PACKAGE_NAME1);
+            valuesArray[index].put(AppUsageEventEntity.KEY_INSTANCE_ID, 100001L);
+        }
+
+        final int size = mProvider.bulkInsert(DatabaseUtils.APP_USAGE_EVENT_URI, valuesArray);
+
+        assertThat(size).isEqualTo(2);
+        assertThat(BatteryStateDatabase.getInstance(mContext).appUsageEventDao().getAllAfter(0))
+                .hasSize(2);
+    }
+
+    @Test
+    public void bulkInsert_batteryEvents_insertsAll() {
+        mProvider.onCreate();
+        final ContentValues[] valuesArray = new ContentValues[2];
+        for (int index = 0; index < valuesArray.length; index++) {
+            valuesArray[index] = new ContentValues();
+            valuesArray[index].put(BatteryEventEntity.KEY_TIMESTAMP, 10001L + index);
+            valuesArray[index].put(BatteryEventEntity.KEY_BATTERY_EVENT_TYPE,
+                    BatteryEventType.POWER_CONNECTED.getNumber());
+            valuesArray[index].put(BatteryEventEntity.KEY_BATTERY_LEVEL, 66);
+        }
+
+        final int size = mProvider.bulkInsert(DatabaseUtils.BATTERY_EVENT_URI, valuesArray);
+
+        assertThat(size).isEqualTo(2);
+        assertThat(BatteryStateDatabase.getInstance(mContext).batteryEventDao().getAll())
+                .hasSize(2);
+    }
+
+    @Test
+    public void bulkInsert_incorrectContentUri_throwsIllegalArgumentException() {
+        mProvider.onCreate();
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> mProvider.bulkInsert(
+                        new Uri.Builder()
+                                .scheme(ContentResolver.SCHEME_CONTENT)
+                                .authority(DatabaseUtils.AUTHORITY)
+                                .appendPath(DatabaseUtils.LAST_FULL_CHARGE_TIMESTAMP_PATH)
+                                .build(),
+                        new ContentValues[0]));
+    }
+
+    @Test
+    public void applyBatch_batteryStates_insertsAll() throws Exception {
+        mProvider.onCreate();
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newInsert(VALID_BATTERY_STATE_CONTENT_URI)
+                .withValues(createBatteryStateValues(101L, PACKAGE_NAME1, 2100021L))
+                .build());
+        operations.add(ContentProviderOperation.newInsert(VALID_BATTERY_STATE_CONTENT_URI)
+                .withValues(createBatteryStateValues(102L, PACKAGE_NAME2, 2100021L))
+                .build());
+
+        final ContentProviderResult[] results = mProvider.applyBatch(operations);
+
+        assertThat(results).hasLength(2);
+        final BatteryStateDatabase database = BatteryStateDatabase.getInstance(mContext);
+        assertThat(database.batteryStateDao().getAllAfter(0)).hasSize(2);
+        assertThat(database.batteryStateSnapshotDao().getTimestamps(0))
+                .containsExactly(2100021L);
+    }
+
+    @Test
+    public void applyBatch_failedOperation_rollBackAll() {
+        mProvider.onCreate();
+        final ContentValues invalidValues = createBatteryStateValues(102L, PACKAGE_NAME2, 2100021L);
+        invalidValues.put("uid", "invalid");
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newInsert(VALID_BATTERY_STATE_CONTENT_URI)
+                .withValues(createBatteryStateValues(101L, PACKAGE_NAME1, 2100021L))
+                .build());
+        operations.add(ContentProviderOperation.newInsert(VALID_BATTERY_STATE_CONTENT_URI)
+                .withValues(invalidValues)
+                .build());
+
+        assertThrows(OperationApplicationException.class,
+                () -> mProvider.applyBatch(operations));
+
+        final BatteryStateDatabase database = BatteryStateDatabase.getInstance(mContext);
+        assertThat(database.batteryStateDao().getAllAfter(0)).isEmpty();
+        assertThat(database.batteryStateSnapshotDao().getTimestamps(0)).isEmpty();
+    }
+
     @Test
     public void delete_throwsUnsupportedOperationException() {
         assertThrows(
@@ -588,6 +796,28 @@ public final class BatteryUsageContentProviderTest {
         return query(batteryUsageSlotUri);
     }
 
+    private static Uri createBatteryStateUri(final long queryTimestamp) {
+        return new Uri.Builder()
+                .scheme(ContentResolver.SCHEME_CONTENT)
+                .authority(DatabaseUtils.AUTHORITY)
+                .appendPath(DatabaseUtils.BATTERY_STATE_TABLE)
+                .appendQueryParameter(
+                        DatabaseUtils.QUERY_KEY_TIMESTAMP, Long.toString(queryTimestamp))
+                .build();
+    }
+
+    private static ContentValues createBatteryStateValues(
+            long uid, String packageName, long timestamp) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_UID, Long.valueOf(uid));
+        values.put(BatteryHistEntry.KEY_USER_ID, Long.valueOf(1001L));
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, packageName);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, Long.valueOf(timestamp));
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, Integer.valueOf(1));
+        values.put(BatteryHistEntry.KEY_IS_FULL_CHARGE_CYCLE_START, false);
+        return values;
+    }
+
     private Cursor query(Uri uri) {
         return mProvider.query(
                 uri, /*strings=*/ null, /*s=*/ null, /*strings1=*/ null, /*s1=*/ null);
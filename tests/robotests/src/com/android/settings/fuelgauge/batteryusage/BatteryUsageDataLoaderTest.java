@@ -19,12 +19,14 @@ package com.android.settings.fuelgauge.batteryusage;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
@@ -120,16 +122,19 @@ public final class BatteryUsageDataLoaderTest {
     }
 
     @Test
-    public void loadAppUsageData_withData_insertFakeDataIntoProvider() {
+    public void loadAppUsageData_withData_insertFakeDataIntoProvider() throws Exception {
         final List<AppUsageEvent> AppUsageEventList = new ArrayList<>();
         final AppUsageEvent appUsageEvent = AppUsageEvent.newBuilder().setUid(0).build();
         AppUsageEventList.add(appUsageEvent);
         BatteryUsageDataLoader.sFakeAppUsageEventsSupplier = () -> new HashMap<>();
         BatteryUsageDataLoader.sFakeUsageEventsListSupplier = () -> AppUsageEventList;
 
+        doReturn(new ContentProviderResult[1]).when(mMockContentResolver)
+                .applyBatch(anyString(), any());
+
         BatteryUsageDataLoader.loadAppUsageData(mContext);
 
-        verify(mMockContentResolver).bulkInsert(any(), any());
+        verify(mMockContentResolver).applyBatch(anyString(), any());
         verify(mMockContentResolver).notifyChange(any(), any());
     }
 
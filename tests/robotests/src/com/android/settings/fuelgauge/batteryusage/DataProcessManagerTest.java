@@ -24,6 +24,8 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 import android.app.usage.IUsageStatsManager;
 import android.app.usage.UsageEvents;
@@ -42,6 +44,9 @@ import android.os.UserManager;
 import android.text.format.DateUtils;
 
 import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryEventEntity;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+import com.android.settings.testutils.BatteryTestUtils;
 
 import org.junit.After;
 import org.junit.Before;
@@ -51,6 +56,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
@@ -59,6 +65,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 @RunWith(RobolectricTestRunner.class)
@@ -78,6 +85,8 @@ public final class DataProcessManagerTest {
     private BatteryUsageStats mBatteryUsageStats;
     @Mock
     private Intent mIntent;
+    @Mock
+    private Map<Long, Map<String, BatteryHistEntry>> mBatteryHistoryMap;
     @Captor
     private ArgumentCaptor<BatteryUsageStatsQuery> mBatteryUsageStatsQueryCaptor;
 
@@ -139,6 +148,29 @@ public final class DataProcessManagerTest {
         assertThat(mDataProcessManager.getAppUsagePeriodMap()).isNull();
     }
 
+    @Test
+    public void start_notReuseBatteryUsageSlots_notLoadSlotsFromDatabase() {
+        final AtomicInteger queryCount = new AtomicInteger();
+        DatabaseUtils.sFakeSupplier = () -> {
+            queryCount.incrementAndGet();
+            return new MatrixCursor(new String[]{AppUsageEventEntity.KEY_TIMESTAMP});
+        };
+        mDataProcessManager.start(
+                /*isFromPeriodJob=*/ false, /*shouldReuseBatteryUsageSlots=*/ true);
+        final int queryCountWithSlots = queryCount.getAndSet(0);
+        final DataProcessManager dataProcessManager = new DataProcessManager(
+                mContext, /*handler=*/ null,  /*rawStartTimestamp=*/ 0L,
+                /*lastFullChargeTimestamp=*/ 0L, /*callbackFunction=*/ null,
+                /*hourlyBatteryLevelsPerDay=*/ new ArrayList<>(),
+                /*batteryHistoryMap=*/ new HashMap<>());
+
+        dataProcessManager.start(
+                /*isFromPeriodJob=*/ false, /*shouldReuseBatteryUsageSlots=*/ false);
+
+        assertThat(dataProcessManager.getIsBatteryUsageSlotLoaded()).isTrue();
+        assertThat(queryCount.get()).isEqualTo(queryCountWithSlots - 1);
+    }
+
     @Test
     public void start_loadExpectedAppUsageData() throws RemoteException {
         final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay =
@@ -283,6 +315,31 @@ public final class DataProcessManagerTest {
         assertThat(mDataProcessManager.getShowScreenOnTime()).isFalse();
     }
 
+    @Test
+    public void getReusableBatteryUsageSlots_skipSlotsAfterProcessedTimestamp() {
+        final List<BatteryUsageSlot> slots = List.of(
+                createBatteryUsageSlot(/*startTimestamp=*/ 1000L, /*endTimestamp=*/ 2000L),
+                createBatteryUsageSlot(/*startTimestamp=*/ 2000L, /*endTimestamp=*/ 3000L),
+                createBatteryUsageSlot(/*startTimestamp=*/ 3000L, /*endTimestamp=*/ 4000L));
+
+        final List<BatteryUsageSlot> result = DataProcessManager.getReusableBatteryUsageSlots(
+                slots, /*processedTimestamp=*/ 3000L);
+
+        assertThat(result).containsExactly(slots.get(0), slots.get(1));
+    }
+
+    @Test
+    public void getReusableBatteryUsageSlots_duplicatedSlots_keepLongestOne() {
+        final List<BatteryUsageSlot> slots = List.of(
+                createBatteryUsageSlot(/*startTimestamp=*/ 1000L, /*endTimestamp=*/ 3000L),
+                createBatteryUsageSlot(/*startTimestamp=*/ 1000L, /*endTimestamp=*/ 1500L));
+
+        final List<BatteryUsageSlot> result = DataProcessManager.getReusableBatteryUsageSlots(
+                slots, /*processedTimestamp=*/ 5000L);
+
+        assertThat(result).containsExactly(slots.get(0));
+    }
+
     @Test
     public void getBatteryLevelData_emptyHistoryMap_returnNull() {
         assertThat(DataProcessManager.getBatteryLevelData(
@@ -297,6 +354,46 @@ public final class DataProcessManagerTest {
                 /*asyncResponseDelegate=*/ null)).isNull();
     }
 
+    @Test
+    public void getBatteryLevelData_fromPeriodJob_latestEventAsProcessedTimestamp() {
+        final long lastEvenHour =
+                TimestampUtils.getLastEvenHourTimestamp(System.currentTimeMillis());
+        // The latest event is at the last even hour, nothing is left to process.
+        insertBatteryLevelRecordEvents(
+                lastEvenHour - DateUtils.HOUR_IN_MILLIS * 4,
+                lastEvenHour,
+                lastEvenHour - DateUtils.HOUR_IN_MILLIS * 2);
+        DataProcessManager.sFakeBatteryHistoryMap = mBatteryHistoryMap;
+
+        assertThat(DataProcessManager.getBatteryLevelData(
+                mContext,
+                /*handler=*/ null,
+                /*isFromPeriodJob=*/ true,
+                /*asyncResponseDelegate=*/ null)).isNull();
+
+        verifyNoInteractions(mBatteryHistoryMap);
+    }
+
+    @Test
+    public void getBatteryLevelData_fromPeriodJob_loadHistoryAfterLatestEvent() {
+        final long lastEvenHour =
+                TimestampUtils.getLastEvenHourTimestamp(System.currentTimeMillis());
+        insertBatteryLevelRecordEvents(
+                lastEvenHour - DateUtils.HOUR_IN_MILLIS * 6,
+                lastEvenHour - DateUtils.HOUR_IN_MILLIS * 2,
+                lastEvenHour - DateUtils.HOUR_IN_MILLIS * 4);
+        doReturn(true).when(mBatteryHistoryMap).isEmpty();
+        DataProcessManager.sFakeBatteryHistoryMap = mBatteryHistoryMap;
+
+        assertThat(DataProcessManager.getBatteryLevelData(
+                mContext,
+                /*handler=*/ null,
+                /*isFromPeriodJob=*/ true,
+                /*asyncResponseDelegate=*/ null)).isNull();
+
+        verify(mBatteryHistoryMap).isEmpty();
+    }
+
     @Test
     public void getBatteryLevelData_allDataInOneHour_returnExpectedResult() {
         // The timestamps and the current time are within half hour before an even hour.
@@ -418,6 +515,28 @@ public final class DataProcessManagerTest {
         assertThat(period.getEndTime()).isEqualTo(endTime);
     }
 
+    private void insertBatteryLevelRecordEvents(long... timestamps) {
+        final BatteryStateDatabase database = BatteryTestUtils.setUpBatteryStateDatabase(mContext);
+        for (long timestamp : timestamps) {
+            database.batteryEventDao().insert(BatteryEventEntity.newBuilder()
+                    .setTimestamp(timestamp)
+                    .setBatteryEventType(BatteryEventType.EVEN_HOUR.getNumber())
+                    .setBatteryLevel(50)
+                    .build());
+        }
+        // Queries the events through the provider, which sorts them as in the device.
+        Robolectric.setupContentProvider(
+                BatteryUsageContentProvider.class, DatabaseUtils.AUTHORITY);
+    }
+
+    private static BatteryUsageSlot createBatteryUsageSlot(
+            final long startTimestamp, final long endTimestamp) {
+        return BatteryUsageSlot.newBuilder()
+                .setStartTimestamp(startTimestamp)
+                .setEndTimestamp(endTimestamp)
+                .build();
+    }
+
     private static void verifyExpectedBatteryLevelData(
             final BatteryLevelData resultData,
             final List<Long> expectedDailyTimestamps,
@@ -376,6 +376,52 @@ public final class DataProcessorTest {
                 DataProcessor.CURRENT_TIME_BATTERY_HISTORY_PLACEHOLDER)).isTrue();
     }
 
+    @Test
+    public void getHistoryMapWithExpectedTimestamps_storeBackedMap_sameAsEntryMap() {
+        // Timezone GMT+8
+        final long[] timestamps = {
+                1640966700000L, // 2022-01-01 00:05:00
+                1640970180000L, // 2022-01-01 01:03:00
+                1640973840000L, // 2022-01-01 02:04:00
+                1640978100000L, // 2022-01-01 03:15:00
+                1640981400000L  // 2022-01-01 04:10:00
+        };
+        final int[] levels = {100, 94, 90, 82, 50};
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = new HashMap<>();
+        final BatteryHistoryStore.Builder builder = new BatteryHistoryStore.Builder();
+        for (int index = 0; index < timestamps.length; index++) {
+            final Map<String, BatteryHistEntry> entryMap = new HashMap<>();
+            for (long uid = 1L; uid <= 2L; uid++) {
+                final BatteryHistEntry entry = createBatteryHistEntry(
+                        timestamps[index], levels[index], uid, /*consumePower=*/ index * uid,
+                        /*foregroundUsageTimeInMs=*/ index * 1000L);
+                entryMap.put(entry.getKey(), entry);
+                builder.add(entry);
+            }
+            batteryHistoryMap.put(timestamps[index], entryMap);
+        }
+        DataProcessor.sTestCurrentTimeMillis = timestamps[timestamps.length - 1];
+
+        final Map<Long, Map<String, BatteryHistEntry>> expectedMap =
+                DataProcessor.getHistoryMapWithExpectedTimestamps(mContext, batteryHistoryMap);
+        final Map<Long, Map<String, BatteryHistEntry>> resultMap =
+                DataProcessor.getHistoryMapWithExpectedTimestamps(
+                        mContext, builder.build().asHistoryMap());
+
+        assertThat(resultMap.keySet()).isEqualTo(expectedMap.keySet());
+        for (Map.Entry<Long, Map<String, BatteryHistEntry>> snapshot : expectedMap.entrySet()) {
+            final Map<String, BatteryHistEntry> resultSnapshot = resultMap.get(snapshot.getKey());
+            assertThat(resultSnapshot.keySet()).isEqualTo(snapshot.getValue().keySet());
+            for (Map.Entry<String, BatteryHistEntry> entry : snapshot.getValue().entrySet()) {
+                final BatteryHistEntry resultEntry = resultSnapshot.get(entry.getKey());
+                assertThat(resultEntry.mBatteryLevel).isEqualTo(entry.getValue().mBatteryLevel);
+                assertThat(resultEntry.mConsumePower).isEqualTo(entry.getValue().mConsumePower);
+                assertThat(resultEntry.mForegroundUsageTimeInMs)
+                        .isEqualTo(entry.getValue().mForegroundUsageTimeInMs);
+            }
+        }
+    }
+
     @Test
     public void getLevelDataThroughProcessedHistoryMap_OneDayData_returnExpectedResult() {
         // Timezone GMT+8
@@ -819,6 +865,35 @@ public final class DataProcessorTest {
         assertThat(batteryDiffData.getEndTimestamp()).isEqualTo(batteryHistoryKeys[2]);
     }
 
+    @Test
+    public void getBatteryDiffDataMap_storeBackedMap_returnExpectedResult() {
+        final long[] batteryHistoryKeys = new long[]{
+                1641045600000L, // 2022-01-01 22:00:00
+                1641049200000L, // 2022-01-01 23:00:00
+                1641052800000L, // 2022-01-02 00:00:00
+        };
+        final double[] consumePowers = {0, 5, 16};
+        final BatteryHistoryStore.Builder builder = new BatteryHistoryStore.Builder();
+        for (int index = 0; index < batteryHistoryKeys.length; index++) {
+            builder.add(createBatteryHistEntry(batteryHistoryKeys[index], /*level=*/ 90,
+                    /*uid=*/ 1L, consumePowers[index],
+                    /*foregroundUsageTimeInMs=*/ index * 1000L));
+        }
+        final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
+
+        final Map<Long, BatteryDiffData> batteryDiffDataMap = DataProcessor.getBatteryDiffDataMap(
+                mContext, batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                builder.build().asHistoryMap(), /*appUsagePeriodMap=*/ null, Set.of(), Set.of());
+
+        assertThat(batteryDiffDataMap).hasSize(1);
+        final BatteryDiffData batteryDiffData = batteryDiffDataMap.get(batteryHistoryKeys[0]);
+        assertThat(batteryDiffData.getEndTimestamp()).isEqualTo(batteryHistoryKeys[2]);
+        assertThat(batteryDiffData.getAppDiffEntryList()).hasSize(1);
+        final BatteryDiffEntry diffEntry = batteryDiffData.getAppDiffEntryList().get(0);
+        assertThat(diffEntry.mConsumePower).isEqualTo(16);
+        assertThat(diffEntry.mForegroundUsageTimeInMs).isEqualTo(2000L);
+    }
+
     @Test
     public void generateBatteryUsageMap_returnsExpectedResult() {
         final long[] batteryHistoryKeys = new long[]{
@@ -1806,6 +1881,30 @@ public final class DataProcessorTest {
         return new BatteryHistEntry(values);
     }
 
+    private static BatteryHistEntry createBatteryHistEntry(
+            final long timestamp, final int level, final long uid, final double consumePower,
+            final long foregroundUsageTimeInMs) {
+        final BatteryInformation batteryInformation =
+                BatteryInformation
+                        .newBuilder()
+                        .setDeviceBatteryState(
+                                DeviceBatteryState.newBuilder().setBatteryLevel(level).build())
+                        .setAppLabel("label" + uid)
+                        .setConsumePower(consumePower)
+                        .setForegroundUsageConsumePower(consumePower)
+                        .setForegroundUsageTimeInMs(foregroundUsageTimeInMs)
+                        .build();
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, "package" + uid);
+        values.put(BatteryHistEntry.KEY_UID, uid);
+        values.put(BatteryHistEntry.KEY_USER_ID, 0L);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION,
+                ConvertUtils.convertBatteryInformationToString(batteryInformation));
+        return new BatteryHistEntry(values);
+    }
+
     private UsageEvents getUsageEvents(final List<Event> events) {
         UsageEvents usageEvents = new UsageEvents(events, new String[] {"package"});
         Parcel parcel = Parcel.obtain();
@@ -24,6 +24,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -31,6 +32,8 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import android.app.usage.IUsageStatsManager;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
@@ -52,6 +55,8 @@ import com.android.settings.testutils.BatteryTestUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
@@ -78,9 +83,10 @@ public final class DatabaseUtilsTest {
     @Mock private BatteryEntry mMockBatteryEntry3;
     @Mock private Context mMockContext;
     @Mock private IUsageStatsManager mUsageStatsManager;
+    @Captor private ArgumentCaptor<ArrayList<ContentProviderOperation>> mOperationsCaptor;
 
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
         mContext = spy(RuntimeEnvironment.application);
         doReturn(mMockContentResolver2).when(mMockContext).getContentResolver();
@@ -89,6 +95,8 @@ public final class DatabaseUtilsTest {
         doReturn(mPackageManager).when(mContext).getPackageManager();
         DatabaseUtils.getSharedPreferences(mContext).edit().clear().apply();
         DataProcessor.sUsageStatsManager = mUsageStatsManager;
+        doReturn(new ContentProviderResult[0]).when(mMockContentResolver)
+                .applyBatch(anyString(), any());
     }
 
     @Test
@@ -103,7 +111,7 @@ public final class DatabaseUtilsTest {
     }
 
     @Test
-    public void sendAppUsageEventData_returnsExpectedList() {
+    public void sendAppUsageEventData_returnsExpectedList() throws Exception {
         // Configures the testing AppUsageEvent data.
         final List<AppUsageEvent> appUsageEventList = new ArrayList<>();
         final AppUsageEvent appUsageEvent1 =
@@ -133,10 +141,7 @@ public final class DatabaseUtilsTest {
         assertThat(valuesList.get(1).getAsInteger(AppUsageEventEntity.KEY_APP_USAGE_EVENT_TYPE))
                 .isEqualTo(2);
         // Verifies the inserted ContentValues into content provider.
-        final ContentValues[] valuesArray =
-                new ContentValues[] {valuesList.get(0), valuesList.get(1)};
-        verify(mMockContentResolver).bulkInsert(
-                DatabaseUtils.APP_USAGE_EVENT_URI, valuesArray);
+        verifyInsertInBatch(DatabaseUtils.APP_USAGE_EVENT_URI, /*size=*/ 2);
         verify(mMockContentResolver).notifyChange(
                 DatabaseUtils.APP_USAGE_EVENT_URI, /*observer=*/ null);
     }
@@ -182,7 +187,7 @@ public final class DatabaseUtilsTest {
     }
 
     @Test
-    public void sendBatteryEntryData_returnsExpectedList() {
+    public void sendBatteryEntryData_returnsExpectedList() throws Exception {
         doReturn(getBatteryIntent()).when(mContext).registerReceiver(any(), any());
         // Configures the testing BatteryEntry data.
         final List<BatteryEntry> batteryEntryList = new ArrayList<>();
@@ -207,10 +212,7 @@ public final class DatabaseUtilsTest {
         verifyBatteryEntryContentValues(0.5, valuesList.get(0));
         verifyBatteryEntryContentValues(0.0, valuesList.get(1));
         // Verifies the inserted ContentValues into content provider.
-        final ContentValues[] valuesArray =
-                new ContentValues[] {valuesList.get(0), valuesList.get(1)};
-        verify(mMockContentResolver).bulkInsert(
-                DatabaseUtils.BATTERY_CONTENT_URI, valuesArray);
+        verifyInsertInBatch(DatabaseUtils.BATTERY_CONTENT_URI, /*size=*/ 2);
         verify(mMockContentResolver).notifyChange(
                 DatabaseUtils.BATTERY_CONTENT_URI, /*observer=*/ null);
     }
@@ -520,6 +522,8 @@ public final class DatabaseUtilsTest {
                 DatabaseUtils.KEY_LAST_LOAD_FULL_CHARGE_TIME);
         DatabaseUtils.recordDateTime(mContext,
                 DatabaseUtils.KEY_LAST_UPLOAD_FULL_CHARGE_TIME);
+        DatabaseUtils.recordWriteStats(mContext,
+                DatabaseUtils.KEY_LAST_BATTERY_STATE_WRITE, /*size=*/ 100, /*elapsedTimeMs=*/ 20);
         final StringWriter stringWriter = new StringWriter();
         final PrintWriter printWriter = new PrintWriter(stringWriter);
 
@@ -531,6 +535,7 @@ public final class DatabaseUtilsTest {
         assertThat(dumpContent.contains("ClearBatteryCacheData")).isTrue();
         assertThat(dumpContent.contains("LastLoadFullChargeTime")).isTrue();
         assertThat(dumpContent.contains("LastUploadFullChargeTime")).isTrue();
+        assertThat(dumpContent.contains("size=100 in 20/ms (5000 rows/s)")).isTrue();
     }
 
     @Test
@@ -546,6 +551,16 @@ public final class DatabaseUtilsTest {
         verify(mContext).createPackageContextAsUser(anyString(), anyInt(), any());
     }
 
+    private void verifyInsertInBatch(Uri uri, int size) throws Exception {
+        verify(mMockContentResolver).applyBatch(
+                eq(DatabaseUtils.AUTHORITY), mOperationsCaptor.capture());
+        assertThat(mOperationsCaptor.getValue()).hasSize(size);
+        for (ContentProviderOperation operation : mOperationsCaptor.getValue()) {
+            assertThat(operation.isInsert()).isTrue();
+            assertThat(operation.getUri()).isEqualTo(uri);
+        }
+    }
+
     private static void verifyBatteryEntryContentValues(
             double consumedPower, ContentValues values) {
         final BatteryInformation batteryInformation =
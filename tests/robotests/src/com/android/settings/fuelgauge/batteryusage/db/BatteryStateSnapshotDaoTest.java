@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.testutils.BatteryTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Tests for {@link BatteryStateSnapshotDao}. */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryStateSnapshotDaoTest {
+    private static final long CURRENT = System.currentTimeMillis();
+    private static final long TIMESTAMP1 = CURRENT;
+    private static final long TIMESTAMP2 = CURRENT + 2;
+    private static final long TIMESTAMP3 = CURRENT + 4;
+
+    private Context mContext;
+    private BatteryStateDatabase mDatabase;
+    private BatteryStateSnapshotDao mBatteryStateSnapshotDao;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mDatabase = BatteryTestUtils.setUpBatteryStateDatabase(mContext);
+        mBatteryStateSnapshotDao = mDatabase.batteryStateSnapshotDao();
+        mBatteryStateSnapshotDao.insert(createSnapshot(TIMESTAMP3, /*isStart=*/ false));
+        mBatteryStateSnapshotDao.insert(createSnapshot(TIMESTAMP1, /*isStart=*/ true));
+        mBatteryStateSnapshotDao.insert(createSnapshot(TIMESTAMP2, /*isStart=*/ false));
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+        BatteryStateDatabase.setBatteryStateDatabase(/*database=*/ null);
+    }
+
+    @Test
+    public void insert_sameTimestamp_replacesSnapshot() {
+        mBatteryStateSnapshotDao.insert(createSnapshot(TIMESTAMP3, /*isStart=*/ true));
+
+        assertThat(mBatteryStateSnapshotDao.getTimestampCount(0)).isEqualTo(3);
+    }
+
+    @Test
+    public void getTimestamps_returnsTimestampsAfterOffset() {
+        assertThat(mBatteryStateSnapshotDao.getTimestampCount(TIMESTAMP1)).isEqualTo(2);
+        assertThat(mBatteryStateSnapshotDao.getTimestamps(TIMESTAMP1))
+                .containsExactly(TIMESTAMP2, TIMESTAMP3)
+                .inOrder();
+    }
+
+    @Test
+    public void clearAllBefore_normalFlow_expectedBehavior() {
+        mBatteryStateSnapshotDao.clearAllBefore(TIMESTAMP2);
+
+        assertThat(mBatteryStateSnapshotDao.getTimestamps(0)).containsExactly(TIMESTAMP3);
+    }
+
+    @Test
+    public void clearAll_normalFlow_expectedBehavior() {
+        mBatteryStateSnapshotDao.clearAll();
+
+        assertThat(mBatteryStateSnapshotDao.getTimestampCount(0)).isEqualTo(0);
+    }
+
+    private static BatteryStateSnapshotEntity createSnapshot(long timestamp, boolean isStart) {
+        return new BatteryStateSnapshotEntity(timestamp, /*batteryLevel=*/ 50,
+                /*batteryStatus=*/ 2, /*batteryHealth=*/ 2, isStart);
+    }
+}
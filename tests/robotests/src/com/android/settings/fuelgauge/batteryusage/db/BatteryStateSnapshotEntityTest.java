@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.BatteryManager;
+
+import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
+import com.android.settings.fuelgauge.batteryusage.DeviceBatteryState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/** Tests for {@link BatteryStateSnapshotEntity}. */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryStateSnapshotEntityTest {
+    private static final int BATTERY_LEVEL = 45;
+    private static final int BATTERY_STATUS = BatteryManager.BATTERY_STATUS_FULL;
+    private static final int BATTERY_HEALTH = BatteryManager.BATTERY_HEALTH_COLD;
+
+    @Test
+    public void create_fromBatteryState_returnsExpectedResult() {
+        final BatteryInformation batteryInformation =
+                BatteryInformation
+                        .newBuilder()
+                        .setDeviceBatteryState(DeviceBatteryState
+                                .newBuilder()
+                                .setBatteryLevel(BATTERY_LEVEL)
+                                .setBatteryStatus(BATTERY_STATUS)
+                                .setBatteryHealth(BATTERY_HEALTH)
+                                .build())
+                        .setAppLabel("Settings")
+                        .build();
+        final BatteryState state = BatteryState.newBuilder()
+                .setTimestamp(100001L)
+                .setIsFullChargeCycleStart(true)
+                .setBatteryInformation(
+                        ConvertUtils.convertBatteryInformationToString(batteryInformation))
+                .build();
+
+        final BatteryStateSnapshotEntity snapshot = BatteryStateSnapshotEntity.create(state);
+
+        assertThat(snapshot.timestamp).isEqualTo(100001L);
+        assertThat(snapshot.batteryLevel).isEqualTo(BATTERY_LEVEL);
+        assertThat(snapshot.batteryStatus).isEqualTo(BATTERY_STATUS);
+        assertThat(snapshot.batteryHealth).isEqualTo(BATTERY_HEALTH);
+        assertThat(snapshot.isFullChargeCycleStart).isTrue();
+    }
+
+    @Test
+    public void create_emptyBatteryInformation_returnsDefaultDeviceState() {
+        final BatteryStateSnapshotEntity snapshot = BatteryStateSnapshotEntity.create(
+                100001L, /*isFullChargeCycleStart=*/ false, /*batteryInformation=*/ null);
+
+        assertThat(snapshot.timestamp).isEqualTo(100001L);
+        assertThat(snapshot.batteryLevel).isEqualTo(0);
+        assertThat(snapshot.isFullChargeCycleStart).isFalse();
+    }
+}
@@ -22,11 +22,13 @@ import static com.android.settings.intelligence.ContextualCardProto.ContextualCa
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import android.app.settings.SettingsEnums;
@@ -151,6 +153,43 @@ public class ContextualCardLoaderTest {
         assertThat(mContextualCardLoader.getCardCount()).isEqualTo(configCount);
     }
 
+    @Test
+    public void filterEligibleCards_cachedCards_returnCachedEligibleCards() {
+        final List<ContextualCard> cards = getContextualCardList().stream().limit(2)
+                .collect(Collectors.toList());
+        final EligibleCardCache cache = new EligibleCardCache();
+        cache.put(cards.get(0), cards.get(0));
+        cache.put(cards.get(1), null /* result */);
+        doReturn(cache).when(mContextualCardLoader).getEligibleCardCache();
+
+        final List<ContextualCard> result = mContextualCardLoader.filterEligibleCards(cards);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getName()).isEqualTo(cards.get(0).getName());
+    }
+
+    @Test
+    public void filterEligibleCards_cachedCards_logEligibility() {
+        final List<ContextualCard> cards = getContextualCardList().stream().limit(2)
+                .collect(Collectors.toList());
+        final EligibleCardCache cache = new EligibleCardCache();
+        cache.put(cards.get(0), cards.get(0));
+        cache.put(cards.get(1), null /* result */);
+        doReturn(cache).when(mContextualCardLoader).getEligibleCardCache();
+
+        mContextualCardLoader.filterEligibleCards(cards);
+
+        verify(mFakeFeatureFactory.metricsFeatureProvider).action(SettingsEnums.PAGE_UNKNOWN,
+                SettingsEnums.ACTION_CONTEXTUAL_CARD_ELIGIBILITY, SettingsEnums.SETTINGS_HOMEPAGE,
+                cards.get(0).getTextSliceUri(), 1 /* true */);
+        verify(mFakeFeatureFactory.metricsFeatureProvider).action(SettingsEnums.PAGE_UNKNOWN,
+                SettingsEnums.ACTION_CONTEXTUAL_CARD_ELIGIBILITY, SettingsEnums.SETTINGS_HOMEPAGE,
+                cards.get(1).getTextSliceUri(), 0 /* false */);
+        verify(mFakeFeatureFactory.metricsFeatureProvider, times(2)).action(
+                eq(SettingsEnums.PAGE_UNKNOWN), eq(SettingsEnums.ACTION_CONTEXTUAL_CARD_LOAD),
+                eq(SettingsEnums.SETTINGS_HOMEPAGE), any(String.class), anyInt());
+    }
+
     private List<ContextualCard> getContextualCardList() {
         final List<ContextualCard> cards = new ArrayList<>();
         cards.add(new ContextualCard.Builder()
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+
+import androidx.slice.Slice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+public class EligibleCardCacheTest {
+
+    private static final Uri TEST_SLICE_URI = Uri.parse("content://test/test");
+
+    private EligibleCardCache mCache;
+    private ContextualCard mCard;
+
+    @Before
+    public void setUp() {
+        mCache = new EligibleCardCache();
+        mCard = new ContextualCard.Builder()
+                .setName("test_card")
+                .setRankingScore(0.5)
+                .setCardType(ContextualCard.CardType.SLICE)
+                .setSliceUri(TEST_SLICE_URI)
+                .build();
+    }
+
+    @Test
+    public void contains_notCached_returnFalse() {
+        assertThat(mCache.contains(mCard)).isFalse();
+        assertThat(mCache.get(mCard)).isNull();
+    }
+
+    @Test
+    public void get_eligibleCardCached_returnCardWithCachedResult() {
+        mCache.put(mCard, mCard.mutate().setHasInlineAction(true).build());
+
+        final ContextualCard card = mCache.get(mCard.mutate().setRankingScore(0.8).build());
+
+        assertThat(mCache.contains(mCard)).isTrue();
+        assertThat(card.hasInlineAction()).isTrue();
+        assertThat(card.getRankingScore()).isEqualTo(0.8);
+    }
+
+    @Test
+    public void get_ineligibleCardCached_returnNull() {
+        mCache.put(mCard, null /* result */);
+
+        assertThat(mCache.contains(mCard)).isTrue();
+        assertThat(mCache.get(mCard)).isNull();
+    }
+
+    @Test
+    public void get_eligibleCardCached_returnBoundSlice() {
+        final Slice slice = new Slice.Builder(TEST_SLICE_URI).build();
+        mCache.put(mCard, mCard.mutate().setSlice(slice).build());
+
+        assertThat(mCache.get(mCard).getSlice()).isSameInstanceAs(slice);
+    }
+
+    @Test
+    public void contains_sameNameOtherSliceUri_returnFalse() {
+        mCache.put(mCard, mCard);
+
+        assertThat(mCache.contains(
+                mCard.mutate().setSliceUri(Uri.parse("content://test/other")).build())).isFalse();
+    }
+
+    @Test
+    public void contains_cleared_returnFalse() {
+        mCache.put(mCard, mCard);
+
+        mCache.clear();
+
+        assertThat(mCache.contains(mCard)).isFalse();
+    }
+
+    @Test
+    public void contains_entryExpired_returnFalse() {
+        mCache.put(mCard, mCard);
+
+        ShadowSystemClock.advanceBy(Duration.ofMillis(EligibleCardCache.ENTRY_TTL_MS + 1));
+
+        assertThat(mCache.contains(mCard)).isFalse();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.NotificationHistory;
+import android.app.NotificationHistory.HistoricalNotification;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Parcel;
+import android.os.UserHandle;
+
+import com.android.settings.notification.NotificationBackend;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowThreadUtils.class)
+public class HistoryLoaderTest {
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+    private static final int UID1 = 10001;
+    private static final int UID2 = UserHandle.getUid(10, UID1);
+
+    @Mock
+    private NotificationBackend mBackend;
+    @Mock
+    private PackageManager mPm;
+    private final ApplicationInfo mApplicationInfo = new ApplicationInfo();
+    private final List<List<NotificationHistoryPackage>> mPages = new ArrayList<>();
+    private final List<Integer> mOffsets = new ArrayList<>();
+    private int mPackageCount = -1;
+    private final HistoryLoader.OnHistoryLoaderListener mListener =
+            new HistoryLoader.OnHistoryLoaderListener() {
+                @Override
+                public void onHistoryPageLoaded(List<NotificationHistoryPackage> page,
+                        int offset) {
+                    mPages.add(new ArrayList<>(page));
+                    mOffsets.add(offset);
+                }
+
+                @Override
+                public void onHistoryLoaded(int packageCount) {
+                    mPackageCount = packageCount;
+                }
+            };
+    private Context mContext;
+    private HistoryLoader mLoader;
+
+    @Before
+    public void setUp() throws PackageManager.NameNotFoundException {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        HistoryLoader.clearAppInfoCache();
+        mApplicationInfo.sourceDir = "/data/app/pkg-1";
+        when(mPm.getApplicationInfoAsUser(anyString(), anyInt(), anyInt()))
+                .thenReturn(mApplicationInfo);
+        when(mPm.getApplicationLabel(any())).thenReturn("label");
+        setIcon(new ColorDrawable(Color.RED));
+        mLoader = new HistoryLoader(mContext, mBackend, mPm);
+    }
+
+    @Test
+    public void groupByPackage_samePackageAndUid_groupTogether() {
+        final List<NotificationHistoryPackage> packages = HistoryLoader.groupByPackage(
+                createHistory(createNotification(PKG1, UID1, 1),
+                        createNotification(PKG2, UID1, 2), createNotification(PKG1, UID1, 3)));
+
+        assertThat(packages).hasSize(2);
+        assertThat(packages.get(0).pkgName).isEqualTo(PKG1);
+        assertThat(packages.get(0).notifications).hasSize(2);
+        assertThat(packages.get(0).getMostRecent()).isEqualTo(3);
+        assertThat(packages.get(1).pkgName).isEqualTo(PKG2);
+        assertThat(packages.get(1).notifications).hasSize(1);
+    }
+
+    @Test
+    public void groupByPackage_samePackageOfOtherUser_keepApart() {
+        final List<NotificationHistoryPackage> packages = HistoryLoader.groupByPackage(
+                createHistory(createNotification(PKG1, UID1, 1),
+                        createNotification(PKG1, UID2, 2)));
+
+        assertThat(packages).hasSize(2);
+        assertThat(packages.get(0).uid).isEqualTo(UID1);
+        assertThat(packages.get(1).uid).isEqualTo(UID2);
+    }
+
+    @Test
+    public void load_morePackagesThanPageSize_deliverPagesMostRecentFirst() {
+        final int count = HistoryLoader.PAGE_SIZE + 2;
+        final HistoricalNotification[] notifications = new HistoricalNotification[count];
+        for (int i = 0; i < count; i++) {
+            notifications[i] = createNotification("pkg" + i, UID1, i);
+        }
+        setHistory(notifications);
+
+        mLoader.load(mListener);
+
+        assertThat(mOffsets).containsExactly(0, HistoryLoader.PAGE_SIZE).inOrder();
+        assertThat(mPages.get(0)).hasSize(HistoryLoader.PAGE_SIZE);
+        assertThat(mPages.get(0).get(0).pkgName).isEqualTo("pkg" + (count - 1));
+        assertThat(mPages.get(1)).hasSize(2);
+        assertThat(mPages.get(1).get(1).pkgName).isEqualTo("pkg0");
+        assertThat(mPackageCount).isEqualTo(count);
+    }
+
+    @Test
+    public void load_canceled_notDeliverPages() {
+        setHistory(createNotification(PKG1, UID1, 1));
+        mLoader.cancel();
+
+        mLoader.load(mListener);
+
+        assertThat(mPages).isEmpty();
+        assertThat(mPackageCount).isEqualTo(-1);
+    }
+
+    @Test
+    public void load_sameVersionAgain_useCachedLabel() {
+        setHistory(createNotification(PKG1, UID1, 1));
+        mLoader.load(mListener);
+        setHistory(createNotification(PKG1, UID1, 1));
+
+        new HistoryLoader(mContext, mBackend, mPm).load(mListener);
+
+        verify(mPm, times(1)).getApplicationLabel(any());
+        assertThat(mPages.get(1).get(0).label).isEqualTo("label");
+        assertThat(mPages.get(1).get(0).icon).isNotSameInstanceAs(mPages.get(0).get(0).icon);
+    }
+
+    @Test
+    public void load_packageUpdated_reloadLabel() {
+        setHistory(createNotification(PKG1, UID1, 1));
+        mLoader.load(mListener);
+        mApplicationInfo.sourceDir = "/data/app/pkg-2";
+        setHistory(createNotification(PKG1, UID1, 1));
+
+        new HistoryLoader(mContext, mBackend, mPm).load(mListener);
+
+        verify(mPm, times(2)).getApplicationLabel(any());
+    }
+
+    @Test
+    public void load_iconWithoutConstantState_notCached() {
+        setIcon(mock(Drawable.class));
+        setHistory(createNotification(PKG1, UID1, 1));
+        mLoader.load(mListener);
+        setHistory(createNotification(PKG1, UID1, 1));
+
+        new HistoryLoader(mContext, mBackend, mPm).load(mListener);
+
+        verify(mPm, times(2)).getApplicationLabel(any());
+    }
+
+    @Test
+    public void load_packageGone_showDefaultIcon() throws PackageManager.NameNotFoundException {
+        final Drawable defaultIcon = new ColorDrawable(Color.BLUE);
+        when(mPm.getDefaultActivityIcon()).thenReturn(defaultIcon);
+        when(mPm.getApplicationInfoAsUser(anyString(), anyInt(), anyInt()))
+                .thenThrow(new PackageManager.NameNotFoundException());
+        setHistory(createNotification(PKG1, UID1, 1));
+
+        mLoader.load(mListener);
+
+        assertThat(mPages.get(0).get(0).icon).isSameInstanceAs(defaultIcon);
+        assertThat(mPages.get(0).get(0).label).isNull();
+    }
+
+    private void setIcon(Drawable icon) {
+        when(mPm.getApplicationIcon(any(ApplicationInfo.class))).thenReturn(icon);
+        when(mPm.getUserBadgedIcon(any(), any())).thenReturn(icon);
+    }
+
+    private void setHistory(HistoricalNotification... notifications) {
+        when(mBackend.getNotificationHistory(any(), any()))
+                .thenReturn(createHistory(notifications));
+    }
+
+    private static NotificationHistory createHistory(HistoricalNotification... notifications) {
+        final NotificationHistory history = new NotificationHistory();
+        for (HistoricalNotification notification : notifications) {
+            history.addNotificationToWrite(notification);
+        }
+        history.poolStringsFromNotifications();
+        // The notifications are read back from the parcel, as they're sent by the service.
+        final Parcel parcel = Parcel.obtain();
+        try {
+            history.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return NotificationHistory.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static HistoricalNotification createNotification(String pkg, int uid,
+            long postedTimeMs) {
+        return new HistoricalNotification.Builder()
+                .setPackage(pkg)
+                .setUid(uid)
+                .setUserId(UserHandle.getUserId(uid))
+                .setChannelId("channel")
+                .setChannelName("Channel")
+                .setConversationId("conversation")
+                .setPostedTimeMs(postedTimeMs)
+                .setTitle("title")
+                .setText("text")
+                .setIcon(Icon.createWithResource(pkg, android.R.drawable.sym_def_app_icon))
+                .build();
+    }
+}
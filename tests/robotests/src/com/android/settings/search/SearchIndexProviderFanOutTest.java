@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+
+import android.os.SystemClock;
+
+import com.android.settingslib.search.SearchIndexableData;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexProviderFanOutTest {
+
+    private static final SearchIndexableData BUNDLE_1 = new SearchIndexableData(
+            FakeSettingsFragment.class, FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER);
+    private static final SearchIndexableData BUNDLE_2 = new SearchIndexableData(
+            String.class, FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER);
+    private static final SearchIndexableData BUNDLE_3 = new SearchIndexableData(
+            Integer.class, FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER);
+    private static final SearchIndexableData BUNDLE_4 = new SearchIndexableData(
+            Long.class, FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER);
+    private static final SearchIndexableData BUNDLE_5 = new SearchIndexableData(
+            Double.class, FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER);
+
+    @After
+    public void tearDown() {
+        System.clearProperty(SettingsSearchIndexablesProvider.SYSPROP_CRASH_ON_ERROR);
+        SearchIndexProviderFanOut.sSlowProviderTimeMs = 3_000L;
+        SearchIndexProviderFanOut.sFanOutTimeoutMs = 20_000L;
+        SearchIndexProviderFanOut.clearStats();
+    }
+
+    @Test
+    public void query_returnResultsInBundleOrder() {
+        final List<String> results = SearchIndexProviderFanOut.query("test",
+                List.of(BUNDLE_1, BUNDLE_2, BUNDLE_3),
+                bundle -> bundle.getTargetClass().getSimpleName());
+
+        assertThat(results).containsExactly(
+                FakeSettingsFragment.class.getSimpleName(), "String", "Integer").inOrder();
+    }
+
+    @Test
+    public void query_nullResult_skipProvider() {
+        final List<String> results = SearchIndexProviderFanOut.query("test",
+                List.of(BUNDLE_1, BUNDLE_2),
+                bundle -> bundle == BUNDLE_1 ? null : "result");
+
+        assertThat(results).containsExactly("result");
+    }
+
+    @Test
+    public void query_providerThrows_skipProvider() {
+        final List<String> results = SearchIndexProviderFanOut.query("test",
+                List.of(BUNDLE_1, BUNDLE_2),
+                bundle -> {
+                    if (bundle == BUNDLE_1) {
+                        throw new IllegalStateException("fake crash");
+                    }
+                    return "result";
+                });
+
+        assertThat(results).containsExactly("result");
+    }
+
+    @Test
+    public void query_providerThrowsWithCrashOnError_throwException() {
+        System.setProperty(SettingsSearchIndexablesProvider.SYSPROP_CRASH_ON_ERROR, "true");
+
+        assertThrows(RuntimeException.class, () -> SearchIndexProviderFanOut.query("test",
+                List.of(BUNDLE_1),
+                bundle -> {
+                    throw new IllegalStateException("fake crash");
+                }));
+    }
+
+    @Test
+    public void query_slowProvider_keepResult() throws Exception {
+        SearchIndexProviderFanOut.sSlowProviderTimeMs = 100L;
+
+        final List<String> results = SearchIndexProviderFanOut.query("test",
+                List.of(BUNDLE_1, BUNDLE_2),
+                bundle -> {
+                    if (bundle == BUNDLE_1) {
+                        SystemClock.sleep(200L);
+                    }
+                    return bundle.getTargetClass().getSimpleName();
+                });
+
+        assertThat(results).containsExactly(
+                FakeSettingsFragment.class.getSimpleName(), "String").inOrder();
+        assertThat(SearchIndexProviderFanOut.dump().getString("test")).contains("slow=1");
+    }
+
+    @Test
+    public void query_workerThreadsBlocked_runPendingProviderSerially() throws Exception {
+        SearchIndexProviderFanOut.sFanOutTimeoutMs = 100L;
+        // The first providers block all the worker threads until the last one runs.
+        final CountDownLatch lastProviderRun = new CountDownLatch(1);
+
+        final List<String> results = SearchIndexProviderFanOut.query("test",
+                List.of(BUNDLE_1, BUNDLE_2, BUNDLE_3, BUNDLE_4, BUNDLE_5),
+                bundle -> {
+                    if (bundle == BUNDLE_5) {
+                        lastProviderRun.countDown();
+                    } else {
+                        lastProviderRun.await(1, TimeUnit.MINUTES);
+                    }
+                    return bundle.getTargetClass().getSimpleName();
+                });
+
+        assertThat(results).containsExactly(FakeSettingsFragment.class.getSimpleName(),
+                "String", "Integer", "Long", "Double").inOrder();
+        assertThat(SearchIndexProviderFanOut.dump().getString("test")).contains("serial=1");
+    }
+
+    @Test
+    public void dump_containLatestQueryStats() throws Exception {
+        SearchIndexProviderFanOut.query("getNonIndexableKeys",
+                List.of(BUNDLE_1, BUNDLE_2), bundle -> "result");
+
+        final JSONObject dump = SearchIndexProviderFanOut.dump();
+
+        assertThat(dump.has("getNonIndexableKeys")).isTrue();
+        assertThat(dump.getString("getNonIndexableKeys")).contains("providers=2");
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.provider.Settings;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.core.BasePreferenceController;
+import com.android.settingslib.core.AbstractPreferenceController;
+import com.android.settingslib.search.SearchIndexableData;
+import com.android.settingslib.search.SearchIndexableRaw;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexableCacheTest {
+
+    private static final String SETTING = Settings.Global.AUTO_TIME_ZONE;
+
+    private static final BaseSearchIndexProvider CACHEABLE_PROVIDER =
+            new BaseSearchIndexProvider() {
+                @Override
+                public SearchIndexableCache.Inputs getCacheInputs(Context context) {
+                    return new SearchIndexableCache.Inputs()
+                            .addSetting(Settings.Global.getUriFor(SETTING));
+                }
+            };
+
+    private final FakeController mController = new FakeController(
+            ApplicationProvider.getApplicationContext(), "controller_key");
+    private final BaseSearchIndexProvider mControllerProvider = new BaseSearchIndexProvider() {
+        @Override
+        public List<AbstractPreferenceController> createPreferenceControllers(Context context) {
+            final List<AbstractPreferenceController> controllers = new ArrayList<>();
+            controllers.add(mController);
+            return controllers;
+        }
+
+        @Override
+        public SearchIndexableCache.Inputs getCacheInputs(Context context) {
+            return new SearchIndexableCache.Inputs();
+        }
+    };
+
+    private Context mContext;
+    private SearchIndexableData mCacheableBundle;
+    private SearchIndexableData mUncacheableBundle;
+    private AtomicInteger mLoadCount;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mCacheableBundle = new SearchIndexableData(FakeSettingsFragment.class, CACHEABLE_PROVIDER);
+        mUncacheableBundle = new SearchIndexableData(
+                FakeSettingsFragment.class, FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER);
+        mLoadCount = new AtomicInteger();
+        Settings.Global.putInt(mContext.getContentResolver(), SETTING, 1);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.getSharedPreferences(SearchIndexableCache.PREFS_FILE, Context.MODE_PRIVATE)
+                .edit().clear().commit();
+    }
+
+    @Test
+    public void getNonIndexableKeys_sameInputs_loadOnce() throws Exception {
+        final List<String> firstKeys = getNonIndexableKeys(mCacheableBundle);
+        final SearchIndexableCache cache = openCache();
+        final List<String> secondKeys = cache.getNonIndexableKeys(mCacheableBundle,
+                () -> loadNonIndexableKeys());
+
+        assertThat(mLoadCount.get()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(secondKeys).containsExactlyElementsIn(firstKeys).inOrder();
+    }
+
+    @Test
+    public void getNonIndexableKeys_settingChanged_reload() throws Exception {
+        getNonIndexableKeys(mCacheableBundle);
+        Settings.Global.putInt(mContext.getContentResolver(), SETTING, 0);
+
+        final SearchIndexableCache cache = openCache();
+        cache.getNonIndexableKeys(mCacheableBundle, () -> loadNonIndexableKeys());
+
+        assertThat(mLoadCount.get()).isEqualTo(2);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getNonIndexableKeys_globalFingerprintChanged_reload() throws Exception {
+        getNonIndexableKeys(mCacheableBundle);
+        mContext.getSharedPreferences(SearchIndexableCache.PREFS_FILE, Context.MODE_PRIVATE)
+                .edit().putString(SearchIndexableCache.KEY_FINGERPRINT, "old").commit();
+
+        getNonIndexableKeys(mCacheableBundle);
+
+        assertThat(mLoadCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getNonIndexableKeys_noCacheInputs_alwaysLoad() throws Exception {
+        getNonIndexableKeys(mUncacheableBundle);
+        final SearchIndexableCache cache = openCache();
+        cache.getNonIndexableKeys(mUncacheableBundle, () -> loadNonIndexableKeys());
+
+        assertThat(mLoadCount.get()).isEqualTo(2);
+        assertThat(cache.getHitCount()).isEqualTo(0);
+        assertThat(cache.getMissCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void getNonIndexableKeys_xmlOnlyProvider_loadOnce() throws Exception {
+        final SearchIndexableData bundle = new SearchIndexableData(
+                FakeSettingsFragment.class, new BaseSearchIndexProvider());
+
+        getNonIndexableKeys(bundle);
+        getNonIndexableKeys(bundle);
+
+        assertThat(mLoadCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void getNonIndexableKeys_controllerAvailabilityChanged_reload() throws Exception {
+        final SearchIndexableData bundle =
+                new SearchIndexableData(FakeSettingsFragment.class, mControllerProvider);
+        mController.mAvailabilityStatus = BasePreferenceController.AVAILABLE;
+        getNonIndexableKeys(bundle);
+        getNonIndexableKeys(bundle);
+
+        mController.mAvailabilityStatus = BasePreferenceController.CONDITIONALLY_UNAVAILABLE;
+        getNonIndexableKeys(bundle);
+
+        assertThat(mLoadCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getNonIndexableKeys_controllerUpdatesKeysByItself_alwaysLoad() throws Exception {
+        final SearchIndexableData bundle = new SearchIndexableData(FakeSettingsFragment.class,
+                new BaseSearchIndexProvider() {
+                    @Override
+                    public List<AbstractPreferenceController> createPreferenceControllers(
+                            Context context) {
+                        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+                        controllers.add(new FakeController(context, "key") {
+                            @Override
+                            public void updateNonIndexableKeys(List<String> keys) {
+                                keys.add(getPreferenceKey());
+                            }
+                        });
+                        return controllers;
+                    }
+
+                    @Override
+                    public SearchIndexableCache.Inputs getCacheInputs(Context context) {
+                        return new SearchIndexableCache.Inputs();
+                    }
+                });
+
+        getNonIndexableKeys(bundle);
+        getNonIndexableKeys(bundle);
+
+        assertThat(mLoadCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getRawData_sameInputs_returnCachedRaw() throws Exception {
+        final SearchIndexableRaw raw = new SearchIndexableRaw(mContext);
+        raw.key = "key";
+        raw.title = "title";
+        raw.keywords = "keywords";
+        raw.className = FakeSettingsFragment.class.getName();
+        raw.iconResId = 123;
+        raw.rank = 5;
+        raw.enabled = false;
+        raw.packageName = "com.android.test";
+        raw.locale = Locale.FRANCE;
+        final List<SearchIndexableRaw> raws = new ArrayList<>();
+        raws.add(raw);
+        final SearchIndexableCache firstCache =
+                SearchIndexableCache.open(mContext, SearchIndexableCache.QUERY_RAW_DATA);
+        firstCache.getRawData(mCacheableBundle, () -> raws);
+        firstCache.commit();
+
+        final List<SearchIndexableRaw> cachedRaws =
+                SearchIndexableCache.open(mContext, SearchIndexableCache.QUERY_RAW_DATA)
+                        .getRawData(mCacheableBundle, () -> null);
+
+        assertThat(cachedRaws).hasSize(1);
+        final SearchIndexableRaw cachedRaw = cachedRaws.get(0);
+        assertThat(cachedRaw.key).isEqualTo("key");
+        assertThat(cachedRaw.title).isEqualTo("title");
+        assertThat(cachedRaw.keywords).isEqualTo("keywords");
+        assertThat(cachedRaw.summaryOn).isNull();
+        assertThat(cachedRaw.className).isEqualTo(FakeSettingsFragment.class.getName());
+        assertThat(cachedRaw.iconResId).isEqualTo(123);
+        assertThat(cachedRaw.userId).isEqualTo(raw.userId);
+        assertThat(cachedRaw.rank).isEqualTo(5);
+        assertThat(cachedRaw.enabled).isFalse();
+        assertThat(cachedRaw.packageName).isEqualTo("com.android.test");
+        assertThat(cachedRaw.locale).isEqualTo(Locale.FRANCE);
+    }
+
+    private List<String> getNonIndexableKeys(SearchIndexableData bundle) throws Exception {
+        final SearchIndexableCache cache = openCache();
+        final List<String> keys = cache.getNonIndexableKeys(bundle, () -> loadNonIndexableKeys());
+        cache.commit();
+        return keys;
+    }
+
+    private SearchIndexableCache openCache() {
+        return SearchIndexableCache.open(mContext, SearchIndexableCache.QUERY_NON_INDEXABLE_KEYS);
+    }
+
+    private List<String> loadNonIndexableKeys() {
+        mLoadCount.incrementAndGet();
+        final List<String> keys = new ArrayList<>();
+        keys.add("key1");
+        keys.add("key2");
+        return keys;
+    }
+
+    private static class FakeController extends BasePreferenceController {
+        int mAvailabilityStatus = AVAILABLE;
+
+        FakeController(Context context, String key) {
+            super(context, key);
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return mAvailabilityStatus;
+        }
+    }
+}
@@ -46,6 +46,7 @@ import android.os.StrictMode;
 import android.provider.Settings;
 import android.provider.SettingsSlicesContract;
 import android.util.ArraySet;
+import android.util.LruCache;
 import android.view.accessibility.AccessibilityManager;
 
 import androidx.slice.Slice;
@@ -61,6 +62,7 @@ import com.android.settings.testutils.shadow.ShadowThreadUtils;
 import com.android.settings.testutils.shadow.ShadowUserManager;
 import com.android.settings.testutils.shadow.ShadowUtils;
 
+import org.json.JSONException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -85,7 +87,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -148,7 +149,7 @@ public class SettingsSliceProviderTest {
 
         mProvider = spy(new SettingsSliceProvider());
         ShadowStrictMode.reset();
-        mProvider.mSliceWeakDataCache = new HashMap<>();
+        mProvider.mSliceDataCache = new LruCache<>(64);
         mProvider.mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(mContext);
         when(mProvider.getContext()).thenReturn(mContext);
 
@@ -184,7 +185,7 @@ public class SettingsSliceProviderTest {
         SliceTestUtils.insertSliceToDb(mContext, KEY);
 
         mProvider.loadSlice(INTENT_SLICE_URI);
-        SliceData data = mProvider.mSliceWeakDataCache.get(INTENT_SLICE_URI);
+        SliceData data = mProvider.mSliceDataCache.get(INTENT_SLICE_URI);
 
         assertThat(data.getKey()).isEqualTo(KEY);
         assertThat(data.getTitle()).isEqualTo(SliceTestUtils.FAKE_TITLE);
@@ -216,21 +217,67 @@ public class SettingsSliceProviderTest {
     @Test
     public void testLoadSlice_cachedEntryRemovedOnUnpinned() {
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onSliceUnpinned(data.getUri());
         SliceTestUtils.insertSliceToDb(mContext, data.getKey());
 
-        SliceData cachedData = mProvider.mSliceWeakDataCache.get(data.getUri());
+        SliceData cachedData = mProvider.mSliceDataCache.get(data.getUri());
 
         assertThat(cachedData).isNull();
     }
 
+    @Test
+    public void onSlicePinned_backgroundThread_sliceDataCached() {
+        ShadowThreadUtils.setIsMainThread(false);
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+
+        mProvider.onSlicePinned(INTENT_SLICE_URI);
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey()).isEqualTo(KEY);
+    }
+
+    @Test
+    public void onBindSlice_cachedSliceData_countedAsHit() {
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+
+        mProvider.onBindSlice(data.getUri());
+
+        assertThat(mProvider.mSliceDataCache.hitCount()).isEqualTo(1);
+        assertThat(mProvider.mSliceDataCache.missCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void loadSlice_cachedSliceData_notLoadAgain() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(INTENT_SLICE_URI, data);
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI)).isSameInstanceAs(data);
+    }
+
+    @Test
+    public void dumpCacheStats_pinnedLoad_notCountedAsMiss() throws JSONException {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        final int misses = SettingsSliceProvider.dumpCacheStats().getInt("misses");
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+        assertThat(SettingsSliceProvider.dumpCacheStats().getInt("misses")).isEqualTo(misses);
+
+        mProvider.mSliceDataCache.evictAll();
+        mProvider.onBindSlice(INTENT_SLICE_URI);
+        assertThat(SettingsSliceProvider.dumpCacheStats().getInt("misses"))
+                .isEqualTo(misses + 1);
+    }
+
     @Test
     public void onBindSlice_mainThread_shouldNotOverrideStrictMode() {
         ShadowThreadUtils.setIsMainThread(true);
         final StrictMode.ThreadPolicy oldThreadPolicy = StrictMode.getThreadPolicy();
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         final StrictMode.ThreadPolicy newThreadPolicy = StrictMode.getThreadPolicy();
@@ -244,7 +291,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(false);
 
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowStrictMode.isThreadPolicyOverridden()).isTrue();
@@ -272,7 +319,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeChanged_shouldReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         final SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_YES;
@@ -285,7 +332,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeNotChanged_shouldNotReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
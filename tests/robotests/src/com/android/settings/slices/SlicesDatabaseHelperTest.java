@@ -18,11 +18,13 @@ package com.android.settings.slices;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.pm.ChangedPackages;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
@@ -37,6 +39,7 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 @RunWith(RobolectricTestRunner.class)
@@ -132,6 +135,26 @@ public class SlicesDatabaseHelperTest {
         assertThat(mSlicesDatabaseHelper.isSliceDataIndexed()).isFalse();
     }
 
+    @Test
+    public void isSliceDataIndexed_otherPackageChanged_stillIndexed() {
+        doReturn(null).when(mSlicesDatabaseHelper).getChangedPackages(anyInt());
+        mSlicesDatabaseHelper.setIndexedState();
+        doReturn(new ChangedPackages(1, Arrays.asList("com.example.other")))
+                .when(mSlicesDatabaseHelper).getChangedPackages(anyInt());
+
+        assertThat(mSlicesDatabaseHelper.isSliceDataIndexed()).isTrue();
+    }
+
+    @Test
+    public void isSliceDataIndexed_settingsPackageChanged_newIndexingState() {
+        doReturn(null).when(mSlicesDatabaseHelper).getChangedPackages(anyInt());
+        mSlicesDatabaseHelper.setIndexedState();
+        doReturn(new ChangedPackages(1, Arrays.asList(mContext.getPackageName())))
+                .when(mSlicesDatabaseHelper).getChangedPackages(anyInt());
+
+        assertThat(mSlicesDatabaseHelper.isSliceDataIndexed()).isFalse();
+    }
+
     private ContentValues getMockRow() {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, "key");
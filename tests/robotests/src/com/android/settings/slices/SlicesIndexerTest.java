@@ -18,17 +18,25 @@ package com.android.settings.slices;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
+import android.app.settings.SettingsEnums;
+import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.provider.Settings;
 
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.testutils.DatabaseTestUtils;
+import com.android.settings.testutils.FakeFeatureFactory;
 
 import org.junit.After;
 import org.junit.Before;
@@ -56,16 +64,19 @@ public class SlicesIndexerTest {
     private static final int SLICE_TYPE = SliceData.SliceType.SLIDER;
     private static final String UNAVAILABLE_SLICE_SUBTITLE = "subtitleOfUnavailableSlice";
     private static final int HIGHLIGHT_MENU_KEY = 5678; // I declare a thumb war
+    private static final String INPUT_HASH = "input hash";
 
     private Context mContext;
+    private FakeFeatureFactory mFeatureFactory;
 
     private SlicesIndexer mManager;
 
-
     @Before
     public void setUp() {
         mContext = RuntimeEnvironment.application;
+        mFeatureFactory = FakeFeatureFactory.setupForTest();
         mManager = spy(new SlicesIndexer(mContext));
+        doReturn(INPUT_HASH).when(mManager).getSliceInputHash();
     }
 
     @After
@@ -107,6 +118,38 @@ public class SlicesIndexerTest {
         assertThat(helper.isSliceDataIndexed()).isTrue();
     }
 
+    @Test
+    public void run_sameInputHash_notGetSliceData() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        helper.setIndexedState(INPUT_HASH);
+        rebootDevice();
+
+        mManager.run();
+
+        verify(mManager, never()).getSliceData();
+        assertThat(helper.isSliceDataIndexed()).isTrue();
+        verify(mFeatureFactory.metricsFeatureProvider).action(eq(SettingsEnums.PAGE_UNKNOWN),
+                eq(SettingsEnums.ACTION_SETTINGS_SLICE_CHANGED), eq(SettingsEnums.PAGE_UNKNOWN),
+                eq("slices_indexing_time"), anyInt());
+    }
+
+    @Test
+    public void run_inputHashChanged_getSliceDataAndStoreHash() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        helper.setIndexedState(INPUT_HASH);
+        rebootDevice();
+        doReturn("new hash").when(mManager).getSliceInputHash();
+        doReturn(new ArrayList<SliceData>()).when(mManager).getSliceData();
+
+        mManager.run();
+
+        verify(mManager).getSliceData();
+        assertThat(helper.getIndexedInputHash()).isEqualTo("new hash");
+        verify(mFeatureFactory.metricsFeatureProvider).action(eq(SettingsEnums.PAGE_UNKNOWN),
+                eq(SettingsEnums.ACTION_SETTINGS_SLICE_CHANGED), eq(SettingsEnums.PAGE_UNKNOWN),
+                eq("slices_indexing_time"), anyInt());
+    }
+
     @Test
     @Ignore
     public void testInsertSliceData_nonPublicSlice_mockDataInserted() {
@@ -205,6 +248,31 @@ public class SlicesIndexerTest {
         }
     }
 
+    @Test
+    public void getHash_sameSliceData_sameHash() {
+        assertThat(SlicesIndexer.getHash(getMockIndexableData(false)))
+                .isEqualTo(SlicesIndexer.getHash(getMockIndexableData(false)));
+    }
+
+    @Test
+    public void getHash_sliceDataChanged_differentHash() {
+        final List<SliceData> sliceData = getMockIndexableData(false);
+        final List<SliceData> publicSliceData = getMockIndexableData(true);
+        final List<SliceData> removedSliceData = getMockIndexableData(false);
+        removedSliceData.remove(0);
+
+        final String hash = SlicesIndexer.getHash(sliceData);
+
+        assertThat(SlicesIndexer.getHash(publicSliceData)).isNotEqualTo(hash);
+        assertThat(SlicesIndexer.getHash(removedSliceData)).isNotEqualTo(hash);
+    }
+
+    private void rebootDevice() {
+        final ContentResolver resolver = mContext.getContentResolver();
+        Settings.Global.putInt(resolver, Settings.Global.BOOT_COUNT,
+                Settings.Global.getInt(resolver, Settings.Global.BOOT_COUNT, 0) + 1);
+    }
+
     private void insertSpecialCase(String key, String title) {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, key);
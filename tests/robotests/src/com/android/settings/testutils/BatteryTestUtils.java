@@ -45,6 +45,7 @@ import com.android.settings.fuelgauge.batteryusage.db.AppUsageEventEntity;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryState;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDao;
 import com.android.settings.fuelgauge.batteryusage.db.BatteryStateDatabase;
+import com.android.settings.fuelgauge.batteryusage.db.BatteryStateSnapshotEntity;
 
 import com.google.common.collect.ImmutableList;
 
@@ -160,6 +161,8 @@ public class BatteryTestUtils {
         } else {
             dao.insert(state);
         }
+        BatteryStateDatabase.getInstance(context).batteryStateSnapshotDao()
+                .insert(BatteryStateSnapshotEntity.create(state));
     }
 
     /**
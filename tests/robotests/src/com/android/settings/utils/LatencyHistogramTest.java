@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class LatencyHistogramTest {
+
+    @Test
+    public void toJson_noLatency_returnEmptyHistogram() throws Exception {
+        final JSONObject json = new LatencyHistogram().toJson();
+
+        assertThat(json.getInt("count")).isEqualTo(0);
+        assertThat(json.getLong("avg_ms")).isEqualTo(0);
+        assertThat(json.getJSONArray("buckets").length()).isEqualTo(0);
+    }
+
+    @Test
+    public void toJson_latencies_countInPowerOfTwoBuckets() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(2);
+        histogram.record(9);
+
+        final JSONObject json = histogram.toJson();
+        final JSONArray buckets = json.getJSONArray("buckets");
+
+        assertThat(json.getInt("count")).isEqualTo(4);
+        assertThat(json.getLong("avg_ms")).isEqualTo(3);
+        assertThat(json.getLong("max_ms")).isEqualTo(9);
+        assertThat(buckets.length()).isEqualTo(5);
+        assertThat(buckets.getInt(0)).isEqualTo(1);
+        assertThat(buckets.getInt(2)).isEqualTo(2);
+        assertThat(buckets.getInt(4)).isEqualTo(1);
+    }
+
+    @Test
+    public void record_hugeLatency_countInLastBucket() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+
+        final JSONArray buckets = histogram.toJson().getJSONArray("buckets");
+
+        assertThat(buckets.getInt(buckets.length() - 1)).isEqualTo(1);
+    }
+}
@@ -359,6 +359,29 @@ public class WifiSettingsTest {
         verify(mWifiManager).connect(eq(config), any(WifiManager.ActionListener.class));
     }
 
+    @Test
+    public void getUpdateDelayMs_frequentChanges_shouldRaiseDelayUpToMax() {
+        assertThat(WifiSettings.getUpdateDelayMs(WifiSettings.MIN_UPDATE_DELAY_MS, 100))
+                .isEqualTo(WifiSettings.MIN_UPDATE_DELAY_MS * 2);
+        assertThat(WifiSettings.getUpdateDelayMs(WifiSettings.MAX_UPDATE_DELAY_MS, 100))
+                .isEqualTo(WifiSettings.MAX_UPDATE_DELAY_MS);
+    }
+
+    @Test
+    public void getUpdateDelayMs_rareChanges_shouldLowerDelayDownToMin() {
+        assertThat(WifiSettings.getUpdateDelayMs(WifiSettings.MAX_UPDATE_DELAY_MS, 60000))
+                .isEqualTo(WifiSettings.MAX_UPDATE_DELAY_MS / 2);
+        assertThat(WifiSettings.getUpdateDelayMs(WifiSettings.MIN_UPDATE_DELAY_MS, 60000))
+                .isEqualTo(WifiSettings.MIN_UPDATE_DELAY_MS);
+    }
+
+    @Test
+    public void getUpdateDelayMs_changedAfterCurrentDelay_shouldLowerDelay() {
+        assertThat(WifiSettings.getUpdateDelayMs(WifiSettings.MAX_UPDATE_DELAY_MS,
+                WifiSettings.MAX_UPDATE_DELAY_MS))
+                .isEqualTo(WifiSettings.MAX_UPDATE_DELAY_MS / 2);
+    }
+
     private WifiDialog2 createWifiDialog2(int mode, WifiConfiguration config) {
         final WifiEntry wifiEntry = mock(WifiEntry.class);
         when(wifiEntry.canConnect()).thenReturn(true);
@@ -25,6 +25,8 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -81,6 +83,8 @@ public class StorageAsyncLoaderTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
         mContext = spy(ApplicationProvider.getApplicationContext());
+        mContext.getSharedPreferences(StorageCacheHelper.PACKAGE_SHARED_PREFERENCE_NAME
+                + PRIMARY_USER_ID, Context.MODE_PRIVATE).edit().clear().commit();
         mInfo = new ArrayList<>();
         mLoader = new StorageAsyncLoader(mContext, mUserManager, "id", mSource, mPackageManager);
         when(mPackageManager.getInstalledApplicationsAsUser(eq(PRIMARY_USER_ID), anyInt()))
@@ -208,6 +212,31 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(33L);
     }
 
+    @Test
+    public void testCachedPackageStatsAreReused() throws Exception {
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        mLoader.loadInBackground();
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = mLoader.loadInBackground();
+
+        verify(mSource, times(1)).getStatsForPackage(anyString(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+        assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(11L);
+    }
+
+    @Test
+    public void testUpdatedPackageStatsAreReloaded() throws Exception {
+        ApplicationInfo info =
+                addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        mLoader.loadInBackground();
+        info.longVersionCode++;
+
+        mLoader.loadInBackground();
+
+        verify(mSource, times(2)).getStatsForPackage(anyString(), eq(PACKAGE_NAME_1),
+                any(UserHandle.class));
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStatsSource.AppStorageStats storageStats =
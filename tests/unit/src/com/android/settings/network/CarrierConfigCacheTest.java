@@ -31,6 +31,7 @@ import android.telephony.CarrierConfigManager;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -44,6 +45,8 @@ public class CarrierConfigCacheTest {
 
     static final int ONCE_SUB_ID = 11;
     static final int TWICE_SUB_ID = 12;
+    static final int INVALIDATED_SUB_ID = 13;
+    static final int OTHER_SUB_ID = 14;
 
     @Rule
     public final MockitoRule mMockitoRule = MockitoJUnit.rule();
@@ -98,4 +101,51 @@ public class CarrierConfigCacheTest {
 
         verify(mCarrierConfigManager, times(1)).getConfigForSubId(TWICE_SUB_ID);
     }
+
+    @Test
+    public void invalidate_validSubId_onlyReloadThatSubId() {
+        CarrierConfigCache.invalidate(INVALIDATED_SUB_ID);
+        CarrierConfigCache.invalidate(OTHER_SUB_ID);
+        when(mCarrierConfigManager.getConfigForSubId(INVALIDATED_SUB_ID))
+                .thenReturn(mCarrierConfig);
+        when(mCarrierConfigManager.getConfigForSubId(OTHER_SUB_ID)).thenReturn(mCarrierConfig);
+        mCarrierConfigCache.getConfigForSubId(INVALIDATED_SUB_ID);
+        mCarrierConfigCache.getConfigForSubId(OTHER_SUB_ID);
+
+        CarrierConfigCache.invalidate(INVALIDATED_SUB_ID);
+        mCarrierConfigCache.getConfigForSubId(INVALIDATED_SUB_ID);
+        mCarrierConfigCache.getConfigForSubId(OTHER_SUB_ID);
+
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(INVALIDATED_SUB_ID);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(OTHER_SUB_ID);
+    }
+
+    @Test
+    public void dump_cacheHit_countHitWithoutLoad() throws Exception {
+        when(mCarrierConfigManager.getConfigForSubId(OTHER_SUB_ID)).thenReturn(mCarrierConfig);
+        CarrierConfigCache.invalidate(OTHER_SUB_ID);
+        mCarrierConfigCache.getConfigForSubId(OTHER_SUB_ID);
+        final JSONObject before = CarrierConfigCache.dump();
+
+        mCarrierConfigCache.getConfigForSubId(OTHER_SUB_ID);
+        final JSONObject after = CarrierConfigCache.dump();
+
+        assertThat(after.getLong("hits")).isEqualTo(before.getLong("hits") + 1);
+        assertThat(after.getLong("loads")).isEqualTo(before.getLong("loads"));
+        assertThat(after.has("load_max_us")).isTrue();
+    }
+
+    @Test
+    public void dump_invalidated_countOneLoad() throws Exception {
+        when(mCarrierConfigManager.getConfigForSubId(OTHER_SUB_ID)).thenReturn(mCarrierConfig);
+        mCarrierConfigCache.getConfigForSubId(OTHER_SUB_ID);
+        final JSONObject before = CarrierConfigCache.dump();
+
+        CarrierConfigCache.invalidate(OTHER_SUB_ID);
+        mCarrierConfigCache.getConfigForSubId(OTHER_SUB_ID);
+        final JSONObject after = CarrierConfigCache.dump();
+
+        assertThat(after.getLong("loads")).isEqualTo(before.getLong("loads") + 1);
+        assertThat(after.getLong("hits")).isEqualTo(before.getLong("hits"));
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.mobile.dataservice.MobileNetworkDatabase;
+import com.android.settingslib.mobile.dataservice.MobileNetworkInfoEntity;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(AndroidJUnit4.class)
+public class MobileNetworkRepositoryTest {
+
+    private static final int SUB_ID = 1;
+    private static final int OTHER_SUB_ID = 2;
+
+    @Rule
+    public final MockitoRule mMockitoRule = MockitoJUnit.rule();
+    @Mock
+    private MobileNetworkDatabase mDatabase;
+
+    private MobileNetworkRepository.PendingWrites mPendingWrites;
+
+    @Before
+    public void setUp() {
+        mPendingWrites = new MobileNetworkRepository.PendingWrites();
+    }
+
+    @Test
+    public void writeTo_sameSubUpdatedTwice_insertLatestOnce() {
+        final MobileNetworkInfoEntity latest = createMobileNetworkInfoEntity(SUB_ID, true);
+        mPendingWrites.mMobileNetworkInfos.put(SUB_ID,
+                createMobileNetworkInfoEntity(SUB_ID, false));
+        mPendingWrites.mMobileNetworkInfos.put(SUB_ID, latest);
+
+        mPendingWrites.writeTo(mDatabase);
+
+        verify(mDatabase, times(1)).insertMobileNetworkInfo(latest);
+    }
+
+    @Test
+    public void writeTo_removedAfterUpdate_deleteWithoutInsert() {
+        mPendingWrites.mMobileNetworkInfos.put(SUB_ID,
+                createMobileNetworkInfoEntity(SUB_ID, true));
+
+        mPendingWrites.delete(String.valueOf(SUB_ID));
+        mPendingWrites.writeTo(mDatabase);
+
+        verify(mDatabase).deleteSubInfoBySubId(String.valueOf(SUB_ID));
+        verify(mDatabase).deleteUiccInfoBySubId(String.valueOf(SUB_ID));
+        verify(mDatabase).deleteMobileNetworkInfoBySubId(String.valueOf(SUB_ID));
+        verify(mDatabase, never()).insertMobileNetworkInfo(any());
+    }
+
+    @Test
+    public void isDeleted_removedSub_returnTrue() {
+        mPendingWrites.delete(String.valueOf(SUB_ID));
+
+        assertThat(mPendingWrites.isDeleted(SUB_ID)).isTrue();
+        assertThat(mPendingWrites.isDeleted(OTHER_SUB_ID)).isFalse();
+    }
+
+    @Test
+    public void clear_removedSub_notDeletedAnymore() {
+        mPendingWrites.delete(String.valueOf(SUB_ID));
+
+        mPendingWrites.clear();
+
+        assertThat(mPendingWrites.isDeleted(SUB_ID)).isFalse();
+        assertThat(mPendingWrites.isEmpty()).isTrue();
+    }
+
+    private static MobileNetworkInfoEntity createMobileNetworkInfoEntity(int subId,
+            boolean isDataEnabled) {
+        return new MobileNetworkInfoEntity(String.valueOf(subId), false, false, isDataEnabled,
+                false, false, false, false, false, false, false, false);
+    }
+}